@@ -15,6 +15,7 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import logic.BistroClientGUI;
+import logic.RequestBatch;
 
 /*
  * This class represents the controller for the Client Dashboard screen in the BistroClientGUI.
@@ -70,9 +71,11 @@ public class ClientDashboardScreen {
 	    User loggedInUser = BistroClientGUI.client.getUserCTRL().getLoggedInUser();
 	    int userID = loggedInUser.getUserId();
 	    TaskRunner.run (rootPane,()->{
-	    // Fetch all necessary states at once
-	    	BistroClientGUI.client.getWaitingListCTRL().askUserOnWaitingList(userID);
-	    	BistroClientGUI.client.getTableCTRL().askUserAllocatedSeatedOrder(userID);
+	    // Fetch all necessary states at once, in one round trip
+	    	RequestBatch load = BistroClientGUI.client.newBatch();
+	    	BistroClientGUI.client.getWaitingListCTRL().askUserOnWaitingList(userID, load);
+	    	BistroClientGUI.client.getTableCTRL().askUserAllocatedSeatedOrder(userID, load);
+	    	load.send();
 	    },()->{
 	    	boolean isOnWaitingList = BistroClientGUI.client.getWaitingListCTRL().isUserOnWaitingList();
 	    	boolean hasActiveSeatedReservation = BistroClientGUI.client.getTableCTRL().getUserAllocatedOrderForTable() != null;
@@ -5,9 +5,9 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.stream.Collectors;
+import dto.Page;
 import entities.Order;
 import enums.OrderStatus;
-import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -56,6 +56,8 @@ public class ClientManageBookingScreen {
     private TableColumn<Order, Integer> colTable;
 
     private ObservableList<Order> masterData = FXCollections.observableArrayList();
+    // Loads the history page by page, latest first, as the table is scrolled
+    private LazyTablePager<Order> pager;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     // ****************************** Instance Methods ******************************
@@ -70,6 +72,10 @@ public class ClientManageBookingScreen {
         dateFilter.setValue(LocalDate.now());
         // Listener for date picker to filter the table
         dateFilter.valueProperty().addListener((obs, oldVal, newVal) -> filterTable(newVal));
+        if (BistroClientGUI.client != null) {
+            pager = new LazyTablePager<>(reservationsTable,
+                    after -> BistroClientGUI.client.getReservationCTRL().askClientOrderHistoryPage(after), this::showPage);
+        }
         loadData();
     }
     
@@ -128,27 +134,25 @@ public class ClientManageBookingScreen {
     }
 
     /**
-     * Loads reservation data from the server and sets up the listener for updates.
+     * Loads the first page of the order history and sets up the listener for the next pages.
      */
     private void loadData() {
         if (BistroClientGUI.client != null) {
-            BistroClientGUI.client.getReservationCTRL().setAllReservationsListener(this::updateTable);
-            BistroClientGUI.client.getReservationCTRL().askClientOrderHistory();
+            BistroClientGUI.client.getReservationCTRL().setHistoryPageListener(pager::receive);
+            pager.start();
         }
     }
     
     /**
-     * Updates the table with the provided list of orders.
-     * @param orders
+     * Adds a page of the order history to the table.
+     * @param page
      */
-    private void updateTable(List<Order> orders) {
-        Platform.runLater(() -> {
+    private void showPage(Page<Order> page) {
+        if (page.isFirst()) {
             masterData.clear();
-            if (orders != null) {
-                masterData.addAll(orders);
-            }
-            filterTable(dateFilter.getValue());
-        });
+        }
+        masterData.addAll(page.getItems());
+        filterTable(dateFilter.getValue());
     }
     
     /**
@@ -0,0 +1,146 @@
+package gui.logic;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import dto.Page;
+import dto.PageCursor;
+import javafx.application.Platform;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+/**
+ * Loads a keyset-paged list into a table page by page: the first page on
+ * start, then the next one whenever the user scrolls near the end of the
+ * table, until the server has no more rows. Only one page is in flight at a
+ * time, and a page that arrives after the pager was restarted or stopped is
+ * dropped.
+ *
+ * @param <T> the type of the rows
+ */
+public class LazyTablePager<T> {
+
+	//********************** Constants ************************
+
+	/** Part of the scroll range after which the next page is requested */
+	private static final double LOAD_MORE_AT = 0.9;
+
+	//********************** Instance Variables ************************
+
+	private final TableView<?> table;
+	private final Consumer<PageCursor> requester;
+	private final Consumer<Page<T>> onPage;
+	private ScrollBar scrollBar;
+	// Cursor of the page in flight, valid while loading
+	private PageCursor requested;
+	private PageCursor next;
+	private boolean loading;
+
+	//********************** Constructors ************************
+
+	/**
+	 * Creates a pager for a table.
+	 *
+	 * @param table     The table showing the rows.
+	 * @param requester Sends the request for the page after a cursor, null for
+	 *                  the first page. Called off the FX thread, it may block
+	 *                  until the reply was handled.
+	 * @param onPage    Shows a received page, called on the FX thread.
+	 */
+	public LazyTablePager(TableView<?> table, Consumer<PageCursor> requester, Consumer<Page<T>> onPage) {
+		this.table = table;
+		this.requester = requester;
+		this.onPage = onPage;
+	}
+
+	//********************** Instance Methods ************************
+
+	/**
+	 * Starts over from the first page. Called on the FX thread.
+	 */
+	public void start() {
+		next = null;
+		request(null);
+	}
+
+	/**
+	 * Stops loading; a page still in flight is dropped. Called on the FX thread.
+	 */
+	public void stop() {
+		loading = false;
+		next = null;
+	}
+
+	/**
+	 * Receives a page from the server, on any thread.
+	 *
+	 * @param page The page, or null if the request failed.
+	 */
+	public void receive(Page<T> page) {
+		Platform.runLater(() -> {
+			if (page == null) {
+				loading = false;
+				return;
+			}
+			if (!loading || !Objects.equals(page.getAfter(), requested)) {
+				return; // Answers a request of an earlier start
+			}
+			loading = false;
+			next = page.getNext();
+			onPage.accept(page);
+			hookScrollBar();
+			// Until the rows overflow the table there is nothing to scroll
+			if (next != null && (scrollBar == null || !scrollBar.isVisible())) {
+				request(next);
+			}
+		});
+	}
+
+	/**
+	 * Checks whether more pages can be loaded.
+	 *
+	 * @return true if the last page was not received yet.
+	 */
+	public boolean hasMore() {
+		return loading || next != null;
+	}
+
+	/**
+	 * Sends the request for a page off the FX thread.
+	 */
+	private void request(PageCursor after) {
+		loading = true;
+		requested = after;
+		Thread loader = new Thread(() -> requester.accept(after), "page-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Listens to the vertical scroll bar of the table, once its skin created it.
+	 */
+	private void hookScrollBar() {
+		if (scrollBar != null) {
+			return;
+		}
+		for (Node node : table.lookupAll(".scroll-bar")) {
+			if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+				scrollBar = bar;
+				bar.valueProperty().addListener((obs, oldValue, newValue) -> loadMoreNearEnd());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Requests the next page when the table is scrolled near its end.
+	 */
+	private void loadMoreNearEnd() {
+		if (!loading && next != null && scrollBar.getValue() >= scrollBar.getMax() * LOAD_MORE_AT) {
+			request(next);
+		}
+	}
+}
+// End of LazyTablePager.java
@@ -2,9 +2,11 @@ package gui.logic.staff;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import common.InputCheck;
+import dto.Page;
 import dto.UserData;
 import enums.UserType;
 import javafx.application.Platform;
@@ -32,6 +34,7 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.GridPane;
+import gui.logic.LazyTablePager;
 import logic.BistroClientGUI;
 
 public class CustomersPanel {
@@ -64,6 +67,8 @@ public class CustomersPanel {
 	// List wrappers for search and sort functionality
 	private final ObservableList<UserData> masterData = FXCollections.observableArrayList();
 	private FilteredList<UserData> filteredData;
+	// Loads the directory page by page as the table is scrolled
+	private LazyTablePager<UserData> pager;
 
 	/** Initializes the controller class. This method is automatically called
 	 * after the fxml file has been loaded.
@@ -73,6 +78,8 @@ public class CustomersPanel {
 		setupColumns();
 		setupRowListeners();
 		setupSearchLogic();
+		pager = new LazyTablePager<>(customersTable,
+				after -> BistroClientGUI.client.getUserCTRL().loadCustomersPage(after), this::showCustomersPage);
 		refreshdata();
 
 	}
@@ -182,25 +189,35 @@ public class CustomersPanel {
 	 * Helper Methods
 	 */
 	private void refreshdata() {
-		BistroClientGUI.client.getUserCTRL().clearCustomersData();
-		BistroClientGUI.client.getUserCTRL().loadCustomersData();
-		if (BistroClientGUI.client.getUserCTRL().isCustomersDataLoaded()) {
-			updateCustomers(BistroClientGUI.client.getUserCTRL().getCustomersData());
-		} else {
-			Platform.runLater(() -> {
-				totalCustomersLabel.setText("0");
-				membersLabel.setText("0");
-				walkinsLabel.setText("0");
-				directoryTitleLabel.setText("Customer Directory (0)");
-				masterData.clear();
-			});
+		// The search filters the rows loaded so far
+		BistroClientGUI.client.getUserCTRL().setCustomersPageListener(pager::receive);
+		pager.start();
+	}
+
+	/*
+	 * Shows one page of the customer directory. The first page carries the
+	 * counts of the whole directory for the labels.
+	 */
+	private void showCustomersPage(Page<UserData> page) {
+		if (page.isFirst()) {
+			masterData.clear();
+			Map<String, Integer> summary = page.getSummary();
+			int members = summary == null ? 0 : summary.getOrDefault(UserType.MEMBER.name(), 0);
+			int walkins = summary == null ? 0 : summary.getOrDefault(UserType.GUEST.name(), 0);
+			int total = members + walkins;
+			directoryTitleLabel.setText("Customer Directory (" + total + ")");
+			totalCustomersLabel.setText(String.valueOf(total));
+			membersLabel.setText(String.valueOf(members));
+			walkinsLabel.setText(String.valueOf(walkins));
+		}
+		masterData.addAll(page.getItems());
+		if (page.isFirst() && !page.hasMore() && masterData.isEmpty()) {
 			Alert alert = new Alert(Alert.AlertType.INFORMATION);
 			alert.setTitle("No Data");
 			alert.setHeaderText(null);
 			alert.setContentText("No customer data available.");
 			alert.showAndWait();
 		}
-
 	}
 
 	/*
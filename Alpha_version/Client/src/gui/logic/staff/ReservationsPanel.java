@@ -1,8 +1,13 @@
 package gui.logic.staff;
 
+import comms.Api;
+import dto.ChangeEvent;
+import dto.ListChunk;
+import dto.Page;
 import entities.Order;
 import enums.OrderStatus;
 import gui.logic.ClientNewReservationScreen;
+import gui.logic.LazyTablePager;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -67,6 +72,10 @@ public class ReservationsPanel {
     private FilteredList<Order> filteredData;
     private boolean viewingMemberHistory = false;
     private int currentMemberCode = -1;
+    // Loads the shown member history page by page as the table is scrolled
+    private LazyTablePager<Order> historyPager;
+    // Reservations topic of the shown date, whose pushed changes patch masterData
+    private String subscribedTopic;
 
     /** Initializes the controller class. This method is automatically called
 	 * after the fxml file has been loaded.
@@ -92,7 +101,17 @@ public class ReservationsPanel {
         reservationsTable.setItems(sortedData);
         dateFilter.setValue(LocalDate.now());        
         if (BistroClientGUI.client != null) {
+            historyPager = new LazyTablePager<>(reservationsTable,
+                    after -> BistroClientGUI.client.getReservationCTRL().askMemberHistoryPage(currentMemberCode, after),
+                    this::showHistoryPage);
             BistroClientGUI.client.getReservationCTRL().setCancelListener(this::onCancellationComplete);
+            // Stop receiving changes once the panel is closed
+            reservationsTable.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            	if (oldScene != null && newScene == null && subscribedTopic != null) {
+            		BistroClientGUI.client.unsubscribe(subscribedTopic);
+            		subscribedTopic = null;
+            	}
+            });
         }        
         loadData();
     }
@@ -261,6 +280,9 @@ public class ReservationsPanel {
     private void clearMemberHistoryMode() {
     	viewingMemberHistory = false;
     	currentMemberCode = -1;
+    	if (historyPager != null) {
+    		historyPager.stop();
+    	}
     	txtMemberId.clear();
     	dateFilter.setDisable(false);
     }
@@ -277,9 +299,18 @@ public class ReservationsPanel {
     	viewingMemberHistory = true;
     	currentMemberCode = memberCode;
     	dateFilter.setDisable(true); // Disable date filter when viewing member history    	
-    	BistroClientGUI.client.getReservationCTRL().setAllReservationsListener(this::updateTable);
-    	BistroClientGUI.client.getReservationCTRL().askMemberHistory(memberCode);
-    	System.out.println("[DEBUG] askMemberHistory request sent");
+    	BistroClientGUI.client.getReservationCTRL().setHistoryPageListener(historyPager::receive);
+    	historyPager.start();
+    }
+
+    /*
+     * Adds a page of the shown member history to the table.
+     */
+    private void showHistoryPage(Page<Order> page) {
+    	if (page.isFirst()) {
+    		masterData.clear();
+    	}
+    	masterData.addAll(page.getItems());
     }
 
     /*
@@ -292,8 +323,78 @@ public class ReservationsPanel {
             System.out.println("DEBUG: Preview Mode");
             return; 
         }
+        subscribeToDate(date);
+        BistroClientGUI.client.setPageListener(Api.REPLY_GET_RESERVATIONS_BY_DATE_OK, this::showPage);
         BistroClientGUI.client.getReservationCTRL().setAllReservationsListener(this::updateTable);
-        BistroClientGUI.client.getReservationCTRL().askReservationsByDate(date);
+        // Loaded off the FX thread, so that a busy day shows page by page as it arrives
+        new Thread(() -> BistroClientGUI.client.getReservationCTRL().askReservationsByDate(date)).start();
+    }
+
+    /*
+     * Shows one page of the reservations while the rest is still loading.
+     * updateTable replaces them with the whole list once it arrived.
+     */
+    @SuppressWarnings("unchecked")
+    private void showPage(ListChunk page) {
+        Platform.runLater(() -> {
+            if (page.isFirst()) {
+                masterData.clear();
+            }
+            masterData.addAll((List<Order>) page.getItems());
+        });
+    }
+
+    /*
+     * Moves the subscription to the reservations topic of the given date.
+     */
+    private void subscribeToDate(LocalDate date) {
+    	String topic = ChangeEvent.ordersTopic(date);
+    	if (topic.equals(subscribedTopic)) {
+    		return;
+    	}
+    	if (subscribedTopic != null) {
+    		BistroClientGUI.client.unsubscribe(subscribedTopic);
+    	}
+    	subscribedTopic = topic;
+    	BistroClientGUI.client.subscribe(topic, this::onReservationChange);
+    }
+
+    /*
+     * Applies a change pushed by the server to the shown reservations.
+     * Ignored while a member history is shown instead of the date.
+     */
+    private void onReservationChange(ChangeEvent event) {
+    	if (!Platform.isFxApplicationThread()) {
+    		Platform.runLater(() -> onReservationChange(event));
+    		return;
+    	}
+    	if (viewingMemberHistory || !event.getTopic().equals(subscribedTopic)) {
+    		return;
+    	}
+    	int index = -1;
+    	for (int i = 0; i < masterData.size(); i++) {
+    		if (masterData.get(i).getConfirmationCode().equals(event.getKey())) {
+    			index = i;
+    			break;
+    		}
+    	}
+    	switch (event.getType()) {
+    	case ADDED:
+    		if (index < 0) {
+    			masterData.add((Order) event.getValue());
+    		}
+    		break;
+    	case UPDATED:
+    		if (index >= 0) {
+    			Order order = masterData.get(index);
+    			order.setStatus((OrderStatus) event.getValue());
+    			masterData.set(index, order); // Redraws the row
+    		}
+    		break;
+    	default:
+    		loadData();
+    		break;
+    	}
     }
 
     /*
@@ -10,6 +10,7 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import logic.BistroClientGUI;
+import logic.RequestBatch;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -69,7 +70,9 @@ public class RestaurantManagementPanel {
 	public void initialize() {
 		initHoursArrays();
 		setupTimeComboBoxes();
-		setupTableManagement();
+		// Tables, weekly hours and holidays are fetched in one round trip
+		RequestBatch load = BistroClientGUI.client != null ? BistroClientGUI.client.newBatch() : null;
+		setupTableManagement(load);
 		// disable holiday time pickers when "closed" is checked
 		if (holyShitCheck != null) {
 			holyShitCheck.selectedProperty().addListener((obs, oldV, isClosed) -> {
@@ -91,20 +94,23 @@ public class RestaurantManagementPanel {
 			if (cmbHolidayClose != null)
 				cmbHolidayClose.setDisable(isClosed);
 		}
-		loadWeeklyHoursFromDB();
-		loadHolidaysFromDB();
+		loadWeeklyHoursFromDB(load);
+		loadHolidaysFromDB(load);
+		if (load != null) {
+			load.send();
+		}
 	}
 
 	/*
 	 * Database Loading and Rendering
 	 * Load weekly hours from DB and render them
 	 */
-	private void loadWeeklyHoursFromDB() {
+	private void loadWeeklyHoursFromDB(RequestBatch load) {
 		if (BistroClientGUI.client == null)
 			return;
 		try {
 			BistroClientGUI.client.getTableCTRL().setWeeklyHoursListener(this::renderWeeklyHours);
-			BistroClientGUI.client.getTableCTRL().askGetWeeklyHours();
+			BistroClientGUI.client.getTableCTRL().askGetWeeklyHours(load);
 		} catch (Exception e) {
 			System.out.println("[WARN] Weekly hours load hooks missing: " + e.getMessage());
 		}
@@ -113,13 +119,13 @@ public class RestaurantManagementPanel {
 	/*
 	 * Load holidays from DB and render them
 	 */
-	private void loadHolidaysFromDB() {
+	private void loadHolidaysFromDB(RequestBatch load) {
 		if (BistroClientGUI.client == null)
 			return;
 
 		try {
 			BistroClientGUI.client.getTableCTRL().setHolidaysListener(this::renderHolidays);
-			BistroClientGUI.client.getTableCTRL().askGetHolidays();
+			BistroClientGUI.client.getTableCTRL().askGetHolidays(load);
 		} catch (Exception e) {
 			System.out.println("[WARN] Holidays load hooks missing: " + e.getMessage());
 		}
@@ -177,7 +183,7 @@ public class RestaurantManagementPanel {
 	/*
 	 * Table Management Methods
 	 */
-	private void setupTableManagement() {
+	private void setupTableManagement(RequestBatch load) {
 		spinDinersAmount.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(2, 20, 4));
 		colTableId.setCellValueFactory(new PropertyValueFactory<>("tableID"));
 		colTableId.setCellFactory(column -> new TableCell<Table, Integer>() {
@@ -195,7 +201,7 @@ public class RestaurantManagementPanel {
 		tablesTable.setItems(tableList);
 		if (BistroClientGUI.client != null) {
 			BistroClientGUI.client.getTableCTRL().setTablesListener(this::updateTableList);
-			BistroClientGUI.client.getTableCTRL().askAllTables();
+			BistroClientGUI.client.getTableCTRL().askAllTables(load);
 		}
 	}
 
@@ -2,7 +2,9 @@ package gui.logic.staff;
 
 import java.util.HashMap;
 import java.util.Map;
+import dto.ChangeEvent;
 import entities.Table;
+import enums.ChangeType;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
@@ -23,18 +25,60 @@ public class TableOverviewPanel {
     @FXML
     private TilePane tablesPane;
     
+    // Statuses shown on screen, patched by the changes pushed on the "tables" topic
+    private final HashMap<Table, String> shownStatuses = new HashMap<>();
+    
     /** Initializes the controller class. This method is automatically called
 	 * after the fxml file has been loaded.
 	 */
     @FXML
     public void initialize() {
+    	BistroClientGUI.client.subscribe(ChangeEvent.TOPIC_TABLES, this::onTableChange);
+    	// Stop receiving changes once the panel is closed
+    	panelPane.sceneProperty().addListener((obs, oldScene, newScene) -> {
+    		if (oldScene != null && newScene == null) {
+    			BistroClientGUI.client.unsubscribe(ChangeEvent.TOPIC_TABLES);
+    		}
+    	});
+    	loadTables();
+	}
+
+    /*
+     * Loads all table statuses from the server.
+     */
+    private void loadTables() {
     	System.out.println("Requested table statuses");
     	TaskRunner.run(panelPane, ()->{
     		BistroClientGUI.client.getTableCTRL().requestTableStatus();
     	},()->{
     		updateTableStatus(BistroClientGUI.client.getTableCTRL().getTableStatuses());
     	});
-	}
+    }
+
+    /*
+     * Applies a change pushed by the server to the shown tables.
+     * @param event The change of one table, or RESET when the tables themselves changed.
+     */
+    private void onTableChange(ChangeEvent event) {
+    	if (!Platform.isFxApplicationThread()) {
+    		Platform.runLater(() -> onTableChange(event));
+    		return;
+    	}
+    	Table changed = null;
+    	for (Table table : shownStatuses.keySet()) {
+    		if (event.getKey() instanceof Integer id && table.getTableID() == id) {
+    			changed = table;
+    			break;
+    		}
+    	}
+    	if (event.getType() != ChangeType.UPDATED || changed == null) {
+    		loadTables();
+    		return;
+    	}
+    	HashMap<Table, String> patched = new HashMap<>(shownStatuses);
+    	patched.put(changed, (String) event.getValue());
+    	updateTableStatus(patched);
+    }
 
     /*
      * Update Table Statuses
@@ -45,6 +89,10 @@ public class TableOverviewPanel {
             Platform.runLater(() -> updateTableStatus(tableMap));
             return;
         }        
+        if (tableMap != shownStatuses) {
+        	shownStatuses.clear();
+        	shownStatuses.putAll(tableMap);
+        }
         tablesPane.getChildren().clear();
         int occupiedCount = 0;
         int totalTables = tableMap.size();
@@ -3,6 +3,7 @@ package gui.logic.staff;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import dto.ChangeEvent;
 import entities.*;
 import enums.*;
 import javafx.application.Platform;
@@ -60,10 +61,55 @@ public class WaitingListPanel {
 		setupTable();
 		if (BistroClientGUI.client != null) {
 			BistroClientGUI.client.getWaitingListCTRL().setGuiController(this);
+			BistroClientGUI.client.subscribe(ChangeEvent.TOPIC_WAITLIST, this::onWaitlistChange);
+			// Stop receiving changes once the panel is closed
+			waitingTable.sceneProperty().addListener((obs, oldScene, newScene) -> {
+				if (oldScene != null && newScene == null) {
+					BistroClientGUI.client.unsubscribe(ChangeEvent.TOPIC_WAITLIST);
+				}
+			});
 		}
 		loadData();
 	}
 
+	/*
+	 * Applies a change pushed by the server to the shown queue.
+	 * @param event The added, updated or removed waiting list order.
+	 */
+	private void onWaitlistChange(ChangeEvent event) {
+		if (!Platform.isFxApplicationThread()) {
+			Platform.runLater(() -> onWaitlistChange(event));
+			return;
+		}
+		int index = -1;
+		for (int i = 0; i < waitingList.size(); i++) {
+			if (waitingList.get(i).getConfirmationCode().equals(event.getKey())) {
+				index = i;
+				break;
+			}
+		}
+		switch (event.getType()) {
+		case ADDED:
+		case UPDATED:
+			if (index >= 0) {
+				waitingList.set(index, (Order) event.getValue());
+			} else {
+				waitingList.add((Order) event.getValue());
+			}
+			break;
+		case REMOVED:
+			if (index >= 0) {
+				waitingList.remove(index);
+			}
+			break;
+		default:
+			loadData();
+			return;
+		}
+		updateQueueTitle();
+		updateStats();
+	}
+
 	/*
 	 * Setup Table Columns
 	 */
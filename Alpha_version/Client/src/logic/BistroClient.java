@@ -2,7 +2,20 @@ package logic;
 
 import javafx.application.Platform;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import comms.*;
+import dto.ChangeEvent;
+import dto.ListChunk;
 import logic.api.*;
 import logic.api.subjects.*;
 import ocsf.client.*;
@@ -33,7 +46,29 @@ public class BistroClient extends AbstractClient {
 	
 	public static Message messageFromServer;
 	
-	public static boolean awaitResponse = false;
+	public static volatile boolean awaitResponse = false;
+	
+	// Requests sent with sendRequest that wait for their reply, by requestId
+	private final Map<String, CompletableFuture<Message>> pendingRequests = new ConcurrentHashMap<>();
+	
+	// Time after which a request sent with sendRequest fails if no reply arrived.
+	// Can be overridden at startup with -Dbistro.request.timeout=<seconds>
+	private static final long DEFAULT_REQUEST_TIMEOUT_SECONDS = 30;
+	
+	// Longest wait between two checks of awaitResponse, for replies that do not echo a requestId
+	private static final long RESPONSE_POLL_MILLIS = 100;
+	
+	// Codec agreed with the server on connect, null while using Java serialization
+	private volatile MessageCodec codec;
+	
+	// Listener of each subscribed topic, called on the connection thread for every pushed change
+	private final Map<String, Consumer<ChangeEvent>> topicListeners = new ConcurrentHashMap<>();
+	
+	// Listener of the pages of each chunked list reply, by reply id
+	private final Map<String, Consumer<ListChunk>> pageListeners = new ConcurrentHashMap<>();
+	
+	// Items received so far for each chunked reply, by requestId (used by the connection thread only)
+	private final Map<String, ArrayList<Object>> chunkedReplies = new HashMap<>();
 	
 	
 	//******************************** Constructors ***********************************
@@ -49,6 +84,8 @@ public class BistroClient extends AbstractClient {
 	 */
 	private BistroClient(String host, int port) throws Exception {
 		super(host, port);
+		// Servers started with -Dbistro.transport=nio expect length-prefixed frames
+		setFramed("nio".equalsIgnoreCase(System.getProperty("bistro.transport", "socket")));
 		try {
 			openConnection(); // Attempt to open a connection
 		} catch (IOException e) {
@@ -149,7 +186,9 @@ public class BistroClient extends AbstractClient {
 		ClientMonthlyReportsSubject.register(router);
 		ClientWaitListSubject.register(router,this.waitingListCTRL, this.tableCTRL);
 		ClientTablesSubject.register(router);
-		ClientConnectionSubject.register(router);
+		ClientConnectionSubject.register(router, this);
+		ClientSubscriptionSubject.register(router, this);
+		ClientBatchSubject.register(router);
 		ClientPaymentSubject.register(router);
 		ClientSystemSubject.register(router);
 		ClientRestaurantManageSubject.register(router);
@@ -162,41 +201,239 @@ public class BistroClient extends AbstractClient {
 	 */
 	@Override
 	protected void handleMessageFromServer(Object msg) {
+		if (msg instanceof byte[] && codec != null) { // Encoded with the negotiated codec
+			try {
+				msg = codec.decode((byte[]) msg);
+			} catch (IOException e) {
+				System.out.println("Could not decode message from server: " + e.getMessage());
+				return;
+			}
+		}
 		if(msg instanceof Message) {
+			Message reply = (Message) msg;
+			if (reply.getData() instanceof ListChunk chunk) {
+				reply = receiveChunk(reply.getRequestId(), chunk);
+				if (reply == null) {
+					return; // More pages to come
+				}
+			}
 			try {
-				boolean handled = router.dispatch((Message) msg);
+				boolean handled = router.dispatch(reply);
 				if (!handled) {
-					System.out.println("No handler found for message ID: " + ((Message) msg).getId());
+					System.out.println("No handler found for message ID: " + reply.getId());
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
 				System.out.println("Error handling message from server: " + e.getMessage());
+			} finally {
+				// Complete the request after the handlers so callers see the updated controllers
+				CompletableFuture<Message> request = pendingRequests.remove(reply.getRequestId());
+				if (request != null) {
+					request.complete(reply);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Passes a page of a chunked list reply to its page listener and keeps its
+	 * items until the last page arrives.
+	 * 
+	 * @param requestId The requestId of the request the list answers.
+	 * 
+	 * @param chunk     The received page.
+	 * 
+	 * @return The whole reply after its last page, otherwise null.
+	 */
+	private Message receiveChunk(String requestId, ListChunk chunk) {
+		Consumer<ListChunk> listener = pageListeners.get(chunk.getReplyId());
+		if (listener != null) {
+			try {
+				listener.accept(chunk);
+			} catch (Exception e) {
+				e.printStackTrace();
 			}
 		}
+		ArrayList<Object> items = chunkedReplies.computeIfAbsent(requestId,
+				id -> new ArrayList<>(chunk.getTotalSize()));
+		items.addAll(chunk.getItems());
+		if (!chunk.isLast()) {
+			return null;
+		}
+		chunkedReplies.remove(requestId);
+		return new Message(chunk.getReplyId(), items, requestId);
+	}
+	
+	/**
+	 * Sets the listener receiving the pages of a list reply sent in chunks,
+	 * so that a view can show the first rows before the whole list arrived.
+	 * The reply's usual handler still runs once with the whole list.
+	 * The listener is called on the connection thread.
+	 * 
+	 * @param replyId  The id of the reply, e.g. Api.REPLY_GET_RESERVATIONS_BY_DATE_OK.
+	 * 
+	 * @param listener The page listener, or null to remove it.
+	 */
+	public void setPageListener(String replyId, Consumer<ListChunk> listener) {
+		if (listener == null) {
+			pageListeners.remove(replyId);
+		} else {
+			pageListeners.put(replyId, listener);
+		}
+	}
+	
+	/**
+	 * Sends a request to the server without waiting for its reply. Several
+	 * requests may be in flight at once; each future completes with the reply
+	 * that echoes its requestId, after the reply's handlers ran.
+	 * 
+	 * @param request The request to send.
+	 * 
+	 * @return A future completed with the reply, or failed on timeout or disconnection.
+	 */
+	public CompletableFuture<Message> sendRequest(Message request) {
+		return sendRequest(request, Long.getLong("bistro.request.timeout", DEFAULT_REQUEST_TIMEOUT_SECONDS),
+				TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Sends a request to the server without waiting for its reply.
+	 * 
+	 * @param request The request to send.
+	 * 
+	 * @param timeout How long to wait for the reply.
+	 * 
+	 * @param unit    The unit of the timeout.
+	 * 
+	 * @return A future completed with the reply, or failed on timeout or disconnection.
+	 */
+	public CompletableFuture<Message> sendRequest(Message request, long timeout, TimeUnit unit) {
+		String requestId = request.getRequestId();
+		CompletableFuture<Message> reply = new CompletableFuture<>();
+		pendingRequests.put(requestId, reply);
+		reply.orTimeout(timeout, unit).whenComplete((msg, error) -> pendingRequests.remove(requestId, reply));
+		try {
+			sendToServer(request);
+		} catch (IOException e) {
+			reply.completeExceptionally(e);
+		}
+		return reply;
+	}
+	
+	/**
+	 * Creates an empty batch, to send the requests of a screen load in one
+	 * round trip. Controllers add their requests to it with their batch
+	 * variants (for example TableController.askGetWeeklyHours(batch)).
+	 * 
+	 * @return A new, empty batch.
+	 */
+	public RequestBatch newBatch() {
+		return new RequestBatch(this);
+	}
+	
+	/**
+	 * Encodes outgoing messages with the negotiated codec, if any.
+	 * 
+	 * @param msg The message to send.
+	 * 
+	 * @return The encoded bytes, or the message itself for Java serialization.
+	 */
+	@Override
+	protected Object encodeMessageToServer(Object msg) throws IOException {
+		MessageCodec current = codec;
+		if (current != null && msg instanceof Message) {
+			return current.encode((Message) msg);
+		}
+		return msg;
+	}
+	
+	/**
+	 * Switches to the codec chosen by the server in its connect reply.
+	 * 
+	 * @param name The codec name, MessageCodec.JAVA for Java serialization.
+	 */
+	public void setCodec(String name) {
+		this.codec = MessageCodec.forName(name);
+	}
+	
+	/**
+	 * Subscribes to the changes of a topic (see dto.ChangeEvent). The listener
+	 * replaces any previous listener of the topic and is called on the
+	 * connection thread, so UI code must move to the FX thread itself.
+	 * Does not wait for the server to confirm the subscription.
+	 * 
+	 * @param topic    The topic to subscribe to.
+	 * 
+	 * @param listener Called with every change pushed for the topic.
+	 */
+	public void subscribe(String topic, Consumer<ChangeEvent> listener) {
+		topicListeners.put(topic, listener);
+		sendRequest(new Message(Api.ASK_SUBSCRIBE, topic));
+	}
+	
+	/**
+	 * Stops receiving the changes of a topic.
+	 * 
+	 * @param topic The topic to unsubscribe from.
+	 */
+	public void unsubscribe(String topic) {
+		if (topicListeners.remove(topic) != null) {
+			sendRequest(new Message(Api.ASK_UNSUBSCRIBE, topic));
+		}
+	}
+	
+	/**
+	 * Passes a change pushed by the server to the listener of its topic.
+	 * 
+	 * @param event The pushed change.
+	 */
+	public void deliverChange(ChangeEvent event) {
+		Consumer<ChangeEvent> listener = topicListeners.get(event.getTopic());
+		if (listener != null) {
+			listener.accept(event);
+		}
 	}
 	
 	/**
 	 * Method to handle messages sent from the client UI to the server.
+	 * Blocks until the reply has been handled.
 	 * 
 	 * @param message The message to be sent to the server.
 	 */
 	public void handleMessageFromClientUI(Object message) {
+		awaitResponse = true; // Indicate that a response is awaited
+		CompletableFuture<Message> reply = new CompletableFuture<>();
 		try {
-			awaitResponse = true; // Indicate that a response is awaited
-			sendToServer(message); // Send the message to the server
-			// Wait for a response in a loop
-			while (awaitResponse) {
-				try {
-					Thread.sleep(100); // Avoid busy-waiting
-				} catch (InterruptedException e) {
-					e.printStackTrace(); // Handle interruptions
-				}
+			if (message instanceof Message) {
+				reply = sendRequest((Message) message);
+				reply.getNow(null); // Rethrows a failed send
+			} else {
+				sendToServer(message);
 			}
-		} catch (IOException e) {
+		} catch (CompletionException | IOException e) {
 			e.printStackTrace(); // Handle errors during message sending
 			System.out.println("Could not send message to server: Terminating client." + e);
 			System.exit(0);
 		}
+		// Wake up as soon as the reply is handled; replies that do not echo the
+		// requestId still release the loop through awaitResponse
+		while (awaitResponse) {
+			try {
+				reply.get(RESPONSE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				break;
+			} catch (TimeoutException e) {
+				// Check awaitResponse again
+			} catch (InterruptedException e) {
+				e.printStackTrace(); // Handle interruptions
+			} catch (ExecutionException e) {
+				if (!(e.getCause() instanceof TimeoutException)) {
+					break; // Disconnected, the GUI is notified
+				}
+				// No reply echoed the requestId, keep waiting for a handler to release the loop
+				reply = new CompletableFuture<>();
+			}
+		}
+		awaitResponse = false;
 	}
 	
 	/**
@@ -221,7 +458,16 @@ public class BistroClient extends AbstractClient {
 	 * Method to notify the server when the client successfully connects.
 	 */
 	public void notifyServerOnConnection() {
-		handleMessageFromClientUI(new Message(Api.ASK_CONNECTION_CONNECT, null));	
+		// Offer the compact codec unless disabled with -Dbistro.codec=java
+		List<String> codecs = MessageCodec.JAVA.equalsIgnoreCase(System.getProperty("bistro.codec"))
+				? List.of(MessageCodec.JAVA)
+				: MessageCodec.supportedNames();
+		ArrayList<String> offered = new ArrayList<>(codecs);
+		// Accept large lists in pages unless disabled with -Dbistro.chunked=false
+		if (!"false".equalsIgnoreCase(System.getProperty("bistro.chunked"))) {
+			offered.add(ListChunk.CAPABILITY);
+		}
+		handleMessageFromClientUI(new Message(Api.ASK_CONNECTION_CONNECT, offered));	
 	}
 
 	/**
@@ -229,6 +475,7 @@ public class BistroClient extends AbstractClient {
 	 */
 	@Override
     protected void connectionClosed() {
+        failPendingRequests(new IOException("The connection to the server was closed"));
         notifyServerDisconnected("The connection to the server was closed, please exit the application.");
     }
 	
@@ -239,9 +486,22 @@ public class BistroClient extends AbstractClient {
 	 */
     @Override
     protected void connectionException(Exception exception) {
+        failPendingRequests(exception);
         notifyServerDisconnected("A connection error occurred, please exit the application.");
     }
     
+    /**
+     * Fails the requests still waiting for a reply.
+     * 
+     * @param cause The reason no reply will arrive.
+     */
+    private void failPendingRequests(Exception cause) {
+        for (CompletableFuture<Message> request : pendingRequests.values()) {
+            request.completeExceptionally(cause);
+        }
+        pendingRequests.clear();
+    }
+    
     /**
 	 * Notify the GUI that the server has disconnected.
 	 * 
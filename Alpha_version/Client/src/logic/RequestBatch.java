@@ -0,0 +1,99 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import comms.Api;
+import comms.Message;
+
+/**
+ * RequestBatch collects several requests of a screen load and sends them to
+ * the server in one round trip. The server runs them together and answers
+ * with one combined reply, whose parts are handled by the usual handlers, so
+ * the controllers are updated exactly as if each request was sent alone.
+ * Requests of the same subject are run in their batch order, requests of
+ * different subjects may run in parallel.
+ */
+public class RequestBatch {
+
+	//****************************** Instance variables ******************************//
+
+	private final BistroClient client;
+	private final ArrayList<Message> requests = new ArrayList<>();
+
+	//******************************** Constructors ***********************************//
+
+	/**
+	 * Creates an empty batch, see BistroClient.newBatch().
+	 * 
+	 * @param client The client sending the batch.
+	 */
+	RequestBatch(BistroClient client) {
+		this.client = client;
+	}
+
+	//******************************** Instance Methods ***********************************//
+
+	/**
+	 * Adds a request to the batch.
+	 * 
+	 * @param request The request to add.
+	 * @return This batch, to chain calls.
+	 */
+	public RequestBatch add(Message request) {
+		requests.add(request);
+		return this;
+	}
+
+	/**
+	 * Gets the number of requests in the batch.
+	 * 
+	 * @return The number of requests.
+	 */
+	public int size() {
+		return requests.size();
+	}
+
+	/**
+	 * Sends the batch without waiting. A batch of one request is sent as a
+	 * plain request.
+	 * 
+	 * @return A future completed with the combined reply once all its parts were handled.
+	 */
+	public CompletableFuture<Message> sendAsync() {
+		if (requests.size() == 1) {
+			return client.sendRequest(requests.get(0));
+		}
+		return client.sendRequest(new Message(Api.ASK_BATCH, new ArrayList<>(requests)));
+	}
+
+	/**
+	 * Sends the batch and blocks until every reply has been handled.
+	 * 
+	 * @return true if the server answered, false on timeout or disconnection.
+	 */
+	public boolean send() {
+		if (requests.isEmpty()) {
+			return true;
+		}
+		try {
+			sendAsync().join();
+			return true;
+		} catch (CompletionException e) {
+			System.out.println("Batch of " + requests.size() + " requests failed: " + e.getCause());
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the requests added so far.
+	 * 
+	 * @return The requests, in batch order.
+	 */
+	public List<Message> getRequests() {
+		return requests;
+	}
+}
+// End of RequestBatch.java
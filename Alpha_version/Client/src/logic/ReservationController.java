@@ -10,6 +10,9 @@ import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import comms.Api;
 import comms.Message;
+import dto.Page;
+import dto.PageCursor;
+import dto.PageRequest;
 import dto.WeeklyHour;
 import entities.Order;
 import enums.OrderStatus;
@@ -32,6 +35,7 @@ public class ReservationController {
 	private Consumer<Boolean> updateResultCallback;
 	private Consumer<Boolean> cancelResultCallback;
 	private Consumer<List<Order>> allReservationsCallback;
+	private Consumer<Page<Order>> historyPageCallback;
     private Consumer<String> onCodeRetrieveResult;
     private Consumer<List<LocalDate>> datesUpdateCallback;
     private BiConsumer<Boolean, String> checkInCallback; //like "consumer" but with two parameters
@@ -304,6 +308,44 @@ public class ReservationController {
 		client.handleMessageFromClientUI(new Message(Api.ASK_GET_MEMBER_HISTORY, memberCode));
 	}
 	
+	/**
+	 * Requests one page of the order history of the currently logged-in client.
+	 * @param after The cursor of the previous page, null for the first page
+	 */
+	public void askClientOrderHistoryPage(PageCursor after) {
+		client.handleMessageFromClientUI(new Message(Api.ASK_CLIENT_ORDER_HISTORY_PAGE,
+				new PageRequest(after, PageRequest.DEFAULT_LIMIT)));
+	}
+	
+	/**
+	 * Requests one page of the order history of a member by member code.
+	 * Only accessible by staff members (Employee/Manager).
+	 * @param memberCode The member code to look up
+	 * @param after      The cursor of the previous page, null for the first page
+	 */
+	public void askMemberHistoryPage(int memberCode, PageCursor after) {
+		client.handleMessageFromClientUI(new Message(Api.ASK_GET_MEMBER_HISTORY_PAGE,
+				new PageRequest(after, PageRequest.DEFAULT_LIMIT, memberCode)));
+	}
+	
+	/**
+	 * Passes a received order history page to the registered listener.
+	 * @param page The page, or null if the request failed
+	 */
+	public void receiveHistoryPage(Page<Order> page) {
+		if (this.historyPageCallback != null) {
+			this.historyPageCallback.accept(page);
+		}
+	}
+	
+	/**
+	 * Registers a listener for the order history pages, of a client or of a member.
+	 * @param callback The listener, e.g. LazyTablePager::receive
+	 */
+	public void setHistoryPageListener(Consumer<Page<Order>> callback) {
+		this.historyPageCallback = callback;
+	}
+	
 	/**
 	 * Requests order details for a specific confirmation code.
 	 * @param confirmationCode The confirmation code to look up
@@ -353,6 +395,15 @@ public class ReservationController {
 	    client.handleMessageFromClientUI(new Message(Api.ASK_GET_RESERVATIONS_BY_DATE, date));
 	}
 
+	/**
+	 * Adds the request for the reservations of a specific date (for staff) to a batch.
+	 * @param date The date to get reservations for
+	 * @param batch The batch to add the request to
+	 */
+	public void askReservationsByDate(LocalDate date, RequestBatch batch) {
+	    batch.add(new Message(Api.ASK_GET_RESERVATIONS_BY_DATE, date));
+	}
+
 	/**
 	 * Registers a listener for when the server returns all reservations (for staff).
 	 * @param callback
@@ -434,6 +485,15 @@ public class ReservationController {
 	public void askAvailableDates(int diners) {
 	    client.handleMessageFromClientUI(new Message(Api.ASK_AVAILABLE_DATES, diners));
 	}
+
+	/**
+	 * Adds the request for the available dates of a number of diners to a batch.
+	 * @param diners The number of diners
+	 * @param batch The batch to add the request to
+	 */
+	public void askAvailableDates(int diners, RequestBatch batch) {
+	    batch.add(new Message(Api.ASK_AVAILABLE_DATES, diners));
+	}
 	
 	/**
 	 * Notifies the result of a check-in operation to the UI.
@@ -473,6 +533,14 @@ public class ReservationController {
 	public void askWeeklyHours() {
 		client.handleMessageFromClientUI(new Message(Api.ASK_GET_WEEKLY_HOURS, null));
 	}
+
+	/**
+	 * Adds the request for the weekly hours to a batch.
+	 * @param batch The batch to add the request to
+	 */
+	public void askWeeklyHours(RequestBatch batch) {
+		batch.add(new Message(Api.ASK_GET_WEEKLY_HOURS, null));
+	}
 	
 	/**
 	 * Sends a request to the server to get the member's seated reservations.
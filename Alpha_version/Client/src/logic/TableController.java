@@ -183,6 +183,14 @@ public class TableController {
 		
 	}
 
+	/**
+	 * Adds the request for the current status of all tables to a batch.
+	 * @param batch The batch to add the request to.
+	 */
+	public void requestTableStatus(RequestBatch batch) {
+		batch.add(new Message(Api.ASK_TABLE_STATUS, null));
+	}
+
 	/**
 	 * Updates the statuses of all tables.
 	 * 
@@ -218,6 +226,14 @@ public class TableController {
 	public void askAllTables() {
 		client.handleMessageFromClientUI(new Message(Api.ASK_ALL_TABLES, null));
 	}
+
+	/**
+	 * Adds the request for all tables to a batch.
+	 * @param batch The batch to add the request to.
+	 */
+	public void askAllTables(RequestBatch batch) {
+		batch.add(new Message(Api.ASK_ALL_TABLES, null));
+	}
 	
 	/**
 	 * Requests to add a new table to the server.
@@ -280,6 +296,14 @@ public class TableController {
     public void askGetHolidays() {
         client.handleMessageFromClientUI(new Message(Api.ASK_GET_HOLIDAYS, null));
     }
+
+    /**
+	 * Adds the request for the list of holidays to a batch.
+	 * @param batch The batch to add the request to.
+	 */
+    public void askGetHolidays(RequestBatch batch) {
+        batch.add(new Message(Api.ASK_GET_HOLIDAYS, null));
+    }
     
     /**
 	 * Requests the order allocated to the user for their seated table from the server.
@@ -289,6 +313,15 @@ public class TableController {
 		client.handleMessageFromClientUI(new Message(Api.ASK_SEATED_ORDER, userID));
 	}
 
+	/**
+	 * Adds the request for the order seated at the user's table to a batch.
+	 * @param userID The ID of the user.
+	 * @param batch The batch to add the request to.
+	 */
+	public void askUserAllocatedSeatedOrder(int userID, RequestBatch batch) {
+		batch.add(new Message(Api.ASK_SEATED_ORDER, userID));
+	}
+
 	/**
 	 * Sets the listener for weekly hours updates.
 	 * @param callback
@@ -304,6 +337,14 @@ public class TableController {
 	    client.handleMessageFromClientUI(new Message(Api.ASK_GET_WEEKLY_HOURS, null));
 	}
 
+	/**
+	 * Adds the request for the weekly hours to a batch.
+	 * @param batch The batch to add the request to.
+	 */
+	public void askGetWeeklyHours(RequestBatch batch) {
+	    batch.add(new Message(Api.ASK_GET_WEEKLY_HOURS, null));
+	}
+
 	/**
 	 * Sets the listener for holidays updates.
 	 * @param callback
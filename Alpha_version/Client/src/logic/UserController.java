@@ -7,6 +7,9 @@ import java.util.Map;
 import java.util.function.Consumer;
 
 import comms.*;
+import dto.Page;
+import dto.PageCursor;
+import dto.PageRequest;
 import dto.UserData;
 import entities.User;
 import enums.UserType;
@@ -29,6 +32,7 @@ public class UserController {
 	
 	//staff pages related variables:
 	private List<UserData> customersData = new ArrayList<UserData>(); //to store customers data for manager/employee view
+	private Consumer<Page<UserData>> customersPageListener; // Listener for the customer directory pages
 	private ArrayList<Integer> memberRegistrationStats; //for member registration statistics
 	private boolean staffCreationSuccessFlag = false;
 	private String staffCreationErrorMessage = null;
@@ -362,6 +366,36 @@ public class UserController {
 		client.handleMessageFromClientUI(new Message(Api.ASK_LOAD_CUSTOMERS_DATA, null));
 	}
 	
+	/**
+	 * Method to load one page of the customer directory from the server.
+	 * 
+	 * @param after The cursor of the previous page, null for the first page.
+	 */
+	public void loadCustomersPage(PageCursor after) {
+		client.handleMessageFromClientUI(new Message(Api.ASK_LOAD_CUSTOMERS_PAGE,
+				new PageRequest(after, PageRequest.DEFAULT_LIMIT)));
+	}
+	
+	/**
+	 * Method to pass a received customer directory page to the registered listener.
+	 * 
+	 * @param page The page, or null if the request failed.
+	 */
+	public void receiveCustomersPage(Page<UserData> page) {
+		if (customersPageListener != null) {
+			customersPageListener.accept(page);
+		}
+	}
+	
+	/**
+	 * Method to set the listener of the customer directory pages.
+	 * 
+	 * @param listener The listener, e.g. LazyTablePager::receive.
+	 */
+	public void setCustomersPageListener(Consumer<Page<UserData>> listener) {
+		this.customersPageListener = listener;
+	}
+	
 	/**
 	 * Method to check if customers data has been loaded.
 	 * 
@@ -186,6 +186,15 @@ public class WaitingListController {
 		client.handleMessageFromClientUI(new Message(Api.ASK_IS_IN_WAITLIST, userID));
 	}
 
+    /**
+	 * Adds the question whether the user is on the waiting list to a batch.
+	 * @param userID ID of the user
+	 * @param batch The batch to add the request to
+	 */
+	public void askUserOnWaitingList(int userID, RequestBatch batch) {
+		batch.add(new Message(Api.ASK_IS_IN_WAITLIST, userID));
+	}
+
 	/**
 	 * Checks availability for the waiting list based on the number of diners.
 	 * @param dinersAmount Number of diners
@@ -227,6 +236,14 @@ public class WaitingListController {
         client.handleMessageFromClientUI(new Message(Api.ASK_GET_WAITING_LIST, null));
     }
 
+    /**
+     * Staff Method: Adds the request for the full waiting list to a batch.
+     * @param batch The batch to add the request to
+     */
+    public void askWaitingList(RequestBatch batch) {
+        batch.add(new Message(Api.ASK_GET_WAITING_LIST, null));
+    }
+
     /**
 	 * Staff Method: Adds a walk-in customer to the waiting list.
 	 * @param details Map containing walk-in customer details
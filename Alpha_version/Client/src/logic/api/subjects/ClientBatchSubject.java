@@ -0,0 +1,36 @@
+package logic.api.subjects;
+
+import java.util.List;
+
+import comms.Message;
+import logic.api.ClientRouter;
+
+/**
+ * ClientBatchSubject handles the combined reply of a request batch by
+ * passing each of its replies to the handler of that reply.
+ */
+public class ClientBatchSubject {
+
+	/**
+	 * Registers the batch reply handlers.
+	 *
+	 * @param router The ClientRouter to register the handlers with, and to dispatch the batched replies to.
+	 */
+	public static void register(ClientRouter router) {
+		router.on("batch", "execute.ok", msg -> {
+			if (!(msg.getData() instanceof List<?> replies)) {
+				return;
+			}
+			for (Object reply : replies) {
+				if (reply instanceof Message part && !router.dispatch(part)) {
+					System.out.println("No handler found for batched message ID: " + part.getId());
+				}
+			}
+		});
+
+		router.on("batch", "execute.fail", msg -> {
+			System.out.println("Server refused batch: " + msg.getData());
+		});
+	}
+}
+// End of ClientBatchSubject.java
@@ -13,9 +13,14 @@ public class ClientConnectionSubject {
 	 * Registers event handlers for connection and disconnection events.
 	 *
 	 * @param router The ClientRouter to register the event handlers with.
+	 * @param client The client whose codec is set from the connect reply.
 	 */
-    public static void register(ClientRouter router) {
+    public static void register(ClientRouter router, BistroClient client) {
         router.on("connection", "connect.ok", msg -> {
+            // Older servers reply without a codec name
+            if (msg.getData() instanceof String codec) {
+                client.setCodec(codec);
+            }
             // Release any waiting request loops
             BistroClient.awaitResponse = false;
             Platform.runLater(() ->
@@ -4,6 +4,7 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import dto.Page;
 import entities.Order;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -259,6 +260,34 @@ public class ClientOrderSubject {
 				alert.showAndWait();
 			});
 		});
+		// Handler for a page of the client's own order history
+		router.on("orders", "getClientHistoryPage.ok", msg -> {
+			BistroClient.awaitResponse = false;
+			@SuppressWarnings("unchecked")
+			Page<Order> page = (Page<Order>) msg.getData();
+			BistroClientGUI.client.getReservationCTRL().receiveHistoryPage(page);
+		});
+		
+		// Handler for a page of a member's history, viewed by staff
+		router.on("orders", "getMemberHistoryPage.ok", msg -> {
+			BistroClient.awaitResponse = false;
+			@SuppressWarnings("unchecked")
+			Page<Order> page = (Page<Order>) msg.getData();
+			BistroClientGUI.client.getReservationCTRL().receiveHistoryPage(page);
+		});
+		
+		// Handler for failure to retrieve a page of a member's history
+		router.on("orders", "getMemberHistoryPage.fail", msg -> {
+			BistroClient.awaitResponse = false;
+			BistroClientGUI.client.getReservationCTRL().receiveHistoryPage(null);
+			Platform.runLater(() -> {
+				Alert alert = new Alert(Alert.AlertType.WARNING);
+				alert.setTitle("Member Not Found");
+				alert.setHeaderText("Could not retrieve member history");
+				alert.setContentText("No history found for this member ID. Please verify the ID and try again.");
+				alert.showAndWait();
+			});
+		});
 		// Handler for retrieving forgotten confirmation code
 		router.on("reservation", "forgotConfirmationCode.ok", msg -> {
 		    BistroClient.awaitResponse = false;
@@ -0,0 +1,41 @@
+package logic.api.subjects;
+
+import dto.ChangeEvent;
+import logic.BistroClient;
+import logic.api.ClientRouter;
+
+/**
+ * ClientSubscriptionSubject handles topic subscription replies and the
+ * changes pushed by the server for subscribed topics.
+ * Subscriptions are sent without blocking the UI, so these handlers never
+ * touch BistroClient.awaitResponse.
+ */
+public class ClientSubscriptionSubject {
+
+	/**
+	 * Registers the subscription handlers.
+	 *
+	 * @param router The ClientRouter to register the handlers with.
+	 * @param client The client passing pushed changes to the topic listeners.
+	 */
+	public static void register(ClientRouter router, BistroClient client) {
+		router.on("subscription", "change", msg -> {
+			if (msg.getData() instanceof ChangeEvent event) {
+				client.deliverChange(event);
+			}
+		});
+
+		router.on("subscription", "subscribe.ok", msg -> {
+			// Nothing to do, changes start arriving as "subscription.change"
+		});
+
+		router.on("subscription", "subscribe.fail", msg -> {
+			System.out.println("Server refused subscription to topic: " + msg.getData());
+		});
+
+		router.on("subscription", "unsubscribe.ok", msg -> {
+			// Nothing to do
+		});
+	}
+}
+// End of ClientSubscriptionSubject.java
@@ -3,6 +3,7 @@ package logic.api.subjects;
 import java.util.ArrayList;
 import java.util.List;
 
+import dto.Page;
 import dto.UserData;
 import entities.User;
 import logic.BistroClient;
@@ -207,6 +208,26 @@ public class ClientUserSubject {
 			alert.showAndWait();
 		});
 
+		// Customer directory page responses:
+		router.on("customers", "getPage.ok", msg -> {
+			BistroClient.awaitResponse = false;
+			@SuppressWarnings("unchecked")
+			Page<UserData> page = (Page<UserData>) msg.getData();
+			BistroClientGUI.client.getUserCTRL().receiveCustomersPage(page);
+		});
+		// Customer directory page failure responses:
+		router.on("customers", "getPage.fail", msg -> {
+			BistroClient.awaitResponse = false;
+			BistroClientGUI.client.getUserCTRL().receiveCustomersPage(null);
+			Platform.runLater(() -> {
+				Alert alert = new Alert(Alert.AlertType.ERROR);
+				alert.setTitle("Error");
+				alert.setHeaderText("Failed to Retrieve Customer Data");
+				alert.setContentText("An error occurred while retrieving customer data. Please try again later.");
+				alert.showAndWait();
+			});
+		});
+
 		// Staff creation responses:
 		router.on("staff", "create.ok", msg -> {
 			BistroClient.awaitResponse = false;
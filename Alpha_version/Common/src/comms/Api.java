@@ -5,7 +5,8 @@ package comms;
  * <subject>.<action>
  *
  * Naming convention for constants: ASK_* = client -> server requests REPLY_* =
- * server -> client responses
+ * server -> client responses PUSH_* = server -> client messages sent without a
+ * request
  */
 
 public final class Api {
@@ -95,6 +96,9 @@ public final class Api {
 	public static final String ASK_CLIENT_ORDER_HISTORY = "orders.getClientHistory";
 	public static final String ASK_MEMBER_ACTIVE_RESERVATIONS = "orders.getMemberActiveReservations";
 	public static final String ASK_GET_MEMBER_HISTORY = "orders.getMemberHistory";
+	// Keyset-paged history, payload PageRequest (ownerKey = member code for staff), reply Page<Order>
+	public static final String ASK_CLIENT_ORDER_HISTORY_PAGE = "orders.getClientHistoryPage";
+	public static final String ASK_GET_MEMBER_HISTORY_PAGE = "orders.getMemberHistoryPage";
 	public static final String ASK_MEMBER_SEATED_RESERVATIONS = "orders.getMemberSeatedReservations";
 	public static final String ASK_GUEST_SEATED_CODE = "orders.recoverGuestSeatedCode";
 
@@ -125,6 +129,9 @@ public final class Api {
 	public static final String REPLY_MEMBER_ACTIVE_RESERVATIONS_FAIL = "orders.getMemberActiveReservations.fail";
 	public static final String REPLY_GET_MEMBER_HISTORY_OK = "orders.getMemberHistory.ok";
 	public static final String REPLY_GET_MEMBER_HISTORY_FAIL = "orders.getMemberHistory.fail";
+	public static final String REPLY_CLIENT_ORDER_HISTORY_PAGE_OK = "orders.getClientHistoryPage.ok";
+	public static final String REPLY_GET_MEMBER_HISTORY_PAGE_OK = "orders.getMemberHistoryPage.ok";
+	public static final String REPLY_GET_MEMBER_HISTORY_PAGE_FAIL = "orders.getMemberHistoryPage.fail";
 	public static final String REPLY_MEMBER_SEATED_RESERVATIONS_OK = "orders.getMemberSeatedReservations.ok";
 	public static final String REPLY_MEMBER_SEATED_RESERVATIONS_FAIL = "orders.getMemberSeatedReservations.fail";
 	public static final String REPLY_GUEST_SEATED_CODE_OK = "orders.recoverGuestSeatedCode.ok";
@@ -142,6 +149,8 @@ public final class Api {
 	public static final String ASK_SEATED_ORDER = "tables.askSeatedOrder";
 	
 	public static final String ASK_LOAD_CUSTOMERS_DATA = "customers.getalldata";
+	// Keyset-paged directory, payload PageRequest, reply Page<UserData>
+	public static final String ASK_LOAD_CUSTOMERS_PAGE = "customers.getPage";
 	
 	public static final String ASK_SAVE_WEEKLY_HOURS = "hours.saveWeekly";
 	public static final String ASK_GET_WEEKLY_HOURS = "hours.getWeeklyHours";
@@ -159,6 +168,8 @@ public final class Api {
 	public static final String REPLY_SEATED_ORDER_FAIL = "tables.askSeatedOrder.fail";
 	public static final String REPLY_LOAD_CUSTOMERS_DATA_OK = "customers.getalldata.ok";
 	public static final String REPLY_LOAD_CUSTOMERS_DATA_FAIL = "customers.getalldata.fail";
+	public static final String REPLY_LOAD_CUSTOMERS_PAGE_OK = "customers.getPage.ok";
+	public static final String REPLY_LOAD_CUSTOMERS_PAGE_FAIL = "customers.getPage.fail";
 	public static final String REPLY_SAVE_WEEKLY_HOURS_OK = "hours.saveWeeklyHours.ok";
 	public static final String REPLY_SAVE_WEEKLY_HOURS_FAIL = "hours.saveWeeklyHours.fail";
 	public static final String REPLY_GET_WEEKLY_HOURS_OK = "hours.getWeeklyHours.ok";
@@ -231,9 +242,45 @@ public final class Api {
 	public static final String REPLY_REPORTS_GET_OR_GENERATE_FAIL = "reports.getOrGenerate.fail";
 	
 	
+// == Subscription Subject == //
+
+	// Requests (data: topic name, see dto.ChangeEvent)
+	public static final String ASK_SUBSCRIBE = "subscription.subscribe";
+	public static final String ASK_UNSUBSCRIBE = "subscription.unsubscribe";
+
+	// Responses
+	public static final String REPLY_SUBSCRIBE_OK = "subscription.subscribe.ok";
+	public static final String REPLY_SUBSCRIBE_FAIL = "subscription.subscribe.fail";
+	public static final String REPLY_UNSUBSCRIBE_OK = "subscription.unsubscribe.ok";
+
+	// Pushes (data: dto.ChangeEvent)
+	public static final String PUSH_CHANGE = "subscription.change";
+	// requestId of pushes, so that they are never taken for the reply to a request
+	public static final String PUSH_REQUEST_ID = "push";
+
+// == Batch Subject == //
+
+	// Requests (data: ArrayList<Message> of up to 32 requests, run by the server together)
+	public static final String ASK_BATCH = "batch.execute";
+
+	// Responses (OK data: ArrayList<Message> of the replies, each echoing the requestId of its request)
+	public static final String REPLY_BATCH_OK = "batch.execute.ok";
+	public static final String REPLY_BATCH_FAIL = "batch.execute.fail";
+
+// == Admin Subject == //
+
+	// Requests (managers only)
+	public static final String ASK_ROUTE_STATS = "admin.routeStats";
+
+	// Responses (OK data: ArrayList<dto.RouteStats>, one per server route)
+	public static final String REPLY_ROUTE_STATS_OK = "admin.routeStats.ok";
+	public static final String REPLY_ROUTE_STATS_FAIL = "admin.routeStats.fail";
+
 // == System responses == //
 
 	public static final String REPLY_UNKNOWN_COMMAND = "system.unknownCommand";
+	// One page of a large list reply (data: dto.ListChunk), for clients that offered ListChunk.CAPABILITY
+	public static final String REPLY_LIST_CHUNK = "system.listChunk";
 
 }
 // End of Api.java
\ No newline at end of file
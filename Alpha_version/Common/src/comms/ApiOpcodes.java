@@ -0,0 +1,83 @@
+package comms;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numeric opcodes for the message ids declared in Api.
+ * Every ASK_*, REPLY_* and PUSH_* constant gets the index of its id in the
+ * sorted list of ids, so the numbering only depends on the set of ids and
+ * is the same on every peer built from the same Api. Ids that are not Api
+ * constants have no opcode.
+ */
+public final class ApiOpcodes {
+
+	// ****************************** Constants ******************************
+	public static final int NO_OPCODE = -1;
+
+	private static final String[] IDS;
+	private static final Map<String, Integer> OPCODES;
+
+	static {
+		List<String> ids = new ArrayList<>();
+		for (Field field : Api.class.getFields()) {
+			String name = field.getName();
+			if (field.getType() == String.class && Modifier.isStatic(field.getModifiers())
+					&& (name.startsWith("ASK_") || name.startsWith("REPLY_") || name.startsWith("PUSH_"))) {
+				try {
+					String id = (String) field.get(null);
+					if (!ids.contains(id)) {
+						ids.add(id);
+					}
+				} catch (IllegalAccessException e) {
+					throw new ExceptionInInitializerError(e);
+				}
+			}
+		}
+		Collections.sort(ids);
+		IDS = ids.toArray(new String[0]);
+		OPCODES = new HashMap<>(IDS.length * 2);
+		for (int i = 0; i < IDS.length; i++) {
+			OPCODES.put(IDS[i], i);
+		}
+	}
+
+	// ****************************** Constructors ******************************
+	private ApiOpcodes() {
+	}
+
+	// ****************************** Static Methods ******************************
+
+	/*
+	 * Gets the opcode of a message id.
+	 * @param id the message id, e.g. Api.ASK_TABLE_STATUS
+	 * @return the opcode, or NO_OPCODE if the id is not declared in Api
+	 */
+	public static int opcodeOf(String id) {
+		Integer opcode = id == null ? null : OPCODES.get(id);
+		return opcode == null ? NO_OPCODE : opcode;
+	}
+
+	/*
+	 * Gets the message id of an opcode.
+	 * @param opcode the opcode
+	 * @return the message id, or null if no id has this opcode
+	 */
+	public static String idOf(int opcode) {
+		return opcode >= 0 && opcode < IDS.length ? IDS[opcode] : null;
+	}
+
+	/*
+	 * Gets the number of opcodes, one more than the largest opcode.
+	 * @return the number of ids declared in Api
+	 */
+	public static int count() {
+		return IDS.length;
+	}
+}
+// End of ApiOpcodes.java
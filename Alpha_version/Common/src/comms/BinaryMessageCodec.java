@@ -0,0 +1,643 @@
+package comms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dto.ChangeEvent;
+import dto.Holiday;
+import dto.ListChunk;
+import dto.WeeklyHour;
+import entities.Bill;
+import entities.Item;
+import entities.MonthlyReport;
+import entities.Order;
+import entities.Table;
+import entities.User;
+import enums.BillType;
+import enums.ChangeType;
+import enums.OrderStatus;
+import enums.OrderType;
+import enums.UserType;
+
+/**
+ * Compact tagged binary codec for Message.
+ * Every value is written as a one byte tag followed by its fields, so the hot
+ * payloads (orders, tables, users, bills, lists of them and the java.time
+ * types) skip the class descriptors and reflection of Java serialization.
+ * Any other Serializable value is embedded with Java serialization under the
+ * SERIALIZED tag, so every message that worked before still round-trips; on
+ * reading, only the classes of MessageCodec.MESSAGE_CLASSES are accepted.
+ * Every length read is checked against the bytes left in the message before
+ * anything is allocated.
+ */
+public final class BinaryMessageCodec implements MessageCodec {
+
+	// ****************************** Constants ******************************
+	public static final String NAME = "binary-v1";
+	public static final BinaryMessageCodec INSTANCE = new BinaryMessageCodec();
+
+	private static final int MAGIC = 0xB15E0001;
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte INT = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte BOOLEAN = 5;
+	private static final byte INT_ARRAY = 6;
+	private static final byte LOCAL_DATE = 7;
+	private static final byte LOCAL_TIME = 8;
+	private static final byte LOCAL_DATE_TIME = 9;
+	private static final byte TIMESTAMP = 10;
+	private static final byte ENUM = 11;
+	private static final byte LIST = 12;
+	private static final byte MAP = 13;
+	private static final byte ORDER = 20;
+	private static final byte TABLE = 21;
+	private static final byte USER = 22;
+	private static final byte BILL = 23;
+	private static final byte ITEM = 24;
+	private static final byte WEEKLY_HOUR = 25;
+	private static final byte HOLIDAY = 26;
+	private static final byte CHANGE_EVENT = 27;
+	private static final byte MESSAGE = 28;
+	private static final byte LIST_CHUNK = 29;
+	private static final byte MONTHLY_REPORT = 30;
+	private static final byte SERIALIZED = 127;
+
+	// Enum classes are resolved by name once and then reused
+	private static final Map<String, Class<?>> ENUM_CLASSES = new ConcurrentHashMap<>();
+
+	// ****************************** Constructors ******************************
+	private BinaryMessageCodec() {
+	}
+
+	// ****************************** MessageCodec ******************************
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public byte[] encode(Message msg) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		writeString(out, msg.getId());
+		writeString(out, msg.getRequestId());
+		writeValue(out, msg.getData());
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public Message decode(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a " + NAME + " message");
+		}
+		String id = readString(in);
+		String requestId = readString(in);
+		Object data = readValue(in);
+		return new Message(id, data, requestId);
+	}
+
+	// ****************************** Writing ******************************
+
+	/**
+	 * Writes one tagged value.
+	 */
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String s) {
+			out.writeByte(STRING);
+			writeString(out, s);
+		} else if (value instanceof Integer i) {
+			out.writeByte(INT);
+			out.writeInt(i);
+		} else if (value instanceof Long l) {
+			out.writeByte(LONG);
+			out.writeLong(l);
+		} else if (value instanceof Double d) {
+			out.writeByte(DOUBLE);
+			out.writeDouble(d);
+		} else if (value instanceof Boolean b) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean(b);
+		} else if (value instanceof int[] array) {
+			out.writeByte(INT_ARRAY);
+			out.writeInt(array.length);
+			for (int v : array) {
+				out.writeInt(v);
+			}
+		} else if (value instanceof LocalDate date) {
+			out.writeByte(LOCAL_DATE);
+			out.writeLong(date.toEpochDay());
+		} else if (value instanceof LocalTime time) {
+			out.writeByte(LOCAL_TIME);
+			out.writeLong(time.toNanoOfDay());
+		} else if (value instanceof LocalDateTime dateTime) {
+			out.writeByte(LOCAL_DATE_TIME);
+			out.writeLong(dateTime.toLocalDate().toEpochDay());
+			out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+		} else if (value instanceof Timestamp ts) {
+			out.writeByte(TIMESTAMP);
+			out.writeLong(ts.getTime());
+			out.writeInt(ts.getNanos());
+		} else if (value instanceof Enum<?> e && e.getDeclaringClass().getName().startsWith("enums.")) {
+			out.writeByte(ENUM);
+			writeString(out, e.getDeclaringClass().getName());
+			writeString(out, e.name());
+		} else if (value instanceof ArrayList<?> list) {
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for (Object element : list) {
+				writeValue(out, element);
+			}
+		} else if (value instanceof HashMap<?, ?> map) {
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeValue(out, entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		} else if (value.getClass() == Order.class) {
+			out.writeByte(ORDER);
+			writeOrder(out, (Order) value);
+		} else if (value.getClass() == Table.class) {
+			Table t = (Table) value;
+			out.writeByte(TABLE);
+			out.writeInt(t.getTableID());
+			out.writeInt(t.getCapacity());
+			out.writeBoolean(t.isOccupiedNow());
+		} else if (value.getClass() == User.class) {
+			out.writeByte(USER);
+			writeUser(out, (User) value);
+		} else if (value.getClass() == Bill.class) {
+			out.writeByte(BILL);
+			writeBill(out, (Bill) value);
+		} else if (value.getClass() == Item.class) {
+			out.writeByte(ITEM);
+			writeItem(out, (Item) value);
+		} else if (value.getClass() == WeeklyHour.class) {
+			WeeklyHour w = (WeeklyHour) value;
+			out.writeByte(WEEKLY_HOUR);
+			out.writeInt(w.getDayOfWeek());
+			writeValue(out, w.getOpenTime());
+			writeValue(out, w.getCloseTime());
+		} else if (value.getClass() == Holiday.class) {
+			Holiday h = (Holiday) value;
+			out.writeByte(HOLIDAY);
+			writeValue(out, h.getDate());
+			writeString(out, h.getName());
+			out.writeBoolean(h.isClosed());
+			writeValue(out, h.getOpenTime());
+			writeValue(out, h.getCloseTime());
+		} else if (value.getClass() == ChangeEvent.class) {
+			ChangeEvent e = (ChangeEvent) value;
+			out.writeByte(CHANGE_EVENT);
+			writeString(out, e.getTopic());
+			writeEnum(out, e.getType());
+			writeValue(out, e.getKey());
+			writeValue(out, e.getValue());
+		} else if (value.getClass() == ListChunk.class) {
+			ListChunk c = (ListChunk) value;
+			out.writeByte(LIST_CHUNK);
+			writeString(out, c.getReplyId());
+			out.writeInt(c.getIndex());
+			out.writeBoolean(c.isLast());
+			out.writeInt(c.getTotalSize());
+			writeValue(out, c.getItems());
+		} else if (value.getClass() == MonthlyReport.class) {
+			out.writeByte(MONTHLY_REPORT);
+			writeMonthlyReport(out, (MonthlyReport) value);
+		} else if (value.getClass() == Message.class) {
+			// Requests and replies nested in a batch
+			Message m = (Message) value;
+			out.writeByte(MESSAGE);
+			writeString(out, m.getId());
+			writeString(out, m.getRequestId());
+			writeValue(out, m.getData());
+		} else {
+			// Anything else keeps its Java serialization form
+			out.writeByte(SERIALIZED);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(value);
+			}
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		}
+	}
+
+	private static void writeOrder(DataOutputStream out, Order o) throws IOException {
+		out.writeInt(o.getOrderNumber());
+		out.writeInt(o.getUserId());
+		writeValue(out, o.getOrderDate());
+		writeValue(out, o.getOrderHour());
+		out.writeInt(o.getDinersAmount());
+		writeString(out, o.getConfirmationCode());
+		Item[] items = o.getOrderedItems();
+		out.writeInt(items == null ? -1 : items.length);
+		if (items != null) {
+			for (Item item : items) {
+				writeItem(out, item);
+			}
+		}
+		writeString(out, o.getIdempotencyKey());
+		out.writeInt(o.getTableId());
+		writeValue(out, o.getDateOfPlacingOrder());
+		writeString(out, o.getUserTypeStr());
+		writeEnum(out, o.getOrderType());
+		writeEnum(out, o.getStatus());
+	}
+
+	private static void writeUser(DataOutputStream out, User u) throws IOException {
+		out.writeInt(u.getUserId());
+		writeEnum(out, u.getUserType());
+		writeString(out, u.getPhoneNumber());
+		writeString(out, u.getEmail());
+		writeString(out, u.getFirstName());
+		writeString(out, u.getLastName());
+		writeString(out, u.getUsername());
+		writeString(out, u.getMemberCode());
+		writeString(out, u.getAddress());
+		writeString(out, u.getFullName());
+	}
+
+	private static void writeBill(DataOutputStream out, Bill b) throws IOException {
+		out.writeInt(b.getBillID());
+		writeString(out, b.getTransactionId());
+		writeString(out, b.getPaymentStatus());
+		out.writeInt(b.getTableId());
+		out.writeInt(b.getOrderNumber());
+		writeString(out, b.getConfirmationCode());
+		writeEnum(out, b.getUserType());
+		writeValue(out, b.getDate());
+		out.writeDouble(b.getTotal());
+		writeEnum(out, b.getBillType());
+	}
+
+	private static void writeItem(DataOutputStream out, Item item) throws IOException {
+		if (item == null) {
+			out.writeBoolean(false);
+			return;
+		}
+		out.writeBoolean(true);
+		out.writeInt(item.getItemId());
+		writeString(out, item.getName());
+		out.writeDouble(item.getPrice());
+		out.writeInt(item.getQuantity());
+	}
+
+	/**
+	 * Writes an enum field of a known type as its ordinal, -1 for null.
+	 */
+	private static void writeMonthlyReport(DataOutputStream out, MonthlyReport r) throws IOException {
+		// The year and month names follow from their numbers
+		writeString(out, r.getReportType());
+		out.writeInt(r.getYearInt());
+		out.writeInt(r.getMonthInt());
+		out.writeInt(r.getTotalReservations());
+		out.writeInt(r.getTotalCostumer());
+		out.writeInt(r.getTotalLateCostumer());
+		out.writeInt(r.getTotalOnTimeCostumer());
+		out.writeInt(r.getTotalMemberReservations());
+		out.writeInt(r.getMemberReservationPrecetage());
+		writeCounts(out, r.getReservationsByDay());
+		writeCounts(out, r.getWaitlistByDay());
+		writeCounts(out, r.getLateArrivalsByDay());
+		writeCounts(out, r.getOnTimeArrivalsByDay());
+		writeCounts(out, r.getLatenessBuckets());
+		writeCounts(out, r.getOverstayBuckets());
+	}
+
+	/**
+	 * Writes a map of counts, null as an empty map.
+	 */
+	private static void writeCounts(DataOutputStream out, Map<?, Integer> counts) throws IOException {
+		out.writeInt(counts == null ? 0 : counts.size());
+		if (counts != null) {
+			for (Map.Entry<?, Integer> entry : counts.entrySet()) {
+				writeValue(out, entry.getKey());
+				out.writeInt(entry.getValue() == null ? 0 : entry.getValue());
+			}
+		}
+	}
+
+	private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+		out.writeByte(value == null ? -1 : value.ordinal());
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length and bytes, -1 for null.
+	 * Unlike writeUTF it has no 64 KB limit.
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(utf8.length);
+		out.write(utf8);
+	}
+
+	// ****************************** Reading ******************************
+
+	/**
+	 * Reads one tagged value.
+	 */
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case INT:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case DOUBLE:
+			return in.readDouble();
+		case BOOLEAN:
+			return in.readBoolean();
+		case INT_ARRAY: {
+			int[] array = new int[readLength(in, Integer.BYTES)];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = in.readInt();
+			}
+			return array;
+		}
+		case LOCAL_DATE:
+			return LocalDate.ofEpochDay(in.readLong());
+		case LOCAL_TIME:
+			return LocalTime.ofNanoOfDay(in.readLong());
+		case LOCAL_DATE_TIME: {
+			LocalDate date = LocalDate.ofEpochDay(in.readLong());
+			return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readLong()));
+		}
+		case TIMESTAMP: {
+			Timestamp ts = new Timestamp(in.readLong());
+			ts.setNanos(in.readInt());
+			return ts;
+		}
+		case ENUM:
+			return readNamedEnum(in);
+		case LIST: {
+			int size = readLength(in, 1);
+			List<Object> list = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				list.add(readValue(in));
+			}
+			return list;
+		}
+		case MAP: {
+			int size = readLength(in, 2);
+			Map<Object, Object> map = new HashMap<>();
+			for (int i = 0; i < size; i++) {
+				Object key = readValue(in);
+				map.put(key, readValue(in));
+			}
+			return map;
+		}
+		case ORDER:
+			return readOrder(in);
+		case TABLE:
+			return new Table(in.readInt(), in.readInt(), in.readBoolean());
+		case USER:
+			return readUser(in);
+		case BILL:
+			return readBill(in);
+		case ITEM:
+			return readItem(in);
+		case WEEKLY_HOUR: {
+			int day = in.readInt();
+			LocalTime open = (LocalTime) readValue(in);
+			return new WeeklyHour(day, open, (LocalTime) readValue(in));
+		}
+		case HOLIDAY: {
+			LocalDate date = (LocalDate) readValue(in);
+			String name = readString(in);
+			boolean closed = in.readBoolean();
+			LocalTime open = (LocalTime) readValue(in);
+			return new Holiday(date, name, closed, open, (LocalTime) readValue(in));
+		}
+		case CHANGE_EVENT: {
+			String topic = readString(in);
+			ChangeType type = readEnum(in, ChangeType.values());
+			Serializable key = (Serializable) readValue(in);
+			return new ChangeEvent(topic, type, key, (Serializable) readValue(in));
+		}
+		case LIST_CHUNK: {
+			String replyId = readString(in);
+			int index = in.readInt();
+			boolean last = in.readBoolean();
+			int totalSize = in.readInt();
+			return new ListChunk(replyId, index, last, totalSize, (ArrayList<?>) readValue(in));
+		}
+		case MONTHLY_REPORT:
+			return readMonthlyReport(in);
+		case MESSAGE: {
+			String id = readString(in);
+			String requestId = readString(in);
+			return new Message(id, readValue(in), requestId);
+		}
+		case SERIALIZED: {
+			byte[] bytes = new byte[readLength(in, 1)];
+			in.readFully(bytes);
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				ois.setObjectInputFilter(MessageCodec.MESSAGE_CLASSES);
+				return ois.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Unknown class in " + NAME + " message", e);
+			}
+		}
+		default:
+			throw new IOException("Unknown " + NAME + " tag " + tag);
+		}
+	}
+
+	private static Order readOrder(DataInputStream in) throws IOException {
+		Order o = new Order();
+		o.setOrderNumber(in.readInt());
+		o.setUserId(in.readInt());
+		o.setOrderDate((LocalDate) readValue(in));
+		o.setOrderHour((LocalTime) readValue(in));
+		o.setDinersAmount(in.readInt());
+		o.setConfirmationCode(readString(in));
+		int itemCount = in.readInt();
+		if (itemCount >= 0) {
+			Item[] items = new Item[itemCount];
+			for (int i = 0; i < itemCount; i++) {
+				items[i] = readItem(in);
+			}
+			o.setOrderedItems(items);
+		}
+		o.setIdempotencyKey(readString(in));
+		o.setTableId(in.readInt());
+		o.setDateOfPlacingOrder((LocalDateTime) readValue(in));
+		o.setUserTypeStr(readString(in));
+		o.setOrderType(readEnum(in, OrderType.values()));
+		o.setStatus(readEnum(in, OrderStatus.values()));
+		return o;
+	}
+
+	private static User readUser(DataInputStream in) throws IOException {
+		int userId = in.readInt();
+		UserType type = readEnum(in, UserType.values());
+		String phone = readString(in);
+		String email = readString(in);
+		User u = new User(userId, phone, email, type);
+		u.setFirstName(readString(in));
+		u.setLastName(readString(in));
+		u.setUsername(readString(in));
+		u.setMemberCode(readString(in));
+		u.setAddress(readString(in));
+		u.setFullName(readString(in));
+		return u;
+	}
+
+	private static Bill readBill(DataInputStream in) throws IOException {
+		int billId = in.readInt();
+		String transactionId = readString(in);
+		String paymentStatus = readString(in);
+		Bill b = new Bill(billId, 0, paymentStatus, transactionId);
+		b.setTableId(in.readInt());
+		b.setOrderNumber(in.readInt());
+		b.setConfirmationCode(readString(in));
+		b.setUserType(readEnum(in, UserType.values()));
+		b.setDate((Timestamp) readValue(in));
+		b.setTotal(in.readDouble());
+		b.setBillType(readEnum(in, BillType.values()));
+		return b;
+	}
+
+	private static Item readItem(DataInputStream in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		int itemId = in.readInt();
+		String name = readString(in);
+		double price = in.readDouble();
+		return new Item(itemId, name, price, in.readInt());
+	}
+
+	private static MonthlyReport readMonthlyReport(DataInputStream in) throws IOException {
+		MonthlyReport r = new MonthlyReport();
+		r.setReportType(readString(in));
+		r.setYearInt(in.readInt());
+		int month = in.readInt();
+		if (month < 1 || month > 12) {
+			throw new IOException("Invalid report month " + month);
+		}
+		r.setMonthInt(month);
+		r.setTotalReservations(in.readInt());
+		r.setTotalCostumer(in.readInt());
+		r.setTotalLateCostumer(in.readInt());
+		r.setTotalOnTimeCostumer(in.readInt());
+		r.setTotalMemberReservations(in.readInt());
+		r.setMemberReservationPrecetage(in.readInt());
+		r.setReservationsByDay(readCounts(in));
+		r.setWaitlistByDay(readCounts(in));
+		r.setLateArrivalsByDay(readCounts(in));
+		r.setOnTimeArrivalsByDay(readCounts(in));
+		r.setLatenessBuckets(readCounts(in));
+		r.setOverstayBuckets(readCounts(in));
+		return r;
+	}
+
+	/**
+	 * Reads a map of counts written by writeCounts.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <K> Map<K, Integer> readCounts(DataInputStream in) throws IOException {
+		// A key takes at least its tag and a count its four bytes
+		int size = readLength(in, 1 + Integer.BYTES);
+		Map<K, Integer> counts = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			K key = (K) readValue(in);
+			counts.put(key, in.readInt());
+		}
+		return counts;
+	}
+
+	private static <E extends Enum<E>> E readEnum(DataInputStream in, E[] values) throws IOException {
+		byte ordinal = in.readByte();
+		if (ordinal < 0) {
+			return null;
+		}
+		if (ordinal >= values.length) {
+			throw new IOException("Unknown enum ordinal " + ordinal);
+		}
+		return values[ordinal];
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object readNamedEnum(DataInputStream in) throws IOException {
+		String className = readString(in);
+		String name = readString(in);
+		if (className == null || !className.startsWith("enums.")) {
+			throw new IOException("Unexpected enum class " + className);
+		}
+		Class<?> type = ENUM_CLASSES.get(className);
+		if (type == null) {
+			try {
+				type = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Unknown enum class " + className, e);
+			}
+			if (!type.isEnum()) {
+				throw new IOException("Not an enum class " + className);
+			}
+			ENUM_CLASSES.put(className, type);
+		}
+		return Enum.valueOf((Class) type, name);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		if (length > in.available()) {
+			throw new IOException("String length " + length + " beyond the end of the message");
+		}
+		byte[] utf8 = new byte[length];
+		in.readFully(utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a collection length and rejects negative values and lengths the
+	 * rest of the message cannot hold. The stream reads a byte array, so
+	 * available() is exactly the number of bytes left.
+	 */
+	private static int readLength(DataInputStream in, int minBytesPerElement) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > in.available() / minBytesPerElement) {
+			throw new IOException("Invalid length " + length);
+		}
+		return length;
+	}
+}
+// End of BinaryMessageCodec.java
@@ -0,0 +1,130 @@
+package comms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary codec that also compresses large frames.
+ * Messages are encoded with BinaryMessageCodec; a frame of at least the
+ * threshold size is deflated when that makes it smaller, so small replies
+ * keep their cost while large lists (reservations of a busy day, the
+ * customer directory) shrink several times on slow networks.
+ * The threshold in bytes can be set with -Dbistro.compress.threshold=<n>.
+ */
+public final class DeflateMessageCodec implements MessageCodec {
+
+	// ****************************** Constants ******************************
+	public static final String NAME = BinaryMessageCodec.NAME + "+deflate";
+	public static final int DEFAULT_THRESHOLD = 8192;
+	/** Largest frame restored from a compressed frame, the frame limit of the NIO transport */
+	public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+	public static final DeflateMessageCodec INSTANCE = new DeflateMessageCodec(
+			Integer.getInteger("bistro.compress.threshold", DEFAULT_THRESHOLD));
+
+	private static final int MAGIC = 0xB15E0DEF;
+	private static final int HEADER_SIZE = 8; // magic + original length
+
+	// ****************************** Instance variables ******************************
+	private final MessageCodec inner = BinaryMessageCodec.INSTANCE;
+	private final int threshold;
+
+	// ****************************** Constructors ******************************
+	private DeflateMessageCodec(int threshold) {
+		this.threshold = threshold;
+	}
+
+	// ****************************** MessageCodec ******************************
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public byte[] encode(Message msg) throws IOException {
+		byte[] frame = inner.encode(msg);
+		if (frame.length < threshold) {
+			return frame;
+		}
+		byte[] compressed = deflate(frame);
+		return compressed.length < frame.length ? compressed : frame;
+	}
+
+	@Override
+	public Message decode(byte[] bytes) throws IOException {
+		if (bytes.length >= HEADER_SIZE && ByteBuffer.wrap(bytes).getInt() == MAGIC) {
+			return inner.decode(inflate(bytes));
+		}
+		return inner.decode(bytes);
+	}
+
+	/*
+	 * Gets the frame size from which frames are compressed.
+	 * @return the threshold in bytes
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	// ****************************** Compression ******************************
+
+	/**
+	 * Deflates a frame behind the compressed frame header.
+	 */
+	private static byte[] deflate(byte[] frame) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(frame);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(frame.length / 2 + HEADER_SIZE);
+			out.writeBytes(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(frame.length).array());
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Restores the frame held by a compressed frame. The length in the header
+	 * is checked before anything is allocated, and no more than that length
+	 * is ever inflated.
+	 */
+	private static byte[] inflate(byte[] bytes) throws IOException {
+		int length = ByteBuffer.wrap(bytes, 4, 4).getInt();
+		if (length < 0 || length > MAX_FRAME_SIZE) {
+			throw new IOException("Invalid compressed frame length " + length);
+		}
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+			byte[] frame = new byte[length];
+			int read = 0;
+			while (read < length) {
+				int n = inflater.inflate(frame, read, length - read);
+				if (n == 0) {
+					// No progress: the stream ended early, asks for a preset
+					// dictionary we never use, or is otherwise stuck
+					if (inflater.finished() || inflater.needsInput()) {
+						throw new IOException("Truncated compressed frame");
+					}
+					throw new IOException("Corrupt compressed frame");
+				}
+				read += n;
+			}
+			return frame;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt compressed frame", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
+// End of DeflateMessageCodec.java
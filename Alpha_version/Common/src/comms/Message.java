@@ -4,6 +4,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class Message implements Serializable {
     @Serial
@@ -13,6 +14,11 @@ public final class Message implements Serializable {
     private final Object data;      
     private final String requestId;
 
+    // Generated requestIds are a random per-process prefix plus a counter, so that
+    // creating a message does not draw from SecureRandom like UUID.randomUUID()
+    private static final String REQUEST_ID_PREFIX = UUID.randomUUID().toString() + "-";
+    private static final AtomicLong REQUEST_COUNTER = new AtomicLong();
+
     /*
      * Creates a new Message with a unique requestId.
      * @param id      the message identifier
@@ -20,7 +26,7 @@ public final class Message implements Serializable {
      * @return        a new Message instance
      */
     public Message(String id, Object data) {
-        this(id, data, UUID.randomUUID().toString());
+        this(id, data, REQUEST_ID_PREFIX + REQUEST_COUNTER.incrementAndGet());
     }
 
     /*
@@ -59,6 +65,24 @@ public final class Message implements Serializable {
         return requestId;
     }
 
+    /*
+     * Checks whether the requestId was generated rather than given explicitly.
+     * @return true if the message was created without a requestId
+     */
+    public boolean hasGeneratedRequestId() {
+        return requestId.startsWith(REQUEST_ID_PREFIX);
+    }
+
+    /*
+     * Creates a copy of this message with another requestId, e.g. to tag a reply
+     * with the requestId of the request it answers.
+     * @param requestId the request identifier
+     * @return a new Message with the same id and payload
+     */
+    public Message withRequestId(String requestId) {
+        return new Message(id, data, requestId);
+    }
+
     /*
      * Returns a string representation of the Message.
      * @return a string representation of the Message
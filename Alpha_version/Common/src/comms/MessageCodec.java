@@ -0,0 +1,99 @@
+package comms;
+
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.util.List;
+
+/**
+ * Encodes Message objects to bytes and back for the wire.
+ * The codec used by a connection is negotiated when the client sends
+ * Api.ASK_CONNECTION_CONNECT: the client offers the names it supports and the
+ * server answers with the one it picked. Until then, and whenever the peers
+ * agree on JAVA, messages travel with plain Java serialization.
+ */
+public interface MessageCodec {
+
+	/** Name of the default Java serialization format (no codec). */
+	String JAVA = "java";
+
+	/*
+	 * Classes a message may carry through Java serialization: the messages,
+	 * DTOs, entities and enums of this project and the JDK value types they
+	 * hold. Used for connections still on JAVA and for the values a codec
+	 * embeds with Java serialization.
+	 */
+	ObjectInputFilter MESSAGE_CLASSES = ObjectInputFilter.Config.createFilter(
+			"comms.*;common.*;dto.*;entities.*;enums.*;java.lang.*;java.util.*;java.time.*;java.sql.*;java.math.*;"
+					+ "maxdepth=32;!*");
+
+	/*
+	 * Accepts only the byte arrays of encoded messages, for the frames of a
+	 * connection that negotiated a codec.
+	 */
+	ObjectInputFilter ENCODED_FRAMES = info -> {
+		Class<?> type = info.serialClass();
+		if (type == null) {
+			return info.depth() > 1 ? ObjectInputFilter.Status.REJECTED : ObjectInputFilter.Status.UNDECIDED;
+		}
+		return type == byte[].class ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+	};
+
+	/*
+	 * Gets the name used to negotiate this codec.
+	 * @return the codec name
+	 */
+	String getName();
+
+	/*
+	 * Encodes a message into bytes.
+	 * @param msg the message to encode
+	 * @return the encoded bytes
+	 * @throws IOException if the message cannot be encoded
+	 */
+	byte[] encode(Message msg) throws IOException;
+
+	/*
+	 * Decodes bytes produced by encode back into a message.
+	 * @param bytes the encoded bytes
+	 * @return the decoded message
+	 * @throws IOException if the bytes are not a valid encoding
+	 */
+	Message decode(byte[] bytes) throws IOException;
+
+	/*
+	 * Gets the codec names this build supports, most preferred first.
+	 * @return the supported codec names
+	 */
+	static List<String> supportedNames() {
+		return List.of(DeflateMessageCodec.NAME, BinaryMessageCodec.NAME, JAVA);
+	}
+
+	/*
+	 * Picks the first offered codec that this build supports.
+	 * @param offered the codec names offered by the peer, may be null for old clients
+	 * @return the chosen codec name, JAVA if nothing else matches
+	 */
+	static String negotiate(List<?> offered) {
+		if (offered != null) {
+			for (Object name : offered) {
+				if (supportedNames().contains(name)) {
+					return (String) name;
+				}
+			}
+		}
+		return JAVA;
+	}
+
+	/*
+	 * Looks up a codec by its negotiated name.
+	 * @param name the codec name
+	 * @return the codec, or null for JAVA and unknown names
+	 */
+	static MessageCodec forName(String name) {
+		if (DeflateMessageCodec.NAME.equals(name)) {
+			return DeflateMessageCodec.INSTANCE;
+		}
+		return BinaryMessageCodec.NAME.equals(name) ? BinaryMessageCodec.INSTANCE : null;
+	}
+}
+// End of MessageCodec.java
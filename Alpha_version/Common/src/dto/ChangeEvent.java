@@ -0,0 +1,113 @@
+package dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import enums.ChangeType;
+
+/**
+ * A small change event pushed to the clients subscribed to a topic.
+ * Per topic:
+ * - "tables": UPDATED with key = table id and value = confirmation code of the seated order (null when freed),
+ *   RESET when tables were added, removed or resized.
+ * - "waitlist": ADDED / UPDATED with key = confirmation code and value = the Order, REMOVED with key only.
+ * - "orders:<date>": ADDED with key = confirmation code and value = the Order,
+ *   UPDATED with key = confirmation code and value = the new OrderStatus.
+ */
+public class ChangeEvent implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TOPIC_TABLES = "tables";
+	public static final String TOPIC_WAITLIST = "waitlist";
+	private static final String TOPIC_ORDERS_PREFIX = "orders:";
+
+	private final String topic;
+	private final ChangeType type;
+	private final Serializable key;
+	private final Serializable value;
+
+	/*
+	 * Creates a ChangeEvent instance.
+	 * @param topic the topic the event was published to
+	 * @param type  the kind of change
+	 * @param key   identifies the changed item (table id or confirmation code)
+	 * @param value the new state of the item, may be null
+	 */
+	public ChangeEvent(String topic, ChangeType type, Serializable key, Serializable value) {
+		this.topic = topic;
+		this.type = type;
+		this.key = key;
+		this.value = value;
+	}
+
+	/*
+	 * Gets the topic of the reservations of one day.
+	 * @param date the day
+	 * @return the topic name
+	 */
+	public static String ordersTopic(LocalDate date) {
+		return TOPIC_ORDERS_PREFIX + date;
+	}
+
+	/*
+	 * Checks whether a topic name is one clients may subscribe to.
+	 * @param topic the topic name
+	 * @return true for "tables", "waitlist" and "orders:<yyyy-mm-dd>"
+	 */
+	public static boolean isValidTopic(String topic) {
+		if (TOPIC_TABLES.equals(topic) || TOPIC_WAITLIST.equals(topic)) {
+			return true;
+		}
+		if (topic == null || !topic.startsWith(TOPIC_ORDERS_PREFIX)) {
+			return false;
+		}
+		try {
+			LocalDate.parse(topic.substring(TOPIC_ORDERS_PREFIX.length()));
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Gets the topic the event was published to.
+	 * @return the topic name
+	 */
+	public String getTopic() {
+		return topic;
+	}
+
+	/*
+	 * Gets the kind of change.
+	 * @return the change type
+	 */
+	public ChangeType getType() {
+		return type;
+	}
+
+	/*
+	 * Gets the key of the changed item.
+	 * @return the table id or confirmation code
+	 */
+	public Serializable getKey() {
+		return key;
+	}
+
+	/*
+	 * Gets the new state of the changed item.
+	 * @return the value, may be null
+	 */
+	public Serializable getValue() {
+		return value;
+	}
+
+	/*
+	 * Returns a string representation of the ChangeEvent.
+	 * @return a string representation of the ChangeEvent
+	 */
+	@Override
+	public String toString() {
+		return "ChangeEvent{topic='" + topic + "', type=" + type + ", key=" + key + "}";
+	}
+}
+// end of ChangeEvent.java
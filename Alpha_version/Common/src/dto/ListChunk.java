@@ -0,0 +1,98 @@
+package dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * One page of a large list reply sent in chunked mode.
+ * The server sends the pages of the list in order, all with the requestId
+ * of the request; the client shows each page as it arrives and, after the
+ * last one, handles the whole list as the reply named by replyId.
+ */
+public class ListChunk implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// Offered on connect by clients that accept chunked list replies
+	public static final String CAPABILITY = "chunked-lists";
+
+	private final String replyId;
+	private final int index;
+	private final boolean last;
+	private final int totalSize;
+	private final ArrayList<?> items;
+
+	/*
+	 * Creates a ListChunk instance.
+	 * @param replyId   the id of the reply the list belongs to
+	 * @param index     the position of this page, starting at 0
+	 * @param last      true for the last page
+	 * @param totalSize the number of items of the whole list
+	 * @param items     the items of this page
+	 */
+	public ListChunk(String replyId, int index, boolean last, int totalSize, ArrayList<?> items) {
+		this.replyId = replyId;
+		this.index = index;
+		this.last = last;
+		this.totalSize = totalSize;
+		this.items = items;
+	}
+
+	/*
+	 * Gets the id of the reply the list belongs to.
+	 * @return the reply id, e.g. Api.REPLY_GET_RESERVATIONS_BY_DATE_OK
+	 */
+	public String getReplyId() {
+		return replyId;
+	}
+
+	/*
+	 * Gets the position of this page.
+	 * @return the page index, starting at 0
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/*
+	 * Checks whether this is the first page, after which a view clears its old rows.
+	 * @return true for the first page
+	 */
+	public boolean isFirst() {
+		return index == 0;
+	}
+
+	/*
+	 * Checks whether this is the last page.
+	 * @return true for the last page
+	 */
+	public boolean isLast() {
+		return last;
+	}
+
+	/*
+	 * Gets the number of items of the whole list.
+	 * @return the total number of items
+	 */
+	public int getTotalSize() {
+		return totalSize;
+	}
+
+	/*
+	 * Gets the items of this page.
+	 * @return the page items
+	 */
+	public ArrayList<?> getItems() {
+		return items;
+	}
+
+	/*
+	 * Returns a string representation of the ListChunk.
+	 * @return a string representation of the ListChunk
+	 */
+	@Override
+	public String toString() {
+		return "ListChunk{replyId='" + replyId + "', index=" + index + ", items=" + items.size() + ", totalSize="
+				+ totalSize + "}";
+	}
+}
+// end of ListChunk.java
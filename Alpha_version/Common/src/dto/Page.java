@@ -0,0 +1,94 @@
+package dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * One page of a list read with keyset pagination, the reply to a
+ * {@link PageRequest}. Views show the pages one after the other and ask for
+ * the next page with {@link #getNext()} when the user scrolls to the end.
+ *
+ * @param <T> the type of the rows
+ */
+public class Page<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final ArrayList<T> items;
+	private final PageCursor after;
+	private final PageCursor next;
+	private final HashMap<String, Integer> summary;
+
+	/*
+	 * Creates a Page instance.
+	 * @param items   the rows of the page
+	 * @param after   the cursor the page was requested with, null for the first page
+	 * @param next    the cursor of the next page, null if this is the last one
+	 * @param summary counts over the whole list, sent with the first page only, or null
+	 */
+	public Page(ArrayList<T> items, PageCursor after, PageCursor next, HashMap<String, Integer> summary) {
+		this.items = items;
+		this.after = after;
+		this.next = next;
+		this.summary = summary;
+	}
+
+	/*
+	 * Gets the rows of the page.
+	 * @return the rows
+	 */
+	public ArrayList<T> getItems() {
+		return items;
+	}
+
+	/*
+	 * Gets the cursor the page was requested with, so that a view can drop a
+	 * page it no longer waits for.
+	 * @return the cursor, or null for the first page
+	 */
+	public PageCursor getAfter() {
+		return after;
+	}
+
+	/*
+	 * Checks whether this is the first page, after which a view clears its old rows.
+	 * @return true for the first page
+	 */
+	public boolean isFirst() {
+		return after == null;
+	}
+
+	/*
+	 * Gets the cursor to request the next page with.
+	 * @return the cursor, or null if this is the last page
+	 */
+	public PageCursor getNext() {
+		return next;
+	}
+
+	/*
+	 * Checks whether there are rows after this page.
+	 * @return true if a next page can be requested
+	 */
+	public boolean hasMore() {
+		return next != null;
+	}
+
+	/*
+	 * Gets counts over the whole list, e.g. the number of members of the customer directory.
+	 * @return the counts by name, or null if not sent with this page
+	 */
+	public HashMap<String, Integer> getSummary() {
+		return summary;
+	}
+
+	/*
+	 * Returns a string representation of the Page.
+	 * @return a string representation of the Page
+	 */
+	@Override
+	public String toString() {
+		return "Page{items=" + items.size() + ", after=" + after + ", next=" + next + "}";
+	}
+}
+// end of Page.java
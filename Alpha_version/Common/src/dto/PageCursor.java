@@ -0,0 +1,63 @@
+package dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Position in a list read with keyset pagination: the sort key of the last
+ * row of a page. The next page is read from the rows after it, so reading a
+ * page costs the same however deep into the list it is.
+ */
+public class PageCursor implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final LocalDate date;
+	private final int id;
+
+	/*
+	 * Creates a PageCursor instance.
+	 * @param date the date part of the sort key, null if the list is not sorted by date or the row has none
+	 * @param id   the unique part of the sort key, e.g. the order number or the user id
+	 */
+	public PageCursor(LocalDate date, int id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	/*
+	 * Gets the date part of the sort key.
+	 * @return the date, or null
+	 */
+	public LocalDate getDate() {
+		return date;
+	}
+
+	/*
+	 * Gets the unique part of the sort key.
+	 * @return the id of the last row of the page
+	 */
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof PageCursor other && id == other.id && Objects.equals(date, other.date);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(date, id);
+	}
+
+	/*
+	 * Returns a string representation of the PageCursor.
+	 * @return a string representation of the PageCursor
+	 */
+	@Override
+	public String toString() {
+		return "PageCursor{date=" + date + ", id=" + id + "}";
+	}
+}
+// end of PageCursor.java
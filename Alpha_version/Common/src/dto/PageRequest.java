@@ -0,0 +1,74 @@
+package dto;
+
+import java.io.Serializable;
+
+/**
+ * Request for one page of a list read with keyset pagination.
+ * The first page is requested without a cursor; each next page with the
+ * cursor returned in the previous {@link Page}.
+ */
+public class PageRequest implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int DEFAULT_LIMIT = 50;
+	public static final int MAX_LIMIT = 200;
+
+	private final PageCursor after;
+	private final int limit;
+	private final int ownerKey;
+
+	/*
+	 * Creates a PageRequest instance.
+	 * @param after the cursor of the previous page, null for the first page
+	 * @param limit the largest number of rows of the page
+	 */
+	public PageRequest(PageCursor after, int limit) {
+		this(after, limit, 0);
+	}
+
+	/*
+	 * Creates a PageRequest instance for a list that belongs to someone.
+	 * @param after    the cursor of the previous page, null for the first page
+	 * @param limit    the largest number of rows of the page
+	 * @param ownerKey the key of the owner of the list, e.g. a member code
+	 */
+	public PageRequest(PageCursor after, int limit, int ownerKey) {
+		this.after = after;
+		this.limit = limit;
+		this.ownerKey = ownerKey;
+	}
+
+	/*
+	 * Gets the cursor of the previous page.
+	 * @return the cursor, or null for the first page
+	 */
+	public PageCursor getAfter() {
+		return after;
+	}
+
+	/*
+	 * Gets the page size, within 1 and MAX_LIMIT.
+	 * @return the largest number of rows of the page
+	 */
+	public int getLimit() {
+		return limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+	}
+
+	/*
+	 * Gets the key of the owner of the list.
+	 * @return the owner key, 0 when the list belongs to the requester
+	 */
+	public int getOwnerKey() {
+		return ownerKey;
+	}
+
+	/*
+	 * Returns a string representation of the PageRequest.
+	 * @return a string representation of the PageRequest
+	 */
+	@Override
+	public String toString() {
+		return "PageRequest{after=" + after + ", limit=" + limit + ", ownerKey=" + ownerKey + "}";
+	}
+}
+// end of PageRequest.java
@@ -0,0 +1,80 @@
+package dto;
+
+import java.io.Serializable;
+
+/**
+ * Counters and latency percentiles of one server route, as returned by
+ * the admin route Api.ASK_ROUTE_STATS. Latencies are in microseconds and
+ * measure the handler only, not the time spent on the network.
+ */
+public class RouteStats implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String id;
+	private final int opcode;
+	private final long calls;
+	private final long errors;
+	private final long p50Micros;
+	private final long p99Micros;
+	private final long maxMicros;
+
+	/*
+	 * Creates a RouteStats instance.
+	 * @param id        the message id of the route
+	 * @param opcode    the opcode of the id, see comms.ApiOpcodes
+	 * @param calls     the number of handled requests
+	 * @param errors    the number of requests whose handler failed
+	 * @param p50Micros the median handler latency
+	 * @param p99Micros the 99th percentile handler latency
+	 * @param maxMicros the largest handler latency
+	 */
+	public RouteStats(String id, int opcode, long calls, long errors, long p50Micros, long p99Micros,
+			long maxMicros) {
+		this.id = id;
+		this.opcode = opcode;
+		this.calls = calls;
+		this.errors = errors;
+		this.p50Micros = p50Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public int getOpcode() {
+		return opcode;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public long getP50Micros() {
+		return p50Micros;
+	}
+
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+
+	/*
+	 * Returns a one line summary of the route statistics.
+	 * @return a string representation of the RouteStats
+	 */
+	@Override
+	public String toString() {
+		return String.format("%-40s calls=%d errors=%d p50=%dus p99=%dus max=%dus", id, calls, errors, p50Micros,
+				p99Micros, maxMicros);
+	}
+}
+// end of RouteStats.java
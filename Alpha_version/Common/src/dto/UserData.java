@@ -8,6 +8,7 @@ public class UserData implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private int userId; // 0 when not known
     private String firstName;
     private String lastName;
     private String address;
@@ -45,6 +46,7 @@ public class UserData implements Serializable {
      * @param userType2    the type of user
      */
     public UserData(int userId, String phoneNumber, String email2, Object object, UserType userType2) {
+		this.userId = userId;
 		this.phone = phoneNumber;
 		this.email = email2;
 		this.userType = userType2;
@@ -106,5 +108,21 @@ public class UserData implements Serializable {
 	public UserType getUserType() {
 		return userType;
 	}
+	
+	/*
+	 * Gets the user's ID, the position of the user in the paged customer directory.
+	 * @return the user ID, or 0 if not known
+	 */
+	public int getUserId() {
+		return userId;
+	}
+	
+	/*
+	 * Sets the user's ID.
+	 * @param userId the user ID
+	 */
+	public void setUserId(int userId) {
+		this.userId = userId;
+	}
 }
 // End of UserData.java
\ No newline at end of file
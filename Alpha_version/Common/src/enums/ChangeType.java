@@ -0,0 +1,8 @@
+package enums;
+
+public enum ChangeType {
+    ADDED,
+    UPDATED,
+    REMOVED,
+    RESET
+}
@@ -1 +1,1114 @@
-// This file contains material supporting section 3.8 of the textbook:// "Object Oriented Software Engineering" and is issued under the open-source// license found at www.lloseng.com package ocsf.server;import java.net.*;import java.util.*;import java.io.*;/*** The <code> AbstractServer </code> class maintains a thread that waits* for connection attempts from clients. When a connection attempt occurs* it creates a new <code> ConnectionToClient </code> instance which* runs as a thread. When a client is thus connected to the* server, the two programs can then exchange <code> Object </code>* instances.<p>** Method <code> handleMessageFromClient </code> must be defined by* a concrete subclass. Several other hook methods may also be* overriden.<p>** Several public service methods are provided to applications that use* this framework, and several hook methods are also available<p>** Project Name: OCSF (Object Client-Server Framework)<p>** @author Dr Robert Lagani&egrave;re* @author Dr Timothy C. Lethbridge* @author Fran&ccedil;ois B&eacute;langer* @author Paul Holden* @version February 2001 (2.12)* @see ocsf.server.ConnectionToClient*/public abstract class AbstractServer implements Runnable{  // INSTANCE VARIABLES *********************************************  /**   * The server socket: listens for clients who want to connect.   */  private ServerSocket serverSocket = null;  /**   * The connection listener thread.   */  private Thread connectionListener;  /**   * The port number   */  private int port;  /**   * The server timeout while for accepting connections.   * After timing out, the server will check to see if a command to   * stop the server has been issued; it not it will resume accepting   * connections.   * Set to half a second by default.   */  private int timeout = 500;  /**   * The maximum queue length; i.e. the maximum number of clients that   * can be waiting to connect.   * Set to 10 by default.   */  private int backlog = 10;  /**   * The thread group associated with client threads. Each member of the   * thread group is a <code> ConnectionToClient </code>.   */  private ThreadGroup clientThreadGroup;  /**   * Indicates if the listening thread is ready to stop.  Set to   * false by default.   */  private boolean readyToStop = false;// CONSTRUCTOR ******************************************************  /**   * Constructs a new server.   *   * @param port the port number on which to listen.   */  public AbstractServer(int port)  {    this.port = port;    this.clientThreadGroup =      new ThreadGroup("ConnectionToClient threads")      {        // All uncaught exceptions in connection threads will        // be sent to the clientException callback method.        public void uncaughtException(          Thread thread, Throwable exception)        {          clientException((ConnectionToClient)thread, exception);        }      };  }// INSTANCE METHODS *************************************************  /**   * Begins the thread that waits for new clients.   * If the server is already in listening mode, this   * call has no effect.   *   * @exception IOException if an I/O error occurs   * when creating the server socket.   */  final public void listen() throws IOException  {    if (!isListening())    {      if (serverSocket == null)      {        serverSocket = new ServerSocket(getPort(), backlog);      }      serverSocket.setSoTimeout(timeout);      readyToStop = false;      connectionListener = new Thread(this);      connectionListener.start();    }  }  /**   * Causes the server to stop accepting new connections.   */  final public void stopListening()  {    readyToStop = true;  }  /**   * Closes the server socket and the connections with all clients.   * Any exception thrown while closing a client is ignored.   * If one wishes to catch these exceptions, then clients   * should be individually closed before calling this method.   * The method also stops listening if this thread is running.   * If the server is already closed, this   * call has no effect.   *   * @exception IOException if an I/O error occurs while   * closing the server socket.   */  final synchronized public void close() throws IOException  {    if (serverSocket == null)      return;      stopListening();    try    {      serverSocket.close();    }    finally    {      // Close the client sockets of the already connected clients      Thread[] clientThreadList = getClientConnections();      for (int i=0; i<clientThreadList.length; i++)      {         try         {           ((ConnectionToClient)clientThreadList[i]).close();         }         // Ignore all exceptions when closing clients.         catch(Exception ex) {}      }      serverSocket = null;      serverClosed();    }  }  /**   * Sends a message to every client connected to the server.   * This is merely a utility; a subclass may want to do some checks   * before actually sending messages to all clients.  This method   * can be overriden, but if so it should still perform the general   * function of sending to all clients, perhaps after some kind   * of filtering is done. Any exception thrown while   * sending the message to a particular client is ignored.   *   * @param msg   Object The message to be sent   */  public void sendToAllClients(Object msg)  {    Thread[] clientThreadList = getClientConnections();    for (int i=0; i<clientThreadList.length; i++)    {      try      {        ((ConnectionToClient)clientThreadList[i]).sendToClient(msg);      }      catch (Exception ex) {}    }  }// ACCESSING METHODS ------------------------------------------------  /**   * Returns true if the server is ready to accept new clients.   *   * @return true if the server is listening.   */  final public boolean isListening()  {    return (connectionListener != null);  }  /**   * Returns an array containing the existing   * client connections. This can be used by   * concrete subclasses to implement messages that do something with   * each connection (e.g. kill it, send a message to it etc.).   * Remember that after this array is obtained, some clients   * in this migth disconnect. New clients can also connect,   * these later will not appear in the array.   *   * @return an array of <code>Thread</code> containing   * <code>ConnectionToClient</code> instances.   */  synchronized final public Thread[] getClientConnections()  {    Thread[] clientThreadList = new      Thread[clientThreadGroup.activeCount()];    clientThreadGroup.enumerate(clientThreadList);    return clientThreadList;  }  /**   * Counts the number of clients currently connected.   *   * @return the number of clients currently connected.   */  final public int getNumberOfClients()  {    return clientThreadGroup.activeCount();  }  /**   * Returns the port number.   *   * @return the port number.   */  final public int getPort()  {    return port;  }  /**   * Sets the port number for the next connection.   * The server must be closed and restarted for the port   * change to be in effect.   *   * @param port the port number.   */  final public void setPort(int port)  {    this.port = port;  }  /**   * Sets the timeout time when accepting connections.   * The default is half a second. This means that stopping the   * server may take up to timeout duration to actually stop.   * The server must be stopped and restarted for the timeout   * change to be effective.   *   * @param timeout the timeout time in ms.   */  final public void setTimeout(int timeout)  {    this.timeout = timeout;  }  /**   * Sets the maximum number of waiting connections accepted by the   * operating system. The default is 20.   * The server must be closed and restarted for the backlog   * change to be in effect.   *   * @param backlog the maximum number of connections.   */  final public void setBacklog(int backlog)  {    this.backlog = backlog;  }// RUN METHOD -------------------------------------------------------  /**   * Runs the listening thread that allows clients to connect.   * Not to be called.   */  final public void run()  {    // call the hook method to notify that the server is starting    serverStarted();    try    {      // Repeatedly waits for a new client connection, accepts it, and      // starts a new thread to handle data exchange.      while(!readyToStop)      {        try        {          // Wait here for new connection attempts, or a timeout          Socket clientSocket = serverSocket.accept();          // When a client is accepted, create a thread to handle          // the data exchange, then add it to thread group          synchronized(this)          {            ConnectionToClient c = new ConnectionToClient(              this.clientThreadGroup, clientSocket, this);          }        }        catch (InterruptedIOException exception)        {          // This will be thrown when a timeout occurs.          // The server will continue to listen if not ready to stop.        }      }      // call the hook method to notify that the server has stopped      serverStopped();    }    catch (IOException exception)    {      if (!readyToStop)      {        // Closing the socket must have thrown a SocketException        listeningException(exception);      }      else      {        serverStopped();      }    }    finally    {      readyToStop = true;      connectionListener = null;    }  }// METHODS DESIGNED TO BE OVERRIDDEN BY CONCRETE SUBCLASSES ---------  /**   * Hook method called each time a new client connection is   * accepted. The default implementation does nothing.   * @param client the connection connected to the client.   */  protected void clientConnected(ConnectionToClient client) {}  /**   * Hook method called each time a client disconnects.   * The default implementation does nothing. The method   * may be overridden by subclasses but should remains synchronized.   *   * @param client the connection with the client.   */  synchronized protected void clientDisconnected(    ConnectionToClient client) {}  /**   * Hook method called each time an exception is thrown in a   * ConnectionToClient thread.   * The method may be overridden by subclasses but should remains   * synchronized.   *   * @param client the client that raised the exception.   * @param Throwable the exception thrown.   */  synchronized protected void clientException(    ConnectionToClient client, Throwable exception) {}  /**   * Hook method called when the server stops accepting   * connections because an exception has been raised.   * The default implementation does nothing.   * This method may be overriden by subclasses.   *   * @param exception the exception raised.   */  protected void listeningException(Throwable exception) {}  /**   * Hook method called when the server starts listening for   * connections.  The default implementation does nothing.   * The method may be overridden by subclasses.   */  protected void serverStarted() {}  /**   * Hook method called when the server stops accepting   * connections.  The default implementation   * does nothing. This method may be overriden by subclasses.   */  protected void serverStopped() {}  /**   * Hook method called when the server is clased.   * The default implementation does nothing. This method may be   * overriden by subclasses. When the server is closed while still   * listening, serverStopped() will also be called.   */  protected void serverClosed() {}  /**   * Handles a command sent from one client to the server.   * This MUST be implemented by subclasses, who should respond to   * messages.   * This method is called by a synchronized method so it is also   * implcitly synchronized.   *   * @param msg   the message sent.   * @param client the connection connected to the client that   *  sent the message.   */  protected abstract void handleMessageFromClient(    Object msg, ConnectionToClient client);// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------  /**   * Receives a command sent from the client to the server.   * Called by the run method of <code>ConnectionToClient</code>   * instances that are watching for messages coming from the server   * This method is synchronized to ensure that whatever effects it has   * do not conflict with work being done by other threads. The method   * simply calls the <code>handleMessageFromClient</code> slot method.   *   * @param msg   the message sent.   * @param client the connection connected to the client that   *  sent the message.   */  final synchronized void receiveMessageFromClient(    Object msg, ConnectionToClient client)  {    this.handleMessageFromClient(msg, client);  }}// End of AbstractServer Class
\ No newline at end of file
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com 
+
+package ocsf.server;
+
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+
+/**
+* The <code> AbstractServer </code> class maintains a thread that waits
+* for connection attempts from clients. When a connection attempt occurs
+* it creates a new <code> ConnectionToClient </code> instance which
+* runs as a thread. When a client is thus connected to the
+* server, the two programs can then exchange <code> Object </code>
+* instances.<p>
+*
+* Method <code> handleMessageFromClient </code> must be defined by
+* a concrete subclass. Several other hook methods may also be
+* overriden.<p>
+*
+* Several public service methods are provided to applications that use
+* this framework, and several hook methods are also available<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @author Fran&ccedil;ois B&eacute;langer
+* @author Paul Holden
+* @version February 2001 (2.12)
+* @see ocsf.server.ConnectionToClient
+*/
+public abstract class AbstractServer implements Runnable
+{
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The server socket: listens for clients who want to connect.
+   */
+  private ServerSocket serverSocket = null;
+
+  /**
+   * The connection listener thread.
+   */
+  private Thread connectionListener;
+
+  /**
+   * The port number
+   */
+  private int port;
+
+  /**
+   * The server timeout while for accepting connections.
+   * After timing out, the server will check to see if a command to
+   * stop the server has been issued; it not it will resume accepting
+   * connections.
+   * Set to half a second by default.
+   */
+  private int timeout = 500;
+
+  /**
+   * The maximum queue length; i.e. the maximum number of clients that
+   * can be waiting to connect.
+   * Set to 10 by default.
+   */
+  private int backlog = 10;
+
+  /**
+   * The thread group associated with client threads. Each member of the
+   * thread group is a <code> ConnectionToClient </code>.
+   */
+  private ThreadGroup clientThreadGroup;
+
+  /**
+   * The thread group of the dispatch and writer threads. They are kept
+   * apart from <code>clientThreadGroup</code> so that they are never
+   * counted as client connections.
+   */
+  private ThreadGroup workerThreadGroup;
+
+  /**
+   * Indicates if the listening thread is ready to stop.  Set to
+   * false by default.
+   */
+  private boolean readyToStop = false;
+
+  /**
+   * The number of worker threads used to run
+   * <code>handleMessageFromClient</code>. When set to 0 (the default)
+   * every message from every client is handled one at a time, as in
+   * the original framework.
+   */
+  private int dispatchThreads = 0;
+
+  /**
+   * The worker pool that handles client messages when
+   * <code>dispatchThreads</code> is greater than 0. Messages from the
+   * same client are still handled in the order they were received.
+   */
+  private volatile ExecutorService dispatchExecutor = null;
+
+  /**
+   * Indicates if the server uses the NIO transport instead of one
+   * thread per client. Set to false by default.
+   */
+  private boolean useNioTransport = false;
+
+  /**
+   * The number of I/O threads of the NIO transport.
+   * Set to 2 by default.
+   */
+  private int ioThreads = 2;
+
+  /**
+   * The NIO transport, when the server uses it and is listening.
+   */
+  private NioServerTransport nioTransport = null;
+
+  /**
+   * Indicates if client connections and message handling run on
+   * virtual threads instead of platform threads. Set to false by
+   * default.
+   */
+  private boolean useVirtualThreads = false;
+
+  /**
+   * The connections whose reader runs on a virtual thread. Virtual
+   * threads do not belong to <code>clientThreadGroup</code>, so they
+   * are tracked here.
+   */
+  private final Set<ConnectionToClient> virtualConnections =
+    ConcurrentHashMap.newKeySet();
+
+  /**
+   * The number of messages that may wait to be written to each
+   * client. When set to 0 (the default) <code>sendToClient</code>
+   * writes the message itself, as in the original framework.
+   */
+  private int outboundQueueCapacity = 0;
+
+  /**
+   * How long, in ms, <code>sendToClient</code> waits for room in a
+   * full outbound queue before the client is disconnected.
+   * Set to 0 by default.
+   */
+  private long outboundTimeout = 0;
+
+  /**
+   * The number of received messages that may wait to be handled for
+   * each client when the server has dispatch threads.
+   * Set to 1000 by default.
+   */
+  private int inboundQueueCapacity = 1000;
+
+  /**
+   * The number of messages after which the output stream of a client
+   * is reset. Set to 0 (never) by default.
+   */
+  private int outputResetInterval = 0;
+
+  /**
+   * The threads that write queued messages to the clients when the
+   * server has an outbound queue.
+   */
+  private volatile ExecutorService writerExecutor = null;
+
+  /**
+   * The clients subscribed to each topic. See <code>subscribe</code>
+   * and <code>sendToTopic</code>.
+   */
+  private final ConcurrentHashMap<String, Set<ConnectionToClient>>
+    topicSubscribers =
+      new ConcurrentHashMap<String, Set<ConnectionToClient>>();
+
+
+// CONSTRUCTOR ******************************************************
+
+  /**
+   * Constructs a new server.
+   *
+   * @param port the port number on which to listen.
+   */
+  public AbstractServer(int port)
+  {
+    this.port = port;
+
+    this.clientThreadGroup =
+      new ThreadGroup("ConnectionToClient threads")
+      {
+        // All uncaught exceptions in connection threads will
+        // be sent to the clientException callback method.
+        public void uncaughtException(
+          Thread thread, Throwable exception)
+        {
+          clientException((ConnectionToClient)thread, exception);
+        }
+      };
+    this.workerThreadGroup = new ThreadGroup("OCSF worker threads");
+  }
+
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Begins the thread that waits for new clients.
+   * If the server is already in listening mode, this
+   * call has no effect.
+   *
+   * @exception IOException if an I/O error occurs
+   * when creating the server socket.
+   */
+  final public void listen() throws IOException
+  {
+    if (!isListening())
+    {
+      if (serverSocket == null)
+      {
+        if (useNioTransport)
+        {
+          nioTransport =
+            new NioServerTransport(this, getPort(), backlog, ioThreads);
+          serverSocket = nioTransport.getServerSocket();
+        }
+        else
+        {
+          serverSocket = new ServerSocket(getPort(), backlog);
+        }
+      }
+
+      if (nioTransport == null)
+        serverSocket.setSoTimeout(timeout);
+      readyToStop = false;
+      startDispatcher();
+      startWriters();
+      connectionListener = new Thread(this);
+      connectionListener.start();
+    }
+  }
+
+  /**
+   * Causes the server to stop accepting new connections.
+   */
+  final public void stopListening()
+  {
+    readyToStop = true;
+  }
+
+  /**
+   * Closes the server socket and the connections with all clients.
+   * Any exception thrown while closing a client is ignored.
+   * If one wishes to catch these exceptions, then clients
+   * should be individually closed before calling this method.
+   * The method also stops listening if this thread is running.
+   * If the server is already closed, this
+   * call has no effect.
+   *
+   * @exception IOException if an I/O error occurs while
+   * closing the server socket.
+   */
+  final synchronized public void close() throws IOException
+  {
+    if (serverSocket == null)
+      return;
+      stopListening();
+    try
+    {
+      serverSocket.close();
+    }
+    finally
+    {
+      // Close the client sockets of the already connected clients
+      Thread[] clientThreadList = getClientConnections();
+      for (int i=0; i<clientThreadList.length; i++)
+      {
+         try
+         {
+           ((ConnectionToClient)clientThreadList[i]).close();
+         }
+         // Ignore all exceptions when closing clients.
+         catch(Exception ex) {}
+      }
+      serverSocket = null;
+      if (nioTransport != null)
+      {
+        nioTransport.shutdown();
+        nioTransport = null;
+      }
+      stopDispatcher();
+      stopWriters();
+      serverClosed();
+    }
+  }
+
+  /**
+   * Sends a message to every client connected to the server.
+   * This is merely a utility; a subclass may want to do some checks
+   * before actually sending messages to all clients.  This method
+   * can be overriden, but if so it should still perform the general
+   * function of sending to all clients, perhaps after some kind
+   * of filtering is done. Any exception thrown while
+   * sending the message to a particular client is ignored.
+   *
+   * @param msg   Object The message to be sent
+   */
+  public void sendToAllClients(Object msg)
+  {
+    Thread[] clientThreadList = getClientConnections();
+
+    for (int i=0; i<clientThreadList.length; i++)
+    {
+      try
+      {
+        ((ConnectionToClient)clientThreadList[i]).sendToClient(msg);
+      }
+      catch (Exception ex) {}
+    }
+  }
+
+  /**
+   * Subscribes a client to a topic. Messages later sent to the topic
+   * with <code>sendToTopic</code> are sent to the client, until it
+   * unsubscribes or disconnects. Subscribing twice has no effect.
+   *
+   * @param client the client to subscribe.
+   * @param topic the name of the topic.
+   */
+  final public void subscribe(ConnectionToClient client, String topic)
+  {
+    Set<ConnectionToClient> subscribers = topicSubscribers.get(topic);
+    if (subscribers == null)
+    {
+      Set<ConnectionToClient> created = ConcurrentHashMap.newKeySet();
+      subscribers = topicSubscribers.putIfAbsent(topic, created);
+      if (subscribers == null)
+        subscribers = created;
+    }
+    subscribers.add(client);
+  }
+
+  /**
+   * Unsubscribes a client from a topic. If the client is not
+   * subscribed, this call has no effect.
+   *
+   * @param client the client to unsubscribe.
+   * @param topic the name of the topic.
+   */
+  final public void unsubscribe(ConnectionToClient client, String topic)
+  {
+    Set<ConnectionToClient> subscribers = topicSubscribers.get(topic);
+    if (subscribers != null)
+      subscribers.remove(client);
+  }
+
+  /**
+   * Sends a message to the clients subscribed to a topic only. As with
+   * <code>sendToAllClients</code>, any exception thrown while sending
+   * the message to a particular client is ignored.
+   *
+   * @param topic the name of the topic.
+   * @param msg the message to be sent.
+   */
+  public void sendToTopic(String topic, Object msg)
+  {
+    Set<ConnectionToClient> subscribers = topicSubscribers.get(topic);
+    if (subscribers == null)
+      return;
+
+    for (ConnectionToClient client : subscribers)
+    {
+      try
+      {
+        client.sendToClient(msg);
+      }
+      catch (Exception ex) {}
+    }
+  }
+
+  /**
+   * Counts the clients subscribed to a topic, so that publishers can
+   * skip building messages nobody will receive.
+   *
+   * @param topic the name of the topic.
+   * @return the number of subscribed clients.
+   */
+  final public int getNumberOfSubscribers(String topic)
+  {
+    Set<ConnectionToClient> subscribers = topicSubscribers.get(topic);
+    return subscribers == null ? 0 : subscribers.size();
+  }
+
+
+// ACCESSING METHODS ------------------------------------------------
+
+  /**
+   * Returns true if the server is ready to accept new clients.
+   *
+   * @return true if the server is listening.
+   */
+  final public boolean isListening()
+  {
+    return (connectionListener != null);
+  }
+
+  /**
+   * Returns an array containing the existing
+   * client connections. This can be used by
+   * concrete subclasses to implement messages that do something with
+   * each connection (e.g. kill it, send a message to it etc.).
+   * Remember that after this array is obtained, some clients
+   * in this migth disconnect. New clients can also connect,
+   * these later will not appear in the array.
+   *
+   * @return an array of <code>Thread</code> containing
+   * <code>ConnectionToClient</code> instances.
+   */
+  synchronized final public Thread[] getClientConnections()
+  {
+    NioServerTransport transport = nioTransport;
+    if (transport != null)
+    {
+      // NIO connections have no running thread to enumerate
+      return transport.getConnections().toArray(new Thread[0]);
+    }
+
+    Thread[] clientThreadList = new
+      Thread[clientThreadGroup.activeCount()];
+
+    int count = clientThreadGroup.enumerate(clientThreadList);
+
+    if (!virtualConnections.isEmpty())
+    {
+      // Connections read by virtual threads are not in the thread group
+      ArrayList<Thread> all = new ArrayList<Thread>(
+        Arrays.asList(clientThreadList).subList(0, count));
+      all.addAll(virtualConnections);
+      clientThreadList = all.toArray(new Thread[0]);
+    }
+
+    return clientThreadList;
+  }
+
+  /**
+   * Counts the number of clients currently connected.
+   *
+   * @return the number of clients currently connected.
+   */
+  final public int getNumberOfClients()
+  {
+    NioServerTransport transport = nioTransport;
+    if (transport != null)
+      return transport.getConnections().size();
+
+    return clientThreadGroup.activeCount() + virtualConnections.size();
+  }
+
+  /**
+   * Returns the port number.
+   *
+   * @return the port number.
+   */
+  final public int getPort()
+  {
+    return port;
+  }
+
+  /**
+   * Sets the port number for the next connection.
+   * The server must be closed and restarted for the port
+   * change to be in effect.
+   *
+   * @param port the port number.
+   */
+  final public void setPort(int port)
+  {
+    this.port = port;
+  }
+
+  /**
+   * Sets the timeout time when accepting connections.
+   * The default is half a second. This means that stopping the
+   * server may take up to timeout duration to actually stop.
+   * The server must be stopped and restarted for the timeout
+   * change to be effective.
+   *
+   * @param timeout the timeout time in ms.
+   */
+  final public void setTimeout(int timeout)
+  {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Sets the maximum number of waiting connections accepted by the
+   * operating system. The default is 20.
+   * The server must be closed and restarted for the backlog
+   * change to be in effect.
+   *
+   * @param backlog the maximum number of connections.
+   */
+  final public void setBacklog(int backlog)
+  {
+    this.backlog = backlog;
+  }
+
+  /**
+   * Sets the number of worker threads that handle client messages.
+   * With 0 threads (the default) all messages are handled one at a
+   * time. With 1 or more threads, messages from different clients are
+   * handled in parallel while messages from the same client keep
+   * their order.
+   * The server must be closed and restarted for the change to be
+   * in effect.
+   *
+   * @param dispatchThreads the number of worker threads.
+   */
+  final public void setDispatchThreads(int dispatchThreads)
+  {
+    this.dispatchThreads = Math.max(0, dispatchThreads);
+  }
+
+  /**
+   * Selects the NIO transport instead of one thread per client.
+   * With the NIO transport a few I/O threads serve all the clients,
+   * which must then connect in framed mode
+   * (see <code>AbstractClient.setFramed</code>). Since the I/O threads
+   * must never block, the NIO transport always uses dispatch threads;
+   * if none were set, one per available processor is used.
+   * The server must be closed and restarted for the change to be
+   * in effect.
+   *
+   * @param useNioTransport true to use the NIO transport.
+   */
+  final public void setNioTransport(boolean useNioTransport)
+  {
+    this.useNioTransport = useNioTransport;
+  }
+
+  /**
+   * Returns true if the server uses the NIO transport.
+   *
+   * @return true if the NIO transport is selected.
+   */
+  final public boolean isNioTransport()
+  {
+    return useNioTransport;
+  }
+
+  /**
+   * Sets the number of I/O threads of the NIO transport.
+   * The default is 2.
+   * The server must be closed and restarted for the change to be
+   * in effect.
+   *
+   * @param ioThreads the number of I/O threads.
+   */
+  final public void setIoThreads(int ioThreads)
+  {
+    this.ioThreads = Math.max(1, ioThreads);
+  }
+
+  /**
+   * Selects virtual threads for the client connections and for the
+   * handling of their messages. Each client's reader then runs on a
+   * virtual thread, and every message is handled on a virtual thread
+   * (still in order for a given client), so that handlers blocked on
+   * I/O such as JDBC calls park cheaply instead of holding an OS
+   * thread. The number of dispatch threads is then ignored.
+   * Requires Java 21 or later.
+   * The server must be closed and restarted for the change to be
+   * in effect.
+   *
+   * @param useVirtualThreads true to use virtual threads.
+   */
+  final public void setVirtualThreads(boolean useVirtualThreads)
+  {
+    this.useVirtualThreads = useVirtualThreads;
+  }
+
+  /**
+   * Returns true if the server uses virtual threads.
+   *
+   * @return true if virtual threads are selected.
+   */
+  final public boolean isVirtualThreads()
+  {
+    return useVirtualThreads;
+  }
+
+  /**
+   * Sets the number of messages that may wait to be written to each
+   * client. With a capacity of 0 (the default) the thread calling
+   * <code>sendToClient</code> writes the message itself. Otherwise the
+   * message is queued and writer threads write the queued messages of
+   * each client in batches, flushing once per batch. With the NIO
+   * transport the capacity bounds the frames queued by the transport.
+   * The server must be closed and restarted for the change to be
+   * in effect.
+   *
+   * @param outboundQueueCapacity the capacity of each client's queue.
+   */
+  final public void setOutboundQueueCapacity(int outboundQueueCapacity)
+  {
+    this.outboundQueueCapacity = Math.max(0, outboundQueueCapacity);
+  }
+
+  /**
+   * Returns the number of messages that may wait to be written to
+   * each client.
+   *
+   * @return the outbound queue capacity, 0 if there is no queue.
+   */
+  final public int getOutboundQueueCapacity()
+  {
+    return outboundQueueCapacity;
+  }
+
+  /**
+   * Sets how long <code>sendToClient</code> waits for room in a full
+   * outbound queue. A client whose queue is still full after this
+   * time is too slow to keep up and is disconnected. The default is
+   * 0, which disconnects the client as soon as its queue is full.
+   *
+   * @param outboundTimeout the time to wait in ms.
+   */
+  final public void setOutboundTimeout(long outboundTimeout)
+  {
+    this.outboundTimeout = Math.max(0, outboundTimeout);
+  }
+
+  /**
+   * Sets the number of received messages that may wait to be handled
+   * for each client when the server has dispatch threads. When a
+   * client's queue is full, its reader thread stops reading until the
+   * dispatch threads made room; with the NIO transport the client is
+   * disconnected. Applies to the clients connecting after the change.
+   *
+   * @param inboundQueueCapacity the capacity of each client's queue,
+   *        at least 1.
+   */
+  final public void setInboundQueueCapacity(int inboundQueueCapacity)
+  {
+    this.inboundQueueCapacity = Math.max(1, inboundQueueCapacity);
+  }
+
+  /**
+   * Returns the number of received messages that may wait to be
+   * handled for each client.
+   *
+   * @return the inbound queue capacity.
+   */
+  final public int getInboundQueueCapacity()
+  {
+    return inboundQueueCapacity;
+  }
+
+  /**
+   * Sets the number of messages after which the output stream of a
+   * client is reset. An object output stream remembers every object
+   * written to it, so without resets it grows for the life of the
+   * connection and an object modified after being sent is sent again
+   * as a reference to its old state. With 1 every message is written
+   * in full. The default is 0, which never resets the stream.
+   * Connections of the NIO transport serialize each message on its
+   * own and are not affected.
+   *
+   * @param outputResetInterval the number of messages between resets.
+   */
+  final public void setOutputResetInterval(int outputResetInterval)
+  {
+    this.outputResetInterval = Math.max(0, outputResetInterval);
+  }
+
+  /**
+   * Returns the number of worker threads that handle client messages.
+   *
+   * @return the number of worker threads, 0 if messages are handled
+   * one at a time.
+   */
+  final public int getDispatchThreads()
+  {
+    return dispatchThreads;
+  }
+
+// RUN METHOD -------------------------------------------------------
+
+  /**
+   * Runs the listening thread that allows clients to connect.
+   * Not to be called.
+   */
+  final public void run()
+  {
+    // call the hook method to notify that the server is starting
+    serverStarted();
+
+    try
+    {
+      // With the NIO transport, clients are accepted and handed to the
+      // transport's I/O threads until the server stops listening.
+      NioServerTransport transport = nioTransport;
+      if (transport != null)
+      {
+        transport.acceptClients(timeout);
+      }
+
+      // Repeatedly waits for a new client connection, accepts it, and
+      // starts a new thread to handle data exchange.
+      while(!readyToStop && transport == null)
+      {
+        try
+        {
+          // Wait here for new connection attempts, or a timeout
+          Socket clientSocket = serverSocket.accept();
+
+          // When a client is accepted, create a thread to handle
+          // the data exchange, then add it to thread group
+
+          synchronized(this)
+          {
+            if (useVirtualThreads)
+            {
+              startVirtualConnection(clientSocket);
+            }
+            else
+            {
+              ConnectionToClient c = new ConnectionToClient(
+                this.clientThreadGroup, clientSocket, this);
+            }
+          }
+        }
+        catch (InterruptedIOException exception)
+        {
+          // This will be thrown when a timeout occurs.
+          // The server will continue to listen if not ready to stop.
+        }
+      }
+
+      // call the hook method to notify that the server has stopped
+      serverStopped();
+    }
+    catch (IOException exception)
+    {
+      if (!readyToStop)
+      {
+        // Closing the socket must have thrown a SocketException
+        listeningException(exception);
+      }
+      else
+      {
+        serverStopped();
+      }
+    }
+    finally
+    {
+      readyToStop = true;
+      connectionListener = null;
+    }
+  }
+
+
+// METHODS DESIGNED TO BE OVERRIDDEN BY CONCRETE SUBCLASSES ---------
+
+  /**
+   * Hook method called each time a new client connection is
+   * accepted. The default implementation does nothing.
+   * @param client the connection connected to the client.
+   */
+  protected void clientConnected(ConnectionToClient client) {}
+
+  /**
+   * Hook method called each time a client disconnects.
+   * The default implementation does nothing. The method
+   * may be overridden by subclasses but should remains synchronized.
+   *
+   * @param client the connection with the client.
+   */
+  synchronized protected void clientDisconnected(
+    ConnectionToClient client) {}
+
+  /**
+   * Hook method called each time an exception is thrown in a
+   * ConnectionToClient thread.
+   * The method may be overridden by subclasses but should remains
+   * synchronized.
+   *
+   * @param client the client that raised the exception.
+   * @param Throwable the exception thrown.
+   */
+  synchronized protected void clientException(
+    ConnectionToClient client, Throwable exception) {}
+
+  /**
+   * Hook method called when the server stops accepting
+   * connections because an exception has been raised.
+   * The default implementation does nothing.
+   * This method may be overriden by subclasses.
+   *
+   * @param exception the exception raised.
+   */
+  protected void listeningException(Throwable exception) {}
+
+  /**
+   * Hook method called when the server starts listening for
+   * connections.  The default implementation does nothing.
+   * The method may be overridden by subclasses.
+   */
+  protected void serverStarted() {}
+
+  /**
+   * Hook method called when the server stops accepting
+   * connections.  The default implementation
+   * does nothing. This method may be overriden by subclasses.
+   */
+  protected void serverStopped() {}
+
+  /**
+   * Hook method called when the server is clased.
+   * The default implementation does nothing. This method may be
+   * overriden by subclasses. When the server is closed while still
+   * listening, serverStopped() will also be called.
+   */
+  protected void serverClosed() {}
+
+  /**
+   * Hook method called by ConnectionToClient.sendToClient() before
+   * anything else, letting the server take a message for itself
+   * instead of sending it, for example to combine several replies
+   * into one or to send it in several parts. It may be called from
+   * several threads at once. The default implementation captures
+   * nothing.
+   *
+   * @param msg the message to be sent.
+   * @param client the connection the message is sent to.
+   * @return true if the message was captured and must not be sent.
+   * @exception IOException if the server failed to send it otherwise.
+   */
+  protected boolean captureMessageToClient(
+    Object msg, ConnectionToClient client) throws IOException
+  {
+    return false;
+  }
+
+  /**
+   * Hook method called by ConnectionToClient.sendToClient() to turn
+   * a message into the object actually written to the client, for
+   * example the bytes of a negotiated wire format. It may be called
+   * from several threads at once. The default implementation returns
+   * the message unchanged.
+   *
+   * @param msg the message to be sent.
+   * @param client the connection the message is sent to.
+   * @return the object to write.
+   * @exception IOException if the message cannot be encoded.
+   */
+  protected Object encodeMessageToClient(
+    Object msg, ConnectionToClient client) throws IOException
+  {
+    return msg;
+  }
+
+  /**
+   * Handles a command sent from one client to the server.
+   * This MUST be implemented by subclasses, who should respond to
+   * messages.
+   * When no dispatch threads are configured this method is called by
+   * a synchronized block so it is also implcitly synchronized.
+   * Otherwise it may run concurrently for different clients, but never
+   * concurrently for the same client.
+   *
+   * @param msg   the message sent.
+   * @param client the connection connected to the client that
+   *  sent the message.
+   */
+  protected abstract void handleMessageFromClient(
+    Object msg, ConnectionToClient client);
+
+
+// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------
+
+  /**
+   * Receives a command sent from the client to the server.
+   * Called by the run method of <code>ConnectionToClient</code>
+   * instances that are watching for messages coming from the server
+   * Without dispatch threads the call is synchronized to ensure that
+   * whatever effects it has do not conflict with work being done by
+   * other threads. With dispatch threads the message is queued on the
+   * client and handled by the worker pool. Either way the
+   * <code>handleMessageFromClient</code> slot method is called.
+   *
+   * @param msg   the message sent.
+   * @param client the connection connected to the client that
+   *  sent the message.
+   * @exception IOException if the client was disconnected because its
+   *  queue of pending messages overflowed.
+   */
+  final void receiveMessageFromClient(
+    Object msg, ConnectionToClient client) throws IOException
+  {
+    ExecutorService executor = dispatchExecutor;
+    if (executor == null)
+    {
+      synchronized(this)
+      {
+        this.handleMessageFromClient(msg, client);
+      }
+    }
+    else
+    {
+      client.enqueueMessage(msg, executor);
+    }
+  }
+
+  /**
+   * Removes a closed client from every topic it subscribed to.
+   *
+   * @param client the closed client.
+   */
+  final void unsubscribeAll(ConnectionToClient client)
+  {
+    for (Set<ConnectionToClient> subscribers : topicSubscribers.values())
+      subscribers.remove(client);
+  }
+
+  /**
+   * Returns the thread group of the client connections.
+   *
+   * @return the thread group.
+   */
+  final ThreadGroup getClientThreadGroup()
+  {
+    return clientThreadGroup;
+  }
+
+  /**
+   * Returns how long <code>sendToClient</code> waits for room in a
+   * full outbound queue.
+   *
+   * @return the time to wait in ms.
+   */
+  final long getOutboundTimeout()
+  {
+    return outboundTimeout;
+  }
+
+  /**
+   * Returns the number of messages after which the output stream of a
+   * client is reset.
+   *
+   * @return the number of messages between resets, 0 for never.
+   */
+  final int getOutputResetInterval()
+  {
+    return outputResetInterval;
+  }
+
+  /**
+   * Returns the threads that write queued messages to the clients.
+   *
+   * @return the writer threads, or null if there are none.
+   */
+  final ExecutorService getWriterExecutor()
+  {
+    return writerExecutor;
+  }
+
+  /**
+   * Returns true if the server was asked to stop listening.
+   *
+   * @return true if the listening thread should stop.
+   */
+  final boolean isReadyToStop()
+  {
+    return readyToStop;
+  }
+
+  /**
+   * Creates the worker pool if dispatch threads are configured.
+   */
+  private void startDispatcher()
+  {
+    if (useVirtualThreads)
+    {
+      if (dispatchExecutor == null)
+      {
+        dispatchExecutor = Executors.newThreadPerTaskExecutor(
+          Thread.ofVirtual().name("OCSF dispatch-", 1).factory());
+      }
+      return;
+    }
+
+    int threads = dispatchThreads;
+    if (threads <= 0 && useNioTransport)
+      threads = Runtime.getRuntime().availableProcessors();
+
+    if (threads <= 0 || dispatchExecutor != null)
+      return;
+
+    dispatchExecutor = Executors.newFixedThreadPool(threads,
+      newWorkerThreadFactory("OCSF dispatch-"));
+  }
+
+  /**
+   * Creates the connection of a newly accepted client and starts its
+   * reader on a virtual thread.
+   *
+   * @param clientSocket the client's socket.
+   * @exception IOException if the connection cannot be created.
+   */
+  private void startVirtualConnection(Socket clientSocket)
+    throws IOException
+  {
+    final ConnectionToClient c = new ConnectionToClient(
+      this.clientThreadGroup, clientSocket, this, false);
+    virtualConnections.add(c);
+
+    Thread.ofVirtual()
+      .name("ConnectionToClient " + c)
+      .uncaughtExceptionHandler(new Thread.UncaughtExceptionHandler()
+      {
+        public void uncaughtException(Thread thread, Throwable exception)
+        {
+          clientException(c, exception);
+        }
+      })
+      .start(new Runnable()
+      {
+        public void run()
+        {
+          try
+          {
+            c.run();
+          }
+          finally
+          {
+            virtualConnections.remove(c);
+          }
+        }
+      });
+  }
+
+  /**
+   * Creates the writer threads if classic connections have an
+   * outbound queue. Writers block while a client's socket is full, so
+   * there is no fixed number of them.
+   */
+  private void startWriters()
+  {
+    if (outboundQueueCapacity <= 0 || useNioTransport
+      || writerExecutor != null)
+      return;
+
+    if (useVirtualThreads)
+    {
+      writerExecutor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("OCSF writer-", 1).factory());
+      return;
+    }
+
+    writerExecutor = Executors.newCachedThreadPool(
+      newWorkerThreadFactory("OCSF writer-"));
+  }
+
+  /**
+   * Returns a factory of numbered daemon threads for the worker pools.
+   * Pools create their threads lazily, often from a client's thread;
+   * the threads are therefore always put in <code>workerThreadGroup</code>
+   * rather than in the group of the thread that happens to create them.
+   *
+   * @param namePrefix the prefix of the thread names.
+   * @return the thread factory.
+   */
+  private ThreadFactory newWorkerThreadFactory(final String namePrefix)
+  {
+    final AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadFactory()
+    {
+      public Thread newThread(Runnable task)
+      {
+        Thread t = new Thread(workerThreadGroup, task,
+          namePrefix + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    };
+  }
+
+  /**
+   * Shuts the writer threads down. The clients have been closed, so
+   * their queued messages are discarded.
+   */
+  private void stopWriters()
+  {
+    ExecutorService executor = writerExecutor;
+    writerExecutor = null;
+    if (executor != null)
+      executor.shutdownNow();
+  }
+
+  /**
+   * Shuts the worker pool down. Messages that were not handled yet
+   * are discarded since their clients have been closed.
+   */
+  private void stopDispatcher()
+  {
+    ExecutorService executor = dispatchExecutor;
+    dispatchExecutor = null;
+    if (executor != null)
+      executor.shutdownNow();
+  }
+}
+// End of AbstractServer Class
@@ -1 +1,931 @@
-// This file contains material supporting section 3.8 of the textbook:// "Object Oriented Software Engineering" and is issued under the open-source// license found at www.lloseng.compackage ocsf.server;import java.io.*;import java.net.*;import java.util.*;/*** An instance of this class is created by the server when a client* connects. It accepts messages coming from the client and is* responsible for sending data to the client since the socket is* private to this class. The AbstractServer contains a set of* instances of this class and is responsible for adding and deleting* them.<p>** Project Name: OCSF (Object Client-Server Framework)<p>** @author Dr Robert Lagani&egrave;re* @author Dr Timothy C. Lethbridge* @author Fran&ccedil;ois B&eacute;langer* @author Paul Holden* @version February 2001 (2.12)*/public class ConnectionToClient extends Thread{// INSTANCE VARIABLES ***********************************************  /**  * A reference to the Server that created this instance.  */  private AbstractServer server;  /**  * Sockets are used in the operating system as channels  * of communication between two processes.  * @see java.net.Socket  */  private Socket clientSocket;  /**  * Stream used to read from the client.  */  private ObjectInputStream input;  /**  * Stream used to write to the client.  */  private ObjectOutputStream output;  /**  * Indicates if the thread is ready to stop. Set to true when closing  * of the connection is initiated.  */  private boolean readyToStop;  /**   * Map to save information about the client such as its login ID.   * The initial size of the map is small since it is not expected   * that concrete servers will want to store many different types of   * information about each client. Used by the setInfo and getInfo   * methods.   */  private HashMap savedInfo = new HashMap(10);// CONSTRUCTORS *****************************************************  /**   * Constructs a new connection to a client.   *   * @param group the thread group that contains the connections.   * @param clientSocket contains the client's socket.   * @param server a reference to the server that created   *        this instance   * @exception IOException if an I/O error occur when creating   *        the connection.   */  ConnectionToClient(ThreadGroup group, Socket clientSocket,    AbstractServer server) throws IOException  {    super(group,(Runnable)null);    // Initialize variables    this.clientSocket = clientSocket;    this.server = server;    clientSocket.setSoTimeout(0); // make sure timeout is infinite    //Initialize the objects streams    try    {      input = new ObjectInputStream(clientSocket.getInputStream());      output = new ObjectOutputStream(clientSocket.getOutputStream());    }    catch (IOException ex)    {      try      {        closeAll();      }      catch (Exception exc) { }      throw ex;  // Rethrow the exception.    }    readyToStop = false;    start(); // Start the thread waits for data from the socket  }// INSTANCE METHODS *************************************************  /**   * Sends an object to the client.   *   * @param msg the message to be sent.   * @exception IOException if an I/O error occur when sending the   *    message.   */  final public void sendToClient(Object msg) throws IOException  {    if (clientSocket == null || output == null)      throw new SocketException("socket does not exist");    output.writeObject(msg);  }  /**   * Closes the client.   * If the connection is already closed, this   * call has no effect.   *   * @exception IOException if an error occurs when closing the socket.   */  final public void close() throws IOException  {    readyToStop = true; // Set the flag that tells the thread to stop    try    {      closeAll();    }    finally    {      server.clientDisconnected(this);    }  }// ACCESSING METHODS ------------------------------------------------  /**   * Returns the address of the client.   *   * @return the client's Internet address.   */  final public InetAddress getInetAddress()  {    return clientSocket == null ? null : clientSocket.getInetAddress();   }  /**   * Returns a string representation of the client.   *   * @return the client's description.   */  public String toString()  {    return clientSocket == null ? null :      clientSocket.getInetAddress().getHostName()        +" (" + clientSocket.getInetAddress().getHostAddress() + ")";  }  /**   * Saves arbitrary information about this client. Designed to be   * used by concrete subclasses of AbstractServer. Based on a hash map.   *   * @param infoType   identifies the type of information   * @param info       the information itself.   */  public void setInfo(String infoType, Object info)  {    savedInfo.put(infoType, info);  }  /**   * Returns information about the client saved using setInfo.   * Based on a hash map.   *   * @param infoType   identifies the type of information   */  public Object getInfo(String infoType)  {    return savedInfo.get(infoType);  }// RUN METHOD -------------------------------------------------------  /**   * Constantly reads the client's input stream.   * Sends all objects that are read to the server.   * Not to be called.   */  final public void run()  {    server.clientConnected(this);    // This loop reads the input stream and responds to messages    // from clients    try    {      // The message from the client      Object msg;      while (!readyToStop)      {        // This block waits until it reads a message from the client        // and then sends it for handling by the server        msg = input.readObject();        server.receiveMessageFromClient(msg, this);      }    }    catch (Exception exception)    {      if (!readyToStop)      {        try        {          closeAll();        }        catch (Exception ex) { }        server.clientException(this, exception);      }    }  }// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------  /**   * Closes all connection to the server.   *   * @exception IOException if an I/O error occur when closing the   *     connection.   */  private void closeAll() throws IOException  {    try    {      // Close the socket      if (clientSocket != null)        clientSocket.close();      // Close the output stream      if (output != null)        output.close();      // Close the input stream      if (input != null)        input.close();    }    finally    {      // Set the streams and the sockets to NULL no matter what      // Doing so allows, but does not require, any finalizers      // of these objects to reclaim system resources if and      // when they are garbage collected.      output = null;      input = null;      clientSocket = null;    }  }  /**   * This method is called by garbage collection.   */  protected void finalize()  {    try    {      closeAll();    }    catch(IOException e) {}  }}// End of ConnectionToClient class
\ No newline at end of file
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package ocsf.server;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+* An instance of this class is created by the server when a client
+* connects. It accepts messages coming from the client and is
+* responsible for sending data to the client since the socket is
+* private to this class. The AbstractServer contains a set of
+* instances of this class and is responsible for adding and deleting
+* them.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @author Fran&ccedil;ois B&eacute;langer
+* @author Paul Holden
+* @version February 2001 (2.12)
+*/
+public class ConnectionToClient extends Thread
+{
+// INSTANCE VARIABLES ***********************************************
+
+  /**
+  * A reference to the Server that created this instance.
+  */
+  private AbstractServer server;
+
+  /**
+  * Sockets are used in the operating system as channels
+  * of communication between two processes.
+  * @see java.net.Socket
+  */
+  private Socket clientSocket;
+
+  /**
+  * Stream used to read from the client.
+  */
+  private ObjectInputStream input;
+
+  /**
+  * Stream used to write to the client.
+  */
+  private ObjectOutputStream output;
+
+  /**
+   * The framed channel used instead of the socket streams when the
+   * server runs the NIO transport. Null for classic connections.
+   */
+  private NioServerTransport.FrameChannel frameChannel;
+
+  /**
+   * Filter checking the classes of every object read from the client.
+   * Null, the default, accepts every class.
+   */
+  private volatile ObjectInputFilter inputFilter;
+
+  /**
+  * Indicates if the thread is ready to stop. Set to true when closing
+  * of the connection is initiated.
+  */
+  private volatile boolean readyToStop;
+
+  /**
+   * Map to save information about the client such as its login ID.
+   * The initial size of the map is small since it is not expected
+   * that concrete servers will want to store many different types of
+   * information about each client. Used by the setInfo and getInfo
+   * methods. It is a concurrent map since, when the server uses
+   * dispatch threads, it may be read and written from several threads.
+   */
+  private ConcurrentHashMap<String, Object> savedInfo =
+    new ConcurrentHashMap<String, Object>(10);
+
+  /**
+   * Messages received from the client that are waiting to be handled
+   * by the server's dispatch threads. Only used when the server has
+   * dispatch threads. Bounded by the server's inbound queue capacity:
+   * when it is full the reader thread waits for room, and a client of
+   * the NIO transport, whose I/O thread must not wait, is disconnected.
+   */
+  private final BlockingQueue<Object> pendingMessages;
+
+  /**
+   * How long, in ms, the reader thread waits for room in the pending
+   * messages before checking again whether the connection is closing.
+   */
+  private static final long PENDING_POLL_MS = 100;
+
+  /**
+   * Indicates if a dispatch thread is currently handling this client's
+   * pending messages. At most one thread does so at any time, which
+   * keeps the messages of one client in order.
+   */
+  private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+  /**
+   * The maximum number of messages handled in a row for this client
+   * before the dispatch thread is given back to the pool, so that a
+   * busy client does not starve the others.
+   */
+  private static final int DISPATCH_BATCH = 16;
+
+  /**
+   * The dispatch thread currently handling this client's pending
+   * messages, null when none is.
+   */
+  private volatile Thread dispatchThread;
+
+  /**
+   * The stage the handler of the current message asked the dispatch
+   * to wait for before handling this client's next message. Only used
+   * by the dispatch thread.
+   */
+  private CompletionStage<?> dispatchSuspendedUntil;
+
+  /**
+   * Messages waiting to be written to the client by the server's
+   * writer threads. Null when the server has no outbound queue, in
+   * which case the sending thread writes the message itself, and for
+   * NIO connections, whose transport queues frames on its own.
+   */
+  private final BlockingQueue<Object> outboundMessages;
+
+  /**
+   * Indicates if a writer thread is currently writing this client's
+   * outbound messages. At most one thread does so at any time, which
+   * keeps the replies to one client in order.
+   */
+  private final AtomicBoolean writing = new AtomicBoolean(false);
+
+  /**
+   * The maximum number of messages written in a row for this client
+   * before the stream is flushed and the writer thread is given back
+   * to the pool.
+   */
+  private static final int WRITE_BATCH = 64;
+
+  /**
+   * The number of messages written since the output stream was last
+   * reset. Guarded by the output stream.
+   */
+  private int messagesSinceReset = 0;
+
+  /**
+   * The number of bytes written to the client so far.
+   */
+  private final AtomicLong bytesWritten = new AtomicLong();
+
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Constructs a new connection to a client.
+   *
+   * @param group the thread group that contains the connections.
+   * @param clientSocket contains the client's socket.
+   * @param server a reference to the server that created
+   *        this instance
+   * @exception IOException if an I/O error occur when creating
+   *        the connection.
+   */
+  ConnectionToClient(ThreadGroup group, Socket clientSocket,
+    AbstractServer server) throws IOException
+  {
+    this(group, clientSocket, server, true);
+  }
+
+  /**
+   * Constructs a new connection to a client.
+   *
+   * @param group the thread group that contains the connections.
+   * @param clientSocket contains the client's socket.
+   * @param server a reference to the server that created
+   *        this instance
+   * @param startThread true to start this thread to read the client;
+   *        false if the server runs the run method on another
+   *        thread, such as a virtual thread.
+   * @exception IOException if an I/O error occur when creating
+   *        the connection.
+   */
+  ConnectionToClient(ThreadGroup group, Socket clientSocket,
+    AbstractServer server, boolean startThread) throws IOException
+  {
+    super(group,(Runnable)null);
+    // Initialize variables
+    this.clientSocket = clientSocket;
+    this.server = server;
+
+    clientSocket.setSoTimeout(0); // make sure timeout is infinite
+
+    int capacity = server.getOutboundQueueCapacity();
+    outboundMessages = (capacity > 0)
+      ? new ArrayBlockingQueue<Object>(capacity) : null;
+    pendingMessages =
+      new LinkedBlockingQueue<Object>(server.getInboundQueueCapacity());
+
+    //Initialize the objects streams
+    try
+    {
+      input = new ObjectInputStream(clientSocket.getInputStream());
+      // A stream takes one filter: delegate so it can change later
+      input.setObjectInputFilter(this::checkInput);
+      output = new ObjectOutputStream(new BufferedOutputStream(
+        new CountingOutputStream(clientSocket.getOutputStream())));
+      output.flush(); // The client waits for the stream header
+    }
+    catch (IOException ex)
+    {
+      try
+      {
+        closeAll();
+      }
+      catch (Exception exc) { }
+
+      throw ex;  // Rethrow the exception.
+    }
+
+    readyToStop = false;
+    if (startThread)
+      start(); // Start the thread waits for data from the socket
+  }
+
+  /**
+   * Constructs a new connection to a client of the NIO transport.
+   * No thread is started: the transport's I/O threads read the
+   * client's frames and hand them to the server.
+   *
+   * @param group the thread group that contains the connections.
+   * @param frameChannel the client's framed channel.
+   * @param server a reference to the server that created
+   *        this instance
+   */
+  ConnectionToClient(ThreadGroup group,
+    NioServerTransport.FrameChannel frameChannel, AbstractServer server)
+  {
+    super(group,(Runnable)null);
+    this.frameChannel = frameChannel;
+    this.clientSocket = frameChannel.socket();
+    this.server = server;
+    this.outboundMessages = null;
+    this.pendingMessages =
+      new LinkedBlockingQueue<Object>(server.getInboundQueueCapacity());
+    readyToStop = false;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Sends an object to the client.
+   * When the server has an outbound queue, the message is queued and
+   * written later by a writer thread, together with the other replies
+   * queued meanwhile. If the queue is full the caller waits for the
+   * server's outbound timeout; if it is still full the client is
+   * considered too slow and is disconnected. Queued messages are
+   * serialized by the writer thread, so a message should not be
+   * modified after it is sent. A message captured by the server's
+   * <code>captureMessageToClient</code> hook is not sent at all.
+   *
+   * @param msg the message to be sent.
+   * @exception IOException if an I/O error occur when sending the
+   *    message, or if the client was disconnected because its
+   *    outbound queue overflowed.
+   */
+  final public void sendToClient(Object msg) throws IOException
+  {
+    if (server.captureMessageToClient(msg, this))
+      return;
+    msg = server.encodeMessageToClient(msg, this);
+
+    NioServerTransport.FrameChannel frames = frameChannel;
+    if (frames != null)
+    {
+      frames.send(msg);
+      return;
+    }
+
+    ObjectOutputStream out = output;
+    if (clientSocket == null || out == null)
+      throw new SocketException("socket does not exist");
+
+    BlockingQueue<Object> queue = outboundMessages;
+    if (queue == null)
+    {
+      // Several dispatch threads may reply to the same client
+      synchronized(out)
+      {
+        writeMessage(out, msg);
+        out.flush();
+      }
+      return;
+    }
+
+    if (!queue.offer(msg) && !offerWithTimeout(queue, msg))
+    {
+      IOException overflow = new IOException(
+        "Outbound queue of " + this + " is full");
+      writeFailed(overflow);
+      throw overflow;
+    }
+    scheduleWrite();
+  }
+
+  /**
+   * Writes the messages queued for the client before returning, on
+   * the calling thread, so that a reply sent just before
+   * <code>close</code> is not discarded with the queue. Without an
+   * outbound queue the messages are already written. A client of the
+   * NIO transport is waited for at most the server's outbound timeout.
+   *
+   * @exception IOException if an I/O error occurs when writing.
+   */
+  final public void flush() throws IOException
+  {
+    NioServerTransport.FrameChannel frames = frameChannel;
+    if (frames != null)
+    {
+      frames.drain();
+      return;
+    }
+
+    BlockingQueue<Object> queue = outboundMessages;
+    ObjectOutputStream out = output;
+    if (queue == null || out == null)
+      return;
+
+    // Writer threads take the same lock, so the order is kept
+    synchronized(out)
+    {
+      Object msg;
+      while ((msg = queue.poll()) != null)
+        writeMessage(out, msg);
+      out.flush();
+    }
+  }
+
+  /**
+   * Closes the client.
+   * If the connection is already closed, this
+   * call has no effect.
+   *
+   * @exception IOException if an error occurs when closing the socket.
+   */
+  final public void close() throws IOException
+  {
+    readyToStop = true; // Set the flag that tells the thread to stop
+
+    try
+    {
+      closeAll();
+    }
+    finally
+    {
+      server.clientDisconnected(this);
+    }
+  }
+
+// ACCESSING METHODS ------------------------------------------------
+
+  /**
+   * Returns the address of the client.
+   *
+   * @return the client's Internet address.
+   */
+  final public InetAddress getInetAddress()
+  {
+    return clientSocket == null ? null : clientSocket.getInetAddress(); 
+  }
+
+  /**
+   * Returns a string representation of the client.
+   *
+   * @return the client's description.
+   */
+  public String toString()
+  {
+    return clientSocket == null ? null :
+      clientSocket.getInetAddress().getHostName()
+        +" (" + clientSocket.getInetAddress().getHostAddress() + ")";
+  }
+
+  /**
+   * Saves arbitrary information about this client. Designed to be
+   * used by concrete subclasses of AbstractServer. Based on a hash map.
+   *
+   * @param infoType   identifies the type of information
+   * @param info       the information itself.
+   */
+  public void setInfo(String infoType, Object info)
+  {
+    if (info == null)
+      savedInfo.remove(infoType);
+    else
+      savedInfo.put(infoType, info);
+  }
+
+  /**
+   * Returns information about the client saved using setInfo.
+   * Based on a hash map.
+   *
+   * @param infoType   identifies the type of information
+   */
+  public Object getInfo(String infoType)
+  {
+    return savedInfo.get(infoType);
+  }
+
+  /**
+   * Sets the filter checking the classes of the objects read from
+   * this client from now on, for instance once the peers agreed on
+   * a format that only sends byte arrays.
+   *
+   * @param filter the filter, null to accept every class.
+   */
+  public void setInputFilter(ObjectInputFilter filter)
+  {
+    inputFilter = filter;
+  }
+
+  /**
+   * Returns the filter checking the objects read from this client.
+   *
+   * @return the filter, null when every class is accepted.
+   */
+  public ObjectInputFilter getInputFilter()
+  {
+    return inputFilter;
+  }
+
+  /**
+   * Checks a class read from the socket stream with the current filter.
+   */
+  private ObjectInputFilter.Status checkInput(
+    ObjectInputFilter.FilterInfo info)
+  {
+    ObjectInputFilter filter = inputFilter;
+    return (filter == null)
+      ? ObjectInputFilter.Status.UNDECIDED : filter.checkInput(info);
+  }
+
+  /**
+   * Stops handling this client's messages until the given stage
+   * completes, normally or not. Meant to be called by
+   * <code>handleMessageFromClient</code> when it hands its message to
+   * other threads: the client's next messages stay queued, in order,
+   * and the dispatch thread is given back to the pool instead of
+   * waiting.
+   *
+   * @param stage the work the next messages must wait for.
+   * @return false if the current thread is not a dispatch thread
+   *    handling this client's message (the server has no dispatch
+   *    threads), in which case nothing is suspended.
+   */
+  final public boolean suspendDispatchUntil(CompletionStage<?> stage)
+  {
+    if (Thread.currentThread() != dispatchThread)
+      return false;
+
+    dispatchSuspendedUntil = stage;
+    return true;
+  }
+
+  /**
+   * Returns the number of messages waiting to be written to the
+   * client.
+   *
+   * @return the outbound queue depth, 0 without an outbound queue.
+   */
+  final public int getOutboundQueueDepth()
+  {
+    NioServerTransport.FrameChannel frames = frameChannel;
+    if (frames != null)
+      return frames.getQueuedFrames();
+
+    BlockingQueue<Object> queue = outboundMessages;
+    return queue == null ? 0 : queue.size();
+  }
+
+  /**
+   * Returns the number of bytes written to the client so far.
+   *
+   * @return the number of bytes written.
+   */
+  final public long getBytesWritten()
+  {
+    return bytesWritten.get();
+  }
+
+// RUN METHOD -------------------------------------------------------
+
+  /**
+   * Constantly reads the client's input stream.
+   * Sends all objects that are read to the server.
+   * Not to be called.
+   */
+  final public void run()
+  {
+    server.clientConnected(this);
+
+    // This loop reads the input stream and responds to messages
+    // from clients
+    try
+    {
+      // The message from the client
+      Object msg;
+
+      while (!readyToStop)
+      {
+        // This block waits until it reads a message from the client
+        // and then sends it for handling by the server
+        msg = input.readObject();
+        server.receiveMessageFromClient(msg, this);
+      }
+    }
+    catch (Exception exception)
+    {
+      if (!readyToStop)
+      {
+        try
+        {
+          closeAll();
+        }
+        catch (Exception ex) { }
+
+        server.clientException(this, exception);
+      }
+    }
+  }
+
+
+// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------
+
+  /**
+   * Queues a message received from the client and makes sure a
+   * dispatch thread will handle it. If the client's pending messages
+   * are at the server's inbound capacity, the reader thread of a
+   * classic connection waits until the dispatch threads made room,
+   * which stops reading the socket until then. The I/O thread of an
+   * NIO connection serves other clients and cannot wait, so that
+   * client is disconnected instead.
+   *
+   * @param msg the message received.
+   * @param executor the server's dispatch threads.
+   * @exception IOException if the client sends faster than its
+   *    messages are handled and was disconnected, or the connection
+   *    closed while waiting.
+   */
+  final void enqueueMessage(Object msg, Executor executor)
+    throws IOException
+  {
+    if (!pendingMessages.offer(msg))
+    {
+      if (frameChannel != null)
+        throw new IOException("Inbound queue of " + this + " is full");
+
+      scheduleDispatch(executor);
+      try
+      {
+        while (!pendingMessages.offer(msg,
+          PENDING_POLL_MS, TimeUnit.MILLISECONDS))
+        {
+          if (readyToStop)
+            throw new SocketException("Connection closed");
+        }
+      }
+      catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+          "Interrupted while waiting for room in the inbound queue");
+      }
+    }
+    scheduleDispatch(executor);
+  }
+
+  /**
+   * Hands this client's pending messages to a dispatch thread, unless
+   * one is already handling them.
+   *
+   * @param executor the server's dispatch threads.
+   */
+  private void scheduleDispatch(final Executor executor)
+  {
+    if (!dispatching.compareAndSet(false, true))
+      return;
+
+    try
+    {
+      executor.execute(new Runnable()
+      {
+        public void run()
+        {
+          dispatchPending(executor);
+        }
+      });
+    }
+    catch (RejectedExecutionException ex)
+    {
+      // The server is closing; the pending messages are dropped
+      dispatching.set(false);
+      pendingMessages.clear();
+    }
+  }
+
+  /**
+   * Handles up to <code>DISPATCH_BATCH</code> pending messages, in the
+   * order they were received, then reschedules itself if more arrived.
+   *
+   * @param executor the server's dispatch threads.
+   */
+  private void dispatchPending(final Executor executor)
+  {
+    CompletionStage<?> suspendedUntil = null;
+    dispatchThread = Thread.currentThread();
+    try
+    {
+      Object msg;
+      for (int i = 0; i < DISPATCH_BATCH
+        && (msg = pendingMessages.poll()) != null; i++)
+      {
+        try
+        {
+          server.handleMessageFromClient(msg, this);
+        }
+        catch (RuntimeException ex)
+        {
+          server.clientException(this, ex);
+        }
+
+        suspendedUntil = dispatchSuspendedUntil;
+        if (suspendedUntil != null)
+          break;
+      }
+    }
+    finally
+    {
+      dispatchThread = null;
+      dispatchSuspendedUntil = null;
+      if (suspendedUntil == null)
+        dispatching.set(false);
+    }
+
+    if (suspendedUntil != null)
+    {
+      // Still marked as dispatching, so arriving messages only queue
+      suspendedUntil.whenComplete(new BiConsumer<Object, Throwable>()
+      {
+        public void accept(Object result, Throwable exception)
+        {
+          dispatching.set(false);
+          if (!pendingMessages.isEmpty())
+            scheduleDispatch(executor);
+        }
+      });
+      return;
+    }
+
+    if (!pendingMessages.isEmpty())
+      scheduleDispatch(executor);
+  }
+
+  /**
+   * Makes sure a writer thread will write this client's outbound
+   * messages, unless one is already doing so. Without writer threads
+   * (the server is closing) the messages are written by the caller.
+   */
+  private void scheduleWrite()
+  {
+    if (!writing.compareAndSet(false, true))
+      return;
+
+    ExecutorService executor = server.getWriterExecutor();
+    if (executor == null)
+    {
+      writePending();
+      return;
+    }
+
+    try
+    {
+      executor.execute(new Runnable()
+      {
+        public void run()
+        {
+          writePending();
+        }
+      });
+    }
+    catch (RejectedExecutionException ex)
+    {
+      // The server is closing; the queued messages are dropped
+      writing.set(false);
+      outboundMessages.clear();
+    }
+  }
+
+  /**
+   * Writes up to <code>WRITE_BATCH</code> outbound messages in the
+   * order they were sent and flushes them in one go, then reschedules
+   * itself if more were queued.
+   */
+  private void writePending()
+  {
+    try
+    {
+      ObjectOutputStream out = output;
+      if (out == null)
+      {
+        outboundMessages.clear();
+        return;
+      }
+
+      synchronized(out)
+      {
+        Object msg;
+        for (int i = 0; i < WRITE_BATCH
+          && (msg = outboundMessages.poll()) != null; i++)
+        {
+          writeMessage(out, msg);
+        }
+        out.flush();
+      }
+    }
+    catch (IOException ex)
+    {
+      outboundMessages.clear();
+      writeFailed(ex);
+    }
+    finally
+    {
+      writing.set(false);
+    }
+
+    if (!outboundMessages.isEmpty() && output != null)
+      scheduleWrite();
+  }
+
+  /**
+   * Writes one message to the output stream, resetting the stream
+   * every <code>outputResetInterval</code> messages so that it does
+   * not keep a reference to every object ever sent, and so that an
+   * object modified since it was last sent is sent again in full.
+   * The caller holds the lock of the stream.
+   *
+   * @param out the output stream.
+   * @param msg the message to write.
+   * @exception IOException if an I/O error occurs when writing.
+   */
+  private void writeMessage(ObjectOutputStream out, Object msg)
+    throws IOException
+  {
+    out.writeObject(msg);
+
+    int interval = server.getOutputResetInterval();
+    if (interval > 0 && ++messagesSinceReset >= interval)
+    {
+      out.reset();
+      messagesSinceReset = 0;
+    }
+  }
+
+  /**
+   * Waits up to the server's outbound timeout for room in the
+   * outbound queue.
+   *
+   * @param queue the outbound queue.
+   * @param msg the message to queue.
+   * @return true if the message was queued.
+   */
+  private boolean offerWithTimeout(BlockingQueue<Object> queue, Object msg)
+  {
+    try
+    {
+      return queue.offer(msg,
+        server.getOutboundTimeout(), TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Disconnects the client after a failed or impossible write, and
+   * reports the exception to the server once.
+   *
+   * @param exception the exception raised.
+   */
+  private void writeFailed(IOException exception)
+  {
+    if (readyToStop)
+      return;
+    readyToStop = true; // The reader must not report the closed socket
+
+    try
+    {
+      closeAll();
+    }
+    catch (Exception ex) { }
+
+    server.clientException(this, exception);
+  }
+
+  /**
+   * Called by the NIO transport after bytes were written to the
+   * client.
+   *
+   * @param count the number of bytes written.
+   */
+  final void addBytesWritten(long count)
+  {
+    bytesWritten.addAndGet(count);
+  }
+
+  /**
+   * Called by the NIO transport when the client's channel fails or
+   * is closed by the client. Mirrors the end of the run method of
+   * classic connections.
+   *
+   * @param exception the exception raised.
+   */
+  final void connectionLost(Exception exception)
+  {
+    if (!readyToStop)
+    {
+      try
+      {
+        closeAll();
+      }
+      catch (Exception ex) { }
+
+      server.clientException(this, exception);
+    }
+  }
+
+  /**
+   * Closes all connection to the server.
+   *
+   * @exception IOException if an I/O error occur when closing the
+   *     connection.
+   */
+  private void closeAll() throws IOException
+  {
+    try
+    {
+      // Close the framed channel of NIO connections
+      if (frameChannel != null)
+        frameChannel.close();
+
+      // Close the socket
+      if (clientSocket != null)
+        clientSocket.close();
+
+      // Close the output stream. Whatever is still buffered cannot
+      // be flushed once the socket is closed.
+      if (output != null)
+      {
+        try
+        {
+          output.close();
+        }
+        catch (IOException ex) { }
+      }
+
+      // Close the input stream
+      if (input != null)
+        input.close();
+    }
+    finally
+    {
+      // Set the streams and the sockets to NULL no matter what
+      // Doing so allows, but does not require, any finalizers
+      // of these objects to reclaim system resources if and
+      // when they are garbage collected.
+      output = null;
+      input = null;
+      frameChannel = null;
+      clientSocket = null;
+
+      // A closed client receives no more topic messages
+      server.unsubscribeAll(this);
+    }
+  }
+
+  /**
+   * Counts the bytes written to the client's socket.
+   */
+  private class CountingOutputStream extends FilterOutputStream
+  {
+    CountingOutputStream(OutputStream out)
+    {
+      super(out);
+    }
+
+    public void write(int b) throws IOException
+    {
+      out.write(b);
+      bytesWritten.incrementAndGet();
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      out.write(b, off, len);
+      bytesWritten.addAndGet(len);
+    }
+  }
+
+  /**
+   * This method is called by garbage collection.
+   */
+  protected void finalize()
+  {
+    try
+    {
+      closeAll();
+    }
+    catch(IOException e) {}
+  }
+}
+// End of ConnectionToClient class
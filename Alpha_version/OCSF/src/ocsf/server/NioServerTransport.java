@@ -0,0 +1,673 @@
+package ocsf.server;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+* The <code> NioServerTransport </code> class is an alternative to the
+* thread-per-client model of <code> AbstractServer </code>. Instead of
+* one blocking <code> ConnectionToClient </code> thread per client, a
+* small number of I/O threads multiplex all the clients with
+* <code> java.nio.channels.Selector </code>.<p>
+*
+* Objects are exchanged as length-prefixed frames: a 4 byte big-endian
+* length followed by the serialized object. A client must therefore
+* open its connection in framed mode (see
+* <code> AbstractClient.setFramed </code>).<p>
+*
+* The concrete server does not see any difference: messages are still
+* delivered to <code> handleMessageFromClient </code> with a
+* <code> ConnectionToClient </code>, on the server's dispatch threads,
+* and replies are still sent with <code> sendToClient </code>.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @see ocsf.server.AbstractServer#setNioTransport(boolean)
+*/
+final class NioServerTransport
+{
+// CONSTANTS *******************************************************
+
+  /**
+   * The largest frame accepted from a client. Larger frames close the
+   * connection, so that a client cannot make the server allocate an
+   * unbounded buffer.
+   */
+  static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+  /**
+   * The initial size of the buffer each connection reads into.
+   */
+  private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+// INSTANCE VARIABLES ***********************************************
+
+  /**
+   * The server that owns this transport.
+   */
+  private final AbstractServer server;
+
+  /**
+   * The channel that accepts new clients.
+   */
+  private final ServerSocketChannel serverChannel;
+
+  /**
+   * The selector used by the listening thread to wait for clients.
+   */
+  private final Selector acceptSelector;
+
+  /**
+   * The I/O threads. Each client is assigned to one of them for the
+   * life of its connection.
+   */
+  private final IoWorker[] workers;
+
+  /**
+   * The index of the I/O thread the next client is assigned to.
+   */
+  private int nextWorker = 0;
+
+  /**
+   * The clients currently connected through this transport.
+   */
+  private final Set<ConnectionToClient> connections =
+    ConcurrentHashMap.newKeySet();
+
+// CONSTRUCTOR ******************************************************
+
+  /**
+   * Opens the listening channel and starts the I/O threads.
+   *
+   * @param server the server that owns this transport.
+   * @param port the port number on which to listen.
+   * @param backlog the maximum number of waiting connections.
+   * @param ioThreads the number of I/O threads.
+   * @exception IOException if the channel cannot be opened.
+   */
+  NioServerTransport(AbstractServer server, int port, int backlog,
+    int ioThreads) throws IOException
+  {
+    this.server = server;
+    this.serverChannel = ServerSocketChannel.open();
+    try
+    {
+      serverChannel.bind(new InetSocketAddress(port), backlog);
+      serverChannel.configureBlocking(false);
+      acceptSelector = Selector.open();
+      serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+    }
+    catch (IOException ex)
+    {
+      serverChannel.close();
+      throw ex;
+    }
+
+    workers = new IoWorker[Math.max(1, ioThreads)];
+    for (int i = 0; i < workers.length; i++)
+    {
+      workers[i] = new IoWorker(i + 1);
+      workers[i].thread.start();
+    }
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Returns the server socket behind the listening channel, so that
+   * <code>AbstractServer</code> can close it like a classic socket.
+   *
+   * @return the server socket.
+   */
+  ServerSocket getServerSocket()
+  {
+    return serverChannel.socket();
+  }
+
+  /**
+   * Returns the clients currently connected through this transport.
+   *
+   * @return the connections.
+   */
+  Collection<ConnectionToClient> getConnections()
+  {
+    return connections;
+  }
+
+  /**
+   * Accepts clients until the server is asked to stop listening.
+   * Runs on the server's listening thread.
+   *
+   * @param timeout how long to wait for a client before checking
+   *        whether the server should stop, in ms.
+   * @exception IOException if the listening channel fails.
+   */
+  void acceptClients(int timeout) throws IOException
+  {
+    while (!server.isReadyToStop())
+    {
+      try
+      {
+        if (acceptSelector.select(Math.max(1, timeout)) == 0)
+          continue;
+      }
+      catch (ClosedSelectorException ex)
+      {
+        return; // The server was closed
+      }
+
+      acceptSelector.selectedKeys().clear();
+      SocketChannel channel;
+      while ((channel = serverChannel.accept()) != null)
+      {
+        try
+        {
+          channel.configureBlocking(false);
+          channel.socket().setTcpNoDelay(true);
+          IoWorker worker = workers[nextWorker];
+          nextWorker = (nextWorker + 1) % workers.length;
+
+          FrameChannel frames = new FrameChannel(channel, worker);
+          ConnectionToClient client = new ConnectionToClient(
+            server.getClientThreadGroup(), frames, server);
+          frames.client = client;
+          connections.add(client);
+          server.clientConnected(client);
+          worker.register(frames);
+        }
+        catch (IOException ex)
+        {
+          try
+          {
+            channel.close();
+          }
+          catch (IOException exc) { }
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops the I/O threads and closes the listening channel.
+   * The clients themselves are closed by <code>AbstractServer</code>.
+   */
+  void shutdown()
+  {
+    for (int i = 0; i < workers.length; i++)
+      workers[i].stop();
+
+    try
+    {
+      acceptSelector.close();
+    }
+    catch (IOException ex) { }
+
+    try
+    {
+      serverChannel.close();
+    }
+    catch (IOException ex) { }
+  }
+
+  /**
+   * Serializes an object into a frame: its length followed by its bytes.
+   *
+   * @param msg the object to serialize.
+   * @return the frame, ready to be written.
+   * @exception IOException if the object cannot be serialized.
+   */
+  static ByteBuffer encodeFrame(Object msg) throws IOException
+  {
+    FrameOutputStream bytes = new FrameOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(msg);
+    out.close();
+    return bytes.toFrame();
+  }
+
+  /**
+   * Deserializes the object carried by one frame.
+   *
+   * @param frame the bytes of the frame, without the length prefix.
+   * @param filter the filter checking the classes read, null for none.
+   * @return the object.
+   * @exception IOException if the bytes are not a valid object or hold
+   *        a class rejected by the filter.
+   */
+  static Object decodeFrame(byte[] frame, ObjectInputFilter filter)
+    throws IOException
+  {
+    ObjectInputStream in =
+      new ObjectInputStream(new ByteArrayInputStream(frame));
+    if (filter != null)
+      in.setObjectInputFilter(filter);
+    try
+    {
+      return in.readObject();
+    }
+    catch (ClassNotFoundException ex)
+    {
+      throw new IOException("Unknown class in frame", ex);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+// INNER CLASSES ****************************************************
+
+  /**
+   * A byte stream that reserves room for the length prefix, so that a
+   * frame is built without copying the serialized bytes.
+   */
+  private static final class FrameOutputStream extends ByteArrayOutputStream
+  {
+    FrameOutputStream()
+    {
+      super(256);
+      count = 4;
+    }
+
+    ByteBuffer toFrame()
+    {
+      ByteBuffer frame = ByteBuffer.wrap(buf, 0, count);
+      frame.putInt(0, count - 4);
+      return frame;
+    }
+  }
+
+  /**
+   * The channel of one client, with its partially read frame and its
+   * queue of frames waiting to be written.
+   */
+  final class FrameChannel
+  {
+    private final SocketChannel channel;
+
+    private final IoWorker worker;
+
+    private SelectionKey key;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    private final ArrayDeque<ByteBuffer> writeQueue =
+      new ArrayDeque<ByteBuffer>();
+
+    private ConnectionToClient client;
+
+    private volatile boolean closed = false;
+
+    FrameChannel(SocketChannel channel, IoWorker worker)
+    {
+      this.channel = channel;
+      this.worker = worker;
+    }
+
+    /**
+     * @return the socket behind the channel.
+     */
+    Socket socket()
+    {
+      return channel.socket();
+    }
+
+    /**
+     * Queues an object to be written to the client. If nothing is
+     * waiting, the frame is written right away from the calling thread;
+     * whatever the socket could not take is left to the I/O thread.
+     * When the server has an outbound queue capacity and that many
+     * frames are already waiting, the caller waits for the server's
+     * outbound timeout, then disconnects the client.
+     *
+     * @param msg the object to send.
+     * @exception IOException if the channel is closed, the object
+     *        cannot be serialized or the client's queue overflowed.
+     */
+    void send(Object msg) throws IOException
+    {
+      ByteBuffer frame = encodeFrame(msg);
+      synchronized(writeQueue)
+      {
+        if (closed)
+          throw new SocketException("socket does not exist");
+
+        if (writeQueue.isEmpty())
+        {
+          client.addBytesWritten(channel.write(frame));
+          if (!frame.hasRemaining())
+            return;
+        }
+        if (!awaitRoom())
+          frame = null;
+        else
+          writeQueue.addLast(frame);
+      }
+
+      if (frame == null)
+      {
+        IOException overflow = new IOException(
+          "Outbound queue of " + client + " is full");
+        client.connectionLost(overflow);
+        throw overflow;
+      }
+      worker.requestWrite(this);
+    }
+
+    /**
+     * Waits until the write queue is below the server's outbound queue
+     * capacity, for at most the server's outbound timeout. The caller
+     * holds the lock of the queue.
+     *
+     * @return true if there is room for another frame.
+     */
+    private boolean awaitRoom()
+    {
+      int capacity = server.getOutboundQueueCapacity();
+      if (capacity <= 0 || writeQueue.size() < capacity)
+        return true;
+
+      worker.requestWrite(this);
+      long deadline =
+        System.nanoTime() + server.getOutboundTimeout() * 1000000L;
+      try
+      {
+        while (!closed && writeQueue.size() >= capacity)
+        {
+          long remaining = (deadline - System.nanoTime()) / 1000000L;
+          if (remaining <= 0)
+            return false;
+          writeQueue.wait(remaining);
+        }
+      }
+      catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      return !closed;
+    }
+
+    /**
+     * @return the number of frames waiting to be written.
+     */
+    int getQueuedFrames()
+    {
+      synchronized(writeQueue)
+      {
+        return writeQueue.size();
+      }
+    }
+
+    /**
+     * Reads what the client sent and hands every complete frame to the
+     * server. Runs on the I/O thread.
+     *
+     * @exception IOException if the client closed the connection or
+     *        sent an invalid frame.
+     */
+    void readFrames() throws IOException
+    {
+      int read;
+      while ((read = channel.read(readBuffer)) > 0)
+      {
+        extractFrames();
+      }
+      if (read < 0)
+        throw new EOFException("Client closed the connection");
+    }
+
+    private void extractFrames() throws IOException
+    {
+      readBuffer.flip();
+      while (readBuffer.remaining() >= 4)
+      {
+        int length = readBuffer.getInt(readBuffer.position());
+        if (length < 0 || length > MAX_FRAME_SIZE)
+          throw new IOException("Invalid frame length " + length);
+
+        if (readBuffer.remaining() < 4 + length)
+        {
+          if (readBuffer.capacity() < 4 + length)
+          {
+            // Grow so the whole frame fits
+            ByteBuffer larger = ByteBuffer.allocate(4 + length);
+            larger.put(readBuffer);
+            readBuffer = larger;
+            return;
+          }
+          break;
+        }
+
+        readBuffer.getInt();
+        byte[] frame = new byte[length];
+        readBuffer.get(frame);
+        server.receiveMessageFromClient(
+          decodeFrame(frame, client.getInputFilter()), client);
+      }
+      if (readBuffer.capacity() > READ_BUFFER_SIZE
+        && readBuffer.remaining() <= READ_BUFFER_SIZE)
+      {
+        // The large frame was consumed: go back to the default size
+        ByteBuffer smaller = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        smaller.put(readBuffer);
+        readBuffer = smaller;
+        return;
+      }
+      readBuffer.compact();
+    }
+
+    /**
+     * Writes as much of the queued frames as the socket accepts, all
+     * queued frames at once with a gathering write.
+     * Runs on the I/O thread.
+     *
+     * @return true when the queue was emptied.
+     * @exception IOException if the channel fails.
+     */
+    boolean flush() throws IOException
+    {
+      synchronized(writeQueue)
+      {
+        if (writeQueue.isEmpty())
+          return true;
+
+        ByteBuffer[] frames =
+          writeQueue.toArray(new ByteBuffer[writeQueue.size()]);
+        client.addBytesWritten(channel.write(frames));
+
+        ByteBuffer frame;
+        while ((frame = writeQueue.peekFirst()) != null
+          && !frame.hasRemaining())
+        {
+          writeQueue.removeFirst();
+        }
+        writeQueue.notifyAll(); // Senders may be waiting for room
+        return writeQueue.isEmpty();
+      }
+    }
+
+    /**
+     * Writes the queued frames before returning, for instance before
+     * the connection is closed. What the socket does not take at once
+     * is left to the I/O thread, waited for at most the server's
+     * outbound timeout.
+     *
+     * @return true when the queue was emptied.
+     * @exception IOException if the channel fails.
+     */
+    boolean drain() throws IOException
+    {
+      long deadline =
+        System.nanoTime() + server.getOutboundTimeout() * 1000000L;
+      synchronized(writeQueue)
+      {
+        try
+        {
+          while (!closed && !flush())
+          {
+            long remaining = (deadline - System.nanoTime()) / 1000000L;
+            if (remaining <= 0)
+              return false;
+            worker.requestWrite(this);
+            writeQueue.wait(remaining);
+          }
+        }
+        catch (InterruptedException ex)
+        {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+        return !closed;
+      }
+    }
+
+    /**
+     * Closes the channel and forgets the connection.
+     */
+    void close()
+    {
+      synchronized(writeQueue)
+      {
+        closed = true;
+        writeQueue.clear();
+        writeQueue.notifyAll();
+      }
+      connections.remove(client);
+      if (key != null)
+        key.cancel();
+      try
+      {
+        channel.close();
+      }
+      catch (IOException ex) { }
+      worker.selector.wakeup();
+    }
+  }
+
+  /**
+   * One I/O thread and the selector of the clients assigned to it.
+   */
+  private final class IoWorker implements Runnable
+  {
+    private final Thread thread;
+
+    private final Selector selector;
+
+    private final Queue<FrameChannel> pendingRegistrations =
+      new ConcurrentLinkedQueue<FrameChannel>();
+
+    private final Queue<FrameChannel> pendingWrites =
+      new ConcurrentLinkedQueue<FrameChannel>();
+
+    private volatile boolean running = true;
+
+    IoWorker(int index) throws IOException
+    {
+      selector = Selector.open();
+      thread = new Thread(this, "OCSF nio-" + index);
+      thread.setDaemon(true);
+    }
+
+    void register(FrameChannel frames)
+    {
+      pendingRegistrations.offer(frames);
+      selector.wakeup();
+    }
+
+    void requestWrite(FrameChannel frames)
+    {
+      pendingWrites.offer(frames);
+      selector.wakeup();
+    }
+
+    void stop()
+    {
+      running = false;
+      selector.wakeup();
+    }
+
+    public void run()
+    {
+      try
+      {
+        while (running)
+        {
+          selector.select();
+          registerPending();
+          enableWrites();
+
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext())
+          {
+            SelectionKey key = keys.next();
+            keys.remove();
+            handle(key);
+          }
+        }
+      }
+      catch (IOException ex)
+      {
+        // The selector itself failed; the clients are closed below
+      }
+      finally
+      {
+        try
+        {
+          selector.close();
+        }
+        catch (IOException ex) { }
+      }
+    }
+
+    private void registerPending()
+    {
+      FrameChannel frames;
+      while ((frames = pendingRegistrations.poll()) != null)
+      {
+        try
+        {
+          frames.key = frames.channel.register(
+            selector, SelectionKey.OP_READ, frames);
+        }
+        catch (ClosedChannelException ex)
+        {
+          frames.client.connectionLost(ex);
+        }
+      }
+    }
+
+    private void enableWrites()
+    {
+      FrameChannel frames;
+      while ((frames = pendingWrites.poll()) != null)
+      {
+        SelectionKey key = frames.key;
+        if (key != null && key.isValid())
+          key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      }
+    }
+
+    private void handle(SelectionKey key)
+    {
+      FrameChannel frames = (FrameChannel)key.attachment();
+      try
+      {
+        if (key.isReadable())
+          frames.readFrames();
+
+        if (key.isValid() && key.isWritable() && frames.flush())
+          key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+      }
+      catch (IOException | CancelledKeyException ex)
+      {
+        frames.client.connectionLost(ex);
+      }
+    }
+  }
+}
+// End of NioServerTransport Class
@@ -44,6 +44,8 @@ public class ServerConsoleController {
 	@FXML
 	private Button btnAddStaff; // Open add staff form button
 
+	private static final int DEFAULT_TOP_QUERIES = 10; // Queries listed by /queries without a count
+
 	/**
 	 * Method to handle the Start button click event. Starts the Bistro server.
 	 * 
@@ -119,8 +121,9 @@ public class ServerConsoleController {
 		}
 
 		String cmd = cmdRaw.trim().toLowerCase();
+		String[] words = cmd.split("\\s+");
 
-		switch (cmd) {
+		switch (words[0]) {
 		case "/start":
 			// Can be used even when server is not running
 			btnStart(event);
@@ -146,12 +149,21 @@ public class ServerConsoleController {
 			}
 			break;
 
+		case "/queries":
+			if (BistroServerGUI.server == null || !BistroServerGUI.server.isListening()) {
+				displayMessageToConsole("Server is not running. Please start the server first.");
+			} else {
+				BistroServerGUI.server.showTopQueries(parseLimit(words, DEFAULT_TOP_QUERIES));
+			}
+			break;
+
 		case "/help":
 			displayMessageToConsole("Available commands:\n" 
 					+ "/start - Start the server\n"
 					+ "/stop - Stop the server\n" 
 					+ "/clear - Clear the console log\n"
 					+ "/connections - Show all active client connections\n" 
+					+ "/queries [n] - Show the connection pools and the n queries that took the most time\n"
 					+ "/help - Show this help message");
 			break;
 
@@ -167,6 +179,25 @@ public class ServerConsoleController {
 		txtCommand.clear();
 	}
 
+	/**
+	 * Reads the count given after a command, such as 20 in "/queries 20".
+	 * 
+	 * @param words The words of the command.
+	 * @param defaultLimit The count to use if none or an invalid one was given.
+	 * @return The count.
+	 */
+	private static int parseLimit(String[] words, int defaultLimit) {
+		if (words.length < 2) {
+			return defaultLimit;
+		}
+		try {
+			int limit = Integer.parseInt(words[1]);
+			return limit > 0 ? limit : defaultLimit;
+		} catch (NumberFormatException e) {
+			return defaultLimit;
+		}
+	}
+
 	/**
 	 * Method to handle the Add Staff button click event. Opens the Add Staff form.
 	 * 
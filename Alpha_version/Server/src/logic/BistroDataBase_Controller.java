@@ -2,10 +2,10 @@ package logic;
 
 import java.sql.Connection;
 import java.sql.Date;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
@@ -13,15 +13,17 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.TreeMap;
 
 import dto.Holiday;
+import dto.PageCursor;
 import dto.UserData;
 import dto.WeeklyHour;
 import entities.Bill;
@@ -33,12 +35,25 @@ import enums.UserType;
 import enums.EndTableSessionType;
 import enums.OrderStatus;
 import enums.OrderType;
+import logic.db.BillRowMapper;
+import logic.db.Columns;
+import logic.db.ConnectionPool;
+import logic.db.CustomerRowMapper;
+import logic.db.OrderRowMapper;
+import logic.db.QueryMetrics;
+import logic.db.TableRowMapper;
+import logic.db.Transaction;
+import logic.db.UserRowMapper;
+import logic.storage.BistroStorage;
+import logic.storage.DailyReportFacts;
+import logic.storage.RollbackException;
+import logic.storage.UnitOfWork;
 
 /**
  * BistroDataBase_Controller class that manages database connections and
  * operations for a Bistro application.
  */
-public class BistroDataBase_Controller {
+public class BistroDataBase_Controller implements BistroStorage {
 
 	// **************************** Instance variables ****************************
 
@@ -55,10 +70,27 @@ public class BistroDataBase_Controller {
 	// ******************************* Connection Pool Configurations
 	// *****************
 
-	private static final int POOL_SIZE = 10; // Number of connections in the pool
-	private static final long BORROW_TIMEOUT_MS = 10_000; // Timeout for borrowing a connection
-	private static BlockingQueue<Connection> pool = null; // Connection pool
-	private static volatile boolean initialized = false; // Pool initialization flag
+	// One pool per workload class, so that reports and sweeps cannot starve interactive requests.
+	// Interactive pool: -Dbistro.db.pool.min=<n> and -Dbistro.db.pool.max=<n>
+	private static final int DEFAULT_POOL_MIN = 4; // Connections kept open
+	private static final int DEFAULT_POOL_MAX = 10; // Largest number of connections
+	// Background pool: -Dbistro.db.pool.background.min=<n> and -Dbistro.db.pool.background.max=<n>
+	private static final int DEFAULT_BACKGROUND_POOL_MIN = 1;
+	private static final int DEFAULT_BACKGROUND_POOL_MAX = 2;
+	// Reporting pool: -Dbistro.db.pool.reporting.min=<n> and -Dbistro.db.pool.reporting.max=<n>
+	private static final int DEFAULT_REPORTING_POOL_MIN = 0;
+	private static final int DEFAULT_REPORTING_POOL_MAX = 2;
+	// Prepared statements cached per connection, -Dbistro.db.statement.cache=<n> (0 disables the cache)
+	private static final int DEFAULT_STATEMENT_CACHE = ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE;
+	// Connections held longer than this are logged with the borrowing stack, -Dbistro.db.leak.ms=<ms> (0 disables)
+	private static final long DEFAULT_LEAK_THRESHOLD_MS = ConnectionPool.DEFAULT_LEAK_THRESHOLD_MS;
+	private static volatile Map<Workload, ConnectionPool> pools = null; // Connection pool of each workload
+	// Per-query timings, -Dbistro.db.metrics=false disables them; queries slower than
+	// -Dbistro.db.slow.ms=<ms> are logged with their parameters (0 disables the log)
+	private static final long DEFAULT_SLOW_QUERY_MS = QueryMetrics.DEFAULT_SLOW_QUERY_MS;
+	private static volatile QueryMetrics queryMetrics = null;
+	// Transaction of the current thread, whose connection every method uses while it is open
+	private static final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
 
 	// ********************************
 	// Constructors***********************************
@@ -82,78 +114,181 @@ public class BistroDataBase_Controller {
 	// ******************************
 
 	/**
-	 * Initializes the database connection pool.
+	 * Initializes the connection pool of each workload, opening their first
+	 * connections in parallel.
 	 * 
 	 * @return true if initialization is successful, false otherwise
 	 */
 	public synchronized boolean openConnection() {
-		if (initialized)
+		if (pools != null)
 			return true;
 
+		QueryMetrics metrics = null;
+		if (Boolean.parseBoolean(System.getProperty("bistro.db.metrics", "true"))) {
+			metrics = new QueryMetrics(logger);
+			metrics.setSlowQueryMs(Long.getLong("bistro.db.slow.ms", DEFAULT_SLOW_QUERY_MS));
+		}
+		Map<Workload, ConnectionPool> opened = new EnumMap<>(Workload.class);
 		try {
-			pool = new ArrayBlockingQueue<>(POOL_SIZE);
-			for (int i = 0; i < POOL_SIZE; i++) {
-				Connection c = DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASS);
-				c.setAutoCommit(true);
-				pool.offer(c);
+			for (Workload workload : Workload.values()) {
+				ConnectionPool newPool = newPool(workload);
+				newPool.setQueryMetrics(metrics);
+				opened.put(workload, newPool);
+				newPool.start();
+			}
+			pools = opened;
+			queryMetrics = metrics;
+			for (ConnectionPool newPool : opened.values()) {
+				logger.log("SQL connection pool initialized: " + newPool.getName() + " Min="
+						+ newPool.getMinSize() + ", Max=" + newPool.getMaxSize());
 			}
-			initialized = true;
-			logger.log("SQL connection pool initialized. Size=" + POOL_SIZE);
 			return true;
 		} catch (SQLException ex) {
 			logger.log("Failed to initialize SQL connection pool: " + ex.getMessage());
 			ex.printStackTrace();
-			closeConnection();
+			opened.values().forEach(ConnectionPool::shutdown);
 			return false;
 		}
 	}
 
 	/**
-	 * Closes all connections in the database connection pool.
+	 * Creates the connection pool of a workload, sized from its system properties.
+	 * 
+	 * @param workload The workload the pool serves
+	 * @return The pool, not started
+	 */
+	private static ConnectionPool newPool(Workload workload) {
+		String prefix = "bistro.db.pool.";
+		String name = "bistro-db";
+		int defaultMin = DEFAULT_POOL_MIN;
+		int defaultMax = DEFAULT_POOL_MAX;
+		if (workload == Workload.BACKGROUND) {
+			defaultMin = DEFAULT_BACKGROUND_POOL_MIN;
+			defaultMax = DEFAULT_BACKGROUND_POOL_MAX;
+		} else if (workload == Workload.REPORTING) {
+			defaultMin = DEFAULT_REPORTING_POOL_MIN;
+			defaultMax = DEFAULT_REPORTING_POOL_MAX;
+		}
+		if (workload != Workload.INTERACTIVE) {
+			prefix += workload.key() + ".";
+			name += "-" + workload.key();
+		}
+		int min = Integer.getInteger(prefix + "min", defaultMin);
+		int max = Math.max(Math.max(1, min), Integer.getInteger(prefix + "max", defaultMax));
+		ConnectionPool newPool = new ConnectionPool(name, JDBC_URL, JDBC_USER, JDBC_PASS, min, max, logger);
+		newPool.setStatementCacheSize(Integer.getInteger("bistro.db.statement.cache", DEFAULT_STATEMENT_CACHE));
+		newPool.setLeakThresholdMs(Long.getLong("bistro.db.leak.ms", DEFAULT_LEAK_THRESHOLD_MS));
+		return newPool;
+	}
+
+	/**
+	 * Closes all connections in the database connection pools.
 	 */
 	public synchronized void closeConnection() {
-		initialized = false;
-		if (pool == null)
+		if (pools == null)
 			return;
 
-		Connection c;
-		while ((c = pool.poll()) != null) {
-			try {
-				c.close();
-			} catch (SQLException ignored) {
-			}
+		for (ConnectionPool current : pools.values()) {
+			logger.log("SQL connection pool closing: " + current);
+			current.shutdown();
 		}
-		pool = null;
-		logger.log("SQL connection pool closed");
+		pools = null;
+		logger.log("SQL connection pools closed");
 	}
 
 	/**
-	 * Borrows a connection from the pool.
+	 * Gets a summary of the connection pools state and metrics, one line per workload.
 	 * 
-	 * @return A valid database connection
+	 * @return the summary, or a notice if the pools are not open
 	 */
-	private static Connection borrow() throws SQLException {
-		if (!initialized || pool == null) {
-			throw new SQLException("DB pool not initialized. Call openConnection() first.");
+	public String getPoolStats() {
+		Map<Workload, ConnectionPool> current = pools;
+		if (current == null)
+			return "SQL connection pool not open";
+		StringBuilder sb = new StringBuilder();
+		for (ConnectionPool p : current.values()) {
+			if (sb.length() > 0)
+				sb.append('\n');
+			sb.append(p);
 		}
-		try {
-			Connection c = pool.poll(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-			if (c == null)
-				throw new SQLException("Timed out waiting for a DB connection from the pool.");
+		return sb.toString();
+	}
 
-			if (c.isClosed() || !c.isValid(2)) {
-				try {
-					c.close();
-				} catch (SQLException ignored) {
-				}
-				c = DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASS);
-				c.setAutoCommit(true);
+	/**
+	 * Runs a unit of work on one connection in a single transaction. The
+	 * methods it calls use the transaction's connection instead of borrowing
+	 * their own, and their own commits and rollbacks are deferred to the end of
+	 * the work.
+	 * 
+	 * @param work The operations to run
+	 * @return The result of the work, or null if it was rolled back
+	 */
+	@Override
+	public <T> T inTransaction(UnitOfWork<T> work) {
+		if (currentTransaction.get() != null) {
+			return work.run(this); // Joins the transaction in progress
+		}
+		Transaction tx;
+		try {
+			tx = Transaction.begin(borrow());
+		} catch (SQLException ex) {
+			logger.log("[ERROR] inTransaction: " + ex.getMessage());
+			return null;
+		}
+		currentTransaction.set(tx);
+		try {
+			T result = work.run(this);
+			if (tx.isRollbackOnly()) {
+				tx.rollback();
+				logger.log("[WARN] Transaction rolled back: " + tx.getFailure());
+				return null;
 			}
-			return c;
-		} catch (InterruptedException ie) {
-			Thread.currentThread().interrupt();
-			throw new SQLException("Interrupted while waiting for a DB connection.", ie);
+			tx.commit();
+			return result;
+		} catch (RollbackException ex) {
+			tx.rollback();
+			logger.log("[WARN] Transaction rolled back: " + ex.getMessage());
+			return null;
+		} catch (SQLException ex) {
+			tx.rollback();
+			logger.log("[ERROR] Transaction commit failed: " + ex.getMessage());
+			return null;
+		} catch (RuntimeException ex) {
+			tx.rollback();
+			throw ex;
+		} finally {
+			currentTransaction.remove();
+			tx.end();
+		}
+	}
+
+	/**
+	 * Gets the queries that took the most time since the pools were opened.
+	 * 
+	 * @param limit The number of queries to list
+	 * @return One line per query, or a notice if query metrics are disabled
+	 */
+	public String getTopQueries(int limit) {
+		QueryMetrics current = queryMetrics;
+		return current == null ? "Query metrics are disabled" : current.report(limit);
+	}
+
+	/**
+	 * Borrows a connection from the pool, or gets the connection of the
+	 * transaction in progress.
+	 * 
+	 * @return A database connection, returned to the pool by release()
+	 */
+	private static Connection borrow() throws SQLException {
+		Transaction tx = currentTransaction.get();
+		if (tx != null) {
+			return tx.connection();
+		}
+		Map<Workload, ConnectionPool> current = pools;
+		if (current == null) {
+			throw new SQLException("DB pool not initialized. Call openConnection() first.");
 		}
+		return current.get(Workload.current()).borrow(); // The pool of the workload of the calling thread
 	}
 
 	/**
@@ -165,19 +300,8 @@ public class BistroDataBase_Controller {
 		if (c == null)
 			return;
 
-		if (!initialized || pool == null) {
-			try {
-				c.close();
-			} catch (SQLException ignored) {
-			}
-			return;
-		}
-
 		try {
-			if (c.isClosed())
-				return;
-			if (!pool.offer(c))
-				c.close();
+			c.close(); // Returns pooled connections to their pool
 		} catch (SQLException ignored) {
 		}
 	}
@@ -193,15 +317,15 @@ public class BistroDataBase_Controller {
 			throw new IllegalArgumentException("Guest must have phoneNumber or email");
 		}
 
-		final String FIND_BY_PHONE = "SELECT user_id, phoneNumber, email FROM users WHERE type='GUEST' AND phoneNumber = ?";
-		final String FIND_BY_EMAIL = "SELECT user_id, phoneNumber, email FROM users WHERE type='GUEST' AND email = ?";
+		final String FIND_BY_PHONE = "SELECT user_id, phoneNumber, email, type FROM users WHERE type='GUEST' AND phoneNumber = ?";
+		final String FIND_BY_EMAIL = "SELECT user_id, phoneNumber, email, type FROM users WHERE type='GUEST' AND email = ?";
 
 		final String INSERT_GUEST = "INSERT INTO users (phoneNumber, email, type) VALUES (?, ?, 'GUEST')";
 
 		final String UPDATE_PHONE = "UPDATE users SET phoneNumber = ? WHERE user_id = ? AND type='GUEST'";
 		final String UPDATE_EMAIL = "UPDATE users SET email = ? WHERE user_id = ? AND type='GUEST'";
 
-		final String SELECT_BY_ID = "SELECT user_id, phoneNumber, email FROM users WHERE user_id = ? AND type='GUEST'";
+		final String SELECT_BY_ID = "SELECT user_id, phoneNumber, email, type FROM users WHERE user_id = ? AND type='GUEST'";
 
 		Connection conn = null;
 
@@ -217,9 +341,9 @@ public class BistroDataBase_Controller {
 				try (PreparedStatement ps = conn.prepareStatement(sql)) {
 					ps.setString(1, key);
 					try (ResultSet rs = ps.executeQuery()) {
-						if (rs.next()) {
-							return new User(rs.getInt("user_id"), rs.getString("phoneNumber"), rs.getString("email"),
-									UserType.GUEST);
+						User found = UserRowMapper.of(rs).mapNext(rs);
+						if (found != null) {
+							return found;
 						}
 					}
 				}
@@ -264,10 +388,7 @@ public class BistroDataBase_Controller {
 			try (PreparedStatement ps = conn.prepareStatement(FIND_BY_PHONE)) {
 				ps.setString(1, phoneNumber);
 				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						phoneUser = new User(rs.getInt("user_id"), rs.getString("phoneNumber"), rs.getString("email"),
-								UserType.GUEST);
-					}
+					phoneUser = UserRowMapper.of(rs).mapNext(rs);
 				}
 			}
 
@@ -275,10 +396,7 @@ public class BistroDataBase_Controller {
 			try (PreparedStatement ps = conn.prepareStatement(FIND_BY_EMAIL)) {
 				ps.setString(1, email);
 				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						emailUser = new User(rs.getInt("user_id"), rs.getString("phoneNumber"), rs.getString("email"),
-								UserType.GUEST);
-					}
+					emailUser = UserRowMapper.of(rs).mapNext(rs);
 				}
 			}
 
@@ -389,10 +507,10 @@ public class BistroDataBase_Controller {
 		try (PreparedStatement ps = conn.prepareStatement(sql)) {
 			ps.setInt(1, userId);
 			try (ResultSet rs = ps.executeQuery()) {
-				if (!rs.next())
+				User guest = UserRowMapper.of(rs).mapNext(rs);
+				if (guest == null)
 					throw new SQLException("Guest not found by id=" + userId);
-				return new User(rs.getInt("user_id"), rs.getString("phoneNumber"), rs.getString("email"),
-						UserType.GUEST);
+				return guest;
 			}
 		}
 	}
@@ -439,15 +557,9 @@ public class BistroDataBase_Controller {
 						logger.log("[DEBUG] No result found for memberCode: " + memberCode);
 						return null;
 					}
-					int userId = rs.getInt("user_id");
-					logger.log("[DEBUG] Found userId: " + userId + " for memberCode: " + memberCode);
-					String phone = rs.getString("phoneNumber");
-					String email = rs.getString("email");
-					String codeStr = String.valueOf(rs.getInt("member_code"));
-					String first = rs.getString("f_name");
-					String last = rs.getString("l_name");
-					String address = rs.getString("address");
-					return new User(userId, phone, email, codeStr, first, last, address, UserType.MEMBER);
+					User member = UserRowMapper.of(rs).map(rs);
+					logger.log("[DEBUG] Found userId: " + member.getUserId() + " for memberCode: " + memberCode);
+					return member;
 				}
 			}
 		} catch (SQLException ex) {
@@ -912,21 +1024,12 @@ public class BistroDataBase_Controller {
 			conn = borrow();
 			try (PreparedStatement ps = conn.prepareStatement(qry)) {
 				try (ResultSet rs = ps.executeQuery()) {
+					CustomerRowMapper mapper = CustomerRowMapper.of(rs);
 					while (rs.next()) {
-						String email = rs.getString("email");
-						String phone = rs.getString("phoneNumber");
-						UserType type = UserType.valueOf(rs.getString("type"));
-						// Build UserData based on type
-						if (type == UserType.MEMBER) {
-							String fname = rs.getString("f_name");
-							String lname = rs.getString("l_name");
-							String address = rs.getString("address");
-							String memberCode = rs.getString("member_code");
-
-							usersList.add(new UserData(fname, lname, memberCode, phone, email, type, address));
-						} else if (type == UserType.GUEST) {
-							// sending null because GUEST has no additional data
-							usersList.add(new UserData(null, null, null, phone, email, UserType.GUEST, null));
+						// Only guests and members are customers
+						UserType type = mapper.typeOf(rs);
+						if (type == UserType.MEMBER || type == UserType.GUEST) {
+							usersList.add(mapper.map(rs));
 						}
 					}
 				}
@@ -941,6 +1044,68 @@ public class BistroDataBase_Controller {
 		return usersList;
 	}
 
+	/**
+	 * Retrieves one page of the guests and members, by user id, with keyset
+	 * pagination on the primary key.
+	 * 
+	 * @param afterUserId The user id of the last customer of the previous page, 0
+	 *                    for the first page
+	 * @param limit       The largest number of customers returned
+	 * @return the customers with their user id, or null on failure
+	 */
+	public List<UserData> getCustomersPage(int afterUserId, int limit) {
+		List<UserData> usersList = new ArrayList<>();
+		final String qry = "SELECT u.user_id, u.phoneNumber, u.email, u.type, "
+				+ "m.member_code, m.f_name, m.l_name, m.address " + "FROM users u "
+				+ "LEFT JOIN members m ON u.user_id = m.user_id "
+				+ "WHERE u.user_id > ? AND u.type IN ('MEMBER', 'GUEST') " + "ORDER BY u.user_id LIMIT ?";
+
+		Connection conn = null;
+		try {
+			conn = borrow();
+			try (PreparedStatement ps = conn.prepareStatement(qry)) {
+				ps.setInt(1, afterUserId);
+				ps.setInt(2, limit);
+				try (ResultSet rs = ps.executeQuery()) {
+					CustomerRowMapper.of(rs).mapAll(rs, usersList);
+				}
+			}
+		} catch (SQLException ex) {
+			logger.log("[ERROR] SQLException in getCustomersPage: " + ex.getMessage());
+			return null;
+		} finally {
+			release(conn);
+		}
+		return usersList;
+	}
+
+	/**
+	 * Counts the guests and members, for the summary of the customer directory.
+	 * 
+	 * @return the counts by user type name, or null on failure
+	 */
+	public Map<String, Integer> countCustomersByType() {
+		Map<String, Integer> counts = new HashMap<>();
+		final String qry = "SELECT type, COUNT(*) AS total FROM users "
+				+ "WHERE type IN ('MEMBER', 'GUEST') GROUP BY type";
+
+		Connection conn = null;
+		try {
+			conn = borrow();
+			try (PreparedStatement ps = conn.prepareStatement(qry); ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					counts.put(rs.getString("type"), rs.getInt("total"));
+				}
+			}
+		} catch (SQLException ex) {
+			logger.log("[ERROR] SQLException in countCustomersByType: " + ex.getMessage());
+			return null;
+		} finally {
+			release(conn);
+		}
+		return counts;
+	}
+
 	/**
 	 * Generates a unique 6-digit member_code not already present in the members
 	 * table.
@@ -1190,52 +1355,212 @@ public class BistroDataBase_Controller {
 	 * @return true if order creation is successful, false otherwise
 	 */
 	public boolean setNewOrder(List<Object> orderData, OrderType type, OrderStatus status) {
-		final String sql = "INSERT INTO orders "
-				+ "(user_id, order_date, number_of_guests, order_time, confirmation_code, "
-				+ "order_type, status, date_of_placing_order, notified_at, cancelled_at) "
-				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-		// Execute insert
 		Connection conn = null;
 		try {
 			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			return insertOrder(conn, orderData, type, status) > 0;
+		} catch (SQLException ex) {
+			logger.log("[ERROR] SQLException in setNewOrder: " + ex.getMessage());
+			ex.printStackTrace();
+			return false;
+		} finally {
+			release(conn);
+		}
+	}
+
+	/**
+	 * Creates a PENDING reservation holding a table for its whole stay, in one
+	 * transaction: creates the ledger rows of the stay's slots if missing (the
+	 * tables of each capacity minus the claims already made), takes one table
+	 * of the smallest fitting capacity in every slot with conditional updates
+	 * (remaining > 0), then inserts the order and its claims. A capacity whose
+	 * update misses a slot is undone to a savepoint and the next one is tried.
+	 * 
+	 * The ledger rows serialize the bookings of a slot across servers sharing
+	 * the schema; the triggers on orders and tables (see bistro_slot_capacity.sql)
+	 * give the tables back and reset the ledger.
+	 * 
+	 * @param orderData [userId, date, dinersAmount, time, confirmationCode]
+	 * @param stay      The start of every slot the reservation holds a table in
+	 * @return true if the reservation was created, false if no table is free for
+	 *         the stay or on error
+	 */
+	public boolean setNewReservation(List<Object> orderData, List<LocalTime> stay) {
+		final String provisionSql = "INSERT IGNORE INTO slot_capacity (slot_date, slot_time, capacity, remaining) "
+				+ "SELECT ?, ?, t.capacity, COUNT(*) - (SELECT COUNT(*) FROM slot_claims k "
+				+ "  WHERE k.slot_date = ? AND k.slot_time = ? AND k.capacity = t.capacity) "
+				+ "FROM tables t GROUP BY t.capacity";
+		final String capacitiesSql = "SELECT DISTINCT capacity FROM tables WHERE capacity >= ? ORDER BY capacity";
+		final String takeSql = "UPDATE slot_capacity SET remaining = remaining - 1 "
+				+ "WHERE slot_date = ? AND capacity = ? AND remaining > 0 AND slot_time IN "
+				+ placeholders(stay.size());
+		final String claimSql = "INSERT INTO slot_claims (order_number, slot_date, slot_time, capacity) "
+				+ "VALUES (?, ?, ?, ?)";
 
-				int userId = (int) orderData.get(0);
-				LocalDate date = (LocalDate) orderData.get(1);
-				int diners = (int) orderData.get(2);
-				LocalTime time = (LocalTime) orderData.get(3);
-				String code = (String) orderData.get(4);
+		LocalDate date = (LocalDate) orderData.get(1);
+		int diners = (int) orderData.get(2);
+		if (date == null || stay.isEmpty()) {
+			logger.log("[ERROR] RESERVATION requires non-null order_date and order_time");
+			return false;
+		}
+		Connection conn = null;
+		try {
+			conn = borrow();
+			conn.setAutoCommit(false);
+			try (PreparedStatement ps = conn.prepareStatement(provisionSql)) {
+				for (LocalTime slot : stay) {
+					ps.setDate(1, Date.valueOf(date));
+					ps.setTime(2, Time.valueOf(slot));
+					ps.setDate(3, Date.valueOf(date));
+					ps.setTime(4, Time.valueOf(slot));
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
 
-				ps.setInt(1, userId);
-				// ? MUST match chk_order_slot_rules
-				if (type == OrderType.WAITLIST) {
-					ps.setNull(2, Types.DATE);
-					ps.setNull(4, Types.TIME);
-				} else { // RESERVATION
-					if (date == null || time == null) {
-						logger.log("[ERROR] RESERVATION requires non-null order_date and order_time");
-						return false;
+			List<Integer> capacities = new ArrayList<>();
+			try (PreparedStatement ps = conn.prepareStatement(capacitiesSql)) {
+				ps.setInt(1, diners);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						capacities.add(rs.getInt(1));
 					}
-					ps.setDate(2, Date.valueOf(date));
-					ps.setTime(4, Time.valueOf(time));
 				}
+			}
 
-				ps.setInt(3, diners);
-				ps.setString(5, code);
-				ps.setString(6, type.name());
-				ps.setString(7, status.name());
-				ps.setTimestamp(8, Timestamp.valueOf(LocalDateTime.now()));
-				ps.setNull(9, Types.TIMESTAMP); // notified_at
-				ps.setNull(10, Types.TIMESTAMP); // cancelled_at
+			// Smallest capacity first, the way tables are allocated
+			int taken = 0;
+			try (PreparedStatement ps = conn.prepareStatement(takeSql)) {
+				for (int capacity : capacities) {
+					Savepoint beforeTake = conn.setSavepoint();
+					ps.setDate(1, Date.valueOf(date));
+					ps.setInt(2, capacity);
+					for (int i = 0; i < stay.size(); i++) {
+						ps.setTime(3 + i, Time.valueOf(stay.get(i)));
+					}
+					if (ps.executeUpdate() == stay.size()) {
+						taken = capacity;
+						break;
+					}
+					conn.rollback(beforeTake);
+				}
+			}
+			if (taken == 0) {
+				rollbackQuietly(conn);
+				logger.log("[WARN] setNewReservation: no table for " + diners + " free on " + date + " at "
+						+ stay.get(0));
+				return false;
+			}
 
-				ps.executeUpdate();
-				return true;
+			int orderNumber = insertOrder(conn, orderData, OrderType.RESERVATION, OrderStatus.PENDING);
+			if (orderNumber <= 0) {
+				rollbackQuietly(conn);
+				return false;
+			}
+			try (PreparedStatement ps = conn.prepareStatement(claimSql)) {
+				for (LocalTime slot : stay) {
+					ps.setInt(1, orderNumber);
+					ps.setDate(2, Date.valueOf(date));
+					ps.setTime(3, Time.valueOf(slot));
+					ps.setInt(4, taken);
+					ps.addBatch();
+				}
+				ps.executeBatch();
 			}
+			conn.commit();
+			return true;
 		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in setNewOrder: " + ex.getMessage());
+			rollbackQuietly(conn);
+			logger.log("[ERROR] SQLException in setNewReservation: " + ex.getMessage());
 			ex.printStackTrace();
 			return false;
+		} finally {
+			if (conn != null) {
+				try {
+					conn.setAutoCommit(true);
+				} catch (SQLException ignore) {
+				}
+				release(conn);
+			}
+		}
+	}
+
+	/**
+	 * Inserts an order on a connection.
+	 * 
+	 * @return the order number, or -1 if the order breaks the slot rules
+	 */
+	private int insertOrder(Connection conn, List<Object> orderData, OrderType type, OrderStatus status)
+			throws SQLException {
+		final String sql = "INSERT INTO orders "
+				+ "(user_id, order_date, number_of_guests, order_time, confirmation_code, "
+				+ "order_type, status, date_of_placing_order, notified_at, cancelled_at) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+		try (PreparedStatement ps = conn.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS)) {
+
+			int userId = (int) orderData.get(0);
+			LocalDate date = (LocalDate) orderData.get(1);
+			int diners = (int) orderData.get(2);
+			LocalTime time = (LocalTime) orderData.get(3);
+			String code = (String) orderData.get(4);
+
+			ps.setInt(1, userId);
+			// ? MUST match chk_order_slot_rules
+			if (type == OrderType.WAITLIST) {
+				ps.setNull(2, Types.DATE);
+				ps.setNull(4, Types.TIME);
+			} else { // RESERVATION
+				if (date == null || time == null) {
+					logger.log("[ERROR] RESERVATION requires non-null order_date and order_time");
+					return -1;
+				}
+				ps.setDate(2, Date.valueOf(date));
+				ps.setTime(4, Time.valueOf(time));
+			}
+
+			ps.setInt(3, diners);
+			ps.setString(5, code);
+			ps.setString(6, type.name());
+			ps.setString(7, status.name());
+			ps.setTimestamp(8, Timestamp.valueOf(LocalDateTime.now()));
+			ps.setNull(9, Types.TIMESTAMP); // notified_at
+			ps.setNull(10, Types.TIMESTAMP); // cancelled_at
+
+			ps.executeUpdate();
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				return keys.next() ? keys.getInt(1) : -1;
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the reservations holding a table in a range of dates, those
+	 * pending, notified or seated, for the slot occupancy index. A range scan of
+	 * idx_orders_slot.
+	 * 
+	 * @param from The first date
+	 * @param to   The last date, included
+	 * @return The reservations with their slot, size and confirmation code, or
+	 *         null on error
+	 */
+	public List<Order> getActiveReservations(LocalDate from, LocalDate to) {
+		String qry = "SELECT order_date, order_time, number_of_guests, confirmation_code, user_id, order_type, status "
+				+ "FROM orders WHERE order_date BETWEEN ? AND ? AND order_type = 'RESERVATION' "
+				+ "AND status IN ('PENDING', 'NOTIFIED', 'SEATED')";
+		Connection conn = null;
+		try {
+			conn = borrow();
+			try (PreparedStatement ps = conn.prepareStatement(qry)) {
+				ps.setDate(1, Date.valueOf(from));
+				ps.setDate(2, Date.valueOf(to));
+				try (ResultSet rs = ps.executeQuery()) {
+					return OrderRowMapper.of(rs).mapAll(rs);
+				}
+			}
+		} catch (SQLException ex) {
+			logger.log("[ERROR] SQLException in getActiveReservations: " + ex.getMessage());
+			return null;
 		} finally {
 			release(conn);
 		}
@@ -1277,12 +1602,11 @@ public class BistroDataBase_Controller {
 					ps.setTime(3, Time.valueOf(LocalTime.MAX));
 				}
 				try (ResultSet rs = ps.executeQuery()) {
+					OrderRowMapper mapper = OrderRowMapper.of(rs);
 					while (rs.next()) {
-						Time sqlTime = rs.getTime("order_time");
-						LocalTime orderHour = (sqlTime != null) ? sqlTime.toLocalTime() : null;
-						int dinersAmount = rs.getInt("number_of_guests");
-						if (orderHour != null) {
-							orders.add(new Order(orderHour, dinersAmount));
+						Order order = mapper.map(rs);
+						if (order.getOrderHour() != null) {
+							orders.add(order);
 						}
 					}
 				}
@@ -1310,7 +1634,7 @@ public class BistroDataBase_Controller {
 			return orders;
 
 		// Select ALL fields needed for the staff table
-		String qry = "SELECT o.*, ts.tableNum, u.type " + "FROM orders o " + "JOIN users u ON o.user_id = u.user_id "
+		String qry = "SELECT o.*, ts.tableNum, u.type AS user_type " + "FROM orders o " + "JOIN users u ON o.user_id = u.user_id "
 				+ "LEFT JOIN table_sessions ts ON o.order_number = ts.order_number AND ts.left_at IS NULL "
 				+ "WHERE o.order_date = ? AND o.order_type = 'RESERVATION'";
 
@@ -1321,27 +1645,7 @@ public class BistroDataBase_Controller {
 				ps.setDate(1, Date.valueOf(date));
 
 				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						int id = rs.getInt("order_number");
-						LocalTime time = rs.getTime("order_time").toLocalTime();
-						int diners = rs.getInt("number_of_guests");
-						String statusStr = rs.getString("status");
-						String confirmCode = rs.getString("confirmation_code");
-						int userId = rs.getInt("user_id");
-
-						int tableId = rs.getInt("tableNum"); // can be null if no table assigned
-						if (rs.wasNull()) {
-							tableId = 0; // to indicate no table assigned
-						}
-
-						String uType = rs.getString("type");
-
-						Order order = new Order(id, date, time, diners, confirmCode, userId, null,
-								OrderStatus.valueOf(statusStr), null);
-						order.setTableId(tableId);
-						order.setUserTypeStr(uType);
-						orders.add(order);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, orders);
 				}
 			}
 		} catch (SQLException ex) {
@@ -1374,28 +1678,7 @@ public class BistroDataBase_Controller {
 			try (PreparedStatement ps = conn.prepareStatement(query)) {
 				ps.setInt(1, userId);
 				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						// Map ResultSet to Order
-						int orderNumber = rs.getInt("order_number");
-						Date sqlDate = rs.getDate("order_date");
-						LocalDate orderDate = (sqlDate != null) ? sqlDate.toLocalDate() : null;
-						Time sqlTime = rs.getTime("order_time");
-						LocalTime orderTime = (sqlTime != null) ? sqlTime.toLocalTime() : null;
-						int diners = rs.getInt("number_of_guests");
-						String code = rs.getString("confirmation_code");
-						OrderStatus status = OrderStatus.valueOf(rs.getString("status"));
-						String typeStr = rs.getString("order_type");
-						OrderType type = (typeStr != null) ? OrderType.valueOf(typeStr) : OrderType.RESERVATION;
-						int tableId = rs.getInt("tableNum");
-						if (rs.wasNull())
-							tableId = 0; // no table assigned
-						String userType = rs.getString("user_type");
-						Order order = new Order(orderNumber, orderDate, orderTime, diners, code, userId, type, status,
-								null);
-						order.setTableId(tableId); // set tableId if applicable
-						order.setUserTypeStr(userType); // set user type for display
-						orders.add(order);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, orders);
 				}
 			}
 			logger.log("[DEBUG] getOrdersByUserId returning " + orders.size() + " orders for userId: " + userId);
@@ -1408,6 +1691,55 @@ public class BistroDataBase_Controller {
 		return orders;
 	}
 
+	/**
+	 * Retrieves one page of the orders of a user, latest first, with keyset
+	 * pagination on (order_date, order_number) over idx_orders_user. Orders with
+	 * no date (walk-ins) sort last, as MySQL sorts NULL last when descending.
+	 * 
+	 * @param userId The user ID to retrieve orders for
+	 * @param after  The last order of the previous page, null for the first page
+	 * @param limit  The largest number of orders returned
+	 * @return List of Order objects of the page
+	 */
+	public List<Order> getOrdersByUserIdPage(int userId, PageCursor after, int limit) {
+		List<Order> orders = new ArrayList<>();
+		String seek = "";
+		if (after != null) {
+			seek = after.getDate() != null
+					? "AND (o.order_date < ? OR (o.order_date = ? AND o.order_number < ?) OR o.order_date IS NULL) "
+					: "AND o.order_date IS NULL AND o.order_number < ? ";
+		}
+		String query = "SELECT o.*, ts.tableNum, u.type as user_type " + "FROM orders o "
+				+ "LEFT JOIN table_sessions ts ON o.order_number = ts.order_number AND ts.left_at IS NULL "
+				+ "LEFT JOIN users u ON o.user_id = u.user_id " + "WHERE o.user_id = ? " + seek
+				+ "ORDER BY o.order_date DESC, o.order_number DESC LIMIT ?";
+		Connection conn = null;
+		try {
+			conn = borrow();
+			try (PreparedStatement ps = conn.prepareStatement(query)) {
+				int i = 1;
+				ps.setInt(i++, userId);
+				if (after != null && after.getDate() != null) {
+					ps.setDate(i++, Date.valueOf(after.getDate()));
+					ps.setDate(i++, Date.valueOf(after.getDate()));
+				}
+				if (after != null) {
+					ps.setInt(i++, after.getId());
+				}
+				ps.setInt(i, limit);
+				try (ResultSet rs = ps.executeQuery()) {
+					OrderRowMapper.of(rs).mapAll(rs, orders);
+				}
+			}
+		} catch (SQLException ex) {
+			logger.log("[ERROR] getOrdersByUserIdPage: " + ex.getMessage());
+			return null;
+		} finally {
+			release(conn);
+		}
+		return orders;
+	}
+
 	/**
 	 * Checks if an order exists in the database by its confirmation code.
 	 * 
@@ -1457,23 +1789,7 @@ public class BistroDataBase_Controller {
 			try (PreparedStatement ps = conn.prepareStatement(qry)) {
 				ps.setString(1, confirmationCode);
 				try (ResultSet rs = ps.executeQuery()) {
-					if (!rs.next()) {
-						return null; // not exists such order
-					}
-					// Map ResultSet to Order object
-					int orderNumber = rs.getInt("order_number");
-					Date d = rs.getDate("order_date");
-					Time t = rs.getTime("order_time");
-					LocalDate orderDate = (d != null) ? d.toLocalDate() : null;
-					LocalTime orderTime = (t != null) ? t.toLocalTime() : null;
-					int dinersAmount = rs.getInt("number_of_guests");
-					int userId = rs.getInt("user_id");
-					OrderType orderType = OrderType.valueOf(rs.getString("order_type"));
-					OrderStatus status = OrderStatus.valueOf(rs.getString("status"));
-					Timestamp sqlPlacedAt = rs.getTimestamp("date_of_placing_order");
-					LocalDateTime dateOfPlacingOrder = (sqlPlacedAt != null) ? sqlPlacedAt.toLocalDateTime() : null;
-					return new Order(orderNumber, orderDate, orderTime, dinersAmount, confirmationCode, userId,
-							orderType, status, dateOfPlacingOrder);
+					return OrderRowMapper.of(rs).mapNext(rs); // null if no such order
 				}
 			}
 		} catch (SQLException ex) {
@@ -1520,30 +1836,7 @@ public class BistroDataBase_Controller {
 				pstmt.setTime(3, Time.valueOf(walkInEndTime));
 
 				try (ResultSet rs = pstmt.executeQuery()) {
-					while (rs.next()) {
-						Order order = new Order();
-						// Map database columns to the Order object
-						order.setOrderNumber(rs.getInt("order_number"));
-						order.setDinersAmount(rs.getInt("number_of_guests"));
-						order.setOrderDate(rs.getDate("order_date").toLocalDate());
-
-						// Handle time (check for nulls if necessary, though logic implies not null
-						// here)
-						Time time = rs.getTime("order_time");
-						if (time != null) {
-							order.setOrderHour(time.toLocalTime());
-						}
-
-						// Convert DB Enum strings to Java Enums
-						String statusStr = rs.getString("status");
-						order.setStatus(OrderStatus.valueOf(statusStr));
-
-						String typeStr = rs.getString("order_type");
-						order.setOrderType(OrderType.valueOf(typeStr));
-
-						// Add populated order to the list
-						orders.add(order);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, orders);
 				}
 			}
 		} catch (SQLException ex) {
@@ -1578,26 +1871,7 @@ public class BistroDataBase_Controller {
 				ps.setInt(1, userId);
 
 				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						Order order = new Order();
-						order.setOrderNumber(rs.getInt("order_number"));
-						order.setUserId(rs.getInt("user_id"));
-
-						Date sqlDate = rs.getDate("order_date");
-						if (sqlDate != null)
-							order.setOrderDate(sqlDate.toLocalDate());
-
-						Time sqlTime = rs.getTime("order_time");
-						if (sqlTime != null)
-							order.setOrderHour(sqlTime.toLocalTime());
-
-						order.setDinersAmount(rs.getInt("number_of_guests"));
-						order.setConfirmationCode(rs.getString("confirmation_code"));
-						order.setStatus(OrderStatus.valueOf(rs.getString("status")));
-						order.setOrderType(OrderType.valueOf(rs.getString("order_type")));
-
-						orders.add(order);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, orders);
 				}
 			}
 		} catch (SQLException ex) {
@@ -1710,7 +1984,7 @@ public class BistroDataBase_Controller {
 				ps.setString(1, confirmationCode);
 				try (ResultSet rs = ps.executeQuery()) {
 					if (rs.next()) {
-						return OrderStatus.valueOf(rs.getString("status"));
+						return OrderRowMapper.STATUS.decode(rs.getString("status"));
 					} else {
 						return null; // Order not found
 					}
@@ -1741,18 +2015,7 @@ public class BistroDataBase_Controller {
 			try (PreparedStatement ps = conn.prepareStatement(qry)) {
 				ps.setInt(1, userId);
 				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						Order order = new Order();
-						order.setOrderNumber(rs.getInt("order_number"));
-						order.setConfirmationCode(rs.getString("confirmation_code"));
-						order.setDinersAmount(rs.getInt("number_of_guests"));
-
-						Time t = rs.getTime("order_time");
-						if (t != null)
-							order.setOrderHour(t.toLocalTime());
-
-						orders.add(order);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, orders);
 				}
 			}
 		} catch (SQLException ex) {
@@ -1924,22 +2187,7 @@ public class BistroDataBase_Controller {
 			try (PreparedStatement ps = conn.prepareStatement(sql)) {
 				ps.setInt(1, tableCapacity);
 				try (ResultSet rs = ps.executeQuery()) {
-					if (!rs.next())
-						return null;
-
-					Order o = new Order();
-					o.setOrderNumber(rs.getInt("order_number"));
-					o.setConfirmationCode(rs.getString("confirmation_code"));
-					o.setUserId(rs.getInt("user_id"));
-					o.setDinersAmount(rs.getInt("number_of_guests"));
-					o.setOrderType(OrderType.valueOf(rs.getString("order_type")));
-					o.setStatus(OrderStatus.valueOf(rs.getString("status")));
-
-					Timestamp placedAt = rs.getTimestamp("date_of_placing_order");
-					if (placedAt != null)
-						o.setDateOfPlacingOrder(placedAt.toLocalDateTime());
-
-					return o;
+					return OrderRowMapper.of(rs).mapNext(rs);
 				}
 			}
 		} catch (SQLException e) {
@@ -2036,22 +2284,7 @@ public class BistroDataBase_Controller {
 		try {
 			conn = borrow();
 			try (PreparedStatement pstmt = conn.prepareStatement(query); ResultSet rs = pstmt.executeQuery()) {
-				while (rs.next()) {
-					Order order = new Order();
-					// Map standard Order fields
-					order.setConfirmationCode(rs.getString("confirmation_code"));
-					order.setOrderNumber(rs.getInt("order_number"));
-					order.setDinersAmount(rs.getInt("number_of_guests"));
-					order.setOrderType(OrderType.valueOf(rs.getString("order_type")));
-					order.setStatus(OrderStatus.valueOf(rs.getString("status")));
-					// Map the timestamp of when they joined the list
-					Timestamp placedAt = rs.getTimestamp("date_of_placing_order");
-					if (placedAt != null) {
-						order.setDateOfPlacingOrder(placedAt.toLocalDateTime());
-					}
-					int waitTime = rs.getInt("quoted_wait_time");
-					queue.add(order);
-				}
+				OrderRowMapper.of(rs).mapAll(rs, queue);
 			}
 		} catch (SQLException ex) {
 			logger.log("[ERROR] SQLException in getWaitingQueueFromView: " + ex.getMessage());
@@ -2132,10 +2365,7 @@ public class BistroDataBase_Controller {
 			conn = borrow();
 			try (PreparedStatement ps = conn.prepareStatement(qry); ResultSet rs = ps.executeQuery()) {
 
-				while (rs.next()) {
-					tablesList
-							.add(new Table(rs.getInt("tableNum"), rs.getInt("capacity"), rs.getBoolean("occupiedNow")));
-				}
+				TableRowMapper.of(rs).mapAll(rs, tablesList);
 			}
 		} catch (SQLException ex) {
 			ex.printStackTrace();
@@ -2469,14 +2699,72 @@ public class BistroDataBase_Controller {
 		return hours;
 	}
 
-	// ******************************* Payment Operations
-	// ******************************
 	/**
-	 * Updates a bill to mark it as PAID and records the external transaction ID.
+	 * Gets the opening hours of every date in a range in two queries: the weekly
+	 * hours, and the holidays of the range overriding them.
 	 * 
-	 * @param billId        The ID of the bill to update.
-	 * @param paymentMethod The method used (e.g., "CREDIT", "CASH").
-	 * @param transactionId The reference ID from the payment provider (can be null
+	 * @return [open, close] by date, an empty list for the dates closed; null on
+	 *         failure
+	 */
+	public Map<LocalDate, List<LocalTime>> getOpeningHoursBetween(LocalDate from, LocalDate to) {
+		final String weeklySql = "SELECT day_of_week, open_time, close_time FROM opening_hours_weekly";
+		final String specialSql = "SELECT special_date, is_closed, open_time, close_time "
+				+ "FROM opening_hours_special WHERE special_date BETWEEN ? AND ?";
+		Map<Integer, LocalTime[]> weekly = new HashMap<>();
+		Map<LocalDate, Holiday> specials = new HashMap<>();
+		Connection conn = null;
+		try {
+			conn = borrow();
+			try (PreparedStatement ps = conn.prepareStatement(weeklySql); ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					weekly.put(rs.getInt(1), new LocalTime[] { Columns.getLocalTime(rs, 2), Columns.getLocalTime(rs, 3) });
+				}
+			}
+			try (PreparedStatement ps = conn.prepareStatement(specialSql)) {
+				ps.setDate(1, Date.valueOf(from));
+				ps.setDate(2, Date.valueOf(to));
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						LocalDate date = Columns.getLocalDate(rs, 1);
+						specials.put(date, new Holiday(date, null, rs.getInt(2) == 1, Columns.getLocalTime(rs, 3),
+								Columns.getLocalTime(rs, 4)));
+					}
+				}
+			}
+		} catch (SQLException ex) {
+			logger.log("[ERROR] SQLException in getOpeningHoursBetween: " + ex.getMessage());
+			return null;
+		} finally {
+			release(conn);
+		}
+
+		// Same rule as getOpeningHoursFromDB(date): the holiday's times, else the weekday's
+		Map<LocalDate, List<LocalTime>> hours = new TreeMap<>();
+		for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+			List<LocalTime> day = new ArrayList<>();
+			LocalTime[] week = weekly.get((date.getDayOfWeek().getValue() % 7) + 1); // 1=Sunday, 7=Saturday
+			Holiday special = specials.get(date);
+			if (week != null && (special == null || !special.isClosed())) {
+				LocalTime open = special != null && special.getOpenTime() != null ? special.getOpenTime() : week[0];
+				LocalTime close = special != null && special.getCloseTime() != null ? special.getCloseTime() : week[1];
+				if (open != null && close != null) {
+					day.add(open);
+					day.add(close);
+				}
+			}
+			hours.put(date, day);
+		}
+		return hours;
+	}
+
+	// ******************************* Payment Operations
+	// ******************************
+	/**
+	 * Updates a bill to mark it as PAID and records the external transaction ID.
+	 * 
+	 * @param billId        The ID of the bill to update.
+	 * @param paymentMethod The method used (e.g., "CREDIT", "CASH").
+	 * @param transactionId The reference ID from the payment provider (can be null
 	 *                      for Cash).
 	 */
 	public void markBillAsPaid(int billId, String paymentMethod, String transactionId) {
@@ -2529,16 +2817,7 @@ public class BistroDataBase_Controller {
 				pstmt.setInt(1, billId);
 
 				try (ResultSet rs = pstmt.executeQuery()) {
-					if (rs.next()) {
-						// Map the ResultSet to your Bill entity
-						// Note: Adjust the constructor below to match your Bill.java class exactly
-						bill = new Bill(rs.getInt("billID"), rs.getDouble("billSum"), rs.getString("payment_status"),
-								rs.getString("transaction_id"));
-
-						// If your Bill entity stores more fields, set them here:
-						// bill.setPaymentMethod(rs.getString("payment_method"));
-						// bill.setTransactionId(rs.getString("transaction_id"));
-					}
+					bill = BillRowMapper.of(rs).mapNext(rs);
 				}
 			}
 		} catch (SQLException ex) {
@@ -2602,18 +2881,7 @@ public class BistroDataBase_Controller {
 			conn = borrow();
 			try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
 
-				while (rs.next()) {
-
-					Bill bill = new Bill(rs.getInt("billID"), rs.getDouble("billSum"), rs.getString("payment_status"),
-							rs.getString("transaction_id"));
-
-					bill.setTableId(rs.getInt("tableNum"));
-					bill.setOrderNumber(rs.getInt("order_number"));
-					bill.setDate(rs.getTimestamp("seated_at"));
-					bill.setConfirmationCode(rs.getString("confirmation_code"));
-
-					bills.add(bill);
-				}
+				BillRowMapper.of(rs).mapAll(rs, bills);
 			}
 
 		} catch (SQLException e) {
@@ -2630,98 +2898,64 @@ public class BistroDataBase_Controller {
 	// ********************************
 
 	/**
-	 * Retrieves reservations within a specified time window that match the given
-	 * status and have not yet been notified.
+	 * Claims the reminders of the pending reservations whose slot is within a
+	 * window and that were not reminded yet: the reservations are selected and
+	 * locked, then marked as reminded in one UPDATE, in a single transaction.
+	 * A sweep costs the same few round trips whatever the number of reservations,
+	 * and a reservation is claimed by one sweep only.
 	 * 
-	 * @param startWindow The start of the time window
-	 * @param endWindow   The end of the time window
-	 * @param status      The status of the reservations to filter by
-	 * @return List of Order objects representing the matching reservations
+	 * @param startWindow The start of the slot window
+	 * @param endWindow   The end of the slot window
+	 * @param sentAt      The time to record as the reminder time
+	 * @return The claimed reservations, or null on error
 	 */
-	public List<Order> getReservationsBetweenTimes(LocalDateTime startWindow, LocalDateTime endWindow,
-			OrderStatus status) {
-		final String sql = "SELECT order_number, user_id, order_date, order_time, number_of_guests, confirmation_code, status, order_type "
-				+ "FROM orders " + "WHERE order_type = 'RESERVATION' " + "  AND status = ? "
-				+ "  AND notified_at IS NULL " + "  AND TIMESTAMP(order_date, order_time) BETWEEN ? AND ?";
+	public List<Order> claimReservationReminders(LocalDateTime startWindow, LocalDateTime endWindow,
+			LocalDateTime sentAt) {
+		// order_date bounds the scan on idx_orders_slot, the window may span midnight
+		final String selectSql = "SELECT order_number, user_id, order_date, order_time, number_of_guests, "
+				+ "confirmation_code, status, order_type, date_of_placing_order " + "FROM orders "
+				+ "WHERE order_date BETWEEN ? AND ? " + "  AND order_type = 'RESERVATION' "
+				+ "  AND status = 'PENDING' " + "  AND notified_at IS NULL "
+				+ "  AND TIMESTAMP(order_date, order_time) BETWEEN ? AND ? " + "FOR UPDATE";
 
-		List<Order> list = new ArrayList<>();
+		List<Order> claimed = new ArrayList<>();
 		Connection conn = null;
-
 		try {
 			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setString(1, status.name());
-				ps.setTimestamp(2, Timestamp.valueOf(startWindow));
-				ps.setTimestamp(3, Timestamp.valueOf(endWindow));
-
+			conn.setAutoCommit(false);
+			try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+				ps.setDate(1, Date.valueOf(startWindow.toLocalDate()));
+				ps.setDate(2, Date.valueOf(endWindow.toLocalDate()));
+				ps.setTimestamp(3, Timestamp.valueOf(startWindow));
+				ps.setTimestamp(4, Timestamp.valueOf(endWindow));
 				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						Order o = new Order();
-						o.setOrderNumber(rs.getInt("order_number"));
-						o.setUserId(rs.getInt("user_id"));
-						Date d = rs.getDate("order_date");
-						LocalDate orderDate = (d != null) ? d.toLocalDate() : null;
-
-						Time t = rs.getTime("order_time");
-						LocalTime orderTime = (t != null) ? t.toLocalTime() : null;
-						int dinersAmount = rs.getInt("number_of_guests");
-						String confirmCode = rs.getString("confirmation_code");
-						OrderType type = OrderType.valueOf(rs.getString("order_type"));
-						OrderStatus orderStatus = OrderStatus.valueOf(rs.getString("status"));
-						Timestamp placingTs = rs.getTimestamp("date_of_placing_order");
-						LocalDateTime dateOfPlacing = placingTs != null ? placingTs.toLocalDateTime() : null;
-
-						o.setOrderNumber(rs.getInt("order_number"));
-						o.setUserId(rs.getInt("user_id"));
-						if (orderDate != null)
-							o.setOrderDate(orderDate);
-						if (orderTime != null)
-							o.setOrderHour(orderTime);
-						o.setDinersAmount(dinersAmount);
-						o.setConfirmationCode(confirmCode);
-						o.setStatus(orderStatus);
-						o.setOrderType(type);
-						o.setDateOfPlacingOrder(dateOfPlacing);
-
-						list.add(o);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, claimed);
 				}
 			}
+			if (!claimed.isEmpty()) {
+				final String updateSql = "UPDATE orders SET notified_at = ? WHERE order_number IN "
+						+ placeholders(claimed.size());
+				try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+					ps.setTimestamp(1, Timestamp.valueOf(sentAt));
+					setOrderNumbers(ps, 2, claimed);
+					ps.executeUpdate();
+				}
+			}
+			conn.commit();
+			return claimed;
 		} catch (SQLException e) {
-			logger.log("[ERROR] getReservationsBetweenTimes: " + e.getMessage());
+			rollbackQuietly(conn);
+			logger.log("[ERROR] claimReservationReminders: " + e.getMessage());
 			e.printStackTrace();
 			return null;
 		} finally {
-			release(conn);
-		}
-		return list;
-	}
-
-	/**
-	 * Marks a reservation as having received a reminder notification.
-	 * 
-	 * @param orderNumber The order number of the reservation
-	 * @param sentAt      The timestamp when the reminder was sent
-	 * @return true if the update was successful, false otherwise
-	 */
-	public boolean markReservationReminderSent(int orderNumber, LocalDateTime sentAt) {
-		final String sql = "UPDATE orders " + "SET notified_at = ? " + "WHERE order_number = ? "
-				+ "  AND order_type = 'RESERVATION' " + "  AND notified_at IS NULL";
-
-		Connection conn = null;
-		try {
-			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setTimestamp(1, Timestamp.valueOf(sentAt));
-				ps.setInt(2, orderNumber);
-				return ps.executeUpdate() == 1;
+			if (conn != null) {
+				try {
+					conn.setAutoCommit(true);
+				} catch (SQLException ignore) {
+				}
+				release(conn);
 			}
-		} catch (SQLException e) {
-			logger.log("[ERROR] markReservationReminderSent: " + e.getMessage());
-			e.printStackTrace();
-			return false;
-		} finally {
-			release(conn);
 		}
 	}
 
@@ -2747,31 +2981,7 @@ public class BistroDataBase_Controller {
 				ps.setTimestamp(2, Timestamp.valueOf(endWindow));
 
 				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						Order o = new Order();
-						o.setOrderNumber(rs.getInt("order_number"));
-						o.setUserId(rs.getInt("user_id"));
-						Date d = rs.getDate("order_date");
-						LocalDate orderDate = (d != null) ? d.toLocalDate() : null;
-
-						Time t = rs.getTime("order_time");
-						LocalTime orderTime = (t != null) ? t.toLocalTime() : null;
-						int dinersAmount = rs.getInt("number_of_guests");
-						String confirmCode = rs.getString("confirmation_code");
-						o.setStatus(OrderStatus.valueOf(rs.getString("status")));
-						o.setOrderType(OrderType.valueOf(rs.getString("order_type")));
-
-						o.setOrderNumber(rs.getInt("order_number"));
-						o.setUserId(rs.getInt("user_id"));
-						if (orderDate != null)
-							o.setOrderDate(orderDate);
-						if (orderTime != null)
-							o.setOrderHour(orderTime);
-						o.setDinersAmount(dinersAmount);
-						o.setConfirmationCode(confirmCode);
-
-						list.add(o);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, list);
 				}
 			}
 		} catch (SQLException e) {
@@ -2788,19 +2998,25 @@ public class BistroDataBase_Controller {
 	// ********************************
 
 	/**
-	 * Method that give the number of the total Reservation this month
-	 * 
-	 * @param date the date to check the month and year
-	 * @return the total number of reservations in that month
+	 * Reads the report facts of a range of days from the report_daily rollup.
+	 * The rollup is kept up to date by the triggers on orders, table_sessions,
+	 * waiting_list and users (see bistro_report_daily.sql), so this is a range
+	 * read on its primary key.
+	 *
+	 * @param from the first day
+	 * @param to   the last day, included
+	 * @return the facts of the days in the range that have any
 	 */
-	public int getTotalReservation(LocalDate date) {
-
-		if (date == null) {
-			return 0;
+	public List<DailyReportFacts> getDailyReportFacts(LocalDate from, LocalDate to) {
+		List<DailyReportFacts> facts = new ArrayList<>();
+		if (from == null || to == null) {
+			return facts;
 		}
 
-		final String qry = "SELECT COUNT(*) AS total " + "FROM orders o " + "WHERE MONTH(o.order_date) = ? "
-				+ "AND YEAR(o.order_date) = ?";
+		final String qry = "SELECT report_day, orders_total, reservations, member_orders, waitlist_joins, seated, "
+				+ "on_time, late, late_early, late_0_5, late_6_15, late_16_30, late_31_plus, "
+				+ "overstay_0, overstay_1_10, overstay_11_30, overstay_31_60, overstay_61_plus, overstay_unknown "
+				+ "FROM report_daily WHERE report_day BETWEEN ? AND ? ORDER BY report_day";
 
 		Connection conn = null;
 
@@ -2808,170 +3024,48 @@ public class BistroDataBase_Controller {
 			conn = borrow();
 
 			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, date.getMonthValue());
-				ps.setInt(2, date.getYear());
+				ps.setDate(1, Date.valueOf(from));
+				ps.setDate(2, Date.valueOf(to));
 
 				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						return rs.getInt("total");
+					while (rs.next()) {
+						int[] lateness = { rs.getInt("late_early"), rs.getInt("late_0_5"), rs.getInt("late_6_15"),
+								rs.getInt("late_16_30"), rs.getInt("late_31_plus") };
+						int[] overstay = { rs.getInt("overstay_0"), rs.getInt("overstay_1_10"),
+								rs.getInt("overstay_11_30"), rs.getInt("overstay_31_60"), rs.getInt("overstay_61_plus"),
+								rs.getInt("overstay_unknown") };
+						facts.add(new DailyReportFacts(rs.getDate("report_day").toLocalDate(), rs.getInt("orders_total"),
+								rs.getInt("reservations"), rs.getInt("member_orders"), rs.getInt("waitlist_joins"),
+								rs.getInt("seated"), rs.getInt("on_time"), rs.getInt("late"), lateness, overstay));
 					}
 				}
 			}
 		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in getTotalMemberOrdersForMonth: " + ex.getMessage());
-			ex.printStackTrace();
+			logger.log("[ERROR] SQLException in getDailyReportFacts: " + ex.getMessage());
 		} finally {
 			release(conn);
 		}
 
-		return 0;
+		return facts;
 	}
 
 	/**
-	 * Method that give the number of the total costumers this month
-	 * 
-	 * @param date the date to check the month and year
-	 * @return the total number of costumers in that month
-	 */
-
-	public int getTotalCostumersInMonth(LocalDate date) {
-
-		if (date == null) {
-			return 0;
-		}
-
-		final String qry = "SELECT COUNT(DISTINCT o.user_id) AS total " + "FROM orders o "
-				+ "WHERE MONTH(o.order_date) = ? " + "AND YEAR(o.order_date) = ?";
-
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-
-			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, date.getMonthValue());
-				ps.setInt(2, date.getYear());
-
-				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						return rs.getInt("total");
-					}
-				}
-			}
-		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in getTotalCostumersInMonth: " + ex.getMessage());
-			ex.printStackTrace();
-		} finally {
-			release(conn);
-		}
-
-		return 0;
-	}
-
-	/*
-	 * Method that give the number of the costumers that arrive late this month
-	 * 
-	 * @param date the date to check the month and year
-	 * 
-	 * @return the total number of late costumers in that month
-	 */
-	public int getTotalLateCostumersInMonth(LocalDate date) {
-
-		if (date == null) {
-			return 0;
-		}
-
-		// SQL query to count late customers
-		final String qry = "SELECT COUNT(*) AS total_late " + "FROM orders o "
-				+ "JOIN table_sessions ts ON o.order_number = ts.order_number " + "WHERE o.order_type = 'RESERVATION' "
-				+ "AND MONTH(o.order_date) = ? " + "AND YEAR(o.order_date) = ? " + "AND ts.seated_at IS NOT NULL "
-				+ "AND ts.seated_at >= TIMESTAMP(o.order_date, o.order_time)  "
-				+ "AND ts.seated_at <= TIMESTAMP(o.order_date, o.order_time) + INTERVAL 15 MINUTE ";
-
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-
-			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, date.getMonthValue());
-				ps.setInt(2, date.getYear());
-
-				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						return rs.getInt("total_late");
-					}
-				}
-			}
-		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in getTotalLateCostumersInMonth: " + ex.getMessage());
-			ex.printStackTrace();
-		} finally {
-			release(conn);
-		}
-
-		return 0;
-	}
-
-	/*
-	 * Method that give the number of the costumers that arrive on time this month
-	 * 
-	 * @param date the date to check the month and year
-	 * 
-	 * @return the total number of on-time costumers in that month
-	 * 
-	 */
-	public int getTotalOntTimeCostumersInMonth(LocalDate date) {
-
-		if (date == null) {
-			return 0;
-		}
-
-		final String qry = "SELECT COUNT(*) AS total_on_time " + "FROM orders o "
-				+ "JOIN table_sessions ts ON o.order_number = ts.order_number " + "WHERE o.order_type = 'RESERVATION' "
-				+ "AND MONTH(o.order_date) = ? " + "AND YEAR(o.order_date) = ? " + "AND ts.seated_at IS NOT NULL "
-				+ "AND ts.seated_at <= TIMESTAMP(o.order_date, o.order_time)";
-
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-
-			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, date.getMonthValue());
-				ps.setInt(2, date.getYear());
-
-				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						return rs.getInt("total_on_time");
-					}
-				}
-			}
-		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in getTotalOntTimeCostumersInMonth: " + ex.getMessage());
-			ex.printStackTrace();
-		} finally {
-			release(conn);
-		}
-
-		return 0;
-	}
-
-	/*
-	 * Method that give the number of the total Members Reservation this month
-	 * 
-	 * @param date the date to check the month and year
-	 * 
-	 * @return the total number of members reservations in that month
+	 * Counts the distinct customers of a range of days from the
+	 * report_day_customers rollup. Customers do not add up across days, so the
+	 * rollup keeps the users of each day rather than a count.
+	 *
+	 * @param from the first day
+	 * @param to   the last day, included
+	 * @return the number of users with an order in the range
 	 */
-	public int getTotalMembersReservationInMonth(LocalDate date) {
+	public int getDistinctCustomers(LocalDate from, LocalDate to) {
 
-		if (date == null) {
+		if (from == null || to == null) {
 			return 0;
 		}
 
-		final String qry = "SELECT COUNT(*) AS total " + "FROM orders o " + "JOIN users u ON o.user_id = u.user_id "
-				+ "WHERE u.type = 'MEMBER' " + "AND MONTH(o.order_date) = ? " + "AND YEAR(o.order_date) = ?";
+		final String qry = "SELECT COUNT(DISTINCT user_id) AS total FROM report_day_customers "
+				+ "WHERE report_day BETWEEN ? AND ?";
 
 		Connection conn = null;
 
@@ -2979,8 +3073,8 @@ public class BistroDataBase_Controller {
 			conn = borrow();
 
 			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, date.getMonthValue());
-				ps.setInt(2, date.getYear());
+				ps.setDate(1, Date.valueOf(from));
+				ps.setDate(2, Date.valueOf(to));
 
 				try (ResultSet rs = ps.executeQuery()) {
 					if (rs.next()) {
@@ -2989,8 +3083,7 @@ public class BistroDataBase_Controller {
 				}
 			}
 		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in getTotalMembersReservationInMonth: " + ex.getMessage());
-			ex.printStackTrace();
+			logger.log("[ERROR] SQLException in getDistinctCustomers: " + ex.getMessage());
 		} finally {
 			release(conn);
 		}
@@ -3037,22 +3130,7 @@ public class BistroDataBase_Controller {
 				ps.setString(3, orderType.name());
 
 				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						int orderNumber = rs.getInt("order_number");
-						int userId = rs.getInt("user_id");
-						LocalDate orderDate = rs.getDate("order_date").toLocalDate();
-						LocalTime orderTime = rs.getTime("order_time").toLocalTime();
-						int dinersAmount = rs.getInt("number_of_guests");
-						String confirmCode = rs.getString("confirmation_code");
-						OrderType type = OrderType.valueOf(rs.getString("order_type"));
-						OrderStatus orderStatus = OrderStatus.valueOf(rs.getString("status"));
-						Timestamp placingTs = rs.getTimestamp("date_of_placing_order");
-						LocalDateTime dateOfPlacing = placingTs != null ? placingTs.toLocalDateTime() : null;
-
-						Order order = new Order(orderNumber, orderDate, orderTime, dinersAmount, confirmCode, userId,
-								type, orderStatus, dateOfPlacing);
-						orders.add(order);
-					}
+					OrderRowMapper.of(rs).mapAll(rs, orders);
 				}
 			}
 		} catch (SQLException ex) {
@@ -3065,34 +3143,94 @@ public class BistroDataBase_Controller {
 	}
 
 	/**
-	 * Gets the notification time (when status was changed to NOTIFIED) for a
-	 * waitlist order.
+	 * Marks as NO_SHOW the pending reservations of a day whose slot is before a
+	 * deadline, and the notified waitlist orders notified before another one.
+	 * The orders are selected and locked, then updated in one UPDATE, in a single
+	 * transaction, so a sweep costs the same few round trips whatever the number
+	 * of orders it marks.
 	 * 
-	 * @param orderNumber The order number to check
-	 * @return LocalDateTime when the order was notified, or null if not found
+	 * @param slotDeadline     Reservations of this day with a slot before this
+	 *                         time are marked
+	 * @param notifiedDeadline Waitlist orders notified before this time are
+	 *                         marked
+	 * @return The orders marked, with their status before the update, or null on
+	 *         error
 	 */
-	public LocalDateTime getOrderNotificationTime(int orderNumber) {
-		String qry = "SELECT notified_at FROM orders WHERE order_number = ?";
-		Connection conn = null;
+	public List<Order> markNoShows(LocalDateTime slotDeadline, LocalDateTime notifiedDeadline) {
+		final String selectSql = "SELECT order_number, user_id, order_date, order_time, number_of_guests, "
+				+ "confirmation_code, status, order_type, date_of_placing_order " + "FROM orders "
+				+ "WHERE (order_date = ? AND order_time < ? AND order_type = 'RESERVATION' AND status = 'PENDING') "
+				+ "   OR (status = 'NOTIFIED' AND order_type = 'WAITLIST' AND notified_at < ?) " + "FOR UPDATE";
 
+		List<Order> marked = new ArrayList<>();
+		Connection conn = null;
 		try {
 			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, orderNumber);
+			conn.setAutoCommit(false);
+			try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+				ps.setDate(1, Date.valueOf(slotDeadline.toLocalDate()));
+				ps.setTime(2, Time.valueOf(slotDeadline.toLocalTime()));
+				ps.setTimestamp(3, Timestamp.valueOf(notifiedDeadline));
 				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						Timestamp ts = rs.getTimestamp("notified_at");
-						return ts != null ? ts.toLocalDateTime() : null;
-					}
+					OrderRowMapper.of(rs).mapAll(rs, marked);
 				}
 			}
+			if (!marked.isEmpty()) {
+				final String updateSql = "UPDATE orders SET status = 'NO_SHOW' WHERE order_number IN "
+						+ placeholders(marked.size());
+				try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+					setOrderNumbers(ps, 1, marked);
+					ps.executeUpdate();
+				}
+			}
+			conn.commit();
+			return marked;
 		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in getOrderNotificationTime: " + ex.getMessage());
+			rollbackQuietly(conn);
+			logger.log("[ERROR] SQLException in markNoShows: " + ex.getMessage());
 			ex.printStackTrace();
+			return null;
 		} finally {
-			release(conn);
+			if (conn != null) {
+				try {
+					conn.setAutoCommit(true);
+				} catch (SQLException ignore) {
+				}
+				release(conn);
+			}
+		}
+	}
+
+	/**
+	 * Builds the placeholders of an IN list, e.g. "(?, ?, ?)".
+	 */
+	private static String placeholders(int count) {
+		StringBuilder sb = new StringBuilder("(");
+		for (int i = 0; i < count; i++) {
+			sb.append(i == 0 ? "?" : ", ?");
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Binds the numbers of orders to consecutive parameters.
+	 */
+	private static void setOrderNumbers(PreparedStatement ps, int firstIndex, List<Order> orders)
+			throws SQLException {
+		for (int i = 0; i < orders.size(); i++) {
+			ps.setInt(firstIndex + i, orders.get(i).getOrderNumber());
+		}
+	}
+
+	/**
+	 * Rolls back the transaction of a connection, if any, ignoring failures.
+	 */
+	private static void rollbackQuietly(Connection conn) {
+		try {
+			if (conn != null)
+				conn.rollback();
+		} catch (SQLException ignore) {
 		}
-		return null;
 	}
 
 	/**
@@ -3182,63 +3320,68 @@ public class BistroDataBase_Controller {
 	}
 
 	/**
-	 * Frees up a table reservation when an order is marked as NO_SHOW. Sets the
-	 * table status back to available.
+	 * Retrieves a user by their user ID. Used by NoShowManager to get customer info
+	 * for notifications.
 	 * 
-	 * @param orderNumber The order number for the no-show reservation
-	 * @return true if table was freed, false otherwise
+	 * @param userId The user ID to look up
+	 * @return User object if found, null otherwise
 	 */
-	public boolean freeReservationTable(int orderNumber) {
-		String qry = "UPDATE orders SET table_id = NULL WHERE order_number = ?";
+	public User getUserById(int userId) {
+		String qry = "SELECT user_id, phoneNumber, email, type FROM users WHERE user_id = ?";
 		Connection conn = null;
 
 		try {
 			conn = borrow();
 			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, orderNumber);
-				int rowsAffected = ps.executeUpdate();
-				return rowsAffected > 0;
+				ps.setInt(1, userId);
+				try (ResultSet rs = ps.executeQuery()) {
+					return UserRowMapper.of(rs).mapNext(rs);
+				}
 			}
 		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in freeReservationTable: " + ex.getMessage());
+			logger.log("[ERROR] SQLException in getUserById: " + ex.getMessage());
 			ex.printStackTrace();
-			return false;
 		} finally {
 			release(conn);
 		}
+		return null;
 	}
 
 	/**
-	 * Retrieves a user by their user ID. Used by NoShowManager to get customer info
-	 * for notifications.
+	 * Retrieves users by their user IDs in one query, so notifications for many
+	 * orders look their customers up in a single round trip.
 	 * 
-	 * @param userId The user ID to look up
-	 * @return User object if found, null otherwise
+	 * @param userIds The user IDs to look up, duplicates allowed
+	 * @return The users found, by user ID
 	 */
-	public User getUserById(int userId) {
-		String qry = "SELECT user_id, phoneNumber, email, type FROM users WHERE user_id = ?";
+	public Map<Integer, User> getUsersByIds(Collection<Integer> userIds) {
+		Map<Integer, User> users = new HashMap<>();
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+		if (ids.isEmpty()) {
+			return users;
+		}
+		String qry = "SELECT user_id, phoneNumber, email, type FROM users WHERE user_id IN " + placeholders(ids.size());
 		Connection conn = null;
 
 		try {
 			conn = borrow();
 			try (PreparedStatement ps = conn.prepareStatement(qry)) {
-				ps.setInt(1, userId);
+				for (int i = 0; i < ids.size(); i++) {
+					ps.setInt(i + 1, ids.get(i));
+				}
 				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						String phoneNumber = rs.getString("phoneNumber");
-						String email = rs.getString("email");
-						String userType = rs.getString("type");
-						return new User(userId, phoneNumber, email, null, UserType.valueOf(userType));
+					for (User user : UserRowMapper.of(rs).mapAll(rs)) {
+						users.put(user.getUserId(), user);
 					}
 				}
 			}
 		} catch (SQLException ex) {
-			logger.log("[ERROR] SQLException in getUserById: " + ex.getMessage());
+			logger.log("[ERROR] SQLException in getUsersByIds: " + ex.getMessage());
 			ex.printStackTrace();
 		} finally {
 			release(conn);
 		}
-		return null;
+		return users;
 	}
 
 	/**
@@ -3471,7 +3614,7 @@ public class BistroDataBase_Controller {
 	public Order getSeatedOrderForUser(int userId) {
 		String qry = "SELECT o.order_number, o.user_id, o.order_date, o.order_time, o.number_of_guests, "
 				+ "       o.confirmation_code, o.order_type, o.status, o.date_of_placing_order, "
-				+ "       ts.tableNum AS seated_tableNum " + "FROM orders o "
+				+ "       ts.tableNum " + "FROM orders o "
 				+ "JOIN table_sessions ts ON ts.order_number = o.order_number " + "WHERE o.user_id = ? "
 				+ "  AND o.status = 'SEATED' " + "  AND ts.left_at IS NULL " + "LIMIT 1";
 
@@ -3484,31 +3627,7 @@ public class BistroDataBase_Controller {
 				ps.setInt(1, userId);
 
 				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						int orderNumber = rs.getInt("order_number");
-
-						Date sqlDate = rs.getDate("order_date");
-						LocalDate orderDate = (sqlDate != null) ? sqlDate.toLocalDate() : null;
-
-						Time sqlTime = rs.getTime("order_time");
-						LocalTime orderTime = (sqlTime != null) ? sqlTime.toLocalTime() : null;
-
-						int dinersAmount = rs.getInt("number_of_guests");
-						String confirmCode = rs.getString("confirmation_code");
-						OrderType type = OrderType.valueOf(rs.getString("order_type"));
-						OrderStatus orderStatus = OrderStatus.valueOf(rs.getString("status"));
-
-						Timestamp placingTs = rs.getTimestamp("date_of_placing_order");
-						LocalDateTime dateOfPlacing = placingTs != null ? placingTs.toLocalDateTime() : null;
-
-						int tableNum = rs.getInt("seated_tableNum");
-						System.out.println("DEBUG: Seated tableNum for order " + orderNumber + " is " + tableNum);
-
-						order = new Order(orderNumber, orderDate, orderTime, dinersAmount, confirmCode, userId, type,
-								orderStatus, dateOfPlacing);
-
-						order.setTableId(tableNum);
-					}
+					order = OrderRowMapper.of(rs).mapNext(rs);
 				}
 			}
 		} catch (SQLException ex) {
@@ -3539,22 +3658,7 @@ public class BistroDataBase_Controller {
 				ps.setInt(1, userID);
 				// Execute query
 				try (ResultSet rs = ps.executeQuery()) {
-					if (rs.next()) {
-						int orderNumber = rs.getInt("order_number");
-						Date sqlDate = rs.getDate("order_date");
-						LocalDate orderDate = (sqlDate != null) ? sqlDate.toLocalDate() : null;
-						Time sqlTime = rs.getTime("order_time");
-						LocalTime orderTime = (sqlTime != null) ? sqlTime.toLocalTime() : null;
-						int dinersAmount = rs.getInt("number_of_guests");
-						String confirmCode = rs.getString("confirmation_code");
-						OrderType type = OrderType.valueOf(rs.getString("order_type"));
-						OrderStatus orderStatus = OrderStatus.valueOf(rs.getString("status"));
-						Timestamp placingTs = rs.getTimestamp("date_of_placing_order");
-						LocalDateTime dateOfPlacing = placingTs != null ? placingTs.toLocalDateTime() : null;
-
-						order = new Order(orderNumber, orderDate, orderTime, dinersAmount, confirmCode, userID, type,
-								orderStatus, dateOfPlacing);
-					}
+					order = OrderRowMapper.of(rs).mapNext(rs);
 				}
 			}
 		} catch (SQLException ex) {
@@ -3770,17 +3874,14 @@ public class BistroDataBase_Controller {
 	 */
 	public List<int[]> listReportMonths(String type) {
 
-		final String sqlMembers = "SELECT DISTINCT YEAR(x.dt) AS report_year, MONTH(x.dt) AS report_month " + "FROM ( "
-				+ "  SELECT o.order_date AS dt " + "  FROM orders o "
-				+ "  WHERE o.order_type='RESERVATION' AND o.order_date IS NOT NULL " + "  UNION ALL "
-				+ "  SELECT wl.joined_at AS dt " + "  FROM waiting_list wl " + "  WHERE wl.joined_at IS NOT NULL "
-				+ ") x " + "WHERE x.dt IS NOT NULL " + "ORDER BY report_year DESC, report_month DESC";
-
-		final String sqlTimes = "SELECT DISTINCT YEAR(o.order_date) AS report_year, MONTH(o.order_date) AS report_month "
-				+ "FROM orders o " + "JOIN table_sessions ts ON ts.order_number = o.order_number "
-				+ "WHERE o.order_type='RESERVATION' AND o.order_date IS NOT NULL "
+		// Months of the report_daily rollup, a row per day with any activity
+		final String sqlMembers = "SELECT DISTINCT YEAR(report_day) AS report_year, MONTH(report_day) AS report_month "
+				+ "FROM report_daily WHERE reservations > 0 OR waitlist_joins > 0 "
 				+ "ORDER BY report_year DESC, report_month DESC";
 
+		final String sqlTimes = "SELECT DISTINCT YEAR(report_day) AS report_year, MONTH(report_day) AS report_month "
+				+ "FROM report_daily WHERE seated > 0 " + "ORDER BY report_year DESC, report_month DESC";
+
 		final String baseSql = "TIMES".equalsIgnoreCase(type) ? sqlTimes : sqlMembers;
 
 		List<int[]> months = new ArrayList<>();
@@ -3822,230 +3923,6 @@ public class BistroDataBase_Controller {
 		return months;
 	}
 
-	/**
-	 * Returns counts of reservations per day for a given month.
-	 *
-	 * @param year  report year
-	 * @param month report month (1-12)
-	 * @return map day->count
-	 */
-	public Map<Integer, Integer> getReservationsByDay(int year, int month) {
-		final String sql = "SELECT DAY(order_date) d, COUNT(*) c " + "FROM orders "
-				+ "WHERE YEAR(order_date)=? AND MONTH(order_date)=? AND order_type='RESERVATION' "
-				+ "GROUP BY DAY(order_date)";
-
-		Map<Integer, Integer> out = new HashMap<>();
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setInt(1, year);
-				ps.setInt(2, month);
-				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next())
-						out.put(rs.getInt("d"), rs.getInt("c"));
-				}
-			}
-		} catch (SQLException e) {
-			logger.log("[ERROR] getReservationsByDay: " + e.getMessage());
-		} finally {
-			release(conn);
-		}
-
-		return out;
-	}
-
-	/**
-	 * Returns counts of waitlist joins per day for a given month.
-	 *
-	 * @param year  report year
-	 * @param month report month (1-12)
-	 * @return map day->count
-	 */
-	public Map<Integer, Integer> getWaitlistJoinsByDay(int year, int month) {
-		final String sql = "SELECT DAY(joined_at) d, COUNT(*) c " + "FROM waiting_list "
-				+ "WHERE YEAR(joined_at)=? AND MONTH(joined_at)=? " + "GROUP BY DAY(joined_at)";
-
-		Map<Integer, Integer> out = new HashMap<>();
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setInt(1, year);
-				ps.setInt(2, month);
-				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next())
-						out.put(rs.getInt("d"), rs.getInt("c"));
-				}
-			}
-		} catch (SQLException e) {
-			logger.log("[ERROR] getWaitlistJoinsByDay: " + e.getMessage());
-		} finally {
-			release(conn);
-		}
-
-		return out;
-	}
-
-	/**
-	 * Returns counts of late arrivals per day for a given month. Late is defined as
-	 * arrival after scheduled time and up to 15 minutes (story cancellation
-	 * threshold).
-	 *
-	 * @param year  report year
-	 * @param month report month (1-12)
-	 * @return map day->count
-	 */
-	public Map<Integer, Integer> getLateArrivalsByDay(int year, int month) {
-		final String sql = "SELECT DAY(o.order_date) d, COUNT(*) c " + "FROM orders o "
-				+ "JOIN table_sessions ts ON ts.order_number = o.order_number " + "WHERE o.order_type='RESERVATION' "
-				+ "AND YEAR(o.order_date)=? AND MONTH(o.order_date)=? " + "AND ts.seated_at IS NOT NULL "
-				+ "AND ts.seated_at >= TIMESTAMP(o.order_date, o.order_time) "
-				+ "AND ts.seated_at <= TIMESTAMP(o.order_date, o.order_time) + INTERVAL 15 MINUTE "
-				+ "GROUP BY DAY(o.order_date)";
-
-		Map<Integer, Integer> out = new HashMap<>();
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setInt(1, year);
-				ps.setInt(2, month);
-				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next())
-						out.put(rs.getInt("d"), rs.getInt("c"));
-				}
-			}
-		} catch (SQLException e) {
-			logger.log("[ERROR] getLateArrivalsByDay: " + e.getMessage());
-		} finally {
-			release(conn);
-		}
-
-		return out;
-	}
-
-	/**
-	 * Returns counts of on-time arrivals per day for a given month. On-time is
-	 * defined as arrival at or before the scheduled time.
-	 *
-	 * @param year  report year
-	 * @param month report month (1-12)
-	 * @return map day->count
-	 */
-	public Map<Integer, Integer> getOnTimeArrivalsByDay(int year, int month) {
-		final String sql = "SELECT DAY(o.order_date) d, COUNT(*) c " + "FROM orders o "
-				+ "JOIN table_sessions ts ON ts.order_number = o.order_number " + "WHERE o.order_type='RESERVATION' "
-				+ "AND YEAR(o.order_date)=? AND MONTH(o.order_date)=? " + "AND ts.seated_at IS NOT NULL "
-				+ "AND ts.seated_at <= TIMESTAMP(o.order_date, o.order_time) " + "GROUP BY DAY(o.order_date)";
-
-		Map<Integer, Integer> out = new HashMap<>();
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setInt(1, year);
-				ps.setInt(2, month);
-				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next())
-						out.put(rs.getInt("d"), rs.getInt("c"));
-				}
-			}
-		} catch (SQLException e) {
-			logger.log("[ERROR] getOnTimeArrivalsByDay: " + e.getMessage());
-		} finally {
-			release(conn);
-		}
-
-		return out;
-	}
-
-	/**
-	 * Builds arrival-lateness distribution buckets for a given month. Lateness is
-	 * defined as minutes between scheduled time and actual seated time.
-	 *
-	 * @param year  report year
-	 * @param month report month (1-12)
-	 * @return map bucketLabel->count
-	 */
-	public Map<String, Integer> getLatenessBuckets(int year, int month) {
-		final String sql = "SELECT " + "  CASE "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, TIMESTAMP(o.order_date,o.order_time), ts.seated_at) BETWEEN 0 AND 5 THEN '0-5' "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, TIMESTAMP(o.order_date,o.order_time), ts.seated_at) BETWEEN 6 AND 15 THEN '6-15' "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, TIMESTAMP(o.order_date,o.order_time), ts.seated_at) BETWEEN 16 AND 30 THEN '16-30' "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, TIMESTAMP(o.order_date,o.order_time), ts.seated_at) >= 31 THEN '31+' "
-				+ "    ELSE 'early' " + "  END AS bucket, " + "  COUNT(*) c " + "FROM orders o "
-				+ "JOIN table_sessions ts ON ts.order_number = o.order_number " + "WHERE o.order_type='RESERVATION' "
-				+ "AND YEAR(o.order_date)=? AND MONTH(o.order_date)=? " + "AND ts.seated_at IS NOT NULL "
-				+ "GROUP BY bucket";
-
-		Map<String, Integer> out = new HashMap<>();
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setInt(1, year);
-				ps.setInt(2, month);
-				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next())
-						out.put(rs.getString("bucket"), rs.getInt("c"));
-				}
-			}
-		} catch (SQLException e) {
-			logger.log("[ERROR] getLatenessBuckets: " + e.getMessage());
-		} finally {
-			release(conn);
-		}
-
-		return out;
-	}
-
-	/**
-	 * Builds leaving-delay (overstay) distribution buckets for a given month.
-	 * Overstay is defined as minutes beyond the 2-hour reservation slot: (left_at -
-	 * seated_at) - 120.
-	 *
-	 * @param year  report year
-	 * @param month report month (1-12)
-	 * @return map bucketLabel->count
-	 */
-	public Map<String, Integer> getOverstayBuckets(int year, int month) {
-		final String sql = "SELECT " + "  CASE " + "    WHEN ts.left_at IS NULL OR ts.seated_at IS NULL THEN 'unknown' "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, ts.seated_at, ts.left_at) <= 120 THEN '0' "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, ts.seated_at, ts.left_at) BETWEEN 121 AND 130 THEN '1-10' "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, ts.seated_at, ts.left_at) BETWEEN 131 AND 150 THEN '11-30' "
-				+ "    WHEN TIMESTAMPDIFF(MINUTE, ts.seated_at, ts.left_at) BETWEEN 151 AND 180 THEN '31-60' "
-				+ "    ELSE '61+' " + "  END AS bucket, " + "  COUNT(*) c " + "FROM orders o "
-				+ "JOIN table_sessions ts ON ts.order_number = o.order_number " + "WHERE o.order_type='RESERVATION' "
-				+ "AND YEAR(o.order_date)=? AND MONTH(o.order_date)=? " + "GROUP BY bucket";
-
-		Map<String, Integer> out = new HashMap<>();
-		Connection conn = null;
-
-		try {
-			conn = borrow();
-			try (PreparedStatement ps = conn.prepareStatement(sql)) {
-				ps.setInt(1, year);
-				ps.setInt(2, month);
-				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next())
-						out.put(rs.getString("bucket"), rs.getInt("c"));
-				}
-			}
-		} catch (SQLException e) {
-			logger.log("[ERROR] getOverstayBuckets: " + e.getMessage());
-		} finally {
-			release(conn);
-		}
-
-		return out;
-	}
-
 	/**
 	 * Retrieves the weekly opening hours from the database.
 	 * 
@@ -1,10 +1,13 @@
 package logic;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 
 import comms.Api;
 import comms.Message;
+import comms.MessageCodec;
+import dto.ListChunk;
 import entities.MonthlyReport;
 import entities.Order;
 import entities.ReportRequest;
@@ -16,6 +19,9 @@ import ocsf.server.AbstractServer;
 import ocsf.server.ConnectionToClient;
 import logic.api.subjects.*;
 import logic.services.*;
+import logic.storage.BistroStorage;
+import logic.storage.InMemoryStorage;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -33,8 +39,8 @@ public class BistroServer extends AbstractServer {
 	// ****************************** Instance variables******************************
 	// Singleton instance
 	private static BistroServer serverInstance;
-	// Database controller
-	private final BistroDataBase_Controller dbController;
+	// Storage backend (database controller, or in-memory storage)
+	private final BistroStorage dbController;
 	// ServerRouter for API message handling
 	private final ServerRouter router;
 	// Server logger for logging events
@@ -48,12 +54,57 @@ public class BistroServer extends AbstractServer {
 	private final UserService userService;
 	private final ReportsService reportService;
 	private final PaymentService paymentService;
+	private final ChangePublisher changePublisher;
 	private final NoShowManager noShowManager;
 	
+	// Number of worker threads handling client messages (0 = one message at a time).
+	// Can be overridden at startup with -Dbistro.dispatch.threads=<n>
+	private static final int DEFAULT_DISPATCH_THREADS = 8;
+	// Transport used for clients: "socket" (one thread per client) or "nio" (selector based).
+	// Can be overridden at startup with -Dbistro.transport=nio and -Dbistro.io.threads=<n>
+	private static final String DEFAULT_TRANSPORT = "socket";
+	private static final int DEFAULT_IO_THREADS = 2;
+	// Thread model for client readers and handlers: "platform" or "virtual" (Java 21+).
+	// Can be overridden at startup with -Dbistro.threads=virtual
+	private static final String DEFAULT_THREAD_MODEL = "platform";
+	// Replies waiting to be written to each client, and how long (ms) a handler waits for room
+	// before a client that cannot keep up is disconnected.
+	// Can be overridden at startup with -Dbistro.outbound.queue=<n> and -Dbistro.outbound.timeout=<ms>
+	private static final int DEFAULT_OUTBOUND_QUEUE = 256;
+	private static final int DEFAULT_OUTBOUND_TIMEOUT_MS = 2000;
+	// Requests waiting to be handled for each client; a client sending more stops being read
+	// (socket transport) or is disconnected (nio). Can be overridden with -Dbistro.inbound.queue=<n>
+	private static final int DEFAULT_INBOUND_QUEUE = 256;
+	// Messages between resets of each client's object stream (1 = every reply is sent in full).
+	// Can be overridden at startup with -Dbistro.output.reset=<n>
+	private static final int DEFAULT_OUTPUT_RESET_INTERVAL = 1;
+	// Largest list sent in one reply to clients accepting chunked replies (0 = never chunk).
+	// Can be overridden at startup with -Dbistro.chunk.size=<items>
+	private static final int DEFAULT_CHUNK_SIZE = 200;
+	// Storage backend: "jdbc" (MySQL) or "memory" (in-process, for load tests; data is lost on exit).
+	// Can be overridden at startup with -Dbistro.storage=memory
+	private static final String DEFAULT_STORAGE = "jdbc";
+	// Threads handling report requests, with the REPORTING connection pool, so that no more reports
+	// than this run at once; the client's later requests wait in its queue, keeping them in order.
+	// Can be overridden at startup with -Dbistro.reports.threads=<n>
+	private static final int DEFAULT_REPORTING_THREADS = 2;
+	// Threads running the read-only requests of batches in parallel, shared by all clients.
+	// Can be overridden at startup with -Dbistro.batch.threads=<n>
+	private static final int DEFAULT_BATCH_THREADS = 4;
+	private final int chunkSize;
+	
+	// Request handled by the current dispatch thread, so that its replies echo its requestId
+	private final ThreadLocal<HandledRequest> handledRequest = new ThreadLocal<>();
+	
 	// Scheduler for background tasks:
 	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 	// Scheduler used to run monthly report generation checks once per day.
-	private final ScheduledExecutorService monthlyReportsScheduler = Executors.newScheduledThreadPool(1);
+	private final ScheduledExecutorService monthlyReportsScheduler = Executors.newScheduledThreadPool(1,
+			Workload.REPORTING.threadFactory("bistro-monthly-reports-"));
+	// Executor running the requests of REPORTING routes
+	private final ExecutorService reportingExecutor = Executors.newFixedThreadPool(
+			Math.max(1, Integer.getInteger("bistro.reports.threads", DEFAULT_REPORTING_THREADS)),
+			Workload.REPORTING.threadFactory("bistro-reports-"));
 	
 	// ******************************** Constructors***********************************
 
@@ -66,9 +117,19 @@ public class BistroServer extends AbstractServer {
 	 */
 	private BistroServer(int port, ServerConsoleController serverConsoleController) {
 		super(port);
-		this.dbController = BistroDataBase_Controller.getInstance();
-		this.router = new ServerRouter();
+		setDispatchThreads(Integer.getInteger("bistro.dispatch.threads", DEFAULT_DISPATCH_THREADS));
+		setNioTransport("nio".equalsIgnoreCase(System.getProperty("bistro.transport", DEFAULT_TRANSPORT)));
+		setIoThreads(Integer.getInteger("bistro.io.threads", DEFAULT_IO_THREADS));
+		setVirtualThreads("virtual".equalsIgnoreCase(System.getProperty("bistro.threads", DEFAULT_THREAD_MODEL)));
+		setOutboundQueueCapacity(Integer.getInteger("bistro.outbound.queue", DEFAULT_OUTBOUND_QUEUE));
+		setOutboundTimeout(Integer.getInteger("bistro.outbound.timeout", DEFAULT_OUTBOUND_TIMEOUT_MS));
+		setInboundQueueCapacity(Integer.getInteger("bistro.inbound.queue", DEFAULT_INBOUND_QUEUE));
+		setOutputResetInterval(Integer.getInteger("bistro.output.reset", DEFAULT_OUTPUT_RESET_INTERVAL));
+		this.chunkSize = Integer.getInteger("bistro.chunk.size", DEFAULT_CHUNK_SIZE);
+		this.dbController = newStorage(System.getProperty("bistro.storage", DEFAULT_STORAGE));
 		this.logger = new ServerLogger(serverConsoleController);
+		this.router = new ServerRouter(this.logger);
+		this.router.setBatchExecutor(newBatchExecutor());
 		this.dbController.setLogger(this.logger);
 		// Initialize services:
 		this.userService = new UserService(this.dbController, this.logger);
@@ -76,11 +137,15 @@ public class BistroServer extends AbstractServer {
 		this.noShowManager = new NoShowManager(this.dbController, this.logger);
 		this.notificationService = new NotificationService(this.dbController, this.logger);
 		this.restaurantManagmentService = new RestaurantManagmentService(this.dbController, this.logger);
-		this.ordersService = new OrdersService(this, this.dbController,this.logger);
-		this.tableService = new TableService(this.dbController, this.logger, this.ordersService, this.notificationService);
+		this.changePublisher = new ChangePublisher(this, this.dbController, this.logger);
+		this.ordersService = new OrdersService(this, this.dbController,this.logger, this.changePublisher);
+		this.tableService = new TableService(this.dbController, this.logger, this.ordersService, this.notificationService,
+				this.changePublisher);
 		this.paymentService = new PaymentService(this.dbController, this.logger, this.tableService);
-		this.waitingListService = new WaitingListService(this.dbController,this.logger,this.ordersService,this.tableService, this.userService);
+		this.waitingListService = new WaitingListService(this.dbController,this.logger,this.ordersService,this.tableService, this.userService,
+				this.changePublisher);
 		this.ordersService.setTableService(this.tableService);
+		this.noShowManager.setOrdersService(this.ordersService);
 		// Register API subjects
 		registerHandlers(this.router, this.dbController, this.logger);
 	}
@@ -104,11 +169,11 @@ public class BistroServer extends AbstractServer {
 	// *************************************Getters and Setters***************************************
 
 	/**
-	 * Getter for the BistroDataBase_Controller associated with this server.
+	 * Getter for the storage backend associated with this server.
 	 * 
-	 * @return The BistroDataBase_Controller instance.
+	 * @return The BistroStorage instance.
 	 */
-	public BistroDataBase_Controller getDBController() {
+	public BistroStorage getDBController() {
 		return this.dbController;
 	}
 
@@ -132,21 +197,205 @@ public class BistroServer extends AbstractServer {
 	 */
 	@Override
 	protected void handleMessageFromClient(Object obj, ConnectionToClient client) {
+		if (obj instanceof byte[]) { // Encoded with the codec negotiated on connect
+			MessageCodec codec = getCodec(client);
+			if (codec == null) {
+				logger.log("[WARN] Encoded message from " + client + " before a codec was negotiated");
+				return;
+			}
+			try {
+				obj = codec.decode((byte[]) obj);
+			} catch (IOException e) {
+				logger.log("[ERROR] Could not decode message from " + client + ": " + e.getMessage());
+				return;
+			}
+		}
 		if (!(obj instanceof Message)) { // Validate message type
 			return;
 		}
 		Message msg = (Message) obj;
 		logger.log("Received message: " + msg.getId() + " from " + client);
+		if (router.workloadOf(msg) == Workload.REPORTING) {
+			dispatchReport(msg, client);
+			return;
+		}
+		dispatch(msg, client);
+	}
+
+	/**
+	 * Runs a report request on the reporting threads. The client's next requests
+	 * wait in its queue until the report is done, so they are still handled in
+	 * the order they were sent, while the dispatch thread goes back to serving
+	 * other clients. Without dispatch threads the report is waited for here.
+	 * 
+	 * @param msg The message received from the client.
+	 * 
+	 * @param client The connection to the client that sent the message.
+	 */
+	private void dispatchReport(Message msg, ConnectionToClient client) {
+		CompletableFuture<Void> report = CompletableFuture.runAsync(() -> dispatch(msg, client), reportingExecutor)
+				.whenComplete((ignored, e) -> {
+					if (e != null) {
+						logger.log("[ERROR] Report request " + msg.getId() + " failed: " + e);
+					}
+				});
+		if (client.suspendDispatchUntil(report)) {
+			return;
+		}
+		try {
+			report.join();
+		} catch (CompletionException | CancellationException e) {
+			// Already logged
+		}
+	}
+
+	/**
+	 * Dispatches a decoded message to its handler, on the current thread.
+	 * 
+	 * @param msg The message received from the client.
+	 * 
+	 * @param client The connection to the client that sent the message.
+	 */
+	private void dispatch(Message msg, ConnectionToClient client) {
+		handledRequest.set(new HandledRequest(client, msg.getRequestId()));
 		try { // Dispatch message to appropriate handler
 			boolean handled = router.dispatch(msg, client);
 			if (!handled) { // Unknown command
-				client.sendToClient(new Message(Api.REPLY_UNKNOWN_COMMAND, msg.getId()));
+				client.sendToClient(new Message(Api.REPLY_UNKNOWN_COMMAND, msg.getId(), msg.getRequestId()));
 				logger.log("Unknown command: " + msg.getId());
 			}
 
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			handledRequest.remove();
+		}
+	}
+
+	/**
+	 * Lets the router take the replies of batched requests, so that they are
+	 * answered together, and streams large list replies in chunks to the
+	 * clients that accept them.
+	 * 
+	 * @param msg The message being sent.
+	 * 
+	 * @param client The connection to the client.
+	 * 
+	 * @return true if the message was taken and must not be sent as is.
+	 */
+	@Override
+	protected boolean captureMessageToClient(Object msg, ConnectionToClient client) throws IOException {
+		return router.captureReply(msg, client) || sendInChunks(msg, client);
+	}
+
+	/**
+	 * Sends a reply holding a list longer than the chunk size as a sequence
+	 * of Api.REPLY_LIST_CHUNK pages, so the client can show the first rows
+	 * while the rest is still on its way.
+	 * 
+	 * @param msg The message being sent.
+	 * 
+	 * @param client The connection to the client.
+	 * 
+	 * @return true if the message was sent in chunks.
+	 */
+	private boolean sendInChunks(Object msg, ConnectionToClient client) throws IOException {
+		if (chunkSize <= 0 || !(msg instanceof Message reply) || !(reply.getData() instanceof ArrayList<?> list)
+				|| list.size() <= chunkSize || client.getInfo(ServerConnectionSubject.CHUNKED_INFO) == null) {
+			return false;
+		}
+		HandledRequest request = handledRequest.get();
+		if (request == null || request.client != client || !reply.hasGeneratedRequestId()) {
+			return false; // Not a reply to a request
+		}
+		for (int from = 0; from < list.size(); from += chunkSize) {
+			int to = Math.min(list.size(), from + chunkSize);
+			ListChunk chunk = new ListChunk(reply.getId(), from / chunkSize, to == list.size(), list.size(),
+					new ArrayList<>(list.subList(from, to)));
+			client.sendToClient(new Message(Api.REPLY_LIST_CHUNK, chunk, request.requestId));
+		}
+		return true;
+	}
+
+	/**
+	 * Tags replies with the requestId of the request being handled, then encodes
+	 * them with the codec negotiated by the client, if any.
+	 * A message sent to the requesting client while its request is handled, and
+	 * created without an explicit requestId, is a reply to that request.
+	 * 
+	 * @param msg The message to send.
+	 * 
+	 * @param client The connection to the client.
+	 * 
+	 * @return The encoded bytes, or the message itself for Java serialization.
+	 */
+	@Override
+	protected Object encodeMessageToClient(Object msg, ConnectionToClient client) throws IOException {
+		HandledRequest request = handledRequest.get();
+		if (request != null && request.client == client && msg instanceof Message reply
+				&& reply.hasGeneratedRequestId()) {
+			msg = reply.withRequestId(request.requestId);
+		}
+		MessageCodec codec = getCodec(client);
+		if (codec != null && msg instanceof Message) {
+			return codec.encode((Message) msg);
 		}
+		return msg;
+	}
+
+	/**
+	 * Returns the codec negotiated by a client, or null for Java serialization.
+	 * 
+	 * @param client The connection to the client.
+	 * 
+	 * @return The codec of the connection.
+	 */
+	private static MessageCodec getCodec(ConnectionToClient client) {
+		Object name = client.getInfo(ServerConnectionSubject.CODEC_INFO);
+		return name == null ? null : MessageCodec.forName((String) name);
+	}
+
+	/**
+	 * Creates the executor running the read-only requests of a batch in
+	 * parallel: a virtual thread per request in virtual mode, otherwise a
+	 * fixed pool of daemon threads.
+	 * 
+	 * @return The batch executor.
+	 */
+	private ExecutorService newBatchExecutor() {
+		if (isVirtualThreads()) {
+			return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bistro-batch-", 0).factory());
+		}
+		return Executors.newFixedThreadPool(Math.max(1, Integer.getInteger("bistro.batch.threads", DEFAULT_BATCH_THREADS)),
+				Thread.ofPlatform().name("bistro-batch-", 0).daemon().factory());
+	}
+
+	/**
+	 * Creates the storage backend: the MySQL database controller, or an
+	 * in-memory storage seeded with default tables and opening hours.
+	 * 
+	 * @param kind "jdbc" or "memory".
+	 * 
+	 * @return The storage backend.
+	 */
+	private static BistroStorage newStorage(String kind) {
+		if ("memory".equalsIgnoreCase(kind)) {
+			InMemoryStorage storage = new InMemoryStorage();
+			storage.seedDefaults();
+			return storage;
+		}
+		return BistroDataBase_Controller.getInstance();
+	}
+
+	/**
+	 * Method called when a client connects: until it negotiates a codec, the
+	 * objects it sends may only be of the classes messages are made of.
+	 * 
+	 * @param client The connection to the client.
+	 */
+	@Override
+	protected void clientConnected(ConnectionToClient client) {
+		client.setInputFilter(MessageCodec.MESSAGE_CLASSES);
 	}
 
 	/**
@@ -154,6 +403,9 @@ public class BistroServer extends AbstractServer {
 	 */
 	protected void serverStarted() {
 		logger.log("Server started, listening for connections on port " + getPort());
+		logger.log("Client messages handled by " + (isVirtualThreads() ? "virtual threads"
+				: getDispatchThreads() > 0 ? getDispatchThreads() + " dispatch threads" : "a single thread")
+				+ (isNioTransport() ? " over the NIO transport" : ""));
 		boolean isConnectToDB = dbController.openConnection();
 		if (isConnectToDB) {
 			logger.log("Connected to database successfully");
@@ -185,12 +437,39 @@ public class BistroServer extends AbstractServer {
 		logger.log("Number of connected clients: " + clientList.length);
 		// Display each client's information
 		for (Thread client : clientList) {
-			logger.log("Client: " + client.toString());
+			ConnectionToClient connection = (ConnectionToClient) client;
+			logger.log("Client: " + connection + " | queued replies: " + connection.getOutboundQueueDepth()
+					+ " | bytes sent: " + connection.getBytesWritten());
 		}
 	}
 
+	/**
+	 * Method to display the state of the connection pools and the queries that
+	 * took the most time on the server console.
+	 * 
+	 * @param limit The number of queries to display.
+	 */
+	public void showTopQueries(int limit) {
+		logger.log(dbController.getPoolStats());
+		logger.log(dbController.getTopQueries(limit));
+	}
+
 	// ****************************** Instance methods ******************************
 	
+	/**
+	 * A request being handled on a dispatch thread: the client that sent it and
+	 * the requestId its replies echo.
+	 */
+	private static final class HandledRequest {
+		private final ConnectionToClient client;
+		private final String requestId;
+
+		HandledRequest(ConnectionToClient client, String requestId) {
+			this.client = client;
+			this.requestId = requestId;
+		}
+	}
+	
 	/**
 	 * Registers API subjects and their handlers with the router.
 	 * 
@@ -200,7 +479,7 @@ public class BistroServer extends AbstractServer {
 	 * 
 	 * @param logger       The server logger for logging events.
 	 */
-	private void registerHandlers(ServerRouter router, BistroDataBase_Controller dbController, ServerLogger logger) {
+	private void registerHandlers(ServerRouter router, BistroStorage dbController, ServerLogger logger) {
 		// Register API subjects
 		ServerConnectionSubject.register(router, logger);
 		ServerUserSubject.register(router,userService, logger);
@@ -210,6 +489,8 @@ public class BistroServer extends AbstractServer {
 		ServerReportsSubject.register(router, reportService, logger);
 		ServerPaymentSubject.register(router, tableService, logger, paymentService);
 		ServerRestaurantManageSubject.register(router, logger, restaurantManagmentService);
+		ServerSubscriptionSubject.register(router, this, logger);
+		ServerAdminSubject.register(router, logger);
 	}
 	
 	// ******************************** Getters for Services ********************************
@@ -0,0 +1,96 @@
+package logic;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Workload classes of the server. Each class has its own database connection
+ * pool and its own threads, so that a slow report or a sweep over all orders
+ * cannot take the connections that check-in and booking are waiting for.
+ *
+ * The workload of a thread is set by the thread factory of its executor, by
+ * the route being handled, or around a single call with {@link #call}. Threads
+ * that were not tagged are INTERACTIVE.
+ */
+public enum Workload {
+
+	/** Requests a user is waiting for: login, booking, check-in, seating, payment */
+	INTERACTIVE,
+	/** Periodic sweeps: reminders and no-show detection */
+	BACKGROUND,
+	/** Report aggregation, on request or scheduled */
+	REPORTING;
+
+	private static final ThreadLocal<Workload> current = new ThreadLocal<>();
+
+	/**
+	 * Gets the workload of the current thread.
+	 *
+	 * @return the workload, INTERACTIVE if the thread was not tagged
+	 */
+	public static Workload current() {
+		Workload workload = current.get();
+		return workload == null ? INTERACTIVE : workload;
+	}
+
+	/**
+	 * Makes this the workload of the current thread until {@link #restore}.
+	 *
+	 * @return the previous workload of the thread, to pass to restore
+	 */
+	public Workload enter() {
+		Workload previous = current.get();
+		current.set(this);
+		return previous;
+	}
+
+	/**
+	 * Gives the current thread back the workload it had before enter().
+	 *
+	 * @param previous the value returned by enter()
+	 */
+	public static void restore(Workload previous) {
+		if (previous == null) {
+			current.remove();
+		} else {
+			current.set(previous);
+		}
+	}
+
+	/**
+	 * Runs work as this workload on the current thread.
+	 *
+	 * @param work the work to run
+	 * @return the result of the work
+	 */
+	public <T> T call(Supplier<T> work) {
+		Workload previous = enter();
+		try {
+			return work.get();
+		} finally {
+			restore(previous);
+		}
+	}
+
+	/**
+	 * Creates a factory of daemon threads tagged with this workload.
+	 *
+	 * @param prefix the thread name prefix, followed by a counter
+	 * @return the thread factory
+	 */
+	public ThreadFactory threadFactory(String prefix) {
+		ThreadFactory threads = Thread.ofPlatform().name(prefix, 0).daemon().factory();
+		return task -> threads.newThread(() -> {
+			current.set(this);
+			task.run();
+		});
+	}
+
+	/**
+	 * Gets the lower-case name used in system properties and pool names.
+	 */
+	public String key() {
+		return name().toLowerCase();
+	}
+}
+// End of Workload.java
@@ -0,0 +1,104 @@
+package logic.api;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ * Latencies are recorded in microseconds: values below 2^SUB_BITS each get
+ * their own bucket, larger values share a bucket with the values of the same
+ * power of two and the same top SUB_BITS bits, so every bucket is within
+ * 1/2^SUB_BITS (about 3%) of the values it holds. Recording is a bucket
+ * index computation and one atomic increment.
+ */
+public class LatencyHistogram {
+
+    /** Bits of precision kept below the highest set bit */
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /** Buckets up to 2^40 us (about 12 days), larger values go to the last bucket */
+    private static final int MAX_MAGNITUDE = 40;
+    private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(bucketOf(micros));
+        max.accumulate(micros);
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Gets a percentile of the recorded latencies, as the upper bound of the
+     * bucket holding it and never above the largest recorded latency.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency in microseconds, 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    /**
+     * Gets the largest recorded latency in microseconds.
+     */
+    public long maxMicros() {
+        return max.get();
+    }
+
+    /**
+     * Gets the bucket of a latency.
+     */
+    private static int bucketOf(long micros) {
+        if (micros < SUB_COUNT) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros); // >= SUB_BITS
+        if (magnitude > MAX_MAGNITUDE) return BUCKETS - 1;
+        int sub = (int) (micros >>> (magnitude - SUB_BITS)) - SUB_COUNT; // top bits below the highest one
+        return (magnitude - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Gets the largest latency held by a bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        if (bucket == BUCKETS - 1) return Long.MAX_VALUE;
+        int magnitude = bucket / SUB_COUNT - 1 + SUB_BITS;
+        long sub = bucket % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << (magnitude - SUB_BITS)) - 1;
+    }
+}
@@ -1,27 +1,111 @@
 package logic.api;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+import comms.Api;
+import comms.ApiOpcodes;
 import comms.Message;
+import dto.RouteStats;
+import logic.ServerLogger;
+import logic.Workload;
 import ocsf.server.ConnectionToClient;
 
 /**
  * Routes messages based on the format: {@code subject.action}.
+ * Routes are compiled at registration into one table keyed by the full message
+ * id, so a message is dispatched with a single lookup. Every route counts its
+ * calls and errors and records the latency of its handler;
+ * {@link #getRouteStats()} reads them back with the opcode of each id (see
+ * {@link ApiOpcodes}).
+ * Each route belongs to a {@link Workload}, which is the workload of the
+ * thread while its handler runs; see {@link #workloadOf(Message)}.
+ * Also executes {@link Api#ASK_BATCH} envelopes: the requests of a batch are
+ * dispatched to their handlers, the replies the handlers send are captured
+ * and answered together in one {@link Api#REPLY_BATCH_OK} message. Routes
+ * registered with {@link #onRead} only read, so consecutive batched requests
+ * to them may run in parallel.
  */
 public class ServerRouter {
 
-    /** Maps subjects to their action handlers */
-    private final Map<String, Map<String, ServerHandler>> routes = new HashMap<>();
+    /** Largest number of requests accepted in one batch */
+    public static final int MAX_BATCH_SIZE = 32;
+
+    /** Maps full message ids to their routes */
+    private final Map<String, Route> routes = new HashMap<>();
+
+    /** Messages no route was registered for */
+    private final LongAdder unknownCommands = new LongAdder();
+
+    /** Route call in progress on the current thread, to count its failure replies */
+    private static final ThreadLocal<RouteCall> currentCall = new ThreadLocal<>();
+
+    /** Replies captured for the batched request handled by the current thread */
+    private final ThreadLocal<BatchCapture> batchCapture = new ThreadLocal<>();
+
+    /** Runs the read-only requests of a batch in parallel, null to run them in order */
+    private volatile Executor batchExecutor;
+
+    private final ServerLogger logger;
+
+    public ServerRouter(ServerLogger logger) {
+        this.logger = logger;
+        addRoute("batch", "execute", Workload.INTERACTIVE, false, this::dispatchBatch);
+    }
 
     /**
-     * Registers a handler for a subject and action.
+     * Registers an interactive handler for a subject and action.
      */
     public void on(String subject, String action, ServerHandler handler) {
-        if (!routes.containsKey(subject)) {
-            routes.put(subject, new HashMap<>());
-        }
-        routes.get(subject).put(action, handler);
+        on(subject, action, Workload.INTERACTIVE, false, handler);
+    }
+
+    /**
+     * Registers a handler for a subject and action, run as the given workload.
+     */
+    public void on(String subject, String action, Workload workload, ServerHandler handler) {
+        on(subject, action, workload, false, handler);
+    }
+
+    /**
+     * Registers an interactive handler that only reads, so that batched
+     * requests to it may run in parallel with the reads next to them.
+     */
+    public void onRead(String subject, String action, ServerHandler handler) {
+        on(subject, action, Workload.INTERACTIVE, true, handler);
+    }
+
+    /**
+     * Registers a handler for a subject and action, run as the given workload.
+     *
+     * @param readOnly true if the handler changes nothing, so that it may run
+     *        in parallel with other reads of the same batch
+     */
+    public void on(String subject, String action, Workload workload, boolean readOnly, ServerHandler handler) {
+        addRoute(subject, action, workload, readOnly, handler);
+    }
+
+    private void addRoute(String subject, String action, Workload workload, boolean readOnly, ServerHandler handler) {
+        String id = action.isEmpty() ? subject : subject + "." + action;
+        Route route = new Route(id, ApiOpcodes.opcodeOf(id), workload, readOnly, handler);
+        routes.put(id, route);
+    }
+
+    /**
+     * Sets the executor running the requests of a batch in parallel.
+     *
+     * @param batchExecutor the executor, or null to run batched requests one by one
+     */
+    public void setBatchExecutor(Executor batchExecutor) {
+        this.batchExecutor = batchExecutor;
     }
 
     /**
@@ -32,16 +116,229 @@ public class ServerRouter {
     public boolean dispatch(Message msg, ConnectionToClient client) throws Exception {
         if (msg == null || msg.getId() == null) return false;
 
-        String[] parts = msg.getId().split("\\.", 2);
-        String subject = parts[0];
-        String action  = (parts.length == 2) ? parts[1] : "";
+        Route route = routes.get(msg.getId());
+        if (route == null) {
+            unknownCommands.increment();
+            return false;
+        }
+        route.handle(msg, client);
+        return true;
+    }
 
-        if (!routes.containsKey(subject)) return false;
+    /**
+     * Gets the workload of the route a message is dispatched to, so that the
+     * server can hand it to the threads of that workload.
+     *
+     * @return the workload, INTERACTIVE for unknown messages
+     */
+    public Workload workloadOf(Message msg) {
+        Route route = msg == null || msg.getId() == null ? null : routes.get(msg.getId());
+        return route == null ? Workload.INTERACTIVE : route.workload;
+    }
 
-        Map<String, ServerHandler> handlers = routes.get(subject);
-        if (!handlers.containsKey(action)) return false;
+    /**
+     * Reads the counters and latency percentiles of every route, sorted by id.
+     * Messages without a route are reported under {@link Api#REPLY_UNKNOWN_COMMAND}.
+     *
+     * @return one RouteStats per route
+     */
+    public ArrayList<RouteStats> getRouteStats() {
+        List<Route> sorted = new ArrayList<>(routes.values());
+        sorted.sort(Comparator.comparing(route -> route.id));
+        ArrayList<RouteStats> stats = new ArrayList<>(sorted.size() + 1);
+        for (Route route : sorted) {
+            stats.add(new RouteStats(route.id, route.opcode, route.calls.sum(), route.errors.sum(),
+                    route.latency.percentile(50), route.latency.percentile(99), route.latency.maxMicros()));
+        }
+        stats.add(new RouteStats(Api.REPLY_UNKNOWN_COMMAND, ApiOpcodes.opcodeOf(Api.REPLY_UNKNOWN_COMMAND),
+                unknownCommands.sum(), 0, 0, 0, 0));
+        return stats;
+    }
 
-        handlers.get(action).handle(msg, client);
+    /**
+     * Takes a reply sent while a batched request is handled on this thread,
+     * so that it is answered with the rest of the batch.
+     * Messages with an explicit requestId (such as pushes) are not replies
+     * and are left to be sent normally. A {@code .fail} reply also marks the
+     * route being handled on this thread as failed.
+     *
+     * @param msg the message being sent
+     * @param client the client it is sent to
+     * @return true if the message was captured and must not be sent
+     */
+    public boolean captureReply(Object msg, ConnectionToClient client) {
+        RouteCall call = currentCall.get();
+        if (call != null && msg instanceof Message sent && sent.getId() != null && sent.getId().endsWith(".fail")) {
+            call.failed = true;
+        }
+        BatchCapture capture = batchCapture.get();
+        if (capture == null || capture.client != client || !(msg instanceof Message reply)
+                || !reply.hasGeneratedRequestId()) {
+            return false;
+        }
+        capture.replies.add(reply.withRequestId(capture.requestId));
         return true;
     }
+
+    /**
+     * Executes a batch and answers with all the replies, in the order of the
+     * requests. Requests run in their batch order, so that a request may rely
+     * on any earlier one; only a run of consecutive requests to read-only
+     * routes is run in parallel, and the requests after it wait for it.
+     */
+    private void dispatchBatch(Message batch, ConnectionToClient client) throws IOException {
+        if (!(batch.getData() instanceof List<?> data) || data.isEmpty() || data.size() > MAX_BATCH_SIZE) {
+            client.sendToClient(new Message(Api.REPLY_BATCH_FAIL, "A batch holds 1 to " + MAX_BATCH_SIZE + " requests"));
+            return;
+        }
+        List<Message> requests = new ArrayList<>(data.size());
+        for (Object request : data) {
+            if (!(request instanceof Message) || ((Message) request).getId() == null) {
+                client.sendToClient(new Message(Api.REPLY_BATCH_FAIL, "A batch holds messages only"));
+                return;
+            }
+            requests.add((Message) request);
+        }
+
+        AtomicReferenceArray<List<Message>> replies = new AtomicReferenceArray<>(requests.size());
+        Executor executor = batchExecutor;
+        int start = 0;
+        while (start < requests.size()) {
+            int end = start + 1;
+            if (executor != null && isReadOnly(requests.get(start))) {
+                while (end < requests.size() && isReadOnly(requests.get(end))) {
+                    end++;
+                }
+            }
+            runSpan(start, end, requests, replies, client, executor);
+            start = end;
+        }
+
+        ArrayList<Message> combined = new ArrayList<>();
+        for (int i = 0; i < replies.length(); i++) {
+            combined.addAll(replies.get(i));
+        }
+        client.sendToClient(new Message(Api.REPLY_BATCH_OK, combined));
+    }
+
+    /**
+     * Runs the batched requests from index {@code from} to {@code to}
+     * (excluded) and waits for all of them: the first on this thread, the
+     * others, which are then all reads, on the executor.
+     */
+    private void runSpan(int from, int to, List<Message> requests, AtomicReferenceArray<List<Message>> replies,
+            ConnectionToClient client, Executor executor) {
+        CompletableFuture<?>[] running = new CompletableFuture<?>[to - from - 1];
+        for (int i = from + 1; i < to; i++) {
+            int index = i;
+            running[i - from - 1] = CompletableFuture.runAsync(
+                    () -> replies.set(index, dispatchCaptured(requests.get(index), client)), executor);
+        }
+        replies.set(from, dispatchCaptured(requests.get(from), client));
+        CompletableFuture.allOf(running).join();
+    }
+
+    /**
+     * Checks whether a batched request goes to a read-only route.
+     */
+    private boolean isReadOnly(Message request) {
+        Route route = routes.get(request.getId());
+        return route != null && route.readOnly;
+    }
+
+    /**
+     * Dispatches one batched request and returns the replies its handler sent.
+     * A handler that throws is answered with a {@code <id>.fail} reply, so
+     * that every request of the batch gets an answer.
+     */
+    private List<Message> dispatchCaptured(Message request, ConnectionToClient client) {
+        BatchCapture capture = new BatchCapture(client, request.getRequestId());
+        batchCapture.set(capture);
+        try {
+            // Batches are not nested
+            if (Api.ASK_BATCH.equals(request.getId()) || !dispatch(request, client)) {
+                capture.replies.add(new Message(Api.REPLY_UNKNOWN_COMMAND, request.getId(), request.getRequestId()));
+            }
+        } catch (Exception e) {
+            logger.log("[ERROR] Batched request " + request.getId() + " failed: " + e);
+            capture.replies.add(new Message(request.getId() + ".fail", "Request failed", request.getRequestId()));
+        } finally {
+            batchCapture.remove();
+        }
+        return capture.replies;
+    }
+
+    /**
+     * A registered handler with its counters and latency histogram.
+     */
+    private static final class Route {
+        private final String id;
+        private final int opcode;
+        private final Workload workload;
+        private final boolean readOnly;
+        private final ServerHandler handler;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Route(String id, int opcode, Workload workload, boolean readOnly, ServerHandler handler) {
+            this.id = id;
+            this.opcode = opcode;
+            this.workload = workload;
+            this.readOnly = readOnly;
+            this.handler = handler;
+        }
+
+        /**
+         * Runs the handler, counting the call and recording its latency.
+         * A handler that throws or answers with a {@code .fail} reply is
+         * counted as an error; exceptions are rethrown.
+         */
+        private void handle(Message msg, ConnectionToClient client) throws Exception {
+            RouteCall outer = currentCall.get();
+            RouteCall call = new RouteCall();
+            currentCall.set(call);
+            Workload previous = workload.enter();
+            long start = System.nanoTime();
+            try {
+                handler.handle(msg, client);
+            } catch (Exception | Error e) {
+                call.failed = true;
+                throw e;
+            } finally {
+                latency.record(System.nanoTime() - start);
+                Workload.restore(previous);
+                calls.increment();
+                if (call.failed) {
+                    errors.increment();
+                }
+                if (outer == null) {
+                    currentCall.remove();
+                } else {
+                    currentCall.set(outer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcome of the route call running on a thread.
+     */
+    private static final class RouteCall {
+        private boolean failed;
+    }
+
+    /**
+     * Replies sent to a client while one of its batched requests is handled.
+     */
+    private static final class BatchCapture {
+        private final ConnectionToClient client;
+        private final String requestId;
+        private final List<Message> replies = new ArrayList<>();
+
+        private BatchCapture(ConnectionToClient client, String requestId) {
+            this.client = client;
+            this.requestId = requestId;
+        }
+    }
 }
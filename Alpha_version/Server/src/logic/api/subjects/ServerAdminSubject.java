@@ -0,0 +1,36 @@
+package logic.api.subjects;
+
+import comms.Api;
+import comms.Message;
+import entities.User;
+import enums.UserType;
+import logic.ServerLogger;
+import logic.api.ServerRouter;
+
+/**
+ * API handlers for server administration, available to managers only.
+ */
+public final class ServerAdminSubject {
+
+    private ServerAdminSubject() {}
+
+    /**
+	 * Registers admin-related API endpoints to the server router.
+	 * @param router The server router to register endpoints with.
+	 * @param logger The server logger for logging events.
+	 */
+    public static void register(ServerRouter router, ServerLogger logger) {
+
+        // Handle request for the counters and latencies of every route
+        router.onRead("admin", "routeStats", (msg, client) -> {
+        	Object user = client.getInfo("user");
+        	if (user instanceof User manager && manager.getUserType() == UserType.MANAGER) {
+        		client.sendToClient(new Message(Api.REPLY_ROUTE_STATS_OK, router.getRouteStats()));
+        	} else {
+        		client.sendToClient(new Message(Api.REPLY_ROUTE_STATS_FAIL, "Route statistics are available to managers only"));
+        		logger.log("[WARN] " + client + " requested route statistics without a manager session");
+        	}
+        });
+    }
+}
+// End of ServerAdminSubject.java
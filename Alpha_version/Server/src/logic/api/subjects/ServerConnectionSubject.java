@@ -1,7 +1,11 @@
 package logic.api.subjects;
 
+import java.util.List;
+
 import comms.Api;
 import comms.Message;
+import comms.MessageCodec;
+import dto.ListChunk;
 import logic.api.ServerRouter;
 import logic.BistroDataBase_Controller;
 import logic.ServerLogger;
@@ -10,6 +14,10 @@ import logic.ServerLogger;
  * API handlers related to client connections.
  */
 public final class ServerConnectionSubject {
+	// Connection info key holding the codec name negotiated on connect
+	public static final String CODEC_INFO = "codec";
+	// Connection info key set when the client accepts chunked list replies
+	public static final String CHUNKED_INFO = "chunked";
 	// ******************************** Constructors***********************************
     private ServerConnectionSubject() {}
 	// ******************************** Static Methods***********************************
@@ -24,13 +32,26 @@ public final class ServerConnectionSubject {
     	// Handle client connection
         router.on("connection", "connect", (msg, client) -> {
         	logger.log("[INFO] Client connected: " + client);
-            client.sendToClient(new Message(Api.REPLY_CONNECTION_CONNECT_OK, null));
+        	// Clients offer the codecs and features they support, old clients send nothing
+        	List<?> offered = msg.getData() instanceof List<?> list ? list : null;
+        	String codec = MessageCodec.negotiate(offered);
+        	if (offered != null && offered.contains(ListChunk.CAPABILITY)) {
+        		client.setInfo(CHUNKED_INFO, Boolean.TRUE);
+        	}
+        	// Reply before switching so the client can read the chosen codec
+            client.sendToClient(new Message(Api.REPLY_CONNECTION_CONNECT_OK, codec));
+            if (!MessageCodec.JAVA.equals(codec)) {
+            	client.setInfo(CODEC_INFO, codec);
+            	client.setInputFilter(MessageCodec.ENCODED_FRAMES); // Only encoded messages from now on
+            	logger.log("[INFO] Client " + client + " uses the " + codec + " codec");
+            }
         });
         
 		// Handle client disconnection
         router.on("connection", "disconnect", (msg, client) -> {
         	logger.log("[INFO] Client disconnected: " + client);
             client.sendToClient(new Message(Api.REPLY_CONNECTION_DISCONNECT_OK, null));
+            client.flush(); // The reply may still be queued
             client.close();
         });
     }
@@ -9,6 +9,8 @@ import java.util.Map;
 
 import comms.Api;
 import comms.Message;
+import dto.Page;
+import dto.PageRequest;
 import entities.Order;
 import entities.User;
 import enums.OrderStatus;
@@ -80,7 +82,7 @@ public final class ServerOrdersSubject {
 		});
 
 		// Send Order by confirmation code
-		router.on("orders", "getOrder", (msg, client) -> {
+		router.onRead("orders", "getOrder", (msg, client) -> {
 			String confirmationCode = (String) msg.getData();
 			Order order = ordersService.getOrderByConfirmationCode(confirmationCode);
 			if (order != null) {
@@ -116,7 +118,7 @@ public final class ServerOrdersSubject {
 		});
 
 		// Send client order history
-		router.on("orders", "getClientHistory", (msg, client) -> {
+		router.onRead("orders", "getClientHistory", (msg, client) -> {
 			User sessionUser = (User) client.getInfo("user");
 			if (sessionUser != null) {
 				List<Order> history = ordersService.getClientHistory(sessionUser.getUserId());
@@ -128,7 +130,7 @@ public final class ServerOrdersSubject {
 		});
 
 		// Request: Get all active reservations for the logged-in member (for Check-In)
-		router.on("orders", "getMemberActiveReservations", (msg, client) -> {
+		router.onRead("orders", "getMemberActiveReservations", (msg, client) -> {
 			User sessionUser = (User) client.getInfo("user");
 
 			// Security Check
@@ -153,7 +155,7 @@ public final class ServerOrdersSubject {
 		});
 
 		// Send member history by member code (staff only)
-		router.on("orders", "getMemberHistory", (msg, client) -> {
+		router.onRead("orders", "getMemberHistory", (msg, client) -> {
 			User sessionUser = (User) client.getInfo("user");
 			if (sessionUser == null || (sessionUser.getUserType() != UserType.EMPLOYEE
 					&& sessionUser.getUserType() != UserType.MANAGER)) {
@@ -179,8 +181,43 @@ public final class ServerOrdersSubject {
 			}
 		});
 
+		// Send one page of the client's order history, keyset-paged
+		router.onRead("orders", "getClientHistoryPage", (msg, client) -> {
+			User sessionUser = (User) client.getInfo("user");
+			PageRequest request = (PageRequest) msg.getData();
+			if (sessionUser == null || request == null) {
+				client.sendToClient(new Message(Api.REPLY_CLIENT_ORDER_HISTORY_PAGE_OK,
+						new Page<Order>(new ArrayList<>(), request == null ? null : request.getAfter(), null, null)));
+				return;
+			}
+			Page<Order> page = ordersService.getClientHistoryPage(sessionUser.getUserId(), request);
+			if (page == null) {
+				page = new Page<>(new ArrayList<>(), request.getAfter(), null, null);
+			}
+			client.sendToClient(new Message(Api.REPLY_CLIENT_ORDER_HISTORY_PAGE_OK, page));
+		});
+
+		// Send one page of a member's order history by member code (staff only)
+		router.onRead("orders", "getMemberHistoryPage", (msg, client) -> {
+			User sessionUser = (User) client.getInfo("user");
+			if (sessionUser == null || (sessionUser.getUserType() != UserType.EMPLOYEE
+					&& sessionUser.getUserType() != UserType.MANAGER)) {
+				client.sendToClient(new Message(Api.REPLY_GET_MEMBER_HISTORY_PAGE_FAIL, "Unauthorized"));
+				logger.log("[SECURITY] Unauthorized member history access attempt from " + client);
+				return;
+			}
+			PageRequest request = (PageRequest) msg.getData();
+			Page<Order> page = request == null ? null : ordersService.getMemberHistoryPage(request);
+			if (page != null) {
+				client.sendToClient(new Message(Api.REPLY_GET_MEMBER_HISTORY_PAGE_OK, page));
+			} else {
+				client.sendToClient(new Message(Api.REPLY_GET_MEMBER_HISTORY_PAGE_FAIL, "Member not found"));
+				logger.log("[WARN] Member history page failed for " + request);
+			}
+		});
+
 		// Send available time slots for reservation
-		router.on("orders", "getAvailableHours", (msg, client) -> {
+		router.onRead("orders", "getAvailableHours", (msg, client) -> {
 			@SuppressWarnings("unchecked")
 			Map<String, Object> requestData = (Map<String, Object>) msg.getData();
 			List<String> availableHours = ordersService.getAvailableReservationHours(requestData);
@@ -231,7 +268,7 @@ public final class ServerOrdersSubject {
 		});
 
 		// Send all reservations for a specific date (staff only)
-		router.on("orders", "getOrdersByDate", (msg, client) -> {
+		router.onRead("orders", "getOrdersByDate", (msg, client) -> {
 			LocalDate date = (LocalDate) msg.getData();
 			List<Order> orders = ordersService.getStaffReservations(date);
 			client.sendToClient(new Message(Api.REPLY_GET_RESERVATIONS_BY_DATE_OK, orders));
@@ -239,7 +276,7 @@ public final class ServerOrdersSubject {
 		});
 
 		// Send available dates for reservation
-		router.on("orders", "getAvailableDates", (msg, client) -> {
+		router.onRead("orders", "getAvailableDates", (msg, client) -> {
 			int diners = (int) msg.getData();
 			List<LocalDate> availableDates = ordersService.getAvailableDates(diners);
 			if (availableDates != null) {
@@ -339,7 +376,7 @@ public final class ServerOrdersSubject {
 		});
 		
 		// Handler for Member Seated Reservations
-		router.on("orders", "getMemberSeatedReservations", (msg, client) -> {
+		router.onRead("orders", "getMemberSeatedReservations", (msg, client) -> {
 		    User sessionUser = (User) client.getInfo("user");
 		    if (sessionUser == null) {
 		        client.sendToClient(new Message(Api.REPLY_MEMBER_SEATED_RESERVATIONS_FAIL, null));
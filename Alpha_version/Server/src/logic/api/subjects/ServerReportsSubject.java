@@ -8,6 +8,7 @@ import entities.MonthlyReport;
 import entities.ReportRequest;
 import entities.User;
 import logic.ServerLogger;
+import logic.Workload;
 import logic.api.ServerRouter;
 import logic.services.ReportsService;
 
@@ -16,7 +17,7 @@ public class ServerReportsSubject {
     private ServerReportsSubject() {}
 
     /**
-	 * Registers the "reports" subject routes on the server router.
+	 * Registers the "reports" subject routes on the server router, as REPORTING routes.
 	 * @param router The server router to register the routes on.
 	 * @param reportsService The reports service to handle report-related operations.
 	 * @param logger The server logger for logging purposes.
@@ -24,7 +25,7 @@ public class ServerReportsSubject {
     public static void register(ServerRouter router, ReportsService reportsService, ServerLogger logger) {
 
     	// Route for listing available months for reports
-        router.on("reports", "listMonths", (msg, client) -> {
+        router.on("reports", "listMonths", Workload.REPORTING, true, (msg, client) -> {
             User sessionUser = (User) client.getInfo("user");
             if (sessionUser == null) {
                 client.sendToClient(new Message(Api.REPLY_REPORTS_LIST_MONTHS_FAIL, "Not logged in"));
@@ -41,7 +42,7 @@ public class ServerReportsSubject {
         });
 
         // Route for getting or generating a report
-        router.on("reports", "getOrGenerate", (msg, client) -> {
+        router.on("reports", "getOrGenerate", Workload.REPORTING, (msg, client) -> {
             User sessionUser = (User) client.getInfo("user");
             if (sessionUser == null) {
                 client.sendToClient(new Message(Api.REPLY_REPORTS_GET_OR_GENERATE_FAIL, "Not logged in"));
@@ -69,7 +69,7 @@ public class ServerRestaurantManageSubject {
 		});
 		
 		// Route for retrieving weekly hours
-		router.on("hours", "getWeeklyHours", (msg, client) -> {
+		router.onRead("hours", "getWeeklyHours", (msg, client) -> {
 			List<WeeklyHour> hours = restaurantService.getWeeklyHours();
 			if (hours == null) {
 				logger.log("Failed to retrieve weekly hours.");
@@ -81,7 +81,7 @@ public class ServerRestaurantManageSubject {
 		});
 		
 		// Route for retrieving holidays
-		router.on("hours", "getHolidays", (msg, client) -> {
+		router.onRead("hours", "getHolidays", (msg, client) -> {
 		    List<Holiday> holidays = restaurantService.getHolidays();
 		    if (holidays == null) {
 		        logger.log("Failed to retrieve holidays.");
@@ -0,0 +1,49 @@
+package logic.api.subjects;
+
+import comms.Api;
+import comms.Message;
+import dto.ChangeEvent;
+import logic.ServerLogger;
+import logic.api.ServerRouter;
+import ocsf.server.AbstractServer;
+
+/**
+ * API handlers for topic subscriptions. Subscribed clients receive
+ * Api.PUSH_CHANGE messages when the data behind the topic changes.
+ */
+public final class ServerSubscriptionSubject {
+
+    private ServerSubscriptionSubject() {}
+
+    /**
+	 * Registers subscription-related API endpoints to the server router.
+	 * @param router The server router to register endpoints with.
+	 * @param server The server holding the subscriptions.
+	 * @param logger The server logger for logging events.
+	 */
+    public static void register(ServerRouter router, AbstractServer server, ServerLogger logger) {
+
+        // Handle subscription to a topic
+        router.on("subscription", "subscribe", (msg, client) -> {
+        	Object topic = msg.getData();
+        	if (topic instanceof String name && ChangeEvent.isValidTopic(name)) {
+        		server.subscribe(client, name);
+        		client.sendToClient(new Message(Api.REPLY_SUBSCRIBE_OK, name));
+        		logger.log("[INFO] " + client + " subscribed to " + name);
+        	} else {
+        		client.sendToClient(new Message(Api.REPLY_SUBSCRIBE_FAIL, topic));
+        		logger.log("[WARN] " + client + " tried to subscribe to unknown topic " + topic);
+        	}
+        });
+
+        // Handle unsubscription from a topic
+        router.on("subscription", "unsubscribe", (msg, client) -> {
+        	Object topic = msg.getData();
+        	if (topic instanceof String name) {
+        		server.unsubscribe(client, name);
+        	}
+        	client.sendToClient(new Message(Api.REPLY_UNSUBSCRIBE_OK, topic));
+        });
+    }
+}
+// End of ServerSubscriptionSubject.java
@@ -26,7 +26,7 @@ public class ServerTablesSubject {
     public static void register(ServerRouter router, TableService tableService, ServerLogger logger) {
         
         // Handle request for table map status
-        router.on("tables", "getStatus", (msg, client) -> {
+        router.onRead("tables", "getStatus", (msg, client) -> {
             // Get data from Service
         	HashMap<Table,String> tables = tableService.getAllTablesMap();
             
@@ -52,7 +52,7 @@ public class ServerTablesSubject {
 		});
         
         // Handle request to get all tables
-        router.on("tables", "getAll", (msg, client) -> {
+        router.onRead("tables", "getAll", (msg, client) -> {
             List<Table> tables = tableService.getAllTables();
             client.sendToClient(new Message(Api.REPLY_ALL_TABLES_OK, tables)); 
         });
@@ -14,6 +14,8 @@ import logic.LoginAttemptTracker;
 import logic.ServerLogger;
 import logic.api.ServerRouter;
 import logic.services.UserService;
+import dto.Page;
+import dto.PageRequest;
 import dto.UserData;
 /**
  * ServerUserSubject handles user-related requests such as login, signout, member info update, and staff creation.
@@ -255,7 +257,7 @@ public final class ServerUserSubject {
 		});
 		
 		// Request: "customers.getalldata"
-		router.on("customers", "getalldata", (msg,client)->{
+		router.onRead("customers", "getalldata", (msg,client)->{
 			List<UserData> allCustomers = userService.getAllCustomers();
 			if(allCustomers != null) {
 				logger.log("[INFO] Sent all customer data to client: " + client);
@@ -265,6 +267,25 @@ public final class ServerUserSubject {
 					client.sendToClient(new Message(Api.REPLY_LOAD_CUSTOMERS_DATA_FAIL, null));
 				}
 		});
+
+		// Request: "customers.getPage", one keyset page of the customer directory (staff only)
+		router.onRead("customers", "getPage", (msg, client) -> {
+			User requester = (User) client.getInfo("user");
+			if (requester == null || (requester.getUserType() != UserType.EMPLOYEE
+					&& requester.getUserType() != UserType.MANAGER)) {
+				logger.log("[SECURITY] Unauthorized customer directory access attempt from " + client);
+				client.sendToClient(new Message(Api.REPLY_LOAD_CUSTOMERS_PAGE_FAIL, null));
+				return;
+			}
+			PageRequest request = (PageRequest) msg.getData();
+			Page<UserData> page = userService.getCustomersPage(request == null ? new PageRequest(null, 0) : request);
+			if (page != null) {
+				client.sendToClient(new Message(Api.REPLY_LOAD_CUSTOMERS_PAGE_OK, page));
+			} else {
+				logger.log("[ERROR] Failed to retrieve customer page for client: " + client);
+				client.sendToClient(new Message(Api.REPLY_LOAD_CUSTOMERS_PAGE_FAIL, null));
+			}
+		});
 	}
 }
 // End of ServerUserSubject.java
\ No newline at end of file
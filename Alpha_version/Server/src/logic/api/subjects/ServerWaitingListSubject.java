@@ -9,7 +9,7 @@ import dto.WaitListResponse;
 import entities.Order;
 import entities.User;
 import enums.OrderType;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.ServerLogger;
 import logic.api.ServerRouter;
 import logic.services.WaitingListService;
@@ -29,10 +29,10 @@ public class ServerWaitingListSubject {
 	 * Registers handlers related to waiting list operations.
 	 * 
 	 * @param router             The ServerRouter instance to register handlers with.
-	 * @param waitingListService The BistroDataBase_Controller instance for database operations.
+	 * @param waitingListService The BistroStorage instance for database operations.
 	 * @param logger             The ServerLogger instance for logging.
 	 */
-	public static void register(ServerRouter router,BistroDataBase_Controller dbController, WaitingListService waitingListService, ServerLogger logger) {
+	public static void register(ServerRouter router,BistroStorage dbController, WaitingListService waitingListService, ServerLogger logger) {
 		// 1. Check if user is in waiting list
 		router.on("waitinglist", "isInWaitingList", (msg, client) -> {
 			int userID = (int) msg.getData();
@@ -136,7 +136,7 @@ public class ServerWaitingListSubject {
 		});
 		
 		// 6. Get Current Waiting List (Staff)
-		router.on("waitinglist", "getAll", (msg, client) -> {
+		router.onRead("waitinglist", "getAll", (msg, client) -> {
 			List<Order> waitingList = waitingListService.getCurrentQueue();
 			if (waitingList != null) {
 				logger.log("[INFO] Sent current waiting list to client: " + client);
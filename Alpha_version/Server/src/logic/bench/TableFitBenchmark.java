@@ -0,0 +1,196 @@
+package logic.bench;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import logic.services.TableFit;
+
+/**
+ * Equivalence check and timing of TableFit against the TreeMap fit it
+ * replaced in OrdersService.
+ *
+ * Random cases of parties and tables are decided by both implementations and
+ * every disagreement is counted; a run with mismatches exits with status 1.
+ * Then the first cases are timed: the TreeMap fit from the lists, TableFit
+ * counting the lists into its per-thread arrays and fitting, and TableFit
+ * fitting counts built in advance. Sizes go from 1 to maxSize (at most
+ * TableFit.MAX_SIZE, beyond which TableFit treats parties as never fitting
+ * and tables as MAX_SIZE on purpose).
+ *
+ * Usage: java logic.bench.TableFitBenchmark [cases] [maxSize] [rounds]
+ * Defaults: 1,000,000 cases, sizes up to 12, 5 timed rounds over 200,000 cases.
+ */
+public final class TableFitBenchmark {
+
+	// ****************************** Constants ******************************
+	private static final long SEED = 1;
+	private static final int MAX_PARTIES = 15;
+	private static final int MAX_TABLES = 15;
+	private static final int TIMED_CASES = 200_000;
+
+	private TableFitBenchmark() {
+	}
+
+	// ****************************** Main ******************************
+
+	public static void main(String[] args) {
+		int cases = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int maxSize = args.length > 1 ? Math.min(TableFit.MAX_SIZE, Integer.parseInt(args[1])) : 12;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		Random random = new Random(SEED);
+		List<List<Integer>> timedParties = new ArrayList<>();
+		List<List<Integer>> timedTables = new ArrayList<>();
+		int mismatches = 0;
+		int fitting = 0;
+		for (int i = 0; i < cases; i++) {
+			List<Integer> parties = randomSizes(random, random.nextInt(MAX_PARTIES + 1), maxSize);
+			List<Integer> tables = randomSizes(random, 1 + random.nextInt(MAX_TABLES), maxSize);
+			boolean expected = treeMapFits(parties, tables);
+			if (expected != tableFitFits(parties, tables)) {
+				mismatches++;
+				if (mismatches <= 10) {
+					System.out.println("mismatch: parties=" + parties + " tables=" + tables + " expected=" + expected);
+				}
+			}
+			if (expected) {
+				fitting++;
+			}
+			if (i < TIMED_CASES) {
+				timedParties.add(parties);
+				timedTables.add(tables);
+			}
+		}
+		System.out.println("cases=" + cases + ", sizes 1.." + maxSize + ", fitting=" + fitting + ", mismatches="
+				+ mismatches);
+
+		System.out.printf("%-6s %14s %14s %14s%n", "round", "treemap ns", "tablefit ns", "fit only ns");
+		for (int round = 1; round <= rounds; round++) {
+			Timing t = time(timedParties, timedTables);
+			System.out.printf("%-6d %14.1f %14.1f %14.1f%n", round, t.treeMapNanos, t.tableFitNanos, t.fitOnlyNanos);
+		}
+		System.exit(mismatches == 0 ? 0 : 1);
+	}
+
+	// ****************************** Implementations ******************************
+
+	/**
+	 * The fit TableFit replaced: parties from the largest, each at the
+	 * smallest free table it fits, over a TreeMap of table counts.
+	 */
+	private static boolean treeMapFits(List<Integer> parties, List<Integer> tables) {
+		List<Integer> sorted = new ArrayList<>(parties);
+		sorted.sort(Comparator.reverseOrder());
+		TreeMap<Integer, Integer> free = new TreeMap<>();
+		for (int capacity : tables) {
+			free.merge(capacity, 1, Integer::sum);
+		}
+		for (int size : sorted) {
+			Integer table = free.ceilingKey(size);
+			if (table == null) {
+				return false;
+			}
+			int left = free.get(table);
+			if (left == 1) {
+				free.remove(table);
+			} else {
+				free.put(table, left - 1);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * TableFit from the lists, the way OrdersService counts a slot.
+	 */
+	private static boolean tableFitFits(List<Integer> parties, List<Integer> tables) {
+		int[] partyCounts = TableFit.parties();
+		for (int size : parties) {
+			TableFit.addParty(partyCounts, size);
+		}
+		int[] tableCounts = TableFit.tables();
+		for (int capacity : tables) {
+			TableFit.addTable(tableCounts, capacity);
+		}
+		return TableFit.fits(partyCounts, tableCounts);
+	}
+
+	// ****************************** Timing ******************************
+
+	/**
+	 * Times the three ways of deciding the cases, in ns per case.
+	 */
+	private static Timing time(List<List<Integer>> parties, List<List<Integer>> tables) {
+		int n = parties.size();
+		int[][] partyCounts = new int[n][];
+		int[][] tableCounts = new int[n][];
+		for (int i = 0; i < n; i++) {
+			partyCounts[i] = new int[TableFit.WIDTH];
+			for (int size : parties.get(i)) {
+				TableFit.addParty(partyCounts[i], size);
+			}
+			tableCounts[i] = TableFit.countTables(tables.get(i));
+		}
+
+		int treeMapFitting = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			if (treeMapFits(parties.get(i), tables.get(i))) {
+				treeMapFitting++;
+			}
+		}
+		long treeMap = System.nanoTime() - start;
+
+		int tableFitFitting = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			if (tableFitFits(parties.get(i), tables.get(i))) {
+				tableFitFitting++;
+			}
+		}
+		long tableFit = System.nanoTime() - start;
+
+		int fitOnlyFitting = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			if (TableFit.fits(partyCounts[i], tableCounts[i])) {
+				fitOnlyFitting++;
+			}
+		}
+		long fitOnly = System.nanoTime() - start;
+
+		// Using the counts keeps the loops from being optimized away
+		if (treeMapFitting != tableFitFitting || tableFitFitting != fitOnlyFitting) {
+			throw new IllegalStateException("Timed runs disagree: " + treeMapFitting + ", " + tableFitFitting + ", "
+					+ fitOnlyFitting);
+		}
+		return new Timing(treeMap / (double) n, tableFit / (double) n, fitOnly / (double) n);
+	}
+
+	private static List<Integer> randomSizes(Random random, int count, int maxSize) {
+		List<Integer> sizes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			sizes.add(1 + random.nextInt(maxSize));
+		}
+		return sizes;
+	}
+
+	/**
+	 * Nanoseconds per case of one timed round.
+	 */
+	private static final class Timing {
+		private final double treeMapNanos;
+		private final double tableFitNanos;
+		private final double fitOnlyNanos;
+
+		Timing(double treeMapNanos, double tableFitNanos, double fitOnlyNanos) {
+			this.treeMapNanos = treeMapNanos;
+			this.tableFitNanos = tableFitNanos;
+			this.fitOnlyNanos = fitOnlyNanos;
+		}
+	}
+}
+// End of TableFitBenchmark.java
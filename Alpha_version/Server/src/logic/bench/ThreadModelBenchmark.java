@@ -0,0 +1,208 @@
+package logic.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import comms.Message;
+import ocsf.client.AbstractClient;
+import ocsf.server.AbstractServer;
+import ocsf.server.ConnectionToClient;
+
+/**
+ * Benchmark comparing the platform-thread and virtual-thread execution modes
+ * of the OCSF server.
+ *
+ * Each simulated client sends a fixed number of requests one after the other
+ * (like BistroClient, which waits for each reply). The server handler blocks
+ * for a few milliseconds to simulate a JDBC round trip, then replies.
+ * Platform mode uses one thread per connection and the default 8 dispatch
+ * threads of BistroServer; virtual mode uses -Dbistro.threads=virtual.
+ *
+ * Usage: java logic.bench.ThreadModelBenchmark [clients,...] [requestsPerClient] [handlerMillis]
+ * Defaults: 50,500,5000 clients, 5 requests per client, 20 ms per request.
+ * Running 5,000 clients needs about 15,000 file descriptors (ulimit -n).
+ */
+public final class ThreadModelBenchmark {
+
+	// ****************************** Constants ******************************
+	private static final int BASE_PORT = 5700;
+	private static final int PLATFORM_DISPATCH_THREADS = 8;
+	private static final long RUN_TIMEOUT_MINUTES = 10;
+
+	private ThreadModelBenchmark() {
+	}
+
+	// ****************************** Main ******************************
+
+	public static void main(String[] args) throws Exception {
+		int[] clientCounts = args.length > 0
+				? Arrays.stream(args[0].split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray()
+				: new int[] { 50, 500, 5000 };
+		int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int handlerMillis = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+		System.out.println("requests/client=" + requestsPerClient + ", handler=" + handlerMillis + " ms");
+		System.out.printf("%-9s %8s %10s %12s %9s %9s %13s%n", "mode", "clients", "wall ms", "req/s", "p50 ms",
+				"p99 ms", "peak threads");
+		int port = BASE_PORT;
+		for (int clients : clientCounts) {
+			for (boolean virtual : new boolean[] { false, true }) {
+				Result r = run(port++, virtual, clients, requestsPerClient, handlerMillis);
+				System.out.printf("%-9s %8d %10d %12.0f %9.1f %9.1f %13d%n", virtual ? "virtual" : "platform",
+						clients, r.wallMillis, r.throughput(), r.percentile(50), r.percentile(99), r.peakThreads);
+			}
+		}
+		System.exit(0);
+	}
+
+	// ****************************** Benchmark run ******************************
+
+	/**
+	 * Runs one configuration and returns its measurements.
+	 */
+	private static Result run(int port, boolean virtual, int clients, int requestsPerClient, int handlerMillis)
+			throws Exception {
+		SimulatedServer server = new SimulatedServer(port, handlerMillis);
+		server.setBacklog(Math.max(50, clients));
+		server.setVirtualThreads(virtual);
+		server.setDispatchThreads(PLATFORM_DISPATCH_THREADS);
+		server.listen();
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int totalRequests = clients * requestsPerClient;
+		long[] latencies = new long[totalRequests];
+		AtomicInteger latencyIndex = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(totalRequests);
+
+		List<SimulatedClient> connected = new ArrayList<>(clients);
+		try {
+			for (int i = 0; i < clients; i++) {
+				SimulatedClient c = new SimulatedClient(port, requestsPerClient, latencies, latencyIndex, done);
+				c.openConnection();
+				connected.add(c);
+			}
+			// Wait for the server to accept every connection before measuring
+			while (server.getNumberOfClients() < clients) {
+				Thread.sleep(10);
+			}
+			threads.resetPeakThreadCount();
+
+			long start = System.nanoTime();
+			for (SimulatedClient c : connected) {
+				c.sendNext();
+			}
+			if (!done.await(RUN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+				throw new IllegalStateException("Benchmark timed out with " + done.getCount() + " requests pending");
+			}
+			long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			return new Result(wallMillis, Arrays.copyOf(latencies, latencyIndex.get()), threads.getPeakThreadCount());
+		} finally {
+			for (SimulatedClient c : connected) {
+				try {
+					c.closeConnection();
+				} catch (Exception ignored) {
+				}
+			}
+			server.close();
+		}
+	}
+
+	// ****************************** Simulated server and clients ******************************
+
+	/**
+	 * Server whose handler blocks like a JDBC call before replying.
+	 */
+	private static final class SimulatedServer extends AbstractServer {
+		private final int handlerMillis;
+
+		SimulatedServer(int port, int handlerMillis) {
+			super(port);
+			this.handlerMillis = handlerMillis;
+		}
+
+		@Override
+		protected void handleMessageFromClient(Object obj, ConnectionToClient client) {
+			Message msg = (Message) obj;
+			try {
+				Thread.sleep(handlerMillis);
+				client.sendToClient(new Message(msg.getId() + ".ok", null, msg.getRequestId()));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Client that sends its next request as soon as the previous reply arrives.
+	 */
+	private static final class SimulatedClient extends AbstractClient {
+		private final int requests;
+		private final long[] latencies;
+		private final AtomicInteger latencyIndex;
+		private final CountDownLatch done;
+		private int sent = 0;
+		private long sentAt;
+
+		SimulatedClient(int port, int requests, long[] latencies, AtomicInteger latencyIndex, CountDownLatch done) {
+			super("localhost", port);
+			this.requests = requests;
+			this.latencies = latencies;
+			this.latencyIndex = latencyIndex;
+			this.done = done;
+		}
+
+		void sendNext() throws Exception {
+			sent++;
+			sentAt = System.nanoTime();
+			sendToServer(new Message("bench.ping", null, Integer.toString(sent)));
+		}
+
+		@Override
+		protected void handleMessageFromServer(Object msg) {
+			latencies[latencyIndex.getAndIncrement()] = System.nanoTime() - sentAt;
+			done.countDown();
+			if (sent < requests) {
+				try {
+					sendNext();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Measurements of one run.
+	 */
+	private static final class Result {
+		private final long wallMillis;
+		private final long[] latencies;
+		private final int peakThreads;
+
+		Result(long wallMillis, long[] latencies, int peakThreads) {
+			this.wallMillis = wallMillis;
+			this.latencies = latencies;
+			this.peakThreads = peakThreads;
+			Arrays.sort(this.latencies);
+		}
+
+		double throughput() {
+			return latencies.length * 1000.0 / Math.max(1, wallMillis);
+		}
+
+		double percentile(int p) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(p / 100.0 * latencies.length) - 1;
+			return latencies[Math.max(0, index)] / 1_000_000.0;
+		}
+	}
+}
+// End of ThreadModelBenchmark.java
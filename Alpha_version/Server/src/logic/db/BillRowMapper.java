@@ -0,0 +1,59 @@
+package logic.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import entities.Bill;
+
+/**
+ * Maps rows of the bills table to Bills. Joined to table_sessions and orders,
+ * it also reads the table, order number, seating time and confirmation code.
+ */
+public final class BillRowMapper implements RowMapper<Bill> {
+
+	private final int id;
+	private final int sum;
+	private final int paymentStatus;
+	private final int transactionId;
+	private final int tableNum;
+	private final int orderNumber;
+	private final int seatedAt;
+	private final int code;
+
+	private BillRowMapper(Columns columns) {
+		id = columns.indexOf("billID");
+		sum = columns.indexOf("billSum");
+		paymentStatus = columns.indexOf("payment_status");
+		transactionId = columns.indexOf("transaction_id");
+		tableNum = columns.indexOf("tableNum");
+		orderNumber = columns.indexOf("order_number");
+		seatedAt = columns.indexOf("seated_at");
+		code = columns.indexOf("confirmation_code");
+	}
+
+	/**
+	 * Creates the mapper of a result set.
+	 */
+	public static BillRowMapper of(ResultSet rs) throws SQLException {
+		return new BillRowMapper(Columns.of(rs));
+	}
+
+	@Override
+	public Bill map(ResultSet rs) throws SQLException {
+		Bill bill = new Bill(Columns.getInt(rs, id, 0), sum == Columns.ABSENT ? 0 : rs.getDouble(sum),
+				Columns.getString(rs, paymentStatus), Columns.getString(rs, transactionId));
+		if (tableNum != Columns.ABSENT) {
+			bill.setTableId(rs.getInt(tableNum));
+		}
+		if (orderNumber != Columns.ABSENT) {
+			bill.setOrderNumber(rs.getInt(orderNumber));
+		}
+		if (seatedAt != Columns.ABSENT) {
+			bill.setDate(rs.getTimestamp(seatedAt));
+		}
+		if (code != Columns.ABSENT) {
+			bill.setConfirmationCode(rs.getString(code));
+		}
+		return bill;
+	}
+}
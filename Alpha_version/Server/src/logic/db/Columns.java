@@ -0,0 +1,99 @@
+package logic.db;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The column indexes of a result set by label, read once from its metadata,
+ * and null-safe readers by index for the {@link RowMapper}s.
+ *
+ * Labels are matched ignoring case. When two columns have the same label, as
+ * with o.* joined to another table, the first one is used; a column that a
+ * mapper must not mix up is aliased in the query instead.
+ */
+public final class Columns {
+
+	/** Index of a column the result set does not have */
+	public static final int ABSENT = 0;
+
+	private final Map<String, Integer> indexes;
+
+	private Columns(Map<String, Integer> indexes) {
+		this.indexes = indexes;
+	}
+
+	/**
+	 * Reads the column labels of a result set.
+	 */
+	public static Columns of(ResultSet rs) throws SQLException {
+		ResultSetMetaData meta = rs.getMetaData();
+		int count = meta.getColumnCount();
+		Map<String, Integer> indexes = new HashMap<>(count * 2);
+		for (int i = 1; i <= count; i++) {
+			indexes.putIfAbsent(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+		}
+		return new Columns(indexes);
+	}
+
+	/**
+	 * Gets the index of a column.
+	 *
+	 * @return the index, or ABSENT
+	 */
+	public int indexOf(String label) {
+		Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+		return index == null ? ABSENT : index;
+	}
+
+	// ****** Readers ******
+
+	public static String getString(ResultSet rs, int column) throws SQLException {
+		return column == ABSENT ? null : rs.getString(column);
+	}
+
+	/**
+	 * Reads an int column, with a default for SQL NULL or an absent column.
+	 */
+	public static int getInt(ResultSet rs, int column, int ifNull) throws SQLException {
+		if (column == ABSENT) {
+			return ifNull;
+		}
+		int value = rs.getInt(column);
+		return rs.wasNull() ? ifNull : value;
+	}
+
+	public static LocalDate getLocalDate(ResultSet rs, int column) throws SQLException {
+		Date value = column == ABSENT ? null : rs.getDate(column);
+		return value == null ? null : value.toLocalDate();
+	}
+
+	public static LocalTime getLocalTime(ResultSet rs, int column) throws SQLException {
+		Time value = column == ABSENT ? null : rs.getTime(column);
+		return value == null ? null : value.toLocalTime();
+	}
+
+	public static LocalDateTime getLocalDateTime(ResultSet rs, int column) throws SQLException {
+		Timestamp value = column == ABSENT ? null : rs.getTimestamp(column);
+		return value == null ? null : value.toLocalDateTime();
+	}
+
+	/**
+	 * Reads an enum column.
+	 *
+	 * @return the constant, or null for SQL NULL or an absent column
+	 */
+	public static <E extends Enum<E>> E getEnum(ResultSet rs, int column, EnumDecoder<E> decoder)
+			throws SQLException {
+		return column == ABSENT ? null : decoder.decode(rs.getString(column));
+	}
+}
@@ -0,0 +1,412 @@
+package logic.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import logic.ServerLogger;
+import logic.api.LatencyHistogram;
+
+/**
+ * JDBC connection pool.
+ *
+ * The pool keeps between minSize and maxSize physical connections. Borrowers
+ * get a {@link PooledConnection} proxy whose close() returns the connection
+ * to the pool, and whose prepared statements are cached per connection.
+ * Connections are not validated on borrow: a housekeeping thread validates
+ * the idle connections, retires the ones idle for too long above minSize,
+ * tops the pool back up to minSize and reports connections borrowed for
+ * longer than the leak threshold, with the stack of the borrower.
+ *
+ * The pool also records how long borrowers wait for a connection. With
+ * {@link QueryMetrics} set, borrowed connections also time every query.
+ */
+public class ConnectionPool {
+
+	// ****************************** Defaults ******************************
+	public static final long DEFAULT_BORROW_TIMEOUT_MS = 10_000;
+	public static final long DEFAULT_VALIDATION_INTERVAL_MS = 30_000;
+	public static final long DEFAULT_IDLE_TIMEOUT_MS = 10 * 60_000;
+	public static final long DEFAULT_LEAK_THRESHOLD_MS = 60_000;
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	// ****************************** Configuration ******************************
+	private final String name;
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int minSize;
+	private final int maxSize;
+	private final ServerLogger logger;
+
+	private volatile long borrowTimeoutMs = DEFAULT_BORROW_TIMEOUT_MS;
+	private volatile long validationIntervalMs = DEFAULT_VALIDATION_INTERVAL_MS;
+	private volatile long idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+	private volatile long leakThresholdMs = DEFAULT_LEAK_THRESHOLD_MS;
+	private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private volatile QueryMetrics queryMetrics;
+
+	// ****************************** State ******************************
+	/** Idle connections, most recently returned first */
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	/** Connections currently held by borrowers */
+	private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+	/** One permit per connection that may still be borrowed */
+	private final Semaphore permits;
+	/** Number of open physical connections */
+	private final AtomicInteger total = new AtomicInteger();
+	private volatile boolean open;
+	private ScheduledExecutorService housekeeper;
+
+	// ****************************** Metrics ******************************
+	private final LatencyHistogram borrowWait = new LatencyHistogram();
+	private final LongAdder borrows = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder discarded = new LongAdder();
+	private final LongAdder leaks = new LongAdder();
+	final LongAdder statementHits = new LongAdder();
+	final LongAdder statementMisses = new LongAdder();
+
+	// ****************************** Constructors ******************************
+
+	/**
+	 * Creates a pool. No connection is opened until {@link #start()}.
+	 *
+	 * @param name     the pool name, used in logs and thread names
+	 * @param url      the JDBC url
+	 * @param user     the database user
+	 * @param password the database password
+	 * @param minSize  the number of connections kept open
+	 * @param maxSize  the largest number of connections
+	 * @param logger   the server logger
+	 */
+	public ConnectionPool(String name, String url, String user, String password, int minSize, int maxSize,
+			ServerLogger logger) {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("Invalid pool size: min=" + minSize + " max=" + maxSize);
+		}
+		this.name = name;
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.logger = logger;
+		this.permits = new Semaphore(maxSize, true);
+	}
+
+	// ****************************** Settings ******************************
+
+	public void setBorrowTimeoutMs(long borrowTimeoutMs) {
+		this.borrowTimeoutMs = borrowTimeoutMs;
+	}
+
+	public void setValidationIntervalMs(long validationIntervalMs) {
+		this.validationIntervalMs = validationIntervalMs;
+	}
+
+	public void setIdleTimeoutMs(long idleTimeoutMs) {
+		this.idleTimeoutMs = idleTimeoutMs;
+	}
+
+	/**
+	 * Sets how long a connection may be held before it is reported as leaked.
+	 *
+	 * @param leakThresholdMs the threshold, 0 to disable leak detection
+	 */
+	public void setLeakThresholdMs(long leakThresholdMs) {
+		this.leakThresholdMs = leakThresholdMs;
+	}
+
+	/**
+	 * Sets the number of prepared statements cached by each connection.
+	 *
+	 * @param statementCacheSize the cache size, 0 to disable statement caching
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Sets the registry that the queries run on borrowed connections report to.
+	 *
+	 * @param queryMetrics the registry, null to stop instrumenting new borrows
+	 */
+	public void setQueryMetrics(QueryMetrics queryMetrics) {
+		this.queryMetrics = queryMetrics;
+	}
+
+	int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	// ****************************** Lifecycle ******************************
+
+	/**
+	 * Opens minSize connections in parallel and starts the housekeeping thread.
+	 *
+	 * @throws SQLException if one of the initial connections cannot be opened
+	 */
+	public synchronized void start() throws SQLException {
+		if (open) return;
+
+		List<CompletableFuture<PooledConnection>> opening = new ArrayList<>();
+		ExecutorService opener = Executors.newFixedThreadPool(Math.max(1, minSize),
+				Thread.ofPlatform().name(name + "-open-", 0).daemon().factory());
+		try {
+			for (int i = 0; i < minSize; i++) {
+				opening.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						return newConnection();
+					} catch (SQLException e) {
+						throw new CompletionException(e);
+					}
+				}, opener));
+			}
+			List<PooledConnection> opened = new ArrayList<>();
+			SQLException failure = null;
+			for (CompletableFuture<PooledConnection> future : opening) {
+				try {
+					opened.add(future.join());
+				} catch (CompletionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof SQLException sql ? sql : new SQLException(e.getCause());
+					}
+				}
+			}
+			if (failure != null) {
+				opened.forEach(this::discard);
+				throw failure;
+			}
+			idle.addAll(opened);
+		} finally {
+			opener.shutdown();
+		}
+
+		open = true;
+		housekeeper = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name(name + "-housekeeper").daemon().factory());
+		long interval = Math.max(1_000, Math.min(validationIntervalMs,
+				leakThresholdMs > 0 ? leakThresholdMs / 2 : validationIntervalMs));
+		housekeeper.scheduleWithFixedDelay(this::houseKeep, interval, interval, TimeUnit.MILLISECONDS);
+		logger.log("[INFO] " + name + " opened " + minSize + " connections (max " + maxSize + ")");
+	}
+
+	/**
+	 * Stops the housekeeping thread and closes every idle connection.
+	 * Borrowed connections are closed when they are returned.
+	 */
+	public synchronized void shutdown() {
+		if (!open) return;
+		open = false;
+		housekeeper.shutdownNow();
+		PooledConnection connection;
+		while ((connection = idle.poll()) != null) {
+			discard(connection);
+		}
+		logger.log("[INFO] " + name + " closed");
+	}
+
+	public boolean isOpen() {
+		return open;
+	}
+
+	// ****************************** Borrow / Return ******************************
+
+	/**
+	 * Borrows a connection, waiting up to the borrow timeout for one to be free.
+	 * The connection must be closed to return it to the pool.
+	 *
+	 * @return the borrowed connection
+	 * @throws SQLException if the pool is closed, no connection became free in
+	 *                      time or a new connection could not be opened
+	 */
+	public Connection borrow() throws SQLException {
+		if (!open) {
+			throw new SQLException(name + " is not open");
+		}
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+				timeouts.increment();
+				throw new SQLException("Timed out after " + borrowTimeoutMs + " ms waiting for a connection from "
+						+ name + " (" + borrowed.size() + " of " + maxSize + " borrowed)");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection from " + name, e);
+		}
+
+		PooledConnection connection = idle.pollFirst();
+		try {
+			while (connection != null && connection.isBroken()) {
+				discard(connection);
+				connection = idle.pollFirst();
+			}
+			if (connection == null) {
+				connection = newConnection();
+			}
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+		long waited = System.nanoTime() - start;
+		borrowWait.record(waited);
+		borrows.increment();
+		connection.lease(leakThresholdMs > 0 ? new Throwable("Borrowed by " + Thread.currentThread().getName()) : null);
+		borrowed.add(connection);
+		QueryMetrics metrics = queryMetrics;
+		return metrics == null ? connection.proxy() : InstrumentedConnection.wrap(connection.proxy(), metrics, waited);
+	}
+
+	/**
+	 * Takes back a connection closed by its borrower.
+	 */
+	void giveBack(PooledConnection connection) {
+		borrowed.remove(connection);
+		try {
+			if (!open || connection.isBroken() || !connection.reset()) {
+				discard(connection);
+			} else {
+				idle.offerFirst(connection);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Opens a new physical connection.
+	 */
+	private PooledConnection newConnection() throws SQLException {
+		Connection physical = DriverManager.getConnection(url, user, password);
+		physical.setAutoCommit(true);
+		total.incrementAndGet();
+		created.increment();
+		return new PooledConnection(this, physical);
+	}
+
+	/**
+	 * Closes a physical connection for good.
+	 */
+	private void discard(PooledConnection connection) {
+		connection.closePhysical();
+		total.decrementAndGet();
+		discarded.increment();
+	}
+
+	// ****************************** Housekeeping ******************************
+
+	/**
+	 * Validates idle connections, retires the ones idle for too long, refills
+	 * the pool to minSize and reports leaked connections.
+	 */
+	private void houseKeep() {
+		try {
+			long now = System.currentTimeMillis();
+			for (PooledConnection connection : idle.toArray(new PooledConnection[0])) {
+				boolean aboveMin = total.get() > minSize;
+				boolean expired = aboveMin && now - connection.getReturnedAt() > idleTimeoutMs;
+				boolean due = now - connection.getValidatedAt() >= validationIntervalMs;
+				if ((!expired && !due) || !idle.remove(connection)) {
+					continue; // Borrowed in the meantime, or nothing to do
+				}
+				if (expired || !connection.validate(VALIDATION_TIMEOUT_SECONDS)) {
+					discard(connection);
+				} else {
+					idle.offerLast(connection);
+				}
+			}
+
+			while (open && total.get() < minSize) {
+				idle.offerLast(newConnection());
+			}
+
+			long threshold = leakThresholdMs;
+			if (threshold > 0) {
+				for (PooledConnection connection : borrowed) {
+					if (connection.reportLeak(now, threshold)) {
+						leaks.increment();
+						logger.log("[WARN] " + name + ": connection held for " + (now - connection.getBorrowedAt())
+								+ " ms, possible leak\n" + stackOf(connection.getBorrowSite()));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			logger.log("[WARN] " + name + ": could not refill the pool: " + e.getMessage());
+		} catch (RuntimeException e) {
+			logger.log("[ERROR] " + name + " housekeeping failed: " + e);
+		}
+	}
+
+	private static String stackOf(Throwable site) {
+		if (site == null) return "";
+		StringBuilder sb = new StringBuilder(site.getMessage());
+		for (StackTraceElement frame : site.getStackTrace()) {
+			sb.append("\n\tat ").append(frame);
+		}
+		return sb.toString();
+	}
+
+	// ****************************** Metrics ******************************
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getTotalConnections() {
+		return total.get();
+	}
+
+	public int getIdleConnections() {
+		return idle.size();
+	}
+
+	public int getBorrowedConnections() {
+		return borrowed.size();
+	}
+
+	/**
+	 * Gets the histogram of the time borrowers waited for a connection.
+	 */
+	public LatencyHistogram getBorrowWait() {
+		return borrowWait;
+	}
+
+	/**
+	 * Returns a one line summary of the pool state and metrics.
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"%s: total=%d idle=%d borrowed=%d max=%d | borrows=%d timeouts=%d wait p50=%dus p99=%dus max=%dus"
+						+ " | created=%d discarded=%d leaks=%d | statement cache hits=%d misses=%d",
+				name, total.get(), idle.size(), borrowed.size(), maxSize, borrows.sum(), timeouts.sum(),
+				borrowWait.percentile(50), borrowWait.percentile(99), borrowWait.maxMicros(), created.sum(),
+				discarded.sum(), leaks.sum(), statementHits.sum(), statementMisses.sum());
+	}
+}
@@ -0,0 +1,61 @@
+package logic.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import dto.UserData;
+import enums.UserType;
+
+/**
+ * Maps rows of users left joined to members to the UserData of the customer
+ * directory: members with their details, guests with their contact
+ * information only.
+ */
+public final class CustomerRowMapper implements RowMapper<UserData> {
+
+	private final int id;
+	private final int phone;
+	private final int email;
+	private final int type;
+	private final int memberCode;
+	private final int firstName;
+	private final int lastName;
+	private final int address;
+
+	private CustomerRowMapper(Columns columns) {
+		id = columns.indexOf("user_id");
+		phone = columns.indexOf("phoneNumber");
+		email = columns.indexOf("email");
+		type = columns.indexOf("type");
+		memberCode = columns.indexOf("member_code");
+		firstName = columns.indexOf("f_name");
+		lastName = columns.indexOf("l_name");
+		address = columns.indexOf("address");
+	}
+
+	/**
+	 * Creates the mapper of a result set.
+	 */
+	public static CustomerRowMapper of(ResultSet rs) throws SQLException {
+		return new CustomerRowMapper(Columns.of(rs));
+	}
+
+	/**
+	 * Gets the type of the user of the current row, to skip staff rows.
+	 */
+	public UserType typeOf(ResultSet rs) throws SQLException {
+		return Columns.getEnum(rs, type, UserRowMapper.TYPE);
+	}
+
+	@Override
+	public UserData map(ResultSet rs) throws SQLException {
+		UserData user = typeOf(rs) == UserType.MEMBER
+				? new UserData(Columns.getString(rs, firstName), Columns.getString(rs, lastName),
+						Columns.getString(rs, memberCode), Columns.getString(rs, phone), Columns.getString(rs, email),
+						UserType.MEMBER, Columns.getString(rs, address))
+				: new UserData(null, null, null, Columns.getString(rs, phone), Columns.getString(rs, email),
+						UserType.GUEST, null);
+		user.setUserId(Columns.getInt(rs, id, 0));
+		return user;
+	}
+}
@@ -0,0 +1,52 @@
+package logic.db;
+
+/**
+ * Decodes the names stored in enum columns to their constants through a
+ * lookup table built once per enum type.
+ *
+ * The columns hold a handful of names, so the table is a scan of the
+ * constants' names, which compares lengths first: unlike
+ * {@link Enum#valueOf}, it does not hash each freshly read string.
+ *
+ * @param <E> the enum type
+ */
+public final class EnumDecoder<E extends Enum<E>> {
+
+	private final Class<E> type;
+	private final E[] constants;
+	private final String[] names;
+
+	private EnumDecoder(Class<E> type) {
+		this.type = type;
+		this.constants = type.getEnumConstants();
+		this.names = new String[constants.length];
+		for (int i = 0; i < constants.length; i++) {
+			names[i] = constants[i].name();
+		}
+	}
+
+	/**
+	 * Creates the decoder of an enum type, kept in a constant by its users.
+	 */
+	public static <E extends Enum<E>> EnumDecoder<E> of(Class<E> type) {
+		return new EnumDecoder<>(type);
+	}
+
+	/**
+	 * Decodes a name.
+	 *
+	 * @return the constant, or null for a null name
+	 * @throws IllegalArgumentException if no constant has the name, as valueOf
+	 */
+	public E decode(String name) {
+		if (name == null) {
+			return null;
+		}
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return constants[i];
+			}
+		}
+		throw new IllegalArgumentException("No enum constant " + type.getName() + "." + name);
+	}
+}
@@ -0,0 +1,180 @@
+package logic.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import logic.db.QueryMetrics.QueryStats;
+
+/**
+ * A borrowed connection whose statements report to {@link QueryMetrics}.
+ *
+ * Statements time their executions and remember their bound parameters for
+ * the slow query log; their result sets count the rows read. The time the
+ * borrower waited for the connection is counted on its first execution.
+ */
+final class InstrumentedConnection implements InvocationHandler {
+
+	private final Connection target;
+	private final QueryMetrics metrics;
+	/** Wait for the connection, not yet counted on a query */
+	private long poolWaitNanos;
+
+	private InstrumentedConnection(Connection target, QueryMetrics metrics, long poolWaitNanos) {
+		this.target = target;
+		this.metrics = metrics;
+		this.poolWaitNanos = poolWaitNanos;
+	}
+
+	static Connection wrap(Connection target, QueryMetrics metrics, long poolWaitNanos) {
+		return (Connection) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new InstrumentedConnection(target, metrics, poolWaitNanos));
+	}
+
+	@Override
+	public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+		switch (method.getName()) {
+		case "equals":
+			return self == args[0];
+		case "hashCode":
+			return System.identityHashCode(self);
+		case "toString":
+			return "Instrumented" + target;
+		default:
+			break;
+		}
+		Object result = call(target, method, args);
+		if (result instanceof Statement statement) {
+			String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+			Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+					: statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+			return Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(), new Class<?>[] { type },
+					new Timed(statement, (Connection) self, sql == null ? null : metrics.statsOf(sql)));
+		}
+		return result;
+	}
+
+	private static Object call(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Takes the wait for the connection, so that it is counted once.
+	 */
+	private long takePoolWait() {
+		long wait = poolWaitNanos;
+		poolWaitNanos = 0;
+		return wait;
+	}
+
+	/**
+	 * A statement timing its executions.
+	 */
+	private final class Timed implements InvocationHandler {
+		private final Statement target;
+		private final Connection owner;
+		/** The prepared query, null for a plain Statement */
+		private final QueryStats prepared;
+		private Object[] params = new Object[0];
+
+		private Timed(Statement target, Connection owner, QueryStats prepared) {
+			this.target = target;
+			this.owner = owner;
+			this.prepared = prepared;
+		}
+
+		@Override
+		public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			switch (name) {
+			case "getConnection":
+				return owner;
+			case "clearParameters":
+				Arrays.fill(params, null);
+				return call(target, method, args);
+			case "getResultSet":
+				return counted((ResultSet) call(target, method, args), prepared);
+			case "equals":
+				return self == args[0];
+			case "hashCode":
+				return System.identityHashCode(self);
+			default:
+				break;
+			}
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+				bind(index, args[1]);
+				return call(target, method, args);
+			}
+			if (!name.startsWith("execute")) {
+				return call(target, method, args);
+			}
+
+			QueryStats stats = args != null && args.length > 0 && args[0] instanceof String sql ? metrics.statsOf(sql)
+					: prepared;
+			if (stats == null) {
+				return call(target, method, args);
+			}
+			long start = System.nanoTime();
+			boolean failed = true;
+			Object result = null;
+			try {
+				result = call(target, method, args);
+				failed = false;
+			} finally {
+				metrics.executed(stats, System.nanoTime() - start, takePoolWait(), failed, params.clone());
+			}
+			if (result instanceof ResultSet resultSet) {
+				return counted(resultSet, stats);
+			} else if (result instanceof Integer count) {
+				stats.rows.add(Math.max(0, count));
+			} else if (result instanceof int[] counts) {
+				for (int count : counts) {
+					stats.rows.add(Math.max(0, count));
+				}
+			}
+			return result;
+		}
+
+		private void bind(int index, Object value) {
+			if (index < 1 || index > 1_000) return;
+			if (index > params.length) {
+				params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+			}
+			params[index - 1] = value;
+		}
+	}
+
+	/**
+	 * Wraps a result set to count the rows read from it.
+	 */
+	private static ResultSet counted(ResultSet resultSet, QueryStats stats) {
+		if (resultSet == null || stats == null) return resultSet;
+		return (ResultSet) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class }, (self, method, args) -> {
+					switch (method.getName()) {
+					case "equals":
+						return self == args[0];
+					case "hashCode":
+						return System.identityHashCode(self);
+					default:
+						break;
+					}
+					Object result = call(resultSet, method, args);
+					if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+						stats.rows.increment();
+					}
+					return result;
+				});
+	}
+}
@@ -0,0 +1,67 @@
+package logic.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import entities.Order;
+import enums.OrderStatus;
+import enums.OrderType;
+
+/**
+ * Maps rows of the orders table to Orders. Besides the orders columns, it
+ * reads the table of the order's open session as tableNum (0 when none) and
+ * the type of its user as user_type.
+ */
+public final class OrderRowMapper implements RowMapper<Order> {
+
+	public static final EnumDecoder<OrderStatus> STATUS = EnumDecoder.of(OrderStatus.class);
+	public static final EnumDecoder<OrderType> TYPE = EnumDecoder.of(OrderType.class);
+
+	private final int number;
+	private final int userId;
+	private final int date;
+	private final int time;
+	private final int guests;
+	private final int code;
+	private final int type;
+	private final int status;
+	private final int placedAt;
+	private final int tableNum;
+	private final int userType;
+
+	private OrderRowMapper(Columns columns) {
+		number = columns.indexOf("order_number");
+		userId = columns.indexOf("user_id");
+		date = columns.indexOf("order_date");
+		time = columns.indexOf("order_time");
+		guests = columns.indexOf("number_of_guests");
+		code = columns.indexOf("confirmation_code");
+		type = columns.indexOf("order_type");
+		status = columns.indexOf("status");
+		placedAt = columns.indexOf("date_of_placing_order");
+		tableNum = columns.indexOf("tableNum");
+		userType = columns.indexOf("user_type");
+	}
+
+	/**
+	 * Creates the mapper of a result set.
+	 */
+	public static OrderRowMapper of(ResultSet rs) throws SQLException {
+		return new OrderRowMapper(Columns.of(rs));
+	}
+
+	@Override
+	public Order map(ResultSet rs) throws SQLException {
+		Order order = new Order(Columns.getInt(rs, number, 0), Columns.getLocalDate(rs, date),
+				Columns.getLocalTime(rs, time), Columns.getInt(rs, guests, 0), Columns.getString(rs, code),
+				Columns.getInt(rs, userId, 0), Columns.getEnum(rs, type, TYPE), Columns.getEnum(rs, status, STATUS),
+				Columns.getLocalDateTime(rs, placedAt));
+		if (tableNum != Columns.ABSENT) {
+			order.setTableId(Columns.getInt(rs, tableNum, 0));
+		}
+		if (userType != Columns.ABSENT) {
+			order.setUserTypeStr(rs.getString(userType));
+		}
+		return order;
+	}
+}
@@ -0,0 +1,373 @@
+package logic.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}.
+ *
+ * Each borrow gets a new proxy of the connection (a lease), so a borrower
+ * that kept its reference after closing it cannot use the connection of the
+ * next borrower. Closing the proxy returns the connection to the pool.
+ *
+ * prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) are
+ * served from a per-connection LRU cache: closing the returned statement
+ * clears its parameters and keeps it for the next prepare of the same SQL.
+ * Other statements are closed when the connection is returned, in case the
+ * borrower did not close them.
+ */
+final class PooledConnection {
+
+	private final ConnectionPool pool;
+	private final Connection physical;
+
+	/** Cached statements by SQL and generated keys flag, least recently used first */
+	private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+			if (size() <= pool.getStatementCacheSize()) return false;
+			eldest.getValue().evict();
+			return true;
+		}
+	};
+
+	/** Statements of the current lease that are not cached */
+	private final List<Statement> uncached = new ArrayList<>();
+
+	private volatile Connection proxy;
+	private volatile boolean broken;
+	private volatile long borrowedAt;
+	private volatile long returnedAt = System.currentTimeMillis();
+	private volatile long validatedAt = System.currentTimeMillis();
+	private volatile Throwable borrowSite;
+	private volatile boolean leakReported;
+
+	PooledConnection(ConnectionPool pool, Connection physical) {
+		this.pool = pool;
+		this.physical = physical;
+	}
+
+	// ****************************** Lease ******************************
+
+	/**
+	 * Hands the connection to a new borrower.
+	 *
+	 * @param site where it is borrowed from, null when leaks are not detected
+	 */
+	void lease(Throwable site) {
+		borrowedAt = System.currentTimeMillis();
+		borrowSite = site;
+		leakReported = false;
+		proxy = (Connection) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Lease());
+	}
+
+	Connection proxy() {
+		return proxy;
+	}
+
+	/**
+	 * Cleans the connection up for the next borrower: closes the statements
+	 * left open and rolls back a transaction left open.
+	 *
+	 * @return false if the connection could not be cleaned and must be discarded
+	 */
+	boolean reset() {
+		returnedAt = System.currentTimeMillis();
+		borrowSite = null;
+		try {
+			for (Statement statement : uncached) {
+				statement.close();
+			}
+			uncached.clear();
+			for (CachedStatement statement : new ArrayList<>(statements.values())) {
+				statement.release();
+			}
+			if (!physical.getAutoCommit()) {
+				physical.rollback();
+				physical.setAutoCommit(true);
+			}
+			physical.clearWarnings();
+			return true;
+		} catch (SQLException e) {
+			failed(e);
+			return false;
+		}
+	}
+
+	// ****************************** Housekeeping ******************************
+
+	boolean validate(int timeoutSeconds) {
+		try {
+			validatedAt = System.currentTimeMillis();
+			return physical.isValid(timeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Tells whether the current lease should be reported as leaked, once per lease.
+	 */
+	boolean reportLeak(long now, long thresholdMs) {
+		if (leakReported || now - borrowedAt <= thresholdMs) return false;
+		leakReported = true;
+		return true;
+	}
+
+	void closePhysical() {
+		for (CachedStatement statement : statements.values()) {
+			statement.evict();
+		}
+		statements.clear();
+		try {
+			physical.close();
+		} catch (SQLException ignored) {
+		}
+	}
+
+	boolean isBroken() {
+		return broken;
+	}
+
+	long getBorrowedAt() {
+		return borrowedAt;
+	}
+
+	long getReturnedAt() {
+		return returnedAt;
+	}
+
+	long getValidatedAt() {
+		return validatedAt;
+	}
+
+	Throwable getBorrowSite() {
+		return borrowSite;
+	}
+
+	/**
+	 * Marks the connection broken when an error says the link to the database is lost.
+	 */
+	private void failed(Throwable error) {
+		if (error instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+			broken = true;
+		}
+	}
+
+	/**
+	 * Calls a method of a JDBC object, unwrapping the reflection exception.
+	 */
+	private Object call(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			failed(e.getCause());
+			throw e.getCause();
+		}
+	}
+
+	// ****************************** Proxies ******************************
+
+	/**
+	 * The connection seen by one borrower.
+	 */
+	private final class Lease implements InvocationHandler {
+		private boolean closed;
+
+		@Override
+		public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					pool.giveBack(PooledConnection.this);
+				}
+				return null;
+			case "isClosed":
+				return closed || physical.isClosed();
+			case "equals":
+				return self == args[0];
+			case "hashCode":
+				return System.identityHashCode(self);
+			case "toString":
+				return "Pooled" + physical;
+			default:
+				break;
+			}
+			if (closed) {
+				throw new SQLException("Connection already returned to the pool");
+			}
+			if (method.getName().equals("prepareStatement") && isCacheable(args)) {
+				return prepareCached((Connection) self, (String) args[0],
+						args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS);
+			}
+			Object result = call(physical, method, args);
+			if (result instanceof Statement statement) {
+				uncached.add(statement);
+			}
+			return result;
+		}
+
+		private boolean isCacheable(Object[] args) {
+			return pool.getStatementCacheSize() > 0
+					&& (args.length == 1 || (args.length == 2 && args[1] instanceof Integer));
+		}
+	}
+
+	/**
+	 * Gets a prepared statement from the cache, preparing it on a miss.
+	 */
+	private PreparedStatement prepareCached(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+		String key = autoGeneratedKeys + ":" + sql;
+		CachedStatement cached = statements.get(key);
+		if (cached != null && cached.inUse) {
+			// Prepared twice by the same borrower before the first one was closed
+			PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+			uncached.add(statement);
+			pool.statementMisses.increment();
+			return statement;
+		}
+		if (cached == null) {
+			pool.statementMisses.increment();
+			cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+			statements.put(key, cached);
+		} else {
+			pool.statementHits.increment();
+		}
+		cached.inUse = true;
+		cached.uses++;
+		return (PreparedStatement) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new StatementUse(owner, cached, cached.uses));
+	}
+
+	/**
+	 * A prepared statement kept open by the cache.
+	 */
+	private final class CachedStatement {
+		private final PreparedStatement statement;
+		private final List<ResultSet> results = new ArrayList<>();
+		private boolean inUse;
+		private boolean evicted;
+		/** Number of times the statement was handed out, to recognize stale handles */
+		private long uses;
+
+		private CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+		}
+
+		/**
+		 * Makes the statement available again, closing it if it left the cache.
+		 */
+		private void release() {
+			if (!inUse) return;
+			inUse = false;
+			try {
+				closeResults();
+				if (evicted) {
+					statement.close();
+				} else {
+					statement.clearParameters();
+					statement.clearBatch();
+				}
+			} catch (SQLException e) {
+				failed(e);
+				statements.values().remove(this);
+				closeQuietly();
+			}
+		}
+
+		/**
+		 * Takes the statement out of the cache, closing it once it is not in use.
+		 */
+		private void evict() {
+			evicted = true;
+			if (!inUse) {
+				closeQuietly();
+			}
+		}
+
+		private void closeResults() throws SQLException {
+			for (ResultSet result : results) {
+				result.close();
+			}
+			results.clear();
+		}
+
+		private void closeQuietly() {
+			try {
+				statement.close();
+			} catch (SQLException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * One use of a cached statement, from prepareStatement to close. A use is
+	 * also over once its connection is returned to the pool.
+	 */
+	private final class StatementUse implements InvocationHandler {
+		private final Connection owner;
+		private final CachedStatement cached;
+		private final long use;
+		private boolean closed;
+
+		private StatementUse(Connection owner, CachedStatement cached, long use) {
+			this.owner = owner;
+			this.cached = cached;
+			this.use = use;
+		}
+
+		private boolean isOver() {
+			return closed || !cached.inUse || cached.uses != use;
+		}
+
+		@Override
+		public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!isOver()) {
+					cached.release();
+				}
+				closed = true;
+				return null;
+			case "isClosed":
+				return isOver();
+			case "getConnection":
+				return owner;
+			case "equals":
+				return self == args[0];
+			case "hashCode":
+				return System.identityHashCode(self);
+			case "toString":
+				return "Cached" + cached.statement;
+			default:
+				break;
+			}
+			if (isOver()) {
+				throw new SQLException("Statement already closed");
+			}
+			if (method.getName().startsWith("execute")) {
+				cached.closeResults(); // As re-executing a statement closes its current result set
+			}
+			Object result = call(cached.statement, method, args);
+			if (result instanceof ResultSet resultSet) {
+				cached.results.add(resultSet);
+			}
+			return result;
+		}
+	}
+}
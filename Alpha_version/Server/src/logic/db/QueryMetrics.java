@@ -0,0 +1,196 @@
+package logic.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import logic.ServerLogger;
+import logic.api.LatencyHistogram;
+
+/**
+ * Registry of the queries run on the connections of the pools it is set on
+ * (see {@link ConnectionPool#setQueryMetrics}).
+ *
+ * Each distinct SQL text is a query, named after the method that ran it
+ * first. A query counts its executions, failures, rows read or updated, time
+ * spent executing and time its callers waited for a connection. Executions
+ * slower than the slow query threshold are logged with the types of their
+ * parameters, never the values, which include staff passwords, phone numbers
+ * and emails.
+ */
+public final class QueryMetrics {
+
+	public static final long DEFAULT_SLOW_QUERY_MS = 200;
+
+	private final ConcurrentHashMap<String, QueryStats> queries = new ConcurrentHashMap<>();
+	private final ServerLogger logger;
+	private volatile long slowQueryNanos = DEFAULT_SLOW_QUERY_MS * 1_000_000;
+
+	public QueryMetrics(ServerLogger logger) {
+		this.logger = logger;
+	}
+
+	/**
+	 * Sets the execution time above which a query is logged.
+	 *
+	 * @param slowQueryMs the threshold, 0 to disable the slow query log
+	 */
+	public void setSlowQueryMs(long slowQueryMs) {
+		this.slowQueryNanos = slowQueryMs <= 0 ? Long.MAX_VALUE : slowQueryMs * 1_000_000;
+	}
+
+	// ****************************** Recording ******************************
+
+	/**
+	 * Gets the statistics of a query, registering it on its first execution.
+	 */
+	QueryStats statsOf(String sql) {
+		QueryStats stats = queries.get(sql);
+		return stats != null ? stats : queries.computeIfAbsent(sql, key -> new QueryStats(callerName(), key));
+	}
+
+	/**
+	 * Records one execution, and logs it if it was slow.
+	 *
+	 * @param waitNanos time the caller waited for its connection, 0 if already counted
+	 * @param params    the bound parameters, by index from 1
+	 */
+	void executed(QueryStats stats, long nanos, long waitNanos, boolean failed, Object[] params) {
+		stats.calls.increment();
+		stats.totalNanos.add(nanos);
+		stats.poolWaitNanos.add(waitNanos);
+		stats.latency.record(nanos);
+		if (failed) {
+			stats.errors.increment();
+		}
+		if (nanos >= slowQueryNanos) {
+			logger.log(String.format("[SLOW] %s took %d ms (pool wait %d ms)%s params=%s%n\t%s", stats.name,
+					nanos / 1_000_000, waitNanos / 1_000_000, failed ? " and failed" : "",
+					describe(params), stats.sql));
+		}
+	}
+
+	/**
+	 * Describes bound parameters for the log by count and type only.
+	 */
+	private static String describe(Object[] params) {
+		int count = params.length;
+		while (count > 0 && params[count - 1] == null) {
+			count--;
+		}
+		StringBuilder sb = new StringBuilder().append(count).append(" [");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(params[i] == null ? "null" : params[i].getClass().getSimpleName());
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Names a query after the first frame of the stack outside of the pool and
+	 * the JDK, which is the data access method running it.
+	 */
+	private static String callerName() {
+		Optional<StackWalker.StackFrame> caller = StackWalker.getInstance().walk(frames -> frames
+				.filter(frame -> !frame.getClassName().startsWith("logic.db.")
+						&& !frame.getClassName().startsWith("java.") && !frame.getClassName().startsWith("jdk.")
+						&& !frame.getClassName().startsWith("com.sun.proxy."))
+				.findFirst());
+		if (caller.isEmpty()) return "unknown";
+		String className = caller.get().getClassName();
+		return className.substring(className.lastIndexOf('.') + 1) + "." + caller.get().getMethodName();
+	}
+
+	// ****************************** Reading ******************************
+
+	/**
+	 * Gets the queries that took the most time in total.
+	 *
+	 * @param limit the largest number of queries returned
+	 * @return the queries, by total time, most expensive first
+	 */
+	public List<QueryStats> top(int limit) {
+		List<QueryStats> sorted = new ArrayList<>(queries.values());
+		sorted.sort(Comparator.comparingLong(QueryStats::getTotalNanos).reversed());
+		return sorted.subList(0, Math.min(Math.max(0, limit), sorted.size()));
+	}
+
+	/**
+	 * Returns the top queries by total time, one line each.
+	 */
+	public String report(int limit) {
+		List<QueryStats> top = top(limit);
+		if (top.isEmpty()) return "No query has run yet";
+		StringBuilder sb = new StringBuilder("Top " + top.size() + " of " + queries.size() + " queries by total time:");
+		for (QueryStats stats : top) {
+			sb.append('\n').append(stats);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Counters of one query.
+	 */
+	public static final class QueryStats {
+		private final String name;
+		private final String sql;
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAdder poolWaitNanos = new LongAdder();
+		final LongAdder rows = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		private QueryStats(String name, String sql) {
+			this.name = name;
+			this.sql = sql;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public long getCalls() {
+			return calls.sum();
+		}
+
+		public long getErrors() {
+			return errors.sum();
+		}
+
+		/**
+		 * Gets the number of rows read from the results, or updated.
+		 */
+		public long getRows() {
+			return rows.sum();
+		}
+
+		public long getTotalNanos() {
+			return totalNanos.sum();
+		}
+
+		public long getPoolWaitNanos() {
+			return poolWaitNanos.sum();
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-50s total=%dms calls=%d errors=%d rows=%d p50=%dus p99=%dus max=%dus wait=%dms",
+					name, getTotalNanos() / 1_000_000, getCalls(), getErrors(), getRows(), latency.percentile(50),
+					latency.percentile(99), latency.maxMicros(), getPoolWaitNanos() / 1_000_000);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package logic.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maps the current row of a result set to an object.
+ *
+ * A mapper is bound to the result set it was created for: it looks its
+ * columns up by label once, then reads every row by index. Columns missing
+ * from the result set leave their fields unset, so one mapper serves the
+ * queries that select all the columns of an entity and those that select
+ * only some.
+ *
+ * @param <T> the type of the mapped objects
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+	/**
+	 * Maps the current row.
+	 */
+	T map(ResultSet rs) throws SQLException;
+
+	/**
+	 * Maps the remaining rows into a collection.
+	 *
+	 * @return the collection
+	 */
+	default <C extends Collection<? super T>> C mapAll(ResultSet rs, C into) throws SQLException {
+		while (rs.next()) {
+			into.add(map(rs));
+		}
+		return into;
+	}
+
+	/**
+	 * Maps the remaining rows into a new list.
+	 */
+	default List<T> mapAll(ResultSet rs) throws SQLException {
+		return mapAll(rs, new ArrayList<>());
+	}
+
+	/**
+	 * Maps the next row, if any.
+	 *
+	 * @return the object, or null if there are no more rows
+	 */
+	default T mapNext(ResultSet rs) throws SQLException {
+		return rs.next() ? map(rs) : null;
+	}
+}
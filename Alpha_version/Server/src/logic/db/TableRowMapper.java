@@ -0,0 +1,36 @@
+package logic.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import entities.Table;
+
+/**
+ * Maps rows of the tables table to Tables, with whether the table has an open
+ * session as occupiedNow.
+ */
+public final class TableRowMapper implements RowMapper<Table> {
+
+	private final int number;
+	private final int capacity;
+	private final int occupied;
+
+	private TableRowMapper(Columns columns) {
+		number = columns.indexOf("tableNum");
+		capacity = columns.indexOf("capacity");
+		occupied = columns.indexOf("occupiedNow");
+	}
+
+	/**
+	 * Creates the mapper of a result set.
+	 */
+	public static TableRowMapper of(ResultSet rs) throws SQLException {
+		return new TableRowMapper(Columns.of(rs));
+	}
+
+	@Override
+	public Table map(ResultSet rs) throws SQLException {
+		return new Table(Columns.getInt(rs, number, 0), Columns.getInt(rs, capacity, 0),
+				occupied != Columns.ABSENT && rs.getBoolean(occupied));
+	}
+}
@@ -0,0 +1,198 @@
+package logic.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A transaction spanning several data access methods that each borrow and
+ * release their own connection.
+ *
+ * The methods get {@link #connection()}, a view of the transaction's
+ * connection on which close, commit and setAutoCommit do nothing, so the
+ * transaction stays open until {@link #commit()} or {@link #rollback()}. A
+ * method rolling back its own work, or any statement failing, marks the whole
+ * transaction rollback-only.
+ */
+public final class Transaction {
+
+	private final Connection connection;
+	private final Connection scoped;
+	private volatile String failure;
+	private boolean completed;
+
+	private Transaction(Connection connection) {
+		this.connection = connection;
+		this.scoped = (Connection) Proxy.newProxyInstance(Transaction.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Scoped(connection));
+	}
+
+	/**
+	 * Starts a transaction on a borrowed connection, which it closes when it ends.
+	 */
+	public static Transaction begin(Connection connection) throws SQLException {
+		try {
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			connection.close();
+			throw e;
+		}
+		return new Transaction(connection);
+	}
+
+	/**
+	 * Gets the connection to run the steps of the transaction on.
+	 */
+	public Connection connection() {
+		return scoped;
+	}
+
+	/**
+	 * Tells whether a step failed, so that the transaction must not be committed.
+	 */
+	public boolean isRollbackOnly() {
+		return failure != null;
+	}
+
+	/**
+	 * Gets what made the transaction rollback-only, or null.
+	 */
+	public String getFailure() {
+		return failure;
+	}
+
+	public void commit() throws SQLException {
+		connection.commit();
+		completed = true;
+	}
+
+	public void rollback() {
+		completed = true;
+		try {
+			connection.rollback();
+		} catch (SQLException ignored) {
+			// The pool rolls back again, or discards the connection, when it is closed
+		}
+	}
+
+	/**
+	 * Ends the transaction and returns its connection to the pool. A
+	 * transaction neither committed nor rolled back, because its work threw
+	 * something no caller catches (an Error), is rolled back first: turning
+	 * autocommit back on would otherwise commit its partial work.
+	 */
+	public void end() {
+		if (!completed) {
+			rollback();
+		}
+		try {
+			connection.setAutoCommit(true);
+		} catch (SQLException ignored) {
+		}
+		try {
+			connection.close();
+		} catch (SQLException ignored) {
+		}
+	}
+
+	private void failed(String reason) {
+		if (failure == null) {
+			failure = reason;
+		}
+	}
+
+	/**
+	 * Calls a method of a JDBC object, marking the transaction rollback-only
+	 * when it throws an SQLException.
+	 */
+	private Object call(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof SQLException) {
+				failed(method.getName() + ": " + e.getCause().getMessage());
+			}
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * The transaction's connection as seen by each step.
+	 */
+	private final class Scoped implements InvocationHandler {
+		private final Connection target;
+
+		private Scoped(Connection target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+			case "commit":
+			case "setAutoCommit":
+				return null;
+			case "getAutoCommit":
+				return false;
+			case "isClosed":
+				return target.isClosed();
+			case "rollback":
+				if (args == null) {
+					failed("a step rolled back its changes");
+					return null;
+				}
+				break;
+			case "equals":
+				return self == args[0];
+			case "hashCode":
+				return System.identityHashCode(self);
+			case "toString":
+				return "Transaction" + target;
+			default:
+				break;
+			}
+			Object result = call(target, method, args);
+			if (result instanceof Statement statement) {
+				Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+						: statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+				return Proxy.newProxyInstance(Transaction.class.getClassLoader(), new Class<?>[] { type },
+						new Watched(statement, (Connection) self));
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A statement of the transaction, watched for failures.
+	 */
+	private final class Watched implements InvocationHandler {
+		private final Statement target;
+		private final Connection owner;
+
+		private Watched(Statement target, Connection owner) {
+			this.target = target;
+			this.owner = owner;
+		}
+
+		@Override
+		public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "getConnection":
+				return owner;
+			case "equals":
+				return self == args[0];
+			case "hashCode":
+				return System.identityHashCode(self);
+			default:
+				return call(target, method, args);
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package logic.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import entities.User;
+import enums.UserType;
+
+/**
+ * Maps rows of the users table, joined to members or staff_accounts or not,
+ * to Users with their contact information, type and, when selected, member
+ * details and username.
+ */
+public final class UserRowMapper implements RowMapper<User> {
+
+	public static final EnumDecoder<UserType> TYPE = EnumDecoder.of(UserType.class);
+
+	private final int id;
+	private final int phone;
+	private final int email;
+	private final int type;
+	private final int memberCode;
+	private final int firstName;
+	private final int lastName;
+	private final int address;
+	private final int username;
+
+	private UserRowMapper(Columns columns) {
+		id = columns.indexOf("user_id");
+		phone = columns.indexOf("phoneNumber");
+		email = columns.indexOf("email");
+		type = columns.indexOf("type");
+		memberCode = columns.indexOf("member_code");
+		firstName = columns.indexOf("f_name");
+		lastName = columns.indexOf("l_name");
+		address = columns.indexOf("address");
+		username = columns.indexOf("username");
+	}
+
+	/**
+	 * Creates the mapper of a result set.
+	 */
+	public static UserRowMapper of(ResultSet rs) throws SQLException {
+		return new UserRowMapper(Columns.of(rs));
+	}
+
+	@Override
+	public User map(ResultSet rs) throws SQLException {
+		User user = new User(Columns.getInt(rs, id, 0), Columns.getString(rs, phone), Columns.getString(rs, email),
+				Columns.getEnum(rs, type, TYPE));
+		if (memberCode != Columns.ABSENT) {
+			user.setMemberCode(rs.getString(memberCode));
+			user.setFirstName(Columns.getString(rs, firstName));
+			user.setLastName(Columns.getString(rs, lastName));
+			user.setAddress(Columns.getString(rs, address));
+		}
+		if (username != Columns.ABSENT) {
+			user.setUsername(rs.getString(username));
+		}
+		return user;
+	}
+}
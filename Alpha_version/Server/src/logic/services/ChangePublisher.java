@@ -0,0 +1,137 @@
+package logic.services;
+
+import comms.Api;
+import comms.Message;
+import dto.ChangeEvent;
+import entities.Order;
+import enums.ChangeType;
+import enums.OrderStatus;
+import enums.OrderType;
+import logic.storage.BistroStorage;
+import logic.ServerLogger;
+import ocsf.server.AbstractServer;
+
+/**
+ * Publishes changes of tables, the waiting list and reservations to the
+ * clients subscribed to their topic (see dto.ChangeEvent), so that staff
+ * screens can patch their data instead of polling the server.
+ * Nothing is built or sent for a topic nobody is subscribed to.
+ */
+public class ChangePublisher {
+	private final AbstractServer server;
+	private final BistroStorage dbController;
+	private final ServerLogger logger;
+
+	// ******************************** Constructor ********************************//
+
+	/**
+	 * Constructor for ChangePublisher.
+	 * 
+	 * @param server       The server holding the topic subscriptions.
+	 * @param dbController The database controller, used to look up changed orders.
+	 * @param logger       The server logger for logging events.
+	 */
+	public ChangePublisher(AbstractServer server, BistroStorage dbController, ServerLogger logger) {
+		this.server = server;
+		this.dbController = dbController;
+		this.logger = logger;
+	}
+
+	// ******************************** Instance Methods ********************************//
+
+	/**
+	 * Publishes that a table was seated or freed.
+	 * 
+	 * @param tableId          The table number.
+	 * @param confirmationCode The code of the seated order, or null if the table was freed.
+	 */
+	public void tableChanged(int tableId, String confirmationCode) {
+		publish(new ChangeEvent(ChangeEvent.TOPIC_TABLES, ChangeType.UPDATED, tableId, confirmationCode));
+	}
+
+	/**
+	 * Publishes that tables were added, removed or resized, so clients reload them.
+	 */
+	public void tablesReset() {
+		publish(new ChangeEvent(ChangeEvent.TOPIC_TABLES, ChangeType.RESET, null, null));
+	}
+
+	/**
+	 * Publishes a new order to the waiting list or to the reservations of its day.
+	 * 
+	 * @param order The created order.
+	 */
+	public void orderAdded(Order order) {
+		if (order == null) {
+			return;
+		}
+		if (order.getOrderType() == OrderType.WAITLIST) {
+			publish(new ChangeEvent(ChangeEvent.TOPIC_WAITLIST, ChangeType.ADDED, order.getConfirmationCode(), order));
+		} else if (order.getOrderDate() != null) {
+			publish(new ChangeEvent(ChangeEvent.ordersTopic(order.getOrderDate()), ChangeType.ADDED,
+					order.getConfirmationCode(), order));
+		}
+	}
+
+	/**
+	 * Publishes a new status of an order. Waiting list orders leave the list
+	 * once seated or cancelled and are updated otherwise.
+	 * 
+	 * @param order  The order, as loaded before or after the change.
+	 * @param status The new status.
+	 */
+	public void orderStatusChanged(Order order, OrderStatus status) {
+		if (order == null) {
+			return;
+		}
+		String code = order.getConfirmationCode();
+		if (order.getOrderType() == OrderType.WAITLIST) {
+			if (status == OrderStatus.PENDING || status == OrderStatus.NOTIFIED) {
+				order.setStatus(status);
+				publish(new ChangeEvent(ChangeEvent.TOPIC_WAITLIST, ChangeType.UPDATED, code, order));
+			} else {
+				publish(new ChangeEvent(ChangeEvent.TOPIC_WAITLIST, ChangeType.REMOVED, code, null));
+			}
+		} else if (order.getOrderDate() != null) {
+			publish(new ChangeEvent(ChangeEvent.ordersTopic(order.getOrderDate()), ChangeType.UPDATED, code, status));
+		}
+	}
+
+	/**
+	 * Publishes a new status of an order known only by its confirmation code.
+	 * The order is looked up to find its topic, so this is meant for rare
+	 * changes such as cancellations.
+	 * 
+	 * @param confirmationCode The confirmation code of the order.
+	 * @param status           The new status.
+	 */
+	public void orderStatusChanged(String confirmationCode, OrderStatus status) {
+		orderStatusChanged(dbController.getOrderByConfirmationCodeInDB(confirmationCode), status);
+	}
+
+	/**
+	 * Publishes that an order left the waiting list without being seated.
+	 * 
+	 * @param confirmationCode The confirmation code of the waiting list order.
+	 */
+	public void waitlistRemoved(String confirmationCode) {
+		publish(new ChangeEvent(ChangeEvent.TOPIC_WAITLIST, ChangeType.REMOVED, confirmationCode, null));
+	}
+
+	/**
+	 * Publishes an event to the subscribers of its topic.
+	 * 
+	 * @param event The event to publish.
+	 */
+	private void publish(ChangeEvent event) {
+		if (server.getNumberOfSubscribers(event.getTopic()) == 0) {
+			return;
+		}
+		try {
+			server.sendToTopic(event.getTopic(), new Message(Api.PUSH_CHANGE, event, Api.PUSH_REQUEST_ID));
+		} catch (RuntimeException e) {
+			logger.log("[WARN] Failed to publish " + event + ": " + e.getMessage());
+		}
+	}
+}
+// End of ChangePublisher.java
@@ -1,6 +1,5 @@
 package logic.services;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -10,11 +9,11 @@ import java.util.concurrent.TimeUnit;
 import entities.Order;
 import entities.User;
 import enums.NotificationType;
-import enums.OrderStatus;
 import enums.OrderType;
 import enums.Channel;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.ServerLogger;
+import logic.Workload;
 import logic.services.notification_simulator.INotificationService;
 import logic.services.notification_simulator.MockNotificationService;
 
@@ -31,12 +30,14 @@ public class NoShowManager {
 	
 	//****************************** Instance variables ******************************//
 	
-	private final BistroDataBase_Controller dbController;
+	private final BistroStorage dbController;
 	private final ServerLogger logger;
 	// removed "final" to allow shutdown and restart (might fix the thread issue)
 	private ScheduledExecutorService scheduler;
 	
 	private final INotificationService notificationSimulator;
+	// Frees the slots of no-show reservations; set once the services are built
+	private volatile OrdersService ordersService;
 	
 	private static final int NO_SHOW_THRESHOLD_MINUTES = 15;
 	private static final int BACKGROUND_CHECK_INTERVAL_MINUTES = 5;
@@ -49,7 +50,7 @@ public class NoShowManager {
 	 * @param dbController The database controller for accessing orders
 	 * @param logger The server logger for logging events
 	 */
-	public NoShowManager(BistroDataBase_Controller dbController, ServerLogger logger) {
+	public NoShowManager(BistroStorage dbController, ServerLogger logger) {
 		this.dbController = dbController;
 		this.logger = logger;
 		// commented out to allow restart after shutdown (might fix the thread issue) => moved it to startBackgroundTasks
@@ -59,6 +60,15 @@ public class NoShowManager {
 	
 	//******************************* Public Methods *******************************//
 	
+	/**
+	 * Sets the orders service told about the reservations marked as NO_SHOW.
+	 * 
+	 * @param ordersService The orders service.
+	 */
+	public void setOrdersService(OrdersService ordersService) {
+		this.ordersService = ordersService;
+	}
+	
 	/**
 	 * Starts the background task to check for no-shows.
 	 * Runs every 5 minutes to detect orders that have exceeded the no-show threshold.
@@ -66,7 +76,7 @@ public class NoShowManager {
 	public synchronized void startBackgroundTasks() {
 		// moved from constructor to allow restart after shutdown (might fix the thread issue)
 		if (scheduler == null || scheduler.isShutdown()) {
-			scheduler = Executors.newSingleThreadScheduledExecutor();
+			scheduler = Executors.newSingleThreadScheduledExecutor(Workload.BACKGROUND.threadFactory("bistro-no-show-"));
 		}
 		// Log the start of the background task
 		logger.log("[NO_SHOW] Background service started. Checking every " + BACKGROUND_CHECK_INTERVAL_MINUTES + " minutes.");
@@ -93,7 +103,7 @@ public class NoShowManager {
 	//******************************* No-Show Detection Logic *******************************//
 	
 	/**
-	 * Checks for orders that should be marked as NO_SHOW.
+	 * Marks as NO_SHOW, in one storage operation, the orders past their no-show deadline:
 	 * 
 	 * For RESERVATION orders (PENDING status):
 	 *   - If current time > reservation time + 15 minutes, mark as NO_SHOW
@@ -101,91 +111,22 @@ public class NoShowManager {
 	 * For WAITLIST orders (NOTIFIED status):
 	 *   - If current time > notification time + 15 minutes, mark as NO_SHOW
 	 */
-	
-	/**
-	 * Main method to check for no-shows in both reservations and waitlist orders.
-	 */
 	private void checkForNoShows() {
-		LocalDateTime now = LocalDateTime.now();
-		
-		// Check PENDING reservations (15 minutes past reservation time)
-		checkPendingReservations(now);
+		LocalDateTime deadline = LocalDateTime.now().minusMinutes(NO_SHOW_THRESHOLD_MINUTES);
 		
-		// Check NOTIFIED waitlist orders (15 minutes past notification time)
-		checkNotifiedWaitlist(now);
-	}
-
-	/**
-	 * Checks PENDING reservations that are 15+ minutes past their reservation time.
-	 */
-	private void checkPendingReservations(LocalDateTime now) {
-		// Get all PENDING reservations for today
-		LocalDate today = now.toLocalDate();
-		List<Order> pendingOrders = dbController.getOrdersByDateAndStatus(today, OrderStatus.PENDING, OrderType.RESERVATION);
-		
-		if (pendingOrders == null || pendingOrders.isEmpty()) {
+		List<Order> noShows = dbController.markNoShows(deadline, deadline);
+		if (noShows == null || noShows.isEmpty()) {
 			return;
 		}
-		// Iterate through each pending reservation
-		for (Order order : pendingOrders) {
-			// Combine order date and hour to get full datetime
-			LocalDateTime reservationDateTime = LocalDateTime.of(order.getOrderDate(), order.getOrderHour());
-			LocalDateTime noShowDeadline = reservationDateTime.plusMinutes(NO_SHOW_THRESHOLD_MINUTES);
-			
-			// If current time is past the no-show deadline and not yet seated
-			if (now.isAfter(noShowDeadline) && order.getStatus() != OrderStatus.SEATED && order.getStatus() != OrderStatus.NO_SHOW) {
-				markAsNoShow(order, "Reservation not shown up at " + order.getOrderHour());
+		OrdersService orders = ordersService;
+		for (Order order : noShows) {
+			if (orders != null && order.getOrderType() == OrderType.RESERVATION) {
+				orders.reservationReleased(order.getConfirmationCode());
 			}
-		}
-	}
-	
-	/**
-	 * Checks NOTIFIED waitlist orders that are 15+ minutes past their notification time.
-	 * 
-	 * @param now The current date and time
-	 */
-	private void checkNotifiedWaitlist(LocalDateTime now) {
-		// Get all NOTIFIED waitlist orders for today
-		LocalDate today = now.toLocalDate();
-		List<Order> notifiedOrders = dbController.getOrdersByDateAndStatus(today, OrderStatus.NOTIFIED, OrderType.WAITLIST);
-		
-		if (notifiedOrders == null || notifiedOrders.isEmpty()) {
-			return;
-		}
-		
-		for (Order order : notifiedOrders) {
-			// Get the notification time from database
-			LocalDateTime notificationTime = dbController.getOrderNotificationTime(order.getOrderNumber());
-			
-			if (notificationTime != null) {
-				LocalDateTime noShowDeadline = notificationTime.plusMinutes(NO_SHOW_THRESHOLD_MINUTES);
-				
-				// If current time is past the no-show deadline
-				if (now.isAfter(noShowDeadline)) {
-					markAsNoShow(order, "Waitlist not shown up within 15 minutes of notification");
-				}
-			}
-		}
-	}
-	
-	/**
-	 * Marks an order as NO_SHOW and notifies the user.
-	 * 
-	 * @param order The order to mark as no-show
-	 * @param reason The reason for the no-show
-	 */
-	private void markAsNoShow(Order order, String reason) {
-		boolean updated = dbController.updateOrderStatusByUserId(order.getOrderNumber(), OrderStatus.NO_SHOW);
-		
-		if (updated) {
+			String reason = order.getOrderType() == OrderType.RESERVATION
+					? "Reservation not shown up at " + order.getOrderHour()
+					: "Waitlist not shown up within 15 minutes of notification";
 			logger.log("[NO_SHOW] Order #" + order.getOrderNumber() + " marked as NO_SHOW. Reason: " + reason);
-			
-			// Free the table if it was a reservation
-			if (order.getOrderType() == OrderType.RESERVATION) {
-				dbController.freeReservationTable(order.getOrderNumber());
-				logger.log("[NO_SHOW] Table freed for order #" + order.getOrderNumber());
-			}
-			
 			// Log notification (would be sent by NotificationService in real implementation)
 			logger.log("[NO_SHOW] Notification would be sent to user " + order.getUserId() + " for order #" + order.getOrderNumber());
 		}
@@ -1,7 +1,9 @@
 package logic.services;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -11,8 +13,9 @@ import entities.User;
 import enums.Channel;
 import enums.NotificationType;
 import enums.OrderStatus;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.ServerLogger;
+import logic.Workload;
 import logic.services.notification_simulator.INotificationService;
 import logic.services.notification_simulator.MockNotificationService;
 
@@ -23,7 +26,7 @@ import logic.services.notification_simulator.MockNotificationService;
  */
 public class NotificationService {
 	// final members
-    private final BistroDataBase_Controller dbController;
+    private final BistroStorage dbController;
     private final ServerLogger logger;
     // removed "final" to allow shutdown and restart (might fix the thread issue)
     private ScheduledExecutorService scheduler;
@@ -37,7 +40,7 @@ public class NotificationService {
 	 * @param dbController The database controller for accessing orders and users.
 	 * @param logger       The server logger for logging events.
 	 */
-    public NotificationService(BistroDataBase_Controller dbController, ServerLogger logger) {
+    public NotificationService(BistroStorage dbController, ServerLogger logger) {
         this.dbController = dbController;
         this.logger = logger;
         // commented out to allow restart after shutdown (might fix the thread issue) => moved it to startBackgroundTasks
@@ -53,7 +56,7 @@ public class NotificationService {
         if (started) return;
         // moved from constructor to allow restart after shutdown (might fix the thread issue)
         if (scheduler == null || scheduler.isShutdown()) {
-			scheduler = Executors.newSingleThreadScheduledExecutor();
+			scheduler = Executors.newSingleThreadScheduledExecutor(Workload.BACKGROUND.threadFactory("bistro-notifications-"));
 		}
         // set started flag
         started = true;
@@ -86,30 +89,26 @@ public class NotificationService {
 
     /**
      * Checks for RESERVATION orders starting in approximately 2 hours and sends reminders.
-     * Uses notified_at to avoid re-sending.
+     * The reminders are claimed (notified_at set) in one storage operation before sending,
+     * so they are never sent twice.
      */
     private void checkPreArrivalReminders() {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime startWindow = now.plusMinutes(110);
         LocalDateTime endWindow   = now.plusMinutes(130);
 
-        // returns only RESERVATION + PENDING + notified_at IS NULL within window
-        List<Order> upcomingOrders = dbController.getReservationsBetweenTimes(startWindow, endWindow, OrderStatus.PENDING);
+        // marks and returns the RESERVATION + PENDING + notified_at IS NULL orders within window
+        List<Order> upcomingOrders = dbController.claimReservationReminders(startWindow, endWindow, now);
         // no orders found
         if (upcomingOrders == null || upcomingOrders.isEmpty()) return;
-        // send reminders
+        // look all customers up at once, then send reminders
+        Map<Integer, User> users = usersOf(upcomingOrders);
         for (Order order : upcomingOrders) {
-            User user = dbController.getUserById(order.getUserId());
+            User user = users.get(order.getUserId());
             if (user == null) continue;
             // compose and send message
             String msg = "Reminder: Your reservation at Bistro is in 2 hours (" + order.getOrderHour() + ").";
             dispatchToSimulator(user, msg, NotificationType.RESERVATION_REMINDER);
-
-            //lock it so we won't re-send
-            boolean marked = dbController.markReservationReminderSent(order.getOrderNumber(), now);
-            if (!marked) {
-                logger.log("[WARN] Could not mark reservation reminder as sent for order #" + order.getOrderNumber());
-            }
         }
     }
 
@@ -124,9 +123,10 @@ public class NotificationService {
         List<Order> overstayingOrders = dbController.getSeatedOrdersBetweenTimes(startWindow, endWindow);
 		// no orders found
         if (overstayingOrders == null || overstayingOrders.isEmpty()) return;
-        // send payment reminders
+        // look all customers up at once, then send payment reminders
+        Map<Integer, User> users = usersOf(overstayingOrders);
         for (Order order : overstayingOrders) {
-            User user = dbController.getUserById(order.getUserId());
+            User user = users.get(order.getUserId());
             if (user == null) continue;
             // compose and send message
             String msg = "Your 2-hour dining window has ended. Please proceed to payment.";
@@ -150,6 +150,15 @@ public class NotificationService {
         }
     }
 
+    // Gets the customers of orders in one storage lookup, by user id.
+    private Map<Integer, User> usersOf(List<Order> orders) {
+        List<Integer> userIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            userIds.add(order.getUserId());
+        }
+        return dbController.getUsersByIds(userIds);
+    }
+
     // Dispatches notification to the simulator for both Email and SMS channels.
     private void dispatchToSimulator(User user, String message, NotificationType type) {
         boolean hasEmail = user.getEmail() != null && !user.getEmail().isEmpty();
@@ -4,19 +4,22 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+import dto.Page;
+import dto.PageCursor;
+import dto.PageRequest;
 import entities.Order;
 import entities.Table;
 import entities.User;
 import enums.OrderStatus;
 import enums.OrderType;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.BistroServer;
 import logic.ServerLogger;
 
@@ -27,14 +30,28 @@ public class OrdersService {
 	
 	// ******************************** Instance variables ***********************************
 	private final BistroServer server;
-	private final BistroDataBase_Controller dbController;
+	private final BistroStorage dbController;
 	private final ServerLogger logger;
+	private final ChangePublisher changePublisher;
 	private TableService tableService;
 	
 	//Variables for reservation slots calculation:
-	private List<Integer> tableSizes; // [2,2,4,4,6,6,8]
+	// Replaced as a whole on refresh so concurrent handlers never see a half-built list
+	private volatile List<Integer> tableSizes; // [2,2,4,4,6,6,8]
+	private volatile int[] tableCounts; // tableSizes counted by capacity
 	private int slotStepMinutes; // 30
 	private int reservationDurationMinutes;// 120 
+	// Parties holding a table per slot, kept in step with reservations
+	private final SlotOccupancyIndex occupancy;
+	// Last answer of getAvailableDates by diners amount
+	private final Map<Integer, AvailableDates> availableDatesCache = new ConcurrentHashMap<>();
+	
+	// Days after today offered for reservations
+	private static final int BOOKING_WINDOW_DAYS = 30;
+	// Locks making check-then-insert atomic per reservation date, striped by day:
+	// more stripes than the booking window, so the dates offered never share one
+	private static final int BOOKING_LOCK_STRIPES = 64;
+	private final Object[] bookingLocks = new Object[BOOKING_LOCK_STRIPES];
 
 	
 	// ******************************** Constructors***********************************
@@ -45,14 +62,22 @@ public class OrdersService {
 	 * @param server The BistroServer instance.
 	 * @param dbController The database controller for data access.
 	 * @param logger The server logger for logging events.
+	 * @param changePublisher Publishes new and cancelled orders to subscribed clients.
 	 */
-	public OrdersService(BistroServer server,BistroDataBase_Controller dbController, ServerLogger logger) {
+	public OrdersService(BistroServer server,BistroStorage dbController, ServerLogger logger,
+			ChangePublisher changePublisher) {
 		this.dbController = dbController;
 		this.logger = logger;
 		this.server = server;
-		this.tableSizes = new ArrayList<Integer>();
+		this.changePublisher = changePublisher;
+		this.tableSizes = List.of();
+		this.tableCounts = new int[TableFit.WIDTH];
 		this.slotStepMinutes = 30;
 		this.reservationDurationMinutes = 120;
+		this.occupancy = new SlotOccupancyIndex(dbController, slotStepMinutes, reservationDurationMinutes);
+		for (int i = 0; i < bookingLocks.length; i++) {
+			bookingLocks[i] = new Object();
+		}
 	}
 	// ******************************* Getters and Setters ***********************************
 	
@@ -89,9 +114,24 @@ public class OrdersService {
 	 * @return The list of table sizes.
 	 */
 	public List<Integer> getTableSizes(){
+		if (this.tableSizes.isEmpty()) {
+			getTablesCapacity();
+		}
 		return this.tableSizes;
 	}
 	
+	/**
+	 * Gets the table sizes counted by capacity (see TableFit).
+	 * 
+	 * @return The table counts.
+	 */
+	public int[] getTableCounts(){
+		if (this.tableSizes.isEmpty()) {
+			getTablesCapacity();
+		}
+		return this.tableCounts;
+	}
+	
 	/**
 	 * Retrieves the list of seated reservations for a member for today.
 	 * 
@@ -106,34 +146,66 @@ public class OrdersService {
 	
 	/**
 	 * Creates a new order (reservation or waitlist) in a thread-safe manner.
+	 * A reservation is checked against its slot and inserted under the lock of
+	 * its date, so bookings on other dates and waitlist orders run in parallel.
+	 * The insert itself takes the tables in the storage's slot ledger, which
+	 * keeps bookings correct across servers sharing the database.
 	 * 
 	 * @param data A list containing order details: [0]userId, [1]date, [2]dinersAmount, [3]time
 	 * @param orderType The type of the order (RESERVATION or WAITLIST).
 	 * @return The created Order object, or null if creation failed.
 	 */
-	public synchronized Order createNewOrder(List<Object> data, OrderType orderType) {
+	public Order createNewOrder(List<Object> data, OrderType orderType) {
 		// data: [0]userId, [1]date, [2]dinersAmount, [3]time, [4]Code
 		System.out.println("Creating new order with data: " + data.toString() + " of type: " + orderType);
-		int userId = (int) data.get(0);
 		LocalDate date = (LocalDate) data.get(1);
-		int diners = (int) data.get(2);
-		LocalTime time = (LocalTime) data.get(3);
+		Order order;
 		//condition that checks to ensure reservation slot is still free before insertion and type is RESERVATION and not WAITLIST by mistake
 		if (orderType == OrderType.RESERVATION) {
-			boolean isSlotStillFree = checkSpecificSlotAvailability(date, time, diners);
-			if (!isSlotStillFree) {
-				System.out.println("Race Condition Avoided: Slot " + time + " was taken just before insertion.");
-				return null; 
+			synchronized (bookingLock(date)) {
+				LocalTime time = (LocalTime) data.get(3);
+				int diners = (int) data.get(2);
+				boolean isSlotStillFree = checkSpecificSlotAvailability(date, time, diners);
+				if (!isSlotStillFree) {
+					System.out.println("Race Condition Avoided: Slot " + time + " was taken just before insertion.");
+					return null; 
+				}
+				order = insertOrder(data, orderType);
 			}
+		} else {
+			order = insertOrder(data, orderType);
+		}
+		if (order != null) {
+			changePublisher.orderAdded(order);
 		}
+		return order;
+	}
+	
+	/**
+	 * Inserts a new order with a fresh confirmation code and indexes its slot.
+	 * 
+	 * @param data A list containing order details: [0]userId, [1]date, [2]dinersAmount, [3]time
+	 * @param orderType The type of the order (RESERVATION or WAITLIST).
+	 * @return The created Order object, or null if the insert failed.
+	 */
+	private Order insertOrder(List<Object> data, OrderType orderType) {
+		int userId = (int) data.get(0);
+		LocalDate date = (LocalDate) data.get(1);
+		int diners = (int) data.get(2);
+		LocalTime time = (LocalTime) data.get(3);
 		// Generate unique confirmation code
 		String confirmationCode = generateConfirmationCode("R");
 		data.add(confirmationCode); 
-		boolean orderCreated = dbController.setNewOrder(data, orderType, OrderStatus.PENDING);
+		// A reservation also takes a table for its stay in the storage's slot ledger
+		boolean orderCreated = orderType == OrderType.RESERVATION
+				? dbController.setNewReservation(data, stayOf(time))
+				: dbController.setNewOrder(data, orderType, OrderStatus.PENDING);
 		if (orderCreated) {
 			System.out.println("Order created successfully with confirmation code: " + confirmationCode);
 			logger.log("[INFO] New order created: " + confirmationCode + " for userId: " + userId);
-			return createOrderDto(userId, date, diners, time, confirmationCode, orderType, OrderStatus.PENDING);
+			Order order = createOrderDto(userId, date, diners, time, confirmationCode, orderType, OrderStatus.PENDING);
+			occupancy.added(order);
+			return order;
 		} else {
 			System.out.println("Failed to create order in DB.");
 			logger.log("[ERROR] Failed to create new order for userId: " + userId);
@@ -141,6 +213,31 @@ public class OrdersService {
 		}
 	}
 	
+	/**
+	 * Gets the slots a reservation holds its table in, within its day.
+	 * 
+	 * @param time The reservation time.
+	 * @return The start of every slot of the stay.
+	 */
+	private List<LocalTime> stayOf(LocalTime time) {
+		List<LocalTime> stay = new ArrayList<>();
+		int start = time.getHour() * 60 + time.getMinute();
+		for (int minute = start; minute < start + reservationDurationMinutes && minute < 24 * 60; minute += slotStepMinutes) {
+			stay.add(LocalTime.of(minute / 60, minute % 60));
+		}
+		return stay;
+	}
+	
+	/**
+	 * Gets the lock guarding the reservations of a date.
+	 * 
+	 * @param date The reservation date.
+	 * @return The lock of the date's stripe.
+	 */
+	private Object bookingLock(LocalDate date) {
+		return bookingLocks[(int) Math.floorMod(date.toEpochDay(), (long) BOOKING_LOCK_STRIPES)];
+	}
+	
 	/**
 	 * Creates an Order DTO object.
 	 * 
@@ -165,14 +262,12 @@ public class OrdersService {
 	 * @return true if the slot is available, false otherwise.
 	 */
 	private boolean checkSpecificSlotAvailability(LocalDate date, LocalTime targetTime, int diners) {
-		List<Order> existingReservations = dbController.getOrdersByDate(date);
-		List<LocalTime> openingHours = dbController.getOpeningHoursFromDB();
+		List<LocalTime> openingHours = dbController.getOpeningHoursFromDB(date);
 		if (openingHours == null || openingHours.size() < 2) return false;
 		LocalTime open = openingHours.get(0);
 		LocalTime close = openingHours.get(1);
-		List<String> availableSlots = computeAvailableSlots(open, close, diners, existingReservations);		
-		String targetString = timeToString(targetTime);
-		return availableSlots.contains(targetString);
+		return buildPossibleTimeSlots(open, close).contains(targetTime) && ensureTableSizes()
+				&& occupancy.fits(date, targetTime, diners);
 	}
 	
 	/**
@@ -256,6 +351,44 @@ public class OrdersService {
 		return orders;
 	}
 	
+	/**
+	 * Gets one page of the order history of a client, latest first.
+	 * 
+	 * @param userId  The user's ID
+	 * @param request The page request, its cursor null for the first page
+	 * @return The page, or null on failure
+	 */
+	public Page<Order> getClientHistoryPage(int userId, PageRequest request) {
+		int limit = request.getLimit();
+		// One more row than the page tells whether there is a next page
+		List<Order> orders = dbController.getOrdersByUserIdPage(userId, request.getAfter(), limit + 1);
+		if (orders == null) {
+			return null;
+		}
+		PageCursor next = null;
+		if (orders.size() > limit) {
+			orders = orders.subList(0, limit);
+			Order last = orders.get(limit - 1);
+			next = new PageCursor(last.getOrderDate(), last.getOrderNumber());
+		}
+		return new Page<>(new ArrayList<>(orders), request.getAfter(), next, null);
+	}
+	
+	/**
+	 * Gets one page of the order history of a member, looked up by member code.
+	 * 
+	 * @param request The page request, its owner key the member code
+	 * @return The page, or null if the member was not found or on failure
+	 */
+	public Page<Order> getMemberHistoryPage(PageRequest request) {
+		User member = dbController.findMemberUserByCode(request.getOwnerKey());
+		if (member == null) {
+			logger.log("[DEBUG] No member found with code: " + request.getOwnerKey());
+			return null;
+		}
+		return getClientHistoryPage(member.getUserId(), request);
+	}
+	
 	/**
 	 * Generates a unique 6-digit code with a prefix (e.g., "R-123456").
 	 * Verifies against the DB to ensure no duplicates exist.
@@ -313,7 +446,11 @@ public class OrdersService {
 	 * @return true if the update was successful, false otherwise.
 	 */
 	public boolean updateOrderStatus(String confirmationCode, OrderStatus completed) {
-		return dbController.updateOrderStatusInDB(confirmationCode, completed);
+		boolean updated = dbController.updateOrderStatusInDB(confirmationCode, completed);
+		if (updated && !holdsTable(completed)) {
+			occupancy.released(confirmationCode);
+		}
+		return updated;
 	}
 	
 	/**
@@ -326,6 +463,7 @@ public class OrdersService {
 			boolean noShow = dbController.updateOrderStatusInDB(confirmationCode,OrderStatus.NO_SHOW);
 			// Log the no-show event
 			if (noShow) {
+				occupancy.released(confirmationCode);
 				logger.log("[WARN] RESERVATION NO_SHOW: " + confirmationCode);
 				return true;
 			}
@@ -344,6 +482,30 @@ public class OrdersService {
 	    return dbController.recoverGuestSeatedCode(email, phone);
 	}
 	
+	/**
+	 * Frees the slot of a reservation that no longer holds a table: cancelled,
+	 * no-show or completed. Called by the services changing it outside this one.
+	 * 
+	 * @param confirmationCode The confirmation code of the reservation.
+	 */
+	public void reservationReleased(String confirmationCode) {
+		occupancy.released(confirmationCode);
+	}
+	
+	/**
+	 * Tells the slot calculation that tables were added, removed or resized.
+	 */
+	public void tablesChanged() {
+		tableSizes = List.of();
+	}
+	
+	/**
+	 * Checks whether an order in a status holds its table.
+	 */
+	private static boolean holdsTable(OrderStatus status) {
+		return status == OrderStatus.PENDING || status == OrderStatus.NOTIFIED || status == OrderStatus.SEATED;
+	}
+	
 	// ******************************** Reservation Available Time Slots Calculation Methods ***********************************
 	
 	/**
@@ -353,7 +515,6 @@ public class OrdersService {
 	 * @return A list of available reservation hours in "HH:mm" format.
 	 */
 	public List<String> getAvailableReservationHours(Map<String, Object> requestData) {
-	    getTablesCapacity();
 
 	    // Extract date and diners amount from requestData
 	    LocalDate date = (LocalDate) requestData.get("date");
@@ -369,7 +530,18 @@ public class OrdersService {
 	    // Extract opening and closing times
 	    LocalTime openingTime = openingHours.get(0);
 	    LocalTime closingTime = openingHours.get(1);
-	    // Adjust opening time if the date is today
+	    return computeAvailableSlots(date, effectiveOpeningTime(date, openingTime), closingTime, dinersAmount);
+	}
+	
+	/**
+	 * Gets the first slot still bookable on a date: the opening time, or for today
+	 * the first slot starting at least an hour from now.
+	 * 
+	 * @param date The date of the reservation.
+	 * @param openingTime The restaurant's opening time on that date.
+	 * @return The time of the first bookable slot.
+	 */
+	private LocalTime effectiveOpeningTime(LocalDate date, LocalTime openingTime) {
 	    LocalTime effectiveOpeningTime = openingTime;
 	    if (date.equals(LocalDate.now())) {
 	        LocalTime now = LocalTime.now().plusHours(1);
@@ -380,10 +552,7 @@ public class OrdersService {
 	            effectiveOpeningTime = now.plusMinutes(minutesToAdd).withSecond(0).withNano(0);
 	        }
 	    }
-
-	    // Fetch existing reservations for the date
-	    List<Order> reservationsByDate = dbController.getOrdersByDate(date);
-	    return computeAvailableSlots(effectiveOpeningTime, closingTime, dinersAmount, reservationsByDate);
+	    return effectiveOpeningTime;
 	}
 
 	
@@ -392,63 +561,78 @@ public class OrdersService {
 	 */
 	public void getTablesCapacity() {
 		List<Table> tables = tableService.getAllTables();
-		tableSizes.clear();
+		List<Integer> sizes = new ArrayList<>();
 		for (Table table : tables) {
-			tableSizes.add(table.getCapacity());
+			sizes.add(table.getCapacity());
+		}
+		occupancy.setTableSizes(sizes);
+		this.tableCounts = TableFit.countTables(sizes);
+		this.tableSizes = List.copyOf(sizes);
+	}
+	
+	/**
+	 * Loads the table capacities unless they are loaded and unchanged.
+	 * 
+	 * @return true if there are tables to seat diners at.
+	 */
+	private boolean ensureTableSizes() {
+		if (tableSizes.isEmpty()) {
+			getTablesCapacity();
 		}
-		return;
+		if (tableSizes.isEmpty()) {
+			System.err.println("ERROR: tableSizes is EMPTY! No tables to seat diners.");
+			return false;
+		}
+		return true;
 	}
 	
 	
 	/**
 	 * Computes available reservation slots within opening hours that can accommodate
-	 * the new diners amount, considering existing reservations.
+	 * the new diners amount, considering existing reservations (see SlotOccupancyIndex).
 	 * 
+	 * @param date The date of the reservation.
 	 * @param openingTime The restaurant's opening time.
 	 * @param closingTime The restaurant's closing time.
 	 * @param newDinersAmount The number of diners for the new reservation.
-	 * @param reservationsByDate A list of existing reservations for the specified date.
 	 * @return A list of available reservation slots in "HH:mm" format.
 	 */
-	public List<String> computeAvailableSlots(LocalTime openingTime, LocalTime closingTime, int newDinersAmount,
-	        List<Order> reservationsByDate) {
-		// Sanity check for table sizes
-	    if (this.tableSizes == null || this.tableSizes.isEmpty()) {
-	        System.err.println("ERROR: tableSizes is EMPTY! No tables to seat diners.");
-	        return new ArrayList<>();
-	    }
-	    // Build possible time slots within opening hours
-	    List<LocalTime> possibleTimeSlots = buildPossibleTimeSlots(openingTime, closingTime);
-	    Map<LocalTime, List<Integer>> tablesPerTime = new HashMap<>();
-	    for (LocalTime slot : possibleTimeSlots){
-	        tablesPerTime.put(slot, new ArrayList<>()); 
-	    }
-	    // Map existing reservations to overlapping time slots
-	    for (Order o : reservationsByDate) {
-	        LocalTime orderStart = o.getOrderHour();
-	        LocalTime orderEnd = orderStart.plusMinutes(reservationDurationMinutes);
-	        for (LocalTime slot : possibleTimeSlots) {
-	            LocalTime slotStartTime = slot;
-	            LocalTime slotEndTime = slotStartTime.plusMinutes(reservationDurationMinutes);
-	            if (overlaps(slotStartTime, slotEndTime, orderStart, orderEnd)) {
-	                tablesPerTime.get(slot).add(o.getDinersAmount());
-	            }
-	        }
+	public List<String> computeAvailableSlots(LocalDate date, LocalTime openingTime, LocalTime closingTime,
+			int newDinersAmount) {
+	    List<String> available = new ArrayList<>();
+	    if (!ensureTableSizes()) {
+	        return available;
 	    }
-	    // Determine available slots for the new diners amount
-	    List<String> available = new ArrayList<>(); 
-	    for (LocalTime slot : possibleTimeSlots) {
-	        List<Integer> overlappingDinersAmounts = new ArrayList<>(tablesPerTime.get(slot));
-	        overlappingDinersAmounts.add(newDinersAmount);
-	        if (canAssignAllDinersToTables(overlappingDinersAmounts, tableSizes)) {
+	    // Keep the slots where all overlapping parties and the new one get a table
+	    LocalTime lastTimeSlot = closingTime.minusMinutes(reservationDurationMinutes);
+	    for (LocalTime slot = openingTime; !slot.isAfter(lastTimeSlot); slot = slot.plusMinutes(slotStepMinutes)) {
+	        if (occupancy.fits(date, slot, newDinersAmount)) {
 	            available.add(timeToString(slot));
-	        } else {
-	             System.out.println("Slot " + slot + " REJECTED (Not enough tables)");
 	        }
 	    }
 	    return available;
 	}
 
+	/**
+	 * Checks whether a date has at least one slot for the new diners amount.
+	 * 
+	 * @param date The date of the reservation.
+	 * @param openingTime The time of the first bookable slot.
+	 * @param closingTime The restaurant's closing time.
+	 * @param newDinersAmount The number of diners for the new reservation.
+	 * @return true if a slot fits the diners.
+	 */
+	private boolean hasAvailableSlot(LocalDate date, LocalTime openingTime, LocalTime closingTime,
+			int newDinersAmount) {
+	    LocalTime lastTimeSlot = closingTime.minusMinutes(reservationDurationMinutes);
+	    for (LocalTime slot = openingTime; !slot.isAfter(lastTimeSlot); slot = slot.plusMinutes(slotStepMinutes)) {
+	        if (occupancy.fits(date, slot, newDinersAmount)) {
+	            return true;
+	        }
+	    }
+	    return false;
+	}
+
 	/**
 	 * Builds a list of possible reservation time slots between opening and closing times.
 	 * 
@@ -484,39 +668,12 @@ public class OrdersService {
     /**
 	 * Checks if it is possible to assign all diners amounts to available tables.
 	 * 
-	 * @param overlappingDinersAmounts A list of diners amounts that need to be seated.
-	 * @param tableSizes A list of available table sizes.
+	 * @param overlappingDiners The diners amounts that need to be seated, counted by size (see TableFit).
+	 * @param tableCounts The available tables, counted by capacity.
 	 * @return true if all diners amounts can be assigned to tables, false otherwise.
 	 */
-	public boolean canAssignAllDinersToTables(List<Integer> overlappingDinersAmounts, List<Integer> tableSizes) {
-		// Sort diners amounts in descending order:
-		List<Integer> overlappingDinersAmountsCopy = new ArrayList<>(overlappingDinersAmounts);
-		overlappingDinersAmountsCopy.sort(Comparator.reverseOrder()); //TODO: refactor to alternative way without using Comparator
-		// Build a TreeMap of table sizes to their counts:
-		TreeMap<Integer, Integer> tableSizeCounts = new TreeMap<>();
-		//loop over table sizes and count occurrences:
-		for (int t : tableSizes) {
-			if (tableSizeCounts.containsKey(t)) {
-				tableSizeCounts.put(t, tableSizeCounts.get(t) + 1);
-			} else {
-				tableSizeCounts.put(t, 1);
-			}
-		}
-		// Try to assign each diners amount to a suitable table:
-		for (int i : overlappingDinersAmountsCopy) {
-			Integer chosen = tableSizeCounts.ceilingKey(i); // smallest table >= p
-			if (chosen == null) {
-				return false;
-			}
-			// Update table size counts:
-			int count = tableSizeCounts.get(chosen);
-			if (count == 1) {
-				tableSizeCounts.remove(chosen);
-			} else {
-				tableSizeCounts.put(chosen, count - 1);
-			}
-		}
-		return true;
+	public boolean canAssignAllDinersToTables(int[] overlappingDiners, int[] tableCounts) {
+		return TableFit.fits(overlappingDiners, tableCounts);
 	}
 	
 	/**
@@ -551,44 +708,69 @@ public class OrdersService {
 	// ******************************** New Method for Date Availability ***********************************
 	
 	/**
-	 * Returns a list of dates (starting from tomorrow up to 30 days ahead)
+	 * Returns a list of dates (starting from today up to 30 days ahead)
 	 * where there is at least one available time slot for the given number of diners.
+	 * The opening hours and the reservations of the whole range are read at once and
+	 * the days are checked in parallel. The answer is kept per diners amount until a
+	 * reservation, a table or the opening hours change.
 	 * @param diners The number of diners.
 	 * @return List of available LocalDate objects.
 	 */
 	public List<LocalDate> getAvailableDates(int diners) {
-		getTablesCapacity(); // Refresh table sizes
-		List<LocalTime> openingHours = dbController.getOpeningHoursFromDB();
-		if (openingHours == null || openingHours.size() < 2) {
+		LocalDate startDate = LocalDate.now(); // Start checking from today
+		LocalDate endDate = startDate.plusDays(BOOKING_WINDOW_DAYS);
+		Map<LocalDate, List<LocalTime>> hoursByDate = dbController.getOpeningHoursBetween(startDate, endDate);
+		if (hoursByDate == null || !ensureTableSizes()) {
 			return new ArrayList<>();
 		}
-		// Extract opening and closing times
-		LocalTime open = openingHours.get(0);
-		LocalTime close = openingHours.get(1);
-		// Prepare result list
-		List<LocalDate> resultDates = new ArrayList<>();
-		LocalDate startDate = LocalDate.now().plusDays(0); // Start checking from today
-		LocalDate endDate = startDate.plusDays(30); // Check for the next 30 days
-
-		// Iterate through each day
-		for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-
-		    List<LocalTime> hours = dbController.getOpeningHoursFromDB(date);
+		occupancy.preload(startDate, endDate);
+		
+		// Reuse the last answer if nothing it was computed from changed
+		long version = occupancy.version();
+		LocalTime firstSlotToday = effectiveOpeningTime(startDate, LocalTime.MIN);
+		AvailableDates cached = availableDatesCache.get(diners);
+		if (cached != null && cached.isValid(version, startDate, firstSlotToday, hoursByDate)) {
+			return new ArrayList<>(cached.dates);
+		}
 
-		    // Skip if closed or missing hours
-		    if (hours == null || hours.size() < 2) {
-		        continue;
-		    }
-		    // Fetch existing reservations for the date
-		    List<Order> reservationsOnDate = dbController.getOrdersByDate(date);
-		    List<String> slots = computeAvailableSlots(open, close, diners, reservationsOnDate);
+		// Check each open day on its own hours, in parallel
+		List<LocalDate> resultDates = hoursByDate.entrySet().parallelStream()
+				.filter(day -> day.getValue().size() >= 2 && hasAvailableSlot(day.getKey(),
+						effectiveOpeningTime(day.getKey(), day.getValue().get(0)), day.getValue().get(1), diners))
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toList());
 
-		    if (!slots.isEmpty()) {
-		        resultDates.add(date);
-		    }
+		if (diners > 0 && diners <= SlotOccupancyIndex.MAX_PARTY) {
+			availableDatesCache.put(diners,
+					new AvailableDates(version, startDate, firstSlotToday, hoursByDate, resultDates));
+		}
+		return new ArrayList<>(resultDates);
+	}
+	
+	/**
+	 * An answer of getAvailableDates and what it was computed from.
+	 */
+	private static final class AvailableDates {
+		final long version;
+		final LocalDate startDate;
+		final LocalTime firstSlotToday;
+		final Map<LocalDate, List<LocalTime>> hoursByDate;
+		final List<LocalDate> dates;
+		
+		AvailableDates(long version, LocalDate startDate, LocalTime firstSlotToday,
+				Map<LocalDate, List<LocalTime>> hoursByDate, List<LocalDate> dates) {
+			this.version = version;
+			this.startDate = startDate;
+			this.firstSlotToday = firstSlotToday;
+			this.hoursByDate = hoursByDate;
+			this.dates = List.copyOf(dates);
+		}
+		
+		boolean isValid(long version, LocalDate startDate, LocalTime firstSlotToday,
+				Map<LocalDate, List<LocalTime>> hoursByDate) {
+			return this.version == version && this.startDate.equals(startDate)
+					&& this.firstSlotToday.equals(firstSlotToday) && this.hoursByDate.equals(hoursByDate);
 		}
-
-		return resultDates;
 	}
 
 	/**
@@ -608,7 +790,12 @@ public class OrdersService {
             return false;
         }
 
-        return dbController.updateOrderStatusInDB(confirmationCode, OrderStatus.CANCELLED);
+        boolean cancelled = dbController.updateOrderStatusInDB(confirmationCode, OrderStatus.CANCELLED);
+        if (cancelled) {
+        	occupancy.released(confirmationCode);
+        	changePublisher.orderStatusChanged(confirmationCode, OrderStatus.CANCELLED);
+        }
+        return cancelled;
     }
 
     /**
@@ -10,7 +10,7 @@ import entities.User;
 import enums.EndTableSessionType;
 import enums.OrderStatus;
 import enums.UserType;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.ServerLogger;
 import logic.services.payment_simulator.MockPaymentGateway;
 import logic.services.payment_simulator.PaymentGateway;
@@ -20,8 +20,11 @@ import logic.services.payment_simulator.PaymentGateway;
  */
 public class PaymentService {
 
+	/** Returned by closeOrder when no table session was open */
+	private static final int NO_TABLE = -1;
+
 	/* Dependencies */
-    private final BistroDataBase_Controller dbController;
+    private final BistroStorage dbController;
     private final ServerLogger logger;
     private final TableService tableService;
     private final PaymentGateway paymentGateway;
@@ -33,7 +36,7 @@ public class PaymentService {
 	 * @param tableService The table service for managing table sessions.
 	 * @param paymentGateway The payment gateway for processing payments.
 	 */
-    public PaymentService(BistroDataBase_Controller dbController, ServerLogger logger,TableService tableService) {
+    public PaymentService(BistroStorage dbController, ServerLogger logger,TableService tableService) {
         this.dbController = dbController;
         this.logger = logger;
         // Initialize with the Mock gateway for now. 
@@ -88,8 +91,10 @@ public class PaymentService {
 
         // If payment succeeded, update bill status
         if (transactionId != null) {
-            dbController.markBillAsPaid(billId, "CREDIT", transactionId);
-            finalizeOrderPayment(billId);
+            if (!settleBill(billId, "CREDIT", transactionId)) {
+                logger.log("[ERROR] Bill " + billId + " was charged but not recorded. Transaction Ref: " + transactionId);
+                return false;
+            }
             logger.log("[SUCCESS] Bill " + billId + " paid. Transaction Ref: " + transactionId);
             return true;
         } else {
@@ -115,27 +120,70 @@ public class PaymentService {
             return false;
         }
         // Mark bill as paid in the database
-        dbController.markBillAsPaid(billId, "CASH", null);
-        finalizeOrderPayment(billId);
+        if (!settleBill(billId, "CASH", null)) {
+            return false;
+        }
         logger.log("[SUCCESS] Bill " + billId + " paid via CASH.");
         return true;
     }
 
     /**
-	 * Finalizes the order/session associated with a paid bill.
+	 * Marks a bill as paid and finalizes the order/session associated with it,
+	 * in one transaction, then frees the table.
 	 * @param billId The ID of the paid bill.
+	 * @param paymentMethod CREDIT or CASH.
+	 * @param transactionId The gateway reference, null for cash.
+	 * @return true if the payment was recorded, false if it was rolled back.
 	 */
-    private void finalizeOrderPayment(int billId) {
+    private boolean settleBill(int billId, String paymentMethod, String transactionId) {
+        Integer tableNum;
         try {
-            Integer orderNum = dbController.getOrderNumberByBillId(billId);
-            if (orderNum != null) {
-                onPaymentCompleted(orderNum);
-            } else {
-                logger.log("[WARN] Could not find Order Number for Bill ID: " + billId);
-            }
-        } catch (Exception e) {
+            tableNum = dbController.inTransaction(store -> {
+                store.markBillAsPaid(billId, paymentMethod, transactionId);
+                Integer orderNum = store.getOrderNumberByBillId(billId);
+                if (orderNum == null) {
+                    logger.log("[WARN] Could not find Order Number for Bill ID: " + billId);
+                    return NO_TABLE;
+                }
+                return closeOrder(store, orderNum);
+            });
+        } catch (RuntimeException e) {
             logger.log("[ERROR] Failed to finalize order/session for bill " + billId + ": " + e.getMessage());
             e.printStackTrace();
+            return false;
+        }
+        if (tableNum == null) {
+            return false;
+        }
+        freeTable(tableNum);
+        return true;
+    }
+
+    /**
+     * Closes the table session of a paid order and completes the order.
+     * @param store The storage, inside the payment transaction.
+     * @param orderNumber The order number of the paid order.
+     * @return The table that was freed, or NO_TABLE if the session was already closed.
+     */
+    private int closeOrder(BistroStorage store, int orderNumber) {
+        Integer tableNum = store.getActiveTableNumByOrderNumber(orderNumber);
+        store.closeTableSessionForOrder(orderNumber, EndTableSessionType.PAID);
+        store.updateOrderStatusByOrderNumber(orderNumber, OrderStatus.COMPLETED);
+        // If tableNum is null, it means the session was already closed.
+        if (tableNum == null) {
+            logger.log("[INFO] Payment completed, but table session was already closed or not found for order " + orderNumber);
+            return NO_TABLE;
+        }
+        return tableNum;
+    }
+
+    /**
+     * Notifies TableService that a table is free, once the payment is committed.
+     * @param tableNum The table number, or NO_TABLE.
+     */
+    private void freeTable(int tableNum) {
+        if (tableNum != NO_TABLE && tableService != null) {
+            tableService.tableFreed(tableNum);
         }
     }
     
@@ -173,21 +221,12 @@ public class PaymentService {
      * @return true if successful, false otherwise.
      */
     public boolean onPaymentCompleted(int orderNumber) {
-        Integer tableNum = dbController.getActiveTableNumByOrderNumber(orderNumber);
-        dbController.closeTableSessionForOrder(orderNumber, EndTableSessionType.PAID);
-        dbController.updateOrderStatusByOrderNumber(orderNumber, OrderStatus.COMPLETED); 
-
-        // If tableNum is null, it means the session was already closed.
+        Integer tableNum = dbController.inTransaction(store -> closeOrder(store, orderNumber));
         if (tableNum == null) {
-            logger.log("[INFO] Payment completed, but table session was already closed or not found for order " + orderNumber);
-            return true; 
-        }          
-        
-        // Notify TableService to free the table
-        if (tableService != null) {
-            tableService.tableFreed(tableNum);
+            return false;
         }
-        
+        // Notify TableService to free the table
+        freeTable(tableNum);
         return true;
     }
    
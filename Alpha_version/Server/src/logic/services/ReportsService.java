@@ -2,19 +2,26 @@ package logic.services;
 
 import java.io.*;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 import entities.MonthlyReport;
 import entities.ReportRequest;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
+import logic.storage.DailyReportFacts;
 import logic.ServerLogger;
+import logic.Workload;
 
 /**
  * Service for generating and retrieving monthly reports.
+ * Its queries run as the REPORTING workload, on the reporting connection pool,
+ * whichever thread calls it.
  */
 public class ReportsService {
-    private final BistroDataBase_Controller db;
+    private final BistroStorage db;
     private final ServerLogger logger;
 
     /**
@@ -23,7 +30,7 @@ public class ReportsService {
 	 * @param dbController The database controller to use for data access.
 	 * @param logger       The logger for logging operations.
 	 */
-    public ReportsService(BistroDataBase_Controller dbController, ServerLogger logger) {
+    public ReportsService(BistroStorage dbController, ServerLogger logger) {
         this.db = dbController;
         this.logger = logger;
     }
@@ -35,7 +42,7 @@ public class ReportsService {
 	 * @return A list of int arrays, each containing [year, month].
 	 */
     public List<int[]> listMonths(String reportType) {
-        return db.listReportMonths(reportType);
+        return Workload.REPORTING.call(() -> db.listReportMonths(reportType));
     }
 
     /**
@@ -44,6 +51,13 @@ public class ReportsService {
      * @return The monthly report.
      */
     public MonthlyReport getOrGenerate(ReportRequest req) {
+        return Workload.REPORTING.call(() -> getOrGenerateReport(req));
+    }
+
+    /**
+     * Implements getOrGenerate, on the calling thread tagged as REPORTING.
+     */
+    private MonthlyReport getOrGenerateReport(ReportRequest req) {
         if (req == null) throw new IllegalArgumentException("ReportRequest is null");
         if (req.getMonth() < 1 || req.getMonth() > 12) throw new IllegalArgumentException("Invalid month");
         // Check year validity (e.g., between 2000 and current year)
@@ -83,19 +97,26 @@ public class ReportsService {
         r.setYearInt(year);
         r.setMonthInt(month);
         
-        // Set summary statistics
+        // One range read of the daily rollup, the month's totals are its sums
         LocalDate firstDay = LocalDate.of(year, month, 1);
-        
-        // Assuming db methods handle month boundaries correctly
-        r.setTotalReservations(db.getTotalReservation(firstDay));
-        r.setTotalCostumer(db.getTotalCostumersInMonth(firstDay));
-        r.setTotalLateCostumer(db.getTotalLateCostumersInMonth(firstDay));
-        r.setTotalOnTimeCostumer(db.getTotalOntTimeCostumersInMonth(firstDay));
-        r.setTotalMemberReservations(db.getTotalMembersReservationInMonth(firstDay));
+        LocalDate lastDay = firstDay.withDayOfMonth(firstDay.lengthOfMonth());
+        List<DailyReportFacts> days = db.getDailyReportFacts(firstDay, lastDay);
 
-        // Calculate member reservation percentage
-        int totalRes = r.getTotalReservations();
-        int memberRes = r.getTotalMemberReservations();
+        int totalRes = 0;
+        int memberRes = 0;
+        int late = 0;
+        int onTime = 0;
+        for (DailyReportFacts day : days) {
+            totalRes += day.getOrders();
+            memberRes += day.getMemberOrders();
+            late += day.getLate();
+            onTime += day.getOnTime();
+        }
+        r.setTotalReservations(totalRes);
+        r.setTotalCostumer(db.getDistinctCustomers(firstDay, lastDay));
+        r.setTotalLateCostumer(late);
+        r.setTotalOnTimeCostumer(onTime);
+        r.setTotalMemberReservations(memberRes);
 
         // Avoid division by zero
         int pct = 0;
@@ -107,15 +128,13 @@ public class ReportsService {
 
         // Fill graphs depending on report type
         if ("MEMBERS".equalsIgnoreCase(type)) {
-            Map<Integer, Integer> resByDay = db.getReservationsByDay(year, month);
-            Map<Integer, Integer> wlByDay = db.getWaitlistJoinsByDay(year, month);
-            r.setReservationsByDay(resByDay);
-            r.setWaitlistByDay(wlByDay);
+            r.setReservationsByDay(byDay(days, DailyReportFacts::getReservations));
+            r.setWaitlistByDay(byDay(days, DailyReportFacts::getWaitlistJoins));
         } else if ("TIMES".equalsIgnoreCase(type)) {
-            r.setLateArrivalsByDay(db.getLateArrivalsByDay(year, month));
-            r.setOnTimeArrivalsByDay(db.getOnTimeArrivalsByDay(year, month));
-            r.setLatenessBuckets(db.getLatenessBuckets(year, month));
-            r.setOverstayBuckets(db.getOverstayBuckets(year, month));
+            r.setLateArrivalsByDay(byDay(days, DailyReportFacts::getLate));
+            r.setOnTimeArrivalsByDay(byDay(days, DailyReportFacts::getOnTime));
+            r.setLatenessBuckets(buckets(days, DailyReportFacts.LATENESS_BUCKETS, DailyReportFacts::getLateness));
+            r.setOverstayBuckets(buckets(days, DailyReportFacts.OVERSTAY_BUCKETS, DailyReportFacts::getOverstay));
         } else {
             throw new IllegalArgumentException("Unknown report type: " + type);
         }
@@ -124,6 +143,42 @@ public class ReportsService {
         return r;
     }
 
+    /**
+     * Maps the days of the month with a non-zero count to that count.
+     * @param days  The daily facts of the month.
+     * @param count The count to read from each day.
+     * @return The counts by day of the month.
+     */
+    private static Map<Integer, Integer> byDay(List<DailyReportFacts> days, ToIntFunction<DailyReportFacts> count) {
+        Map<Integer, Integer> out = new HashMap<>();
+        for (DailyReportFacts day : days) {
+            int value = count.applyAsInt(day);
+            if (value > 0) out.put(day.getDay().getDayOfMonth(), value);
+        }
+        return out;
+    }
+
+    /**
+     * Sums the bucket counts of the days of the month, keeping the non-empty buckets.
+     * @param days    The daily facts of the month.
+     * @param labels  The bucket labels.
+     * @param buckets The bucket counts to read from each day, indexed like the labels.
+     * @return The counts by bucket label.
+     */
+    private static Map<String, Integer> buckets(List<DailyReportFacts> days, String[] labels,
+            Function<DailyReportFacts, int[]> buckets) {
+        int[] sums = new int[labels.length];
+        for (DailyReportFacts day : days) {
+            int[] counts = buckets.apply(day);
+            for (int i = 0; i < sums.length; i++) sums[i] += counts[i];
+        }
+        Map<String, Integer> out = new HashMap<>();
+        for (int i = 0; i < sums.length; i++) {
+            if (sums[i] > 0) out.put(labels[i], sums[i]);
+        }
+        return out;
+    }
+
     /**
      * Serializes a MonthlyReport to a byte array.
      * @param r The MonthlyReport to serialize.
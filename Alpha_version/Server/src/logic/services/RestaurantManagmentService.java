@@ -4,7 +4,7 @@ import java.util.List;
 
 import dto.Holiday;
 import dto.WeeklyHour;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.ServerLogger;
 
 /**
@@ -13,11 +13,11 @@ import logic.ServerLogger;
 public class RestaurantManagmentService {
 	
 	// ******************************** Instance Variables ********************************//
-	private final BistroDataBase_Controller dbController;
+	private final BistroStorage dbController;
 	private final ServerLogger logger;
 
 	// ******************************** Constructor ********************************//
-	public RestaurantManagmentService(BistroDataBase_Controller dbController, ServerLogger logger) {
+	public RestaurantManagmentService(BistroStorage dbController, ServerLogger logger) {
 		this.dbController = dbController;
 		this.logger = logger;
 	}
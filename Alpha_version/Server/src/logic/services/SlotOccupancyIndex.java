@@ -0,0 +1,343 @@
+package logic.services;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import entities.Order;
+import enums.OrderType;
+import logic.storage.BistroStorage;
+
+/**
+ * In-memory index of the parties holding a table in each reservation slot of
+ * a day, answering availability queries without reading the orders.
+ *
+ * Each day is a flat int array counting, for every slot start of the day, the
+ * reservations of each party size. A day is loaded from storage the first time
+ * it is queried and then kept up to date as reservations are created and
+ * released (cancelled, no-show, completed); seating keeps the table held, so
+ * it changes nothing. As a safety net against changes made outside these
+ * paths, a day is reloaded once it is older than {@link #MAX_AGE_MINUTES}.
+ *
+ * Reservations start on the slot grid (the orders table enforces :00 and :30);
+ * one starting off the grid counts at the slot before it.
+ */
+public final class SlotOccupancyIndex {
+
+	// ****** Constants ******
+
+	/** Largest party size counted by its size; larger parties never fit a table */
+	public static final int MAX_PARTY = TableFit.MAX_SIZE;
+	/** Age after which a day is reloaded from storage */
+	public static final int MAX_AGE_MINUTES = 5;
+
+	// Counts of a slot, laid out as a TableFit counting array
+	private static final int WIDTH = TableFit.WIDTH;
+	private static final long MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(MAX_AGE_MINUTES);
+
+	// ****** Instance variables ******
+
+	private final BistroStorage storage;
+	private final int slotStepMinutes;
+	private final int durationMinutes;
+	private final int slotsPerDay;
+	private final ConcurrentHashMap<LocalDate, Day> days = new ConcurrentHashMap<>();
+	// Day of each indexed reservation, to release it by its confirmation code
+	private final ConcurrentHashMap<String, LocalDate> dayOfCode = new ConcurrentHashMap<>();
+	// Tables by capacity, capped at MAX_PARTY; replaced as a whole
+	private volatile int[] tables = new int[WIDTH];
+	// Bumped on every change of the counts or tables, see version()
+	private final AtomicLong version = new AtomicLong();
+	// Bumped on every added() call, loaded day or not, see preload()
+	private final AtomicLong arrivals = new AtomicLong();
+
+	// ****** Constructor ******
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @param storage         The storage the days are loaded from.
+	 * @param slotStepMinutes The minutes between two slot starts.
+	 * @param durationMinutes The minutes a reservation holds its table.
+	 */
+	public SlotOccupancyIndex(BistroStorage storage, int slotStepMinutes, int durationMinutes) {
+		this.storage = storage;
+		this.slotStepMinutes = slotStepMinutes;
+		this.durationMinutes = durationMinutes;
+		this.slotsPerDay = (24 * 60 + slotStepMinutes - 1) / slotStepMinutes;
+	}
+
+	// ****** Tables ******
+
+	/**
+	 * Sets the capacities of the tables reservations are fitted to.
+	 *
+	 * @param capacities The capacity of each table.
+	 */
+	public void setTableSizes(List<Integer> capacities) {
+		this.tables = TableFit.countTables(capacities);
+		version.incrementAndGet();
+	}
+
+	// ****** Updates ******
+
+	/**
+	 * Adds a new reservation to its slot, if its day is loaded. A day loaded
+	 * later reads it from storage.
+	 *
+	 * @param order The reservation, with its date, time, size and confirmation code.
+	 */
+	public void added(Order order) {
+		if (order == null || order.getOrderType() != OrderType.RESERVATION || order.getOrderDate() == null
+				|| order.getOrderHour() == null || order.getConfirmationCode() == null) {
+			return;
+		}
+		int cell = cellOf(order.getOrderHour(), order.getDinersAmount());
+		arrivals.incrementAndGet();
+		days.computeIfPresent(order.getOrderDate(), (date, day) -> {
+			if (day.add(order.getConfirmationCode(), cell)) {
+				dayOfCode.put(order.getConfirmationCode(), date);
+				version.incrementAndGet();
+			}
+			return day;
+		});
+	}
+
+	/**
+	 * Removes a reservation that no longer holds a table, if it is indexed.
+	 *
+	 * @param confirmationCode The confirmation code of the reservation.
+	 */
+	public void released(String confirmationCode) {
+		LocalDate date = confirmationCode == null ? null : dayOfCode.get(confirmationCode);
+		if (date == null) {
+			return;
+		}
+		days.computeIfPresent(date, (d, day) -> {
+			if (day.remove(confirmationCode)) {
+				version.incrementAndGet();
+			}
+			dayOfCode.remove(confirmationCode, d);
+			return day;
+		});
+	}
+
+	// ****** Queries ******
+
+	/**
+	 * Gets a number that changes whenever the counts or the tables change:
+	 * answers computed under the same version are still valid.
+	 *
+	 * @return the current version
+	 */
+	public long version() {
+		return version.get();
+	}
+
+	/**
+	 * Loads the days of a range that are not loaded or too old, all in one
+	 * storage read, so that the queries over the range that follow need none.
+	 *
+	 * @param from The first date.
+	 * @param to   The last date.
+	 */
+	public void preload(LocalDate from, LocalDate to) {
+		List<LocalDate> missing = new ArrayList<>();
+		for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+			Day day = days.get(date);
+			if (day == null || day.isStale()) {
+				missing.add(date);
+			}
+		}
+		if (missing.isEmpty()) {
+			return;
+		}
+		long mark = arrivals.get();
+		List<Order> reservations = storage.getActiveReservations(missing.get(0), missing.get(missing.size() - 1));
+		if (reservations == null) {
+			return;
+		}
+		Map<LocalDate, List<Order>> byDate = new HashMap<>();
+		for (Order order : reservations) {
+			byDate.computeIfAbsent(order.getOrderDate(), d -> new ArrayList<>()).add(order);
+		}
+		Map<LocalDate, Day> installed = new HashMap<>();
+		for (LocalDate date : missing) {
+			days.compute(date, (d, old) -> {
+				if (old != null && !old.isStale()) {
+					return old; // Loaded meanwhile by a query
+				}
+				Day day = build(d, old, byDate.getOrDefault(d, List.of()));
+				installed.put(d, day);
+				return day;
+			});
+		}
+		// A reservation added while reading may be missing from the days
+		// installed; drop them so that each is loaded again on its own
+		if (arrivals.get() != mark) {
+			for (Map.Entry<LocalDate, Day> entry : installed.entrySet()) {
+				drop(entry.getKey(), entry.getValue());
+			}
+		}
+		evictPastDays();
+	}
+
+	/**
+	 * Checks whether a party fits the tables in a slot, given the reservations
+	 * whose stay overlaps the slot's.
+	 *
+	 * @param date   The date of the slot.
+	 * @param slot   The start of the slot.
+	 * @param diners The size of the party.
+	 * @return true if every overlapping party and the new one get a table, false
+	 *         also when the day could not be loaded.
+	 */
+	public boolean fits(LocalDate date, LocalTime slot, int diners) {
+		Day day = current(date);
+		if (day == null) {
+			return false;
+		}
+		int[] work = TableFit.parties();
+		int minute = slot.getHour() * 60 + slot.getMinute();
+		int first = Math.max(0, (minute - durationMinutes) / slotStepMinutes);
+		int last = Math.min(slotsPerDay - 1, (minute + durationMinutes) / slotStepMinutes);
+		synchronized (day) {
+			for (int s = first; s <= last; s++) {
+				if (Math.abs(s * slotStepMinutes - minute) >= durationMinutes) {
+					continue; // Stays do not overlap
+				}
+				int row = s * WIDTH;
+				for (int size = 1; size < WIDTH; size++) {
+					work[size] += day.parties[row + size];
+				}
+			}
+		}
+		TableFit.addParty(work, diners);
+		return TableFit.fits(work, tables);
+	}
+
+	// ****** Days ******
+
+	/**
+	 * Gets a day, loading it if it is not loaded or too old.
+	 *
+	 * @return the day, or null if it could not be loaded
+	 */
+	private Day current(LocalDate date) {
+		Day day = days.get(date);
+		if (day != null && !day.isStale()) {
+			return day;
+		}
+		day = days.compute(date, (d, old) -> old != null && !old.isStale() ? old : load(d, old));
+		evictPastDays();
+		return day;
+	}
+
+	/**
+	 * Drops the days gone by, which are not queried again.
+	 */
+	private void evictPastDays() {
+		LocalDate today = LocalDate.now();
+		for (Map.Entry<LocalDate, Day> entry : days.entrySet()) {
+			if (entry.getKey().isBefore(today)) {
+				drop(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Unloads a day, unless it was replaced meanwhile.
+	 */
+	private void drop(LocalDate date, Day day) {
+		if (days.remove(date, day)) {
+			for (String code : day.codes()) {
+				dayOfCode.remove(code, date);
+			}
+		}
+	}
+
+	/**
+	 * Loads a day from storage, in place of its old copy.
+	 */
+	private Day load(LocalDate date, Day old) {
+		List<Order> reservations = storage.getActiveReservations(date, date);
+		if (reservations == null) {
+			return null;
+		}
+		return build(date, old, reservations);
+	}
+
+	/**
+	 * Builds a day from its reservations, in place of its old copy.
+	 */
+	private Day build(LocalDate date, Day old, List<Order> reservations) {
+		if (old != null) {
+			for (String code : old.codes()) {
+				dayOfCode.remove(code, date);
+			}
+		}
+		version.incrementAndGet();
+		Day day = new Day(slotsPerDay);
+		for (Order order : reservations) {
+			if (order.getOrderHour() != null && order.getConfirmationCode() != null
+					&& day.add(order.getConfirmationCode(), cellOf(order.getOrderHour(), order.getDinersAmount()))) {
+				dayOfCode.put(order.getConfirmationCode(), date);
+			}
+		}
+		return day;
+	}
+
+	/**
+	 * Gets the cell counting a party in its day: its slot row and size.
+	 */
+	private int cellOf(LocalTime time, int diners) {
+		int slot = Math.min(slotsPerDay - 1, (time.getHour() * 60 + time.getMinute()) / slotStepMinutes);
+		return slot * WIDTH + TableFit.partyCell(diners);
+	}
+
+	/**
+	 * The parties of one day by slot and size, and the cell of each reservation.
+	 * Guarded by its own lock, except while it is being loaded.
+	 */
+	private static final class Day {
+		final int[] parties;
+		final Map<String, Integer> cells = new HashMap<>();
+		final long loadedAt = System.nanoTime();
+
+		Day(int slots) {
+			parties = new int[slots * WIDTH];
+		}
+
+		boolean isStale() {
+			return System.nanoTime() - loadedAt > MAX_AGE_NANOS;
+		}
+
+		synchronized String[] codes() {
+			return cells.keySet().toArray(new String[0]);
+		}
+
+		synchronized boolean add(String code, int cell) {
+			if (cells.putIfAbsent(code, cell) != null) {
+				return false; // Already read from storage
+			}
+			parties[cell]++;
+			return true;
+		}
+
+		synchronized boolean remove(String code) {
+			Integer cell = cells.remove(code);
+			if (cell == null) {
+				return false;
+			}
+			parties[cell]--;
+			return true;
+		}
+	}
+}
+// End of SlotOccupancyIndex.java
@@ -0,0 +1,146 @@
+package logic.services;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fits parties to tables the way bookings are seated: the largest party
+ * first, each at the smallest free table it fits.
+ *
+ * Parties and tables are given as counting arrays of {@link #WIDTH} ints,
+ * indexed by size: index 1..MAX_SIZE counts that size, index 0 is unused and
+ * the last index counts the parties larger than MAX_SIZE, which never fit.
+ * Tables larger than MAX_SIZE count as MAX_SIZE. Fitting allocates nothing:
+ * it works in a per-thread scratch buffer, and callers building counts for
+ * one call can take the per-thread arrays of {@link #parties()} and
+ * {@link #tables()}.
+ */
+public final class TableFit {
+
+	// ****** Constants ******
+
+	/** Largest party size counted by its size */
+	public static final int MAX_SIZE = 50;
+	/** Length of a counting array */
+	public static final int WIDTH = MAX_SIZE + 2;
+
+	private static final int OVERSIZE = MAX_SIZE + 1;
+
+	// Per thread: parties counts, tables counts, and the tables left while fitting
+	private static final ThreadLocal<int[][]> scratch = ThreadLocal
+			.withInitial(() -> new int[][] { new int[WIDTH], new int[WIDTH], new int[WIDTH] });
+
+	private TableFit() {
+	}
+
+	// ****** Counts ******
+
+	/**
+	 * Gets this thread's parties counting array, cleared. It is valid until
+	 * the next call to parties() on the same thread.
+	 *
+	 * @return the cleared array
+	 */
+	public static int[] parties() {
+		int[] counts = scratch.get()[0];
+		Arrays.fill(counts, 0);
+		return counts;
+	}
+
+	/**
+	 * Gets this thread's tables counting array, cleared. It is valid until the
+	 * next call to tables() on the same thread.
+	 *
+	 * @return the cleared array
+	 */
+	public static int[] tables() {
+		int[] counts = scratch.get()[1];
+		Arrays.fill(counts, 0);
+		return counts;
+	}
+
+	/**
+	 * Counts a party of a size.
+	 *
+	 * @param counts The counting array.
+	 * @param size   The size of the party.
+	 */
+	public static void addParty(int[] counts, int size) {
+		counts[partyCell(size)]++;
+	}
+
+	/**
+	 * Counts a table of a capacity; tables with no seats are ignored.
+	 *
+	 * @param counts   The counting array.
+	 * @param capacity The capacity of the table.
+	 */
+	public static void addTable(int[] counts, int capacity) {
+		if (capacity > 0) {
+			counts[Math.min(capacity, MAX_SIZE)]++;
+		}
+	}
+
+	/**
+	 * Counts table capacities into a new array, to keep.
+	 *
+	 * @param capacities The capacity of each table.
+	 * @return the counting array
+	 */
+	public static int[] countTables(List<Integer> capacities) {
+		int[] counts = new int[WIDTH];
+		for (int capacity : capacities) {
+			addTable(counts, capacity);
+		}
+		return counts;
+	}
+
+	/**
+	 * Gets the index counting a party of a size.
+	 *
+	 * @param size The size of the party.
+	 * @return the index in a counting array
+	 */
+	public static int partyCell(int size) {
+		return size > MAX_SIZE ? OVERSIZE : Math.max(1, size);
+	}
+
+	// ****** Fitting ******
+
+	/**
+	 * Checks whether every party gets a table of its own. Neither array is
+	 * changed.
+	 *
+	 * @param parties The parties by size.
+	 * @param tables  The tables by capacity.
+	 * @return true if all parties fit
+	 */
+	public static boolean fits(int[] parties, int[] tables) {
+		if (parties[OVERSIZE] > 0) {
+			return false;
+		}
+		int[] left = scratch.get()[2];
+		System.arraycopy(tables, 0, left, 0, WIDTH);
+		for (int size = MAX_SIZE; size >= 1; size--) {
+			int waiting = parties[size];
+			if (waiting == 0) {
+				continue;
+			}
+			// Smallest free table the party fits, searching up from its size
+			int table = size;
+			while (waiting > 0) {
+				while (table <= MAX_SIZE && left[table] == 0) {
+					table++;
+				}
+				if (table > MAX_SIZE) {
+					return false;
+				}
+				int taken = Math.min(waiting, left[table]);
+				left[table] -= taken;
+				waiting -= taken;
+			}
+		}
+		return true;
+	}
+}
+// End of TableFit.java
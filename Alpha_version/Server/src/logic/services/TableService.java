@@ -3,9 +3,9 @@ package logic.services;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 
 import dto.Holiday;
 import dto.WeeklyHour;
@@ -14,29 +14,33 @@ import entities.Table;
 import enums.EndTableSessionType;
 import enums.OrderStatus;
 import enums.OrderType;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
+import logic.storage.RollbackException;
 import logic.ServerLogger;
 
 public class TableService {
-	private final BistroDataBase_Controller dbController;
+	private final BistroStorage dbController;
 	private final ServerLogger logger;
 	private final OrdersService orderService;
 	private final NotificationService notificationService;
+	private final ChangePublisher changePublisher;
 
 	// ******************************** Constructor
 	// ********************************//
-	public TableService(BistroDataBase_Controller dbController, ServerLogger logger, OrdersService orderService,
-			NotificationService notificationService) {
+	public TableService(BistroStorage dbController, ServerLogger logger, OrdersService orderService,
+			NotificationService notificationService, ChangePublisher changePublisher) {
 		this.dbController = dbController;
 		this.logger = logger;
 		this.orderService = orderService;
 		this.notificationService = notificationService;
+		this.changePublisher = changePublisher;
 	}
 
 	// ********************************Instance Methods
 	// ********************************//
 	/**
-	 * Allocates a table for the given confirmation code if possible.
+	 * Allocates a table for the given confirmation code if possible. Picking the
+	 * table, opening its session and seating the order are one transaction.
 	 * 
 	 * @param confirmationCode
 	 * @param now
@@ -55,80 +59,82 @@ public class TableService {
 			return -1;
 		}
 
-		// find free table for the group size dinersAmount to allocate table to seat
-		// them:
-		int tableNum = dbController.findFreeTableForGroup(order.getDinersAmount());
-		if (tableNum == -1) {
-			logger.log("[WARN] No tables available for group size " + order.getDinersAmount());
-			return -1;
-		}
-
-		// create table session for the order
 		int diningMinutes = orderService.getReservationDurationMinutes();
-		boolean sessionCreated = dbController.createTableSession(order.getOrderNumber(), tableNum, diningMinutes);
-		if (!sessionCreated) {
-			logger.log("[ERROR] Failed to create session for order " + confirmationCode);
-			return -1;
-		}
-		// update order status to SEATED
-		boolean statusUpdated = dbController.updateOrderStatusInDB(confirmationCode, OrderStatus.SEATED);
-
-		if (!statusUpdated) {
-			// critical: session created but status update failed, need to rollback (delete)
-			// session
-			logger.log("[ERROR] Critical: Session created but Status Update failed for " + confirmationCode);
-			dbController.deleteActiveSession(order.getOrderNumber());
-			logger.log("[INFO] Rolled back (deleted) orphan session for order " + order.getOrderNumber());
+		Integer tableNum = dbController.inTransaction(store -> {
+			// find free table for the group size dinersAmount to allocate table to seat
+			// them:
+			int table = store.findFreeTableForGroup(order.getDinersAmount());
+			if (table == -1) {
+				throw new RollbackException("No tables available for group size " + order.getDinersAmount());
+			}
+			// create table session for the order
+			if (!store.createTableSession(order.getOrderNumber(), table, diningMinutes)) {
+				throw new RollbackException("Failed to create session for order " + confirmationCode);
+			}
+			// update order status to SEATED, the session is rolled back with it on failure
+			if (!store.updateOrderStatusInDB(confirmationCode, OrderStatus.SEATED)) {
+				throw new RollbackException("Status update to SEATED failed for " + confirmationCode);
+			}
+			return table;
+		});
+		if (tableNum == null) {
+			logger.log("[WARN] Allocation failed for " + confirmationCode);
 			return -1;
 		}
 		logger.log("[INFO] Allocated Table " + tableNum + " to Order " + confirmationCode);
+		changePublisher.tableChanged(tableNum, confirmationCode);
+		changePublisher.orderStatusChanged(order, OrderStatus.SEATED);
 		return tableNum;
 	}
 
 	/**
-	 * Handles logic when a table is freed.
+	 * Handles logic when a table is freed. Picking the next waitlist order and
+	 * marking it NOTIFIED are one transaction; the user is notified once it
+	 * is committed.
 	 * 
 	 * @param tableNum The table number that was freed.
 	 */
 	public boolean tableFreed(int tableNum) {
+		changePublisher.tableChanged(tableNum, null);
 
-		int capacity = dbController.getTableCapacity(tableNum);
-		if (capacity <= 0) {
-			logger.log("[ERROR] Invalid capacity for table " + tableNum);
-			return false;
-		}
-
-		// find next waitlist that fits the table capacity
-		Order next = dbController.getNextFromWaitingQueueThatFits(capacity);
+		Optional<Order> notified = dbController.inTransaction(store -> {
+			int capacity = store.getTableCapacity(tableNum);
+			if (capacity <= 0) {
+				throw new RollbackException("Invalid capacity for table " + tableNum);
+			}
 
-		if (next == null) {
-			logger.log("[INFO] Table " + tableNum + " freed. No waitlist fits capacity=" + capacity);
-			return true; // no waitlist fits the table capacity
-		}
+			// find next waitlist that fits the table capacity
+			Order next = store.getNextFromWaitingQueueThatFits(capacity);
+			if (next == null) {
+				logger.log("[INFO] Table " + tableNum + " freed. No waitlist fits capacity=" + capacity);
+				return Optional.<Order>empty(); // no waitlist fits the table capacity
+			}
 
-		// if cannot notify now due to reservation constraints, skip notifying for now
-		if (!canNotifyWaitlistNow(next.getDinersAmount())) {
-			logger.log("[INFO] Cannot notify waitlist " + next.getConfirmationCode()
-					+ " now due to reservation constraints.");
-			return true; // skip notifying for now
-		}
+			// if cannot notify now due to reservation constraints, skip notifying for now
+			if (!canNotifyWaitlistNow(next.getDinersAmount())) {
+				logger.log("[INFO] Cannot notify waitlist " + next.getConfirmationCode()
+						+ " now due to reservation constraints.");
+				return Optional.<Order>empty(); // skip notifying for now
+			}
 
-		// set waitlist as NOTIFIED in DB with current timestamp
-		boolean marked = dbController.markWaitlistAsNotified(next.getOrderNumber(), LocalDateTime.now());
-		if (!marked) {
-			logger.log("[ERROR] Failed to mark waitlist as NOTIFIED for " + next.getConfirmationCode());
+			// set waitlist as NOTIFIED in DB with current timestamp
+			if (!store.markWaitlistAsNotified(next.getOrderNumber(), LocalDateTime.now())) {
+				throw new RollbackException("Failed to mark waitlist as NOTIFIED for " + next.getConfirmationCode());
+			}
+			logger.log("[INFO] NOTIFIED waitlist " + next.getConfirmationCode() + " for table " + tableNum
+					+ ", capacity=" + capacity);
+			// refresh order data
+			return Optional.ofNullable(store.getOrderByConfirmationCodeInDB(next.getConfirmationCode()));
+		});
+		if (notified == null) {
 			return false;
 		}
 
-		// refresh order data
-		Order refreshed = dbController.getOrderByConfirmationCodeInDB(next.getConfirmationCode());
-
 		// notify waitlist user via NotificationService
-		notificationService.notifyWaitlistUser(refreshed);
-
-		logger.log("[INFO] NOTIFIED waitlist " + refreshed.getConfirmationCode() + " for table " + tableNum
-				+ ", capacity=" + capacity);
-
+		notified.ifPresent(refreshed -> {
+			notificationService.notifyWaitlistUser(refreshed);
+			changePublisher.orderStatusChanged(refreshed, OrderStatus.NOTIFIED);
+		});
 		return true;
 	}
 
@@ -146,24 +152,24 @@ public class TableService {
 
 		// get active and upcoming reservations that may conflict
 		List<Order> conflicts = dbController.getActiveAndUpcomingOrders(LocalDate.now(), now, end);
-		// calculate load
-		List<Integer> load = new ArrayList<>();
+		// calculate load, counted by party size
+		int[] load = TableFit.parties();
 		// add diners from conflicting orders
 		for (Order o : conflicts) {
 			if (o.getStatus() == OrderStatus.SEATED) {
-				load.add(o.getDinersAmount());
+				TableFit.addParty(load, o.getDinersAmount());
 			} else if (o.getOrderType() == OrderType.RESERVATION && o.getStatus() == OrderStatus.PENDING) {
 				LocalTime s = o.getOrderHour();
 				LocalTime e = s.plusMinutes(duration);
 				if (orderService.overlaps(now, end, s, e)) {
-					load.add(o.getDinersAmount());
+					TableFit.addParty(load, o.getDinersAmount());
 				}
 			}
 		}
 		// add the new waitlist diners
-		load.add(dinersAmount);
+		TableFit.addParty(load, dinersAmount);
 		// check if can assign all diners to tables
-		return orderService.canAssignAllDinersToTables(load, orderService.getTableSizes());
+		return orderService.canAssignAllDinersToTables(load, orderService.getTableCounts());
 	}
 
 	/**
@@ -217,7 +223,12 @@ public class TableService {
 	 * @return true if the table was added successfully, false otherwise.
 	 */
 	public boolean addNewTable(Table table) {
-		return dbController.addTable(table);
+		boolean added = dbController.addTable(table);
+		if (added) {
+			orderService.tablesChanged();
+			changePublisher.tablesReset();
+		}
+		return added;
 	}
 
 	/**
@@ -227,7 +238,12 @@ public class TableService {
 	 * @return true if the table was deleted successfully, false otherwise.
 	 */
 	public boolean deleteTable(int tableId) {
-		return dbController.removeTable(tableId);
+		boolean removed = dbController.removeTable(tableId);
+		if (removed) {
+			orderService.tablesChanged();
+			changePublisher.tablesReset();
+		}
+		return removed;
 	}
 
 	/**
@@ -238,7 +254,12 @@ public class TableService {
 	 * @return true if the update was successful, false otherwise.
 	 */
 	public boolean updateTableSeats(int tableId, int newSeats) {
-		return dbController.updateTableCapacity(tableId, newSeats);
+		boolean updated = dbController.updateTableCapacity(tableId, newSeats);
+		if (updated) {
+			orderService.tablesChanged();
+			changePublisher.tablesReset();
+		}
+		return updated;
 	}
 
 	/**
@@ -1,14 +1,19 @@
 package logic.services;
 
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import entities.User;
 import enums.UserType;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.LoginAttemptTracker;
 import logic.ServerLogger;
 import common.InputCheck;
+import dto.Page;
+import dto.PageCursor;
+import dto.PageRequest;
 import dto.UserData;
 
 /**
@@ -18,11 +23,11 @@ import dto.UserData;
 public class UserService {
 	
 	//************************* Instance Variables *************************
-	private final BistroDataBase_Controller dbController;
+	private final BistroStorage dbController;
 	private final ServerLogger logger;
 	
 	//************************* Constructor *************************
-	public UserService(BistroDataBase_Controller dbController, ServerLogger logger) {
+	public UserService(BistroStorage dbController, ServerLogger logger) {
 		this.dbController = dbController;
 		this.logger = logger;
 	}
@@ -210,6 +215,34 @@ public class UserService {
 		return dbController.getAllCustomers();
 	}
 
+	/**
+	 * Retrieves one page of the customer directory, by user id. The first page
+	 * also carries the number of members and guests of the whole directory.
+	 * 
+	 * @param request The page request, its cursor null for the first page
+	 * @return The page, or null on failure
+	 */
+	public Page<UserData> getCustomersPage(PageRequest request) {
+		int limit = request.getLimit();
+		PageCursor after = request.getAfter();
+		// One more row than the page tells whether there is a next page
+		List<UserData> customers = dbController.getCustomersPage(after == null ? 0 : after.getId(), limit + 1);
+		if (customers == null) {
+			return null;
+		}
+		PageCursor next = null;
+		if (customers.size() > limit) {
+			customers = customers.subList(0, limit);
+			next = new PageCursor(null, customers.get(limit - 1).getUserId());
+		}
+		HashMap<String, Integer> summary = null;
+		if (after == null) {
+			Map<String, Integer> counts = dbController.countCustomersByType();
+			summary = counts == null ? null : new HashMap<>(counts);
+		}
+		return new Page<>(new ArrayList<>(customers), after, next, summary);
+	}
+
 	/**
 	 * Finds a member code by email or phone number.
 	 * 
@@ -15,16 +15,17 @@ import entities.Table;
 import entities.User;
 import enums.OrderStatus;
 import enums.OrderType;
-import logic.BistroDataBase_Controller;
+import logic.storage.BistroStorage;
 import logic.BistroServer;
 import logic.ServerLogger;
 
 public class WaitingListService {
-	private final BistroDataBase_Controller dbController;
+	private final BistroStorage dbController;
 	private final ServerLogger logger;
 	private final OrdersService ordersService;
 	private final TableService tableService;
 	private final UserService userService;
+	private final ChangePublisher changePublisher;
 	
 	/**
 	 * Constructor for WaitingListService.
@@ -33,14 +34,17 @@ public class WaitingListService {
 	 * @param ordersService Service for managing orders.
 	 * @param tableService Service for managing tables.
 	 * @param userService Service for managing users.
+	 * @param changePublisher Publishes waiting list changes to subscribed clients.
 	 */
-	public WaitingListService(BistroDataBase_Controller dbController,ServerLogger logger,
-			OrdersService ordersService,TableService tableService, UserService userService) {
+	public WaitingListService(BistroStorage dbController,ServerLogger logger,
+			OrdersService ordersService,TableService tableService, UserService userService,
+			ChangePublisher changePublisher) {
 		this.dbController = dbController;
 		this.logger = logger;
 		this.ordersService = ordersService;
 		this.tableService = tableService;
 		this.userService = userService;
+		this.changePublisher = changePublisher;
 	}
 
 	/**
@@ -67,6 +71,7 @@ public class WaitingListService {
 			if (addToWaitlist) {
 				// The trigger inserted NULL for time, so we must update it manually
 				dbController.enqueueWaitingList(confirmationCode, calculatedWaitTime);
+				changePublisher.orderAdded(dbController.getOrderByConfirmationCodeInDB(confirmationCode));
 			}else {
 				dbController.updateOrderStatusByConfirmCode(confirmationCode, OrderStatus.NOTIFIED);
 			}
@@ -127,33 +132,33 @@ public class WaitingListService {
 			int dinersAmount) {
 		// Get all active and upcoming orders for today
 		List<Order> conflicts = dbController.getActiveAndUpcomingOrders(date, now, walkInEnd);
-		// Calculate current load including the walk-in group
-		List<Integer> load = new ArrayList<>();
+		// Calculate current load including the walk-in group, counted by party size
+		int[] load = TableFit.parties();
 		// Add diners from conflicting orders
 		for (Order o : conflicts) {
 			if (o.getStatus() == OrderStatus.SEATED) {
-				load.add(o.getDinersAmount());
+				TableFit.addParty(load, o.getDinersAmount());
 			} else if (o.getOrderType() == OrderType.RESERVATION && o.getStatus() == OrderStatus.PENDING) {
 				// Check for time overlap
 				LocalTime start = o.getOrderHour();
 				LocalTime end = start.plusMinutes(ordersService.getReservationDurationMinutes());
 				// If overlaps, add to load
 				if (ordersService.overlaps(now, walkInEnd, start, end)) {
-					load.add(o.getDinersAmount());
+					TableFit.addParty(load, o.getDinersAmount());
 				}
 			}
 		}
 		// Add the walk-in group
-		load.add(dinersAmount);
-		// Get sizes of all free tables
-		List<Integer> freeTableSizes = new ArrayList<>();
+		TableFit.addParty(load, dinersAmount);
+		// Count all free tables by capacity
+		int[] freeTables = TableFit.tables();
 		for (Table t : tableService.getAllTables()) {
 			if (!t.isOccupiedNow()) {
-				freeTableSizes.add(t.getCapacity());
+				TableFit.addTable(freeTables, t.getCapacity());
 			}
 		}
 		// Check if all diners can be assigned to tables
-		return ordersService.canAssignAllDinersToTables(load, freeTableSizes);
+		return ordersService.canAssignAllDinersToTables(load, freeTables);
 	}
 
     /**
@@ -186,7 +191,11 @@ public class WaitingListService {
 	 */
     public boolean removeFromWaitingList(String confirmationCode) {
         // Setting to CANCELLED triggers the SQL cleanup automatically
-        return dbController.removeFromWaitingList(confirmationCode);
+        boolean removed = dbController.removeFromWaitingList(confirmationCode);
+        if (removed) {
+        	changePublisher.waitlistRemoved(confirmationCode);
+        }
+        return removed;
     }
     
     /**
@@ -0,0 +1,41 @@
+package logic.storage;
+
+import java.util.List;
+
+import entities.Bill;
+import entities.Item;
+import entities.User;
+
+/**
+ * Storage of the bills opened with each table session.
+ */
+public interface BillStore {
+
+	void markBillAsPaid(int billId, String paymentMethod, String transactionId);
+
+	/**
+	 * Gets a bill, or null if not found.
+	 */
+	Bill getBillById(int billId);
+
+	/**
+	 * Gets the bill of an order, or null.
+	 */
+	Integer getBillIdByOrderNumber(int orderNumber);
+
+	/**
+	 * Gets the unpaid bills of the sessions open today, oldest first.
+	 */
+	List<Bill> getPendingBillsByUserId();
+
+	/**
+	 * Generates the items of the bill of an order.
+	 */
+	List<Item> getBillItemsList(int orderNumber, User requester);
+
+	/**
+	 * Gets the order of a bill, or null.
+	 */
+	Integer getOrderNumberByBillId(int billId);
+}
+// End of BillStore.java
@@ -0,0 +1,50 @@
+package logic.storage;
+
+import logic.ServerLogger;
+
+/**
+ * Storage backend of the server: every store, plus its lifecycle.
+ * BistroDataBase_Controller keeps the data in MySQL; InMemoryStorage keeps it
+ * in memory, for benchmarks and test runs without a database.
+ * Select the backend with -Dbistro.storage=jdbc|memory (default jdbc).
+ */
+public interface BistroStorage
+		extends UserStore, OrderStore, WaitingListStore, TableStore, BillStore, ReportStore, HoursStore {
+
+	void setLogger(ServerLogger log);
+
+	/**
+	 * Opens the backend.
+	 *
+	 * @return true if it is ready to use
+	 */
+	boolean openConnection();
+
+	/**
+	 * Closes the backend.
+	 */
+	void closeConnection();
+
+	/**
+	 * Gets a summary of the backend's connections, one line per pool, for the console.
+	 */
+	String getPoolStats();
+
+	/**
+	 * Gets the queries that took the most time in total, one line each, for the console.
+	 *
+	 * @param limit the number of queries to list
+	 */
+	String getTopQueries(int limit);
+
+	/**
+	 * Runs a sequence of operations in a single transaction: on one connection
+	 * and with one commit for the JDBC backend. A unit of work started inside
+	 * another one joins it.
+	 *
+	 * @return the result of the work, or null if it was rolled back because it
+	 *         threw a {@link RollbackException} or one of its statements failed
+	 */
+	<T> T inTransaction(UnitOfWork<T> work);
+}
+// End of BistroStorage.java
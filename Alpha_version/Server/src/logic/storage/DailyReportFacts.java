@@ -0,0 +1,126 @@
+package logic.storage;
+
+import java.time.LocalDate;
+
+/**
+ * The report facts of one day: a row of the report_daily rollup.
+ *
+ * Orders count toward the day of their slot (order_date), waitlist joins
+ * toward the day they joined. Arrivals and stays are those of the day's
+ * reservations that were seated. The counts of a month are the sums of its
+ * days, except distinct customers, see {@link ReportStore#getDistinctCustomers}.
+ */
+public final class DailyReportFacts {
+
+	/** Labels of {@link #getLateness()}, in order: minutes from the slot to seating */
+	public static final String[] LATENESS_BUCKETS = { "early", "0-5", "6-15", "16-30", "31+" };
+	/** Labels of {@link #getOverstay()}, in order: minutes beyond the 2-hour slot */
+	public static final String[] OVERSTAY_BUCKETS = { "0", "1-10", "11-30", "31-60", "61+", "unknown" };
+
+	private final LocalDate day;
+	private final int orders;
+	private final int reservations;
+	private final int memberOrders;
+	private final int waitlistJoins;
+	private final int seated;
+	private final int onTime;
+	private final int late;
+	private final int[] lateness;
+	private final int[] overstay;
+
+	/**
+	 * @param orders        orders of any type for the day
+	 * @param reservations  RESERVATION orders for the day
+	 * @param memberOrders  orders for the day placed by members
+	 * @param waitlistJoins waitlist entries joined on the day
+	 * @param seated        reservations for the day that were seated
+	 * @param onTime        of those, seated at or before their slot
+	 * @param late          of those, seated up to 15 minutes after their slot
+	 * @param lateness      seated reservations by LATENESS_BUCKETS
+	 * @param overstay      seated reservations by OVERSTAY_BUCKETS
+	 */
+	public DailyReportFacts(LocalDate day, int orders, int reservations, int memberOrders, int waitlistJoins,
+			int seated, int onTime, int late, int[] lateness, int[] overstay) {
+		if (lateness.length != LATENESS_BUCKETS.length || overstay.length != OVERSTAY_BUCKETS.length) {
+			throw new IllegalArgumentException("Bucket counts do not match the bucket labels");
+		}
+		this.day = day;
+		this.orders = orders;
+		this.reservations = reservations;
+		this.memberOrders = memberOrders;
+		this.waitlistJoins = waitlistJoins;
+		this.seated = seated;
+		this.onTime = onTime;
+		this.late = late;
+		this.lateness = lateness.clone();
+		this.overstay = overstay.clone();
+	}
+
+	public LocalDate getDay() {
+		return day;
+	}
+
+	public int getOrders() {
+		return orders;
+	}
+
+	public int getReservations() {
+		return reservations;
+	}
+
+	public int getMemberOrders() {
+		return memberOrders;
+	}
+
+	public int getWaitlistJoins() {
+		return waitlistJoins;
+	}
+
+	public int getSeated() {
+		return seated;
+	}
+
+	public int getOnTime() {
+		return onTime;
+	}
+
+	public int getLate() {
+		return late;
+	}
+
+	/**
+	 * Gets the seated reservations by lateness, indexed like LATENESS_BUCKETS.
+	 */
+	public int[] getLateness() {
+		return lateness.clone();
+	}
+
+	/**
+	 * Gets the seated reservations by overstay, indexed like OVERSTAY_BUCKETS.
+	 */
+	public int[] getOverstay() {
+		return overstay.clone();
+	}
+
+	/**
+	 * Gets the bucket of a lateness.
+	 *
+	 * @param minutes whole minutes from the slot to seating, negative if early
+	 * @return the index in LATENESS_BUCKETS
+	 */
+	public static int latenessBucket(long minutes) {
+		return minutes < 0 ? 0 : minutes <= 5 ? 1 : minutes <= 15 ? 2 : minutes <= 30 ? 3 : 4;
+	}
+
+	/**
+	 * Gets the bucket of a stay.
+	 *
+	 * @param minutes whole minutes from seating to leaving, null if still seated
+	 * @return the index in OVERSTAY_BUCKETS
+	 */
+	public static int overstayBucket(Long minutes) {
+		if (minutes == null) return 5;
+		return minutes <= 120 ? 0 : minutes <= 130 ? 1 : minutes <= 150 ? 2 : minutes <= 180 ? 3 : 4;
+	}
+}
+// End of DailyReportFacts.java
@@ -0,0 +1,51 @@
+package logic.storage;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import dto.Holiday;
+import dto.WeeklyHour;
+
+/**
+ * Storage of the weekly opening hours and of the holidays overriding them.
+ */
+public interface HoursStore {
+
+	/**
+	 * Gets today's opening hours.
+	 *
+	 * @return [open, close], or an empty list if closed
+	 */
+	List<LocalTime> getOpeningHoursFromDB();
+
+	/**
+	 * Gets the opening hours of a date, holidays included.
+	 *
+	 * @return [open, close], or an empty list if closed
+	 */
+	List<LocalTime> getOpeningHoursFromDB(LocalDate date);
+
+	/**
+	 * Gets the opening hours of every date in a range, holidays included.
+	 *
+	 * @return [open, close] by date, an empty list for the dates closed; null on
+	 *         failure
+	 */
+	Map<LocalDate, List<LocalTime>> getOpeningHoursBetween(LocalDate from, LocalDate to);
+
+	boolean updateWeeklyHours(List<WeeklyHour> hours);
+
+	boolean addHoliday(Holiday holiday);
+
+	boolean removeHoliday(Holiday holiday);
+
+	/**
+	 * Gets all holidays by date, or null on failure.
+	 */
+	List<Holiday> getHolidays();
+
+	List<WeeklyHour> getWeeklyHours();
+}
+// End of HoursStore.java
@@ -0,0 +1,2010 @@
+package logic.storage;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import dto.Holiday;
+import dto.PageCursor;
+import dto.UserData;
+import dto.WeeklyHour;
+import entities.Bill;
+import entities.Item;
+import entities.Order;
+import entities.Table;
+import entities.User;
+import enums.EndTableSessionType;
+import enums.OrderStatus;
+import enums.OrderType;
+import enums.UserType;
+import logic.LoginAttemptTracker;
+import logic.PasswordUtil;
+import logic.ServerLogger;
+
+/**
+ * Storage backend keeping all data in memory, for load tests and for running
+ * the server without a database. Each method behaves like its SQL counterpart
+ * in BistroDataBase_Controller, on rows shaped like the database tables.
+ *
+ * All rows are guarded by one read-write lock: queries run in parallel, and
+ * each update is atomic like a single transaction. A unit of work holds the
+ * write lock throughout and journals every change, so that a rollback puts
+ * the rows back as they were. Callers always get copies, never the stored
+ * rows. Data is lost when the server stops.
+ */
+public class InMemoryStorage implements BistroStorage {
+
+	// ****************************** Instance variables ******************************
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private ServerLogger logger;
+	private final Random random = new Random();
+
+	// users, members and staff_accounts
+	private final Map<Integer, UserRow> users = new LinkedHashMap<>();
+	private final Map<String, UserRow> usersByPhone = new HashMap<>();
+	private final Map<String, UserRow> usersByEmail = new HashMap<>();
+	private final Map<Integer, UserRow> usersByMemberCode = new HashMap<>();
+	private final Map<String, UserRow> staffByUsername = new HashMap<>();
+	private int nextUserId = 1;
+
+	// orders
+	private final Map<Integer, OrderRow> orders = new LinkedHashMap<>();
+	private final Map<String, OrderRow> ordersByCode = new HashMap<>();
+	private int nextOrderNumber = 1;
+
+	// waiting_list
+	private final Map<String, WaitRow> waitingList = new LinkedHashMap<>();
+	private long nextWaitSequence = 1;
+
+	// tables, table_sessions and bills
+	private final Map<Integer, Integer> tableCapacities = new TreeMap<>();
+	private final Map<Integer, SessionRow> sessions = new LinkedHashMap<>();
+	private final Map<Integer, BillRow> bills = new LinkedHashMap<>();
+	private int nextSessionId = 1;
+	private int nextBillId = 1;
+
+	// opening_hours_weekly, opening_hours_special and reports
+	private final Map<Integer, LocalTime[]> weeklyHours = new TreeMap<>();
+	private final TreeMap<LocalDate, Holiday> holidays = new TreeMap<>();
+	private final Map<String, byte[]> reports = new HashMap<>();
+
+	/** Undo log of the unit of work in progress, null outside of one; guarded by the write lock */
+	private Journal journal;
+
+	/** Dishes served on generated bills, as the bill_items table of the database */
+	private static final Object[][] MENU = { { "Bruschetta", 28.0 }, { "Caesar Salad", 42.0 },
+			{ "Soup of the Day", 32.0 }, { "Margherita Pizza", 58.0 }, { "Pasta Carbonara", 64.0 },
+			{ "Grilled Salmon", 96.0 }, { "Beef Burger", 72.0 }, { "Risotto", 68.0 }, { "Tiramisu", 36.0 },
+			{ "Lemonade", 16.0 }, { "Espresso", 12.0 }, { "House Wine", 38.0 } };
+
+	// ****************************** Lifecycle ******************************
+
+	@Override
+	public void setLogger(ServerLogger log) {
+		this.logger = log;
+	}
+
+	@Override
+	public boolean openConnection() {
+		log("[INFO] Using in-memory storage, data will be lost when the server stops");
+		return true;
+	}
+
+	@Override
+	public void closeConnection() {
+		log("[INFO] In-memory storage closed: " + getPoolStats());
+	}
+
+	/**
+	 * Runs the work under the write lock, undoing its changes if it rolls back.
+	 * Generated ids are not given back, as with AUTO_INCREMENT.
+	 */
+	@Override
+	public <T> T inTransaction(UnitOfWork<T> work) {
+		return write(() -> {
+			if (journal != null)
+				return work.run(this);
+			journal = new Journal();
+			try {
+				return work.run(this);
+			} catch (RollbackException e) {
+				journal.undo();
+				log("[WARN] Transaction rolled back: " + e.getMessage());
+				return null;
+			} catch (RuntimeException e) {
+				journal.undo();
+				throw e;
+			} finally {
+				journal = null;
+			}
+		});
+	}
+
+	@Override
+	public String getPoolStats() {
+		return read(() -> "in-memory: " + users.size() + " users, " + orders.size() + " orders, "
+				+ sessions.size() + " sessions, " + tableCapacities.size() + " tables");
+	}
+
+	@Override
+	public String getTopQueries(int limit) {
+		return "In-memory storage runs no queries";
+	}
+
+	/**
+	 * Adds a few tables and opening hours of 12:00-23:00 every day, so that an
+	 * empty storage can take reservations.
+	 */
+	public void seedDefaults() {
+		write(() -> {
+			int[] capacities = { 2, 2, 2, 4, 4, 4, 4, 6, 6, 8 };
+			for (int i = 0; i < capacities.length; i++) {
+				tableCapacities.putIfAbsent(i + 1, capacities[i]);
+			}
+			for (int day = 1; day <= 7; day++) {
+				weeklyHours.putIfAbsent(day, new LocalTime[] { LocalTime.of(12, 0), LocalTime.of(23, 0) });
+			}
+			return null;
+		});
+	}
+
+	// ****************************** User Operations ******************************
+
+	@Override
+	public User findOrCreateGuestUser(String phoneNumber, String email) {
+		boolean hasPhone = phoneNumber != null && !phoneNumber.isBlank();
+		boolean hasEmail = email != null && !email.isBlank();
+		if (!hasPhone && !hasEmail) {
+			throw new IllegalArgumentException("Guest must have phoneNumber or email");
+		}
+		return write(() -> {
+			UserRow phoneUser = hasPhone ? guest(usersByPhone.get(phoneNumber)) : null;
+			UserRow emailUser = hasEmail ? guest(usersByEmail.get(email)) : null;
+			if (!(hasPhone && hasEmail)) {
+				UserRow found = hasPhone ? phoneUser : emailUser;
+				if (found != null) {
+					return found.toUser();
+				}
+				UserRow created = insertUser(hasPhone ? phoneNumber : null, hasEmail ? email : null, UserType.GUEST);
+				return created == null ? null : created.toUser();
+			}
+			if (phoneUser == null && emailUser == null) {
+				UserRow created = insertUser(phoneNumber, email, UserType.GUEST);
+				return created == null ? null : created.toUser();
+			}
+			if (emailUser == null) {
+				if (isBlank(phoneUser.email) && !setEmail(phoneUser, email)) {
+					return null;
+				}
+				return phoneUser.toUser();
+			}
+			if (phoneUser == null) {
+				if (isBlank(emailUser.phone) && !setPhone(emailUser, phoneNumber)) {
+					return null;
+				}
+				return emailUser.toUser();
+			}
+			if (phoneUser == emailUser) {
+				return phoneUser.toUser();
+			}
+			// Two different guests: keep the one found by phone
+			for (OrderRow order : orders.values()) {
+				if (order.userId == emailUser.id) {
+					touch(order);
+					order.userId = phoneUser.id;
+				}
+			}
+			deleteUser(emailUser);
+			if (phoneUser.email == null) {
+				setEmail(phoneUser, email);
+			}
+			return phoneUser.toUser();
+		});
+	}
+
+	@Override
+	public User findMemberUserByCode(int memberCode) {
+		return read(() -> {
+			UserRow user = usersByMemberCode.get(memberCode);
+			return user != null && user.type == UserType.MEMBER ? user.toUser() : null;
+		});
+	}
+
+	@Override
+	public boolean setUpdatedMemberData(UserData updatedUser) {
+		if (updatedUser == null || updatedUser.getUserType() == UserType.GUEST) {
+			return false;
+		}
+		int memberCode = Integer.parseInt(updatedUser.getMemberCode());
+		return write(() -> {
+			UserRow user = usersByMemberCode.get(memberCode);
+			if (user == null || !isFree(usersByPhone, updatedUser.getPhone(), user)
+					|| !isFree(usersByEmail, updatedUser.getEmail(), user)) {
+				return false;
+			}
+			touch(user);
+			user.firstName = updatedUser.getFirstName();
+			user.lastName = updatedUser.getLastName();
+			user.address = updatedUser.getAddress();
+			setEmail(user, updatedUser.getEmail());
+			setPhone(user, updatedUser.getPhone());
+			return true;
+		});
+	}
+
+	@Override
+	public User findEmployeeUser(String username, String password) {
+		UserRow user = read(() -> {
+			UserRow staff = username == null ? null : staffByUsername.get(username.toLowerCase());
+			return staff != null && isStaff(staff.type) ? staff.copy() : null;
+		});
+		if (user == null) {
+			log("[LOGIN] Username not found: " + username);
+			return null;
+		}
+		try {
+			if (password.equals(PasswordUtil.decrypt(user.password))) {
+				LoginAttemptTracker.recordSuccessfulLogin(username);
+				log("[LOGIN] Successful login for employee user: " + username);
+				return new User(user.id, user.phone, user.email, username, user.type);
+			}
+			LoginAttemptTracker.recordFailedAttempt(username);
+			log("[LOGIN] Failed login attempt for employee user: " + username);
+		} catch (Exception e) {
+			log("[ERROR] Exception during password verification: " + e.getMessage());
+		}
+		return null;
+	}
+
+	@Override
+	public boolean employeeUsernameExists(String username) {
+		return username != null && read(() -> staffByUsername.containsKey(username.toLowerCase()));
+	}
+
+	@Override
+	public Integer findUserIdByPhone(String phoneNumber) {
+		String phone = phoneNumber == null ? null : phoneNumber.trim();
+		if (phone == null || phone.isEmpty())
+			return null;
+		return read(() -> {
+			UserRow user = usersByPhone.get(phone);
+			return user == null ? null : user.id;
+		});
+	}
+
+	@Override
+	public Integer findUserIdByEmail(String email) {
+		String mail = email == null ? null : email.trim();
+		if (mail == null || mail.isEmpty())
+			return null;
+		return read(() -> {
+			UserRow user = usersByEmail.get(mail);
+			return user == null ? null : user.id;
+		});
+	}
+
+	@Override
+	public boolean staffAccountExistsForUserId(int userId) {
+		return read(() -> {
+			UserRow user = users.get(userId);
+			return user != null && user.username != null;
+		});
+	}
+
+	@Override
+	public User createEmployeeUser(String username, String password, String email, String phoneNumber,
+			UserType userType, String firstName, String lastName, String address) {
+		if (userType != UserType.EMPLOYEE && userType != UserType.MANAGER) {
+			log("[ERROR] Invalid user type for employee creation: " + userType);
+			return null;
+		}
+		String phone = blankToNull(phoneNumber);
+		String mail = blankToNull(email);
+		String encryptedPassword = PasswordUtil.encrypt(password);
+		User created = write(() -> {
+			UserRow byPhone = phone == null ? null : usersByPhone.get(phone);
+			UserRow byEmail = mail == null ? null : usersByEmail.get(mail);
+			if (byPhone != null && byEmail != null && byPhone != byEmail) {
+				log("[STAFF_CREATE] Conflict: phone and email belong to different users.");
+				return null;
+			}
+			if (username == null || staffByUsername.containsKey(username.toLowerCase())) {
+				log("[ERROR] Failed to create/promote staff user: username already exists");
+				return null;
+			}
+			UserRow user = byPhone != null ? byPhone : byEmail;
+			if (user == null) {
+				user = insertUser(phone, mail, userType);
+				if (user == null)
+					return null;
+			} else {
+				if (user.username != null) {
+					log("[STAFF_CREATE] user_id already has staff_accounts row.");
+					return null;
+				}
+				touch(user);
+				user.type = userType;
+				if (user.phone == null && phone != null)
+					setPhone(user, phone);
+				if (user.email == null && mail != null)
+					setEmail(user, mail);
+			}
+			user.username = username;
+			user.password = encryptedPassword;
+			put(staffByUsername, username.toLowerCase(), user);
+			if (user.memberCode == 0) {
+				user.memberCode = newMemberCode();
+				put(usersByMemberCode, user.memberCode, user);
+			}
+			user.firstName = firstName;
+			user.lastName = lastName;
+			user.address = address;
+			return new User(user.id, phone, mail, username, userType);
+		});
+		if (created != null) {
+			log("[ADMIN] Staff created/promoted: username=" + username + ", type=" + userType + ", user_id="
+					+ created.getUserId());
+		}
+		return created;
+	}
+
+	@Override
+	public String recoverStaffLogin(String email, String phoneNumber) {
+		String searchEmail = blankToNull(email);
+		String searchPhone = blankToNull(phoneNumber);
+		String tempPassword = generateTempPassword();
+		String encryptedPassword = PasswordUtil.encrypt(tempPassword);
+		return write(() -> {
+			for (UserRow user : users.values()) {
+				if (user.username != null && isStaff(user.type)
+						&& (equalsNonNull(user.email, searchEmail) || equalsNonNull(user.phone, searchPhone))) {
+					touch(user);
+					user.password = encryptedPassword;
+					return user.username + ":" + tempPassword;
+				}
+			}
+			return "NOT_FOUND";
+		});
+	}
+
+	@Override
+	public List<UserData> getAllCustomers() {
+		return read(() -> {
+			List<UserData> customers = new ArrayList<>();
+			for (UserRow user : users.values()) {
+				if (user.type == UserType.MEMBER) {
+					customers.add(new UserData(user.firstName, user.lastName, String.valueOf(user.memberCode),
+							user.phone, user.email, user.type, user.address));
+				} else if (user.type == UserType.GUEST) {
+					customers.add(new UserData(null, null, null, user.phone, user.email, UserType.GUEST, null));
+				}
+			}
+			return customers;
+		});
+	}
+
+	@Override
+	public List<UserData> getCustomersPage(int afterUserId, int limit) {
+		return read(() -> {
+			List<UserData> customers = new ArrayList<>();
+			for (UserRow user : new TreeMap<>(users).tailMap(afterUserId, false).values()) {
+				if (customers.size() >= limit)
+					break;
+				UserData customer;
+				if (user.type == UserType.MEMBER) {
+					customer = new UserData(user.firstName, user.lastName, String.valueOf(user.memberCode), user.phone,
+							user.email, user.type, user.address);
+				} else if (user.type == UserType.GUEST) {
+					customer = new UserData(null, null, null, user.phone, user.email, UserType.GUEST, null);
+				} else {
+					continue;
+				}
+				customer.setUserId(user.id);
+				customers.add(customer);
+			}
+			return customers;
+		});
+	}
+
+	@Override
+	public Map<String, Integer> countCustomersByType() {
+		return read(() -> {
+			Map<String, Integer> counts = new HashMap<>();
+			for (UserRow user : users.values()) {
+				if (user.type == UserType.MEMBER || user.type == UserType.GUEST)
+					counts.merge(user.type.name(), 1, Integer::sum);
+			}
+			return counts;
+		});
+	}
+
+	@Override
+	public int registerNewMember(List<String> newMemberData) {
+		String fName = newMemberData.get(0);
+		String lName = newMemberData.get(1);
+		String email = blankToNull(newMemberData.get(2));
+		String phoneNumber = blankToNull(newMemberData.get(3));
+		String address = newMemberData.get(4);
+		return write(() -> {
+			UserRow byPhone = phoneNumber == null ? null : usersByPhone.get(phoneNumber);
+			UserRow byEmail = email == null ? null : usersByEmail.get(email);
+			if (byPhone != null && byEmail != null && byPhone != byEmail) {
+				return -4; // CONTACT_CONFLICT
+			}
+			UserRow user = byPhone != null ? byPhone : byEmail;
+			if (user != null) {
+				if (user.type == UserType.MEMBER) {
+					return -2; // ALREADY_MEMBER
+				}
+				if (user.type != UserType.GUEST) {
+					return -3; // ALREADY_STAFF
+				}
+				touch(user);
+				user.type = UserType.MEMBER;
+				if (email != null)
+					setEmail(user, email);
+				if (phoneNumber != null)
+					setPhone(user, phoneNumber);
+			} else {
+				user = insertUser(phoneNumber, email, UserType.MEMBER);
+				if (user == null)
+					return -1;
+			}
+			touch(user);
+			user.memberCode = newMemberCode();
+			put(usersByMemberCode, user.memberCode, user);
+			user.firstName = fName;
+			user.lastName = lName;
+			user.address = address;
+			return user.memberCode;
+		});
+	}
+
+	@Override
+	public int findMemberCodeByEmailOrPhone(String email, String phoneNumber) {
+		boolean hasPhone = phoneNumber != null && !phoneNumber.isBlank();
+		boolean hasEmail = email != null && !email.isBlank();
+		if (!hasPhone && !hasEmail) {
+			throw new IllegalArgumentException("Must provide phoneNumber or email to find member code");
+		}
+		return read(() -> {
+			for (UserRow user : users.values()) {
+				if (user.type == UserType.MEMBER && ((hasPhone && phoneNumber.equals(user.phone))
+						|| (hasEmail && email.equals(user.email)))) {
+					return user.memberCode;
+				}
+			}
+			return -1;
+		});
+	}
+
+	@Override
+	public User getUserById(int userId) {
+		return read(() -> {
+			UserRow user = users.get(userId);
+			return user == null ? null : new User(userId, user.phone, user.email, null, user.type);
+		});
+	}
+
+	@Override
+	public Map<Integer, User> getUsersByIds(Collection<Integer> userIds) {
+		return read(() -> {
+			Map<Integer, User> result = new HashMap<>();
+			for (Integer userId : userIds) {
+				UserRow user = users.get(userId);
+				if (user != null) {
+					result.put(userId, new User(userId, user.phone, user.email, null, user.type));
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public int getUserIdByMemberCode(int memberCode) {
+		return read(() -> {
+			UserRow user = usersByMemberCode.get(memberCode);
+			return user == null ? -1 : user.id;
+		});
+	}
+
+	// ****************************** Order Operations ******************************
+
+	@Override
+	public boolean setNewOrder(List<Object> orderData, OrderType type, OrderStatus status) {
+		int userId = (int) orderData.get(0);
+		LocalDate date = (LocalDate) orderData.get(1);
+		int diners = (int) orderData.get(2);
+		LocalTime time = (LocalTime) orderData.get(3);
+		String code = (String) orderData.get(4);
+		if (type != OrderType.WAITLIST && (date == null || time == null)) {
+			log("[ERROR] RESERVATION requires non-null order_date and order_time");
+			return false;
+		}
+		return write(() -> {
+			if (code == null || ordersByCode.containsKey(code) || !users.containsKey(userId)) {
+				log("[ERROR] setNewOrder: duplicate confirmation code or unknown user");
+				return false;
+			}
+			OrderRow order = new OrderRow();
+			order.number = nextOrderNumber++;
+			order.userId = userId;
+			order.date = type == OrderType.WAITLIST ? null : date;
+			order.time = type == OrderType.WAITLIST ? null : time;
+			order.guests = diners;
+			order.code = code;
+			order.type = type;
+			order.status = status;
+			order.placedAt = LocalDateTime.now();
+			put(orders, order.number, order);
+			put(ordersByCode, code, order);
+			return true;
+		});
+	}
+
+	/**
+	 * Creates the reservation. The storage lives in one process, where the
+	 * orders service checks the slot under its date's lock.
+	 */
+	@Override
+	public boolean setNewReservation(List<Object> orderData, List<LocalTime> stay) {
+		return setNewOrder(orderData, OrderType.RESERVATION, OrderStatus.PENDING);
+	}
+
+	@Override
+	public List<Order> getOrdersByDate(LocalDate date) {
+		if (date == null) {
+			return new ArrayList<>();
+		}
+		boolean isToday = LocalDate.now().equals(date);
+		LocalTime now = LocalTime.now();
+		return read(() -> {
+			List<OrderRow> rows = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (!date.equals(order.date) || order.time == null)
+					continue;
+				if (isToday ? (order.status == OrderStatus.PENDING || order.status == OrderStatus.NOTIFIED
+						|| order.status == OrderStatus.SEATED) && !order.time.isBefore(now)
+						: order.type == OrderType.RESERVATION && order.status == OrderStatus.PENDING) {
+					rows.add(order);
+				}
+			}
+			rows.sort(Comparator.comparing(order -> order.time));
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : rows) {
+				result.add(new Order(order.time, order.guests));
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Order> getActiveReservations(LocalDate from, LocalDate to) {
+		return read(() -> {
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.type == OrderType.RESERVATION && order.time != null && inRange(order.date, from, to)
+						&& (order.status == OrderStatus.PENDING || order.status == OrderStatus.NOTIFIED
+								|| order.status == OrderStatus.SEATED)) {
+					result.add(new Order(order.userId, order.date, order.guests, order.time, order.code, order.type,
+							order.status));
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Order> getFullOrdersByDate(LocalDate date) {
+		if (date == null)
+			return new ArrayList<>();
+		return read(() -> {
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.type == OrderType.RESERVATION && date.equals(order.date)) {
+					Order copy = new Order(order.number, date, order.time, order.guests, order.code, order.userId,
+							null, order.status, null);
+					copy.setTableId(openTableOf(order.number));
+					copy.setUserTypeStr(userTypeOf(order.userId));
+					result.add(copy);
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Order> getOrdersByUserId(int userId) {
+		return read(() -> {
+			List<OrderRow> rows = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.userId == userId)
+					rows.add(order);
+			}
+			// As ORDER BY order_date DESC, order_time DESC, where MySQL sorts NULL last when descending
+			rows.sort(Comparator.comparing((OrderRow order) -> order.date, Comparator.nullsFirst(Comparator.naturalOrder()))
+					.thenComparing(order -> order.time, Comparator.nullsFirst(Comparator.naturalOrder())).reversed());
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : rows) {
+				Order copy = order.toOrder();
+				copy.setDateOfPlacingOrder(null);
+				copy.setTableId(openTableOf(order.number));
+				copy.setUserTypeStr(userTypeOf(order.userId));
+				result.add(copy);
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Order> getOrdersByUserIdPage(int userId, PageCursor after, int limit) {
+		return read(() -> {
+			List<OrderRow> rows = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.userId == userId && (after == null || isAfter(order, after)))
+					rows.add(order);
+			}
+			// As ORDER BY order_date DESC, order_number DESC, where MySQL sorts NULL last when descending
+			rows.sort(Comparator.comparing((OrderRow order) -> order.date, Comparator.nullsFirst(Comparator.naturalOrder()))
+					.thenComparingInt(order -> order.number).reversed());
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : rows.subList(0, Math.min(limit, rows.size()))) {
+				Order copy = order.toOrder();
+				copy.setDateOfPlacingOrder(null);
+				copy.setTableId(openTableOf(order.number));
+				copy.setUserTypeStr(userTypeOf(order.userId));
+				result.add(copy);
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public boolean checkOrderExistsInDB(String confirmationCode) {
+		if (confirmationCode == null || confirmationCode.isEmpty()) {
+			return false;
+		}
+		return read(() -> ordersByCode.containsKey(confirmationCode));
+	}
+
+	@Override
+	public Order getOrderByConfirmationCodeInDB(String confirmationCode) {
+		if (confirmationCode == null || confirmationCode.isEmpty()) {
+			return null;
+		}
+		return read(() -> {
+			OrderRow order = ordersByCode.get(confirmationCode);
+			return order == null ? null : order.toOrder();
+		});
+	}
+
+	@Override
+	public List<Order> getActiveAndUpcomingOrders(LocalDate today, LocalTime now, LocalTime walkInEndTime) {
+		return read(() -> {
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (!today.equals(order.date))
+					continue;
+				boolean upcoming = order.type == OrderType.RESERVATION
+						&& (order.status == OrderStatus.PENDING || order.status == OrderStatus.NOTIFIED)
+						&& order.time != null && !order.time.isBefore(now) && !order.time.isAfter(walkInEndTime);
+				if (order.status == OrderStatus.SEATED || upcoming) {
+					Order copy = new Order();
+					copy.setOrderNumber(order.number);
+					copy.setDinersAmount(order.guests);
+					copy.setOrderDate(order.date);
+					if (order.time != null)
+						copy.setOrderHour(order.time);
+					copy.setStatus(order.status);
+					copy.setOrderType(order.type);
+					result.add(copy);
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Order> getMemberActiveReservationsForToday(int userId) {
+		LocalDate today = LocalDate.now();
+		return read(() -> {
+			List<OrderRow> rows = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.userId == userId && order.type == OrderType.RESERVATION && today.equals(order.date)
+						&& (order.status == OrderStatus.PENDING || order.status == OrderStatus.NOTIFIED)) {
+					rows.add(order);
+				}
+			}
+			rows.sort(Comparator.comparing(order -> order.time));
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : rows) {
+				Order copy = order.toOrder();
+				copy.setDateOfPlacingOrder(null);
+				result.add(copy);
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public boolean updateOrderStatusInDB(String confirmationCode, OrderStatus status) {
+		if (confirmationCode == null || confirmationCode.trim().isEmpty() || status == null) {
+			return false;
+		}
+		if (status != OrderStatus.NOTIFIED && status != OrderStatus.NO_SHOW && status != OrderStatus.SEATED
+				&& status != OrderStatus.COMPLETED && status != OrderStatus.CANCELLED
+				&& status != OrderStatus.PENDING) {
+			log("[WARN] Unsupported OrderStatus: " + status);
+			return false;
+		}
+		return write(() -> {
+			OrderRow order = ordersByCode.get(confirmationCode);
+			if (order == null)
+				return false;
+			touch(order);
+			LocalDateTime now = LocalDateTime.now();
+			switch (status) {
+			case NOTIFIED:
+				if (order.status != OrderStatus.PENDING)
+					return false;
+				order.notifiedAt = now;
+				setWaitStatus(confirmationCode, "NOTIFIED");
+				break;
+			case NO_SHOW:
+				if (order.status != OrderStatus.PENDING && order.status != OrderStatus.NOTIFIED)
+					return false;
+				order.cancelledAt = now;
+				setWaitStatus(confirmationCode, "EXPIRED");
+				break;
+			case SEATED:
+				setWaitStatus(confirmationCode, "SEATED");
+				break;
+			case CANCELLED:
+				order.cancelledAt = now;
+				setWaitStatus(confirmationCode, "CANCELLED");
+				break;
+			default:
+				break;
+			}
+			order.status = status;
+			return true;
+		});
+	}
+
+	@Override
+	public OrderStatus getOrderStatusInDB(String confirmationCode) {
+		return read(() -> {
+			OrderRow order = confirmationCode == null ? null : ordersByCode.get(confirmationCode);
+			return order == null ? null : order.status;
+		});
+	}
+
+	@Override
+	public List<Order> getMemberSeatedReservationsForToday(int userId) {
+		LocalDate today = LocalDate.now();
+		return read(() -> {
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.userId == userId && order.status == OrderStatus.SEATED && today.equals(order.date)) {
+					Order copy = new Order();
+					copy.setOrderNumber(order.number);
+					copy.setConfirmationCode(order.code);
+					copy.setDinersAmount(order.guests);
+					if (order.time != null)
+						copy.setOrderHour(order.time);
+					result.add(copy);
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public String recoverGuestSeatedCode(String email, String phone) {
+		String searchEmail = blankToNull(email);
+		String searchPhone = blankToNull(phone);
+		LocalDate today = LocalDate.now();
+		return read(() -> {
+			for (OrderRow order : orders.values()) {
+				UserRow user = users.get(order.userId);
+				if (user != null && order.status == OrderStatus.SEATED && today.equals(order.date)
+						&& (equalsNonNull(user.email, searchEmail) || equalsNonNull(user.phone, searchPhone))) {
+					return order.code;
+				}
+			}
+			return "NOT_FOUND";
+		});
+	}
+
+	@Override
+	public List<Order> claimReservationReminders(LocalDateTime startWindow, LocalDateTime endWindow,
+			LocalDateTime sentAt) {
+		return write(() -> {
+			List<Order> claimed = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.type == OrderType.RESERVATION && order.status == OrderStatus.PENDING
+						&& order.notifiedAt == null && isBetween(order.slot(), startWindow, endWindow)) {
+					claimed.add(order.toOrder());
+					touch(order);
+					order.notifiedAt = sentAt;
+				}
+			}
+			return claimed;
+		});
+	}
+
+	@Override
+	public List<Order> getSeatedOrdersBetweenTimes(LocalDateTime startWindow, LocalDateTime endWindow) {
+		return read(() -> {
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (order.status == OrderStatus.SEATED && isBetween(order.slot(), startWindow, endWindow)) {
+					Order copy = order.toOrder();
+					copy.setDateOfPlacingOrder(null);
+					result.add(copy);
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Order> getOrdersByDateAndStatus(LocalDate date, OrderStatus status, OrderType orderType) {
+		if (date == null) {
+			return new ArrayList<>();
+		}
+		return read(() -> {
+			List<Order> result = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				if (date.equals(order.date) && order.status == status && order.type == orderType) {
+					result.add(order.toOrder());
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Order> markNoShows(LocalDateTime slotDeadline, LocalDateTime notifiedDeadline) {
+		LocalDate day = slotDeadline.toLocalDate();
+		LocalTime before = slotDeadline.toLocalTime();
+		return write(() -> {
+			List<Order> marked = new ArrayList<>();
+			for (OrderRow order : orders.values()) {
+				boolean lateReservation = order.type == OrderType.RESERVATION && order.status == OrderStatus.PENDING
+						&& day.equals(order.date) && order.time != null && order.time.isBefore(before);
+				boolean unansweredWaitlist = order.type == OrderType.WAITLIST && order.status == OrderStatus.NOTIFIED
+						&& order.notifiedAt != null && order.notifiedAt.isBefore(notifiedDeadline);
+				if (lateReservation || unansweredWaitlist) {
+					marked.add(order.toOrder());
+					touch(order);
+					order.status = OrderStatus.NO_SHOW;
+				}
+			}
+			return marked;
+		});
+	}
+
+	@Override
+	public boolean updateOrderStatusByConfirmCode(String confirmationCode, OrderStatus newStatus) {
+		return write(() -> {
+			OrderRow order = confirmationCode == null ? null : ordersByCode.get(confirmationCode);
+			if (order == null)
+				return false;
+			touch(order);
+			order.status = newStatus;
+			return true;
+		});
+	}
+
+	@Override
+	public boolean updateOrderStatusByUserId(int userid, OrderStatus newStatus) {
+		return write(() -> {
+			boolean updated = false;
+			for (OrderRow order : orders.values()) {
+				if (order.userId == userid) {
+					touch(order);
+					order.status = newStatus;
+					updated = true;
+				}
+			}
+			return updated;
+		});
+	}
+
+	@Override
+	public boolean updateOrderStatusByOrderNumber(int orderNumber, OrderStatus completed) {
+		return write(() -> {
+			OrderRow order = orders.get(orderNumber);
+			if (order == null)
+				return false;
+			touch(order);
+			order.status = completed;
+			return true;
+		});
+	}
+
+	@Override
+	public Order getSeatedOrderForUser(int userId) {
+		return read(() -> {
+			for (OrderRow order : orders.values()) {
+				if (order.userId == userId && order.status == OrderStatus.SEATED) {
+					SessionRow session = openSessionOf(order.number);
+					if (session != null) {
+						Order copy = order.toOrder();
+						copy.setTableId(session.tableNum);
+						return copy;
+					}
+				}
+			}
+			return null;
+		});
+	}
+
+	// ****************************** Waiting List Operations ******************************
+
+	@Override
+	public boolean isUserInWaitingList(int userID) {
+		return read(() -> findWaitlistOrder(userID) != null);
+	}
+
+	@Override
+	public boolean removeFromWaitingList(String confirmationCode) {
+		boolean removed = write(() -> {
+			OrderRow order = confirmationCode == null ? null : ordersByCode.get(confirmationCode);
+			if (order == null || order.type != OrderType.WAITLIST
+					|| (order.status != OrderStatus.PENDING && order.status != OrderStatus.NOTIFIED))
+				return false;
+			touch(order);
+			order.status = OrderStatus.CANCELLED;
+			order.cancelledAt = LocalDateTime.now();
+			setWaitStatus(confirmationCode, "CANCELLED");
+			return true;
+		});
+		if (removed) {
+			log("[SUCCESS] Order " + confirmationCode + " cancelled successfully.");
+		} else {
+			log("[WARN] No pending WAITLIST order found for code: " + confirmationCode);
+		}
+		return removed;
+	}
+
+	@Override
+	public void enqueueWaitingList(String confirmationCode, int calculatedWaitTime) {
+		boolean enqueued = write(() -> {
+			OrderRow order = confirmationCode == null ? null : ordersByCode.get(confirmationCode);
+			if (order == null)
+				return false;
+			WaitRow entry = waitingList.get(confirmationCode);
+			if (entry == null) {
+				entry = new WaitRow();
+				entry.code = confirmationCode;
+				entry.joinedAt = LocalDateTime.now();
+				entry.sequence = nextWaitSequence++;
+				put(waitingList, confirmationCode, entry);
+			}
+			touch(entry);
+			entry.quotedWait = calculatedWaitTime;
+			entry.priority = 2;
+			entry.requestedTime = order.placedAt;
+			entry.status = "WAITING";
+			return true;
+		});
+		if (enqueued) {
+			log("[SUCCESS] Enqueued WAITLIST order: " + confirmationCode);
+		}
+	}
+
+	@Override
+	public Order getNextFromWaitingQueueThatFits(int tableCapacity) {
+		return read(() -> {
+			for (WaitRow entry : queue("WAITING")) {
+				OrderRow order = ordersByCode.get(entry.code);
+				if (order != null && order.guests <= tableCapacity) {
+					Order copy = new Order();
+					copy.setOrderNumber(order.number);
+					copy.setConfirmationCode(order.code);
+					copy.setUserId(order.userId);
+					copy.setDinersAmount(order.guests);
+					copy.setOrderType(order.type);
+					copy.setStatus(order.status);
+					copy.setDateOfPlacingOrder(order.placedAt);
+					return copy;
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public boolean updateWaitingListStatus(String confirmationCode, String wlStatus) {
+		return write(() -> setWaitStatus(confirmationCode, wlStatus));
+	}
+
+	@Override
+	public boolean markWaitlistAsNotified(int orderNumber, LocalDateTime notifiedAt) {
+		return write(() -> {
+			OrderRow order = orders.get(orderNumber);
+			if (order == null || order.type != OrderType.WAITLIST || order.status != OrderStatus.PENDING)
+				return false;
+			touch(order);
+			order.status = OrderStatus.NOTIFIED;
+			order.notifiedAt = notifiedAt;
+			setWaitStatus(order.code, "NOTIFIED");
+			return true;
+		});
+	}
+
+	@Override
+	public List<Order> getWaitingQueueFromView() {
+		return read(() -> {
+			List<Order> result = new ArrayList<>();
+			for (WaitRow entry : queue("WAITING", "NOTIFIED")) {
+				OrderRow order = ordersByCode.get(entry.code);
+				if (order != null) {
+					Order copy = new Order();
+					copy.setConfirmationCode(order.code);
+					copy.setOrderNumber(order.number);
+					copy.setDinersAmount(order.guests);
+					copy.setOrderType(order.type);
+					copy.setStatus(order.status);
+					copy.setDateOfPlacingOrder(order.placedAt);
+					result.add(copy);
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public Order getWaitingListOrderByUserId(int userID) {
+		return read(() -> {
+			OrderRow order = findWaitlistOrder(userID);
+			return order == null ? null : order.toOrder();
+		});
+	}
+
+	// ****************************** Table Operations ******************************
+
+	@Override
+	public void deleteActiveSession(int orderNumber) {
+		write(() -> {
+			SessionRow session = openSessionOf(orderNumber);
+			if (session != null) {
+				remove(sessions, session.id);
+				for (BillRow bill : new ArrayList<>(bills.values())) {
+					if (bill.sessionId == session.id)
+						remove(bills, bill.id);
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public int getTableCapacity(int tableNum) {
+		return read(() -> tableCapacities.getOrDefault(tableNum, -1));
+	}
+
+	@Override
+	public List<Table> getAllTablesFromDB() {
+		return read(() -> {
+			List<Table> tables = new ArrayList<>();
+			for (Map.Entry<Integer, Integer> table : tableCapacities.entrySet()) {
+				tables.add(new Table(table.getKey(), table.getValue(), isOccupied(table.getKey())));
+			}
+			return tables;
+		});
+	}
+
+	@Override
+	public int getTableNumberByConfirmationCode(String confirmationCode) {
+		if (confirmationCode == null || confirmationCode.isEmpty()) {
+			return -1;
+		}
+		return read(() -> {
+			OrderRow order = ordersByCode.get(confirmationCode);
+			SessionRow session = order == null ? null : openSessionOf(order.number);
+			return session == null ? -1 : session.tableNum;
+		});
+	}
+
+	@Override
+	public Integer getActiveTableNumByOrderNumber(int orderNumber) {
+		return read(() -> {
+			SessionRow session = openSessionOf(orderNumber);
+			return session == null ? null : session.tableNum;
+		});
+	}
+
+	@Override
+	public String getActiveOrderConfirmationCodeByTableNum(int tableID) {
+		return read(() -> {
+			for (SessionRow session : sessions.values()) {
+				if (session.tableNum == tableID && session.leftAt == null) {
+					OrderRow order = orders.get(session.orderNumber);
+					if (order != null)
+						return order.code;
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public LocalTime getEarliestExpectedEndTime(int dinersAmount) {
+		return read(() -> {
+			LocalDateTime earliest = null;
+			for (SessionRow session : sessions.values()) {
+				Integer capacity = tableCapacities.get(session.tableNum);
+				if (session.leftAt == null && capacity != null && capacity >= dinersAmount
+						&& session.expectedEndAt != null
+						&& (earliest == null || session.expectedEndAt.isBefore(earliest))) {
+					earliest = session.expectedEndAt;
+				}
+			}
+			return earliest == null ? null : earliest.toLocalTime();
+		});
+	}
+
+	@Override
+	public int findFreeTableForGroup(int groupSize) {
+		return read(() -> {
+			int best = -1;
+			int bestCapacity = Integer.MAX_VALUE;
+			for (Map.Entry<Integer, Integer> table : tableCapacities.entrySet()) {
+				int capacity = table.getValue();
+				if (capacity >= groupSize && capacity < bestCapacity && !isOccupied(table.getKey())) {
+					best = table.getKey();
+					bestCapacity = capacity;
+				}
+			}
+			return best;
+		});
+	}
+
+	@Override
+	public boolean createTableSession(int orderNumber, int tableNum, int diningMinutes) {
+		return write(() -> {
+			if (!orders.containsKey(orderNumber) || !tableCapacities.containsKey(tableNum)) {
+				log("[DB ERROR] Failed to create session+bill: unknown order or table");
+				return false;
+			}
+			LocalDateTime now = LocalDateTime.now();
+			SessionRow session = new SessionRow();
+			session.id = nextSessionId++;
+			session.orderNumber = orderNumber;
+			session.tableNum = tableNum;
+			session.seatedAt = now;
+			session.expectedEndAt = now.plusMinutes(diningMinutes);
+			put(sessions, session.id, session);
+			BillRow bill = new BillRow();
+			bill.id = nextBillId++;
+			bill.sessionId = session.id;
+			put(bills, bill.id, bill);
+			return true;
+		});
+	}
+
+	@Override
+	public void closeTableSessionForOrder(int orderNumber, EndTableSessionType endType) {
+		write(() -> {
+			SessionRow session = openSessionOf(orderNumber);
+			if (session != null) {
+				touch(session);
+				session.leftAt = LocalDateTime.now();
+				session.endReason = endType;
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public boolean addTable(Table table) {
+		boolean added = write(() -> {
+			if (tableCapacities.containsKey(table.getTableID()))
+				return false;
+			put(tableCapacities, table.getTableID(), table.getCapacity());
+			return true;
+		});
+		if (!added) {
+			log("[ERROR] Error adding table: duplicate table number " + table.getTableID());
+		}
+		return added;
+	}
+
+	@Override
+	public boolean removeTable(int tableId) {
+		return write(() -> remove(tableCapacities, tableId) != null);
+	}
+
+	@Override
+	public boolean updateTableCapacity(int tableId, int newCapacity) {
+		return write(() -> tableCapacities.containsKey(tableId) && put(tableCapacities, tableId, newCapacity) != null);
+	}
+
+	// ****************************** Payment Operations ******************************
+
+	@Override
+	public void markBillAsPaid(int billId, String paymentMethod, String transactionId) {
+		write(() -> {
+			BillRow bill = bills.get(billId);
+			if (bill != null) {
+				touch(bill);
+				bill.status = "PAID";
+				bill.paidAt = LocalDateTime.now();
+				bill.method = paymentMethod;
+				bill.transactionId = transactionId;
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public Bill getBillById(int billId) {
+		return read(() -> {
+			BillRow bill = bills.get(billId);
+			return bill == null ? null : new Bill(bill.id, bill.sum, bill.status, bill.transactionId);
+		});
+	}
+
+	@Override
+	public Integer getBillIdByOrderNumber(int orderNumber) {
+		return read(() -> {
+			for (BillRow bill : bills.values()) {
+				SessionRow session = sessions.get(bill.sessionId);
+				if (session != null && session.orderNumber == orderNumber)
+					return bill.id;
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public List<Bill> getPendingBillsByUserId() {
+		LocalDate today = LocalDate.now();
+		return read(() -> {
+			List<BillRow> rows = new ArrayList<>();
+			for (BillRow bill : bills.values()) {
+				SessionRow session = sessions.get(bill.sessionId);
+				if (session != null && session.leftAt == null && "UNPAID".equals(bill.status)
+						&& today.equals(session.seatedAt.toLocalDate()) && orders.containsKey(session.orderNumber)) {
+					rows.add(bill);
+				}
+			}
+			rows.sort(Comparator.comparing(bill -> sessions.get(bill.sessionId).seatedAt));
+			List<Bill> result = new ArrayList<>();
+			for (BillRow row : rows) {
+				SessionRow session = sessions.get(row.sessionId);
+				Bill bill = new Bill(row.id, row.sum, row.status, row.transactionId);
+				bill.setTableId(session.tableNum);
+				bill.setOrderNumber(session.orderNumber);
+				bill.setDate(Timestamp.valueOf(session.seatedAt));
+				bill.setConfirmationCode(orders.get(session.orderNumber).code);
+				result.add(bill);
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Item> getBillItemsList(int orderNumber, User requester) {
+		int diners = read(() -> {
+			OrderRow order = orders.get(orderNumber);
+			return order == null ? 1 : order.guests;
+		});
+		int dinersAmount = diners <= 0 ? 1 : diners;
+		int itemsCount = Math.min(8, Math.max(2, (int) Math.ceil(dinersAmount * 1.5)));
+		List<Object[]> menu = new ArrayList<>(List.of(MENU));
+		Random rnd = new Random();
+		Collections.shuffle(menu, rnd);
+		List<Item> result = new ArrayList<>();
+		int fakeId = 1;
+		for (Object[] dish : menu.subList(0, Math.min(itemsCount, menu.size()))) {
+			double unitPrice = (Double) dish[1];
+			int maxQty = Math.max(1, (dinersAmount / 2) + 1);
+			int qty = 1 + rnd.nextInt(maxQty);
+			if (dinersAmount >= 6 && unitPrice <= 20 && rnd.nextDouble() < 0.35) {
+				qty += 1;
+			}
+			result.add(new Item(fakeId++, (String) dish[0], unitPrice, qty));
+		}
+		return result;
+	}
+
+	@Override
+	public Integer getOrderNumberByBillId(int billId) {
+		return read(() -> {
+			BillRow bill = bills.get(billId);
+			SessionRow session = bill == null ? null : sessions.get(bill.sessionId);
+			return session == null ? null : session.orderNumber;
+		});
+	}
+
+	// ****************************** Report Operations ******************************
+
+	@Override
+	public List<DailyReportFacts> getDailyReportFacts(LocalDate from, LocalDate to) {
+		if (from == null || to == null)
+			return new ArrayList<>();
+		// The rows are in memory, so the facts are computed on read rather than rolled up
+		return read(() -> {
+			TreeMap<LocalDate, DayFacts> days = new TreeMap<>();
+			for (OrderRow order : orders.values()) {
+				if (!inRange(order.date, from, to))
+					continue;
+				DayFacts day = days.computeIfAbsent(order.date, key -> new DayFacts());
+				UserRow user = users.get(order.userId);
+				day.orders++;
+				if (order.type == OrderType.RESERVATION)
+					day.reservations++;
+				if (user != null && user.type == UserType.MEMBER)
+					day.memberOrders++;
+			}
+			for (WaitRow entry : waitingList.values()) {
+				LocalDate joined = entry.joinedAt.toLocalDate();
+				if (inRange(joined, from, to))
+					days.computeIfAbsent(joined, key -> new DayFacts()).waitlistJoins++;
+			}
+			for (SessionRow session : sessions.values()) {
+				OrderRow order = orders.get(session.orderNumber);
+				if (order == null || order.type != OrderType.RESERVATION || !inRange(order.date, from, to))
+					continue;
+				days.computeIfAbsent(order.date, key -> new DayFacts()).seated(order.slot(), session);
+			}
+			List<DailyReportFacts> facts = new ArrayList<>();
+			days.forEach((date, day) -> facts.add(day.toFacts(date)));
+			return facts;
+		});
+	}
+
+	@Override
+	public int getDistinctCustomers(LocalDate from, LocalDate to) {
+		if (from == null || to == null)
+			return 0;
+		return read(() -> {
+			TreeSet<Integer> customers = new TreeSet<>();
+			for (OrderRow order : orders.values()) {
+				if (inRange(order.date, from, to))
+					customers.add(order.userId);
+			}
+			return customers.size();
+		});
+	}
+
+	@Override
+	public byte[] getReportPayload(String type, int year, int month) {
+		return read(() -> {
+			byte[] payload = reports.get(reportKey(type, year, month));
+			return payload == null ? null : payload.clone();
+		});
+	}
+
+	@Override
+	public boolean upsertReportPayload(String type, int year, int month, byte[] payload) {
+		byte[] copy = payload == null ? null : payload.clone();
+		return write(() -> {
+			put(reports, reportKey(type, year, month), copy);
+			return true;
+		});
+	}
+
+	@Override
+	public List<int[]> listReportMonths(String type) {
+		boolean times = "TIMES".equalsIgnoreCase(type);
+		List<YearMonth> found = read(() -> {
+			TreeSet<YearMonth> months = new TreeSet<>(Comparator.reverseOrder());
+			for (OrderRow order : orders.values()) {
+				if (order.type == OrderType.RESERVATION && order.date != null
+						&& (!times || hasSession(order.number))) {
+					months.add(YearMonth.from(order.date));
+				}
+			}
+			if (!times) {
+				for (WaitRow entry : waitingList.values()) {
+					months.add(YearMonth.from(entry.joinedAt));
+				}
+			}
+			return new ArrayList<>(months);
+		});
+		// Exclude the current month, unless it is the only one
+		YearMonth now = YearMonth.now();
+		if (found.size() > 1 || (found.size() == 1 && !found.get(0).equals(now))) {
+			found.remove(now);
+		}
+		List<int[]> months = new ArrayList<>();
+		for (YearMonth month : found) {
+			months.add(new int[] { month.getYear(), month.getMonthValue() });
+		}
+		return months;
+	}
+
+	// ****************************** Opening Hours Operations ******************************
+
+	@Override
+	public List<LocalTime> getOpeningHoursFromDB() {
+		return getOpeningHoursFromDB(LocalDate.now());
+	}
+
+	@Override
+	public List<LocalTime> getOpeningHoursFromDB(LocalDate date) {
+		return read(() -> hoursOn(date));
+	}
+
+	@Override
+	public Map<LocalDate, List<LocalTime>> getOpeningHoursBetween(LocalDate from, LocalDate to) {
+		return read(() -> {
+			Map<LocalDate, List<LocalTime>> hours = new TreeMap<>();
+			for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+				hours.put(date, hoursOn(date));
+			}
+			return hours;
+		});
+	}
+
+	/**
+	 * Gets the opening hours of a date: its holiday's, else its weekday's.
+	 * Called under the lock.
+	 */
+	private List<LocalTime> hoursOn(LocalDate date) {
+		int dayOfWeek = (date.getDayOfWeek().getValue() % 7) + 1; // 1=Sunday, 7=Saturday
+		List<LocalTime> hours = new ArrayList<>();
+		LocalTime[] weekly = weeklyHours.get(dayOfWeek);
+		if (weekly == null)
+			return hours;
+		Holiday special = holidays.get(date);
+		if (special != null && special.isClosed())
+			return hours;
+		LocalTime open = special != null && special.getOpenTime() != null ? special.getOpenTime() : weekly[0];
+		LocalTime close = special != null && special.getCloseTime() != null ? special.getCloseTime() : weekly[1];
+		if (open != null && close != null) {
+			hours.add(open);
+			hours.add(close);
+		}
+		return hours;
+	}
+
+	@Override
+	public boolean updateWeeklyHours(List<WeeklyHour> hours) {
+		return write(() -> {
+			for (WeeklyHour hour : hours) {
+				if (hour.getOpenTime() == null || hour.getCloseTime() == null)
+					continue;
+				put(weeklyHours, hour.getDayOfWeek(), new LocalTime[] { hour.getOpenTime(), hour.getCloseTime() });
+			}
+			return true;
+		});
+	}
+
+	@Override
+	public boolean addHoliday(Holiday holiday) {
+		boolean noTimes = holiday.isClosed() || holiday.getOpenTime() == null || holiday.getCloseTime() == null;
+		Holiday stored = new Holiday(holiday.getDate(), holiday.getName(), holiday.isClosed(),
+				noTimes ? null : holiday.getOpenTime(), noTimes ? null : holiday.getCloseTime());
+		return write(() -> {
+			put(holidays, stored.getDate(), stored);
+			return true;
+		});
+	}
+
+	@Override
+	public boolean removeHoliday(Holiday holiday) {
+		return write(() -> remove(holidays, holiday.getDate()) != null);
+	}
+
+	@Override
+	public List<Holiday> getHolidays() {
+		return read(() -> {
+			List<Holiday> list = new ArrayList<>();
+			for (Holiday holiday : holidays.values()) {
+				list.add(new Holiday(holiday.getDate(), holiday.getName(), holiday.isClosed(), holiday.getOpenTime(),
+						holiday.getCloseTime()));
+			}
+			return list;
+		});
+	}
+
+	@Override
+	public List<WeeklyHour> getWeeklyHours() {
+		return read(() -> {
+			List<WeeklyHour> list = new ArrayList<>();
+			for (Map.Entry<Integer, LocalTime[]> day : weeklyHours.entrySet()) {
+				list.add(new WeeklyHour(day.getKey(), day.getValue()[0], day.getValue()[1]));
+			}
+			return list;
+		});
+	}
+
+	// ****************************** Helpers ******************************
+	// All helpers below expect the lock to be held by the caller
+
+	private <T> T read(Supplier<T> query) {
+		lock.readLock().lock();
+		try {
+			return query.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <T> T write(Supplier<T> update) {
+		lock.writeLock().lock();
+		try {
+			return update.get();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Saves a row before its first change in the unit of work in progress.
+	 */
+	private void touch(Row row) {
+		if (journal != null && journal.touched.add(row))
+			journal.undo.push(row.snapshot());
+	}
+
+	/**
+	 * Map.put, journaled.
+	 */
+	private <K, V> V put(Map<K, V> map, K key, V value) {
+		boolean existed = map.containsKey(key);
+		V old = map.put(key, value);
+		if (journal != null)
+			journal.undo.push(existed ? () -> map.put(key, old) : () -> map.remove(key));
+		return old;
+	}
+
+	/**
+	 * Map.remove, journaled.
+	 */
+	private <K, V> V remove(Map<K, V> map, K key) {
+		if (!map.containsKey(key))
+			return null;
+		V old = map.remove(key);
+		if (journal != null)
+			journal.undo.push(() -> map.put(key, old));
+		return old;
+	}
+
+	private void log(String message) {
+		ServerLogger log = logger;
+		if (log != null) {
+			log.log(message);
+		}
+	}
+
+	private static UserRow guest(UserRow user) {
+		return user != null && user.type == UserType.GUEST ? user : null;
+	}
+
+	private static boolean isStaff(UserType type) {
+		return type == UserType.EMPLOYEE || type == UserType.MANAGER;
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.isBlank();
+	}
+
+	private static String blankToNull(String value) {
+		return value == null || value.trim().isEmpty() ? null : value.trim();
+	}
+
+	private static boolean equalsNonNull(String value, String searched) {
+		return searched != null && searched.equals(value);
+	}
+
+	private static boolean isBetween(LocalDateTime value, LocalDateTime start, LocalDateTime end) {
+		return value != null && !value.isBefore(start) && !value.isAfter(end);
+	}
+
+	/**
+	 * Checks whether an order sorts after a page cursor in the (order_date DESC,
+	 * order_number DESC) order of the user history, orders with no date last.
+	 */
+	private static boolean isAfter(OrderRow order, PageCursor cursor) {
+		if (cursor.getDate() == null)
+			return order.date == null && order.number < cursor.getId();
+		return order.date == null || order.date.isBefore(cursor.getDate())
+				|| (order.date.equals(cursor.getDate()) && order.number < cursor.getId());
+	}
+
+	private static boolean inRange(LocalDate date, LocalDate from, LocalDate to) {
+		return date != null && !date.isBefore(from) && !date.isAfter(to);
+	}
+
+	private static String reportKey(String type, int year, int month) {
+		return type.toUpperCase() + "/" + year + "/" + month;
+	}
+
+	/**
+	 * Tells whether a phone number or email can be given to a user, as they are
+	 * unique in the users table.
+	 */
+	private static boolean isFree(Map<String, UserRow> index, String value, UserRow user) {
+		UserRow owner = value == null ? null : index.get(value);
+		return owner == null || owner == user;
+	}
+
+	/**
+	 * Inserts a user, failing like the database when the phone number or email
+	 * is already taken.
+	 */
+	private UserRow insertUser(String phone, String email, UserType type) {
+		if (!isFree(usersByPhone, phone, null) || !isFree(usersByEmail, email, null)) {
+			log("[ERROR] Duplicate phone number or email for new user");
+			return null;
+		}
+		UserRow user = new UserRow();
+		user.id = nextUserId++;
+		user.type = type;
+		put(users, user.id, user);
+		setPhone(user, phone);
+		setEmail(user, email);
+		return user;
+	}
+
+	private void deleteUser(UserRow user) {
+		remove(users, user.id);
+		setPhone(user, null);
+		setEmail(user, null);
+		if (user.memberCode != 0)
+			remove(usersByMemberCode, user.memberCode);
+		if (user.username != null)
+			remove(staffByUsername, user.username.toLowerCase());
+	}
+
+	private boolean setPhone(UserRow user, String phone) {
+		if (!isFree(usersByPhone, phone, user))
+			return false;
+		touch(user);
+		if (user.phone != null)
+			remove(usersByPhone, user.phone);
+		user.phone = phone;
+		if (phone != null)
+			put(usersByPhone, phone, user);
+		return true;
+	}
+
+	private boolean setEmail(UserRow user, String email) {
+		if (!isFree(usersByEmail, email, user))
+			return false;
+		touch(user);
+		if (user.email != null)
+			remove(usersByEmail, user.email);
+		user.email = email;
+		if (email != null)
+			put(usersByEmail, email, user);
+		return true;
+	}
+
+	private int newMemberCode() {
+		int candidate;
+		do {
+			candidate = 100000 + random.nextInt(900000);
+		} while (usersByMemberCode.containsKey(candidate));
+		return candidate;
+	}
+
+	private String generateTempPassword() {
+		String chars = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghjkmnpqrstuvwxyz23456789";
+		StringBuilder sb = new StringBuilder();
+		Random rnd = new Random();
+		for (int i = 0; i < 8; i++) {
+			sb.append(chars.charAt(rnd.nextInt(chars.length())));
+		}
+		return sb.toString();
+	}
+
+	private String userTypeOf(int userId) {
+		UserRow user = users.get(userId);
+		return user == null ? null : user.type.name();
+	}
+
+	private OrderRow findWaitlistOrder(int userId) {
+		for (OrderRow order : orders.values()) {
+			if (order.userId == userId && order.type == OrderType.WAITLIST
+					&& (order.status == OrderStatus.PENDING || order.status == OrderStatus.NOTIFIED))
+				return order;
+		}
+		return null;
+	}
+
+	private boolean setWaitStatus(String confirmationCode, String wlStatus) {
+		WaitRow entry = confirmationCode == null ? null : waitingList.get(confirmationCode);
+		if (entry == null)
+			return false;
+		touch(entry);
+		entry.status = wlStatus;
+		return true;
+	}
+
+	/**
+	 * Gets the waiting list entries in some statuses, in queue order.
+	 */
+	private List<WaitRow> queue(String... statuses) {
+		List<WaitRow> entries = new ArrayList<>();
+		for (WaitRow entry : waitingList.values()) {
+			for (String status : statuses) {
+				if (status.equals(entry.status)) {
+					entries.add(entry);
+					break;
+				}
+			}
+		}
+		entries.sort(Comparator.comparingInt((WaitRow entry) -> entry.priority)
+				.thenComparing(entry -> entry.requestedTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+				.thenComparing(entry -> entry.joinedAt).thenComparingLong(entry -> entry.sequence));
+		return entries;
+	}
+
+	private SessionRow openSessionOf(int orderNumber) {
+		for (SessionRow session : sessions.values()) {
+			if (session.orderNumber == orderNumber && session.leftAt == null)
+				return session;
+		}
+		return null;
+	}
+
+	private int openTableOf(int orderNumber) {
+		SessionRow session = openSessionOf(orderNumber);
+		return session == null ? 0 : session.tableNum;
+	}
+
+	private boolean hasSession(int orderNumber) {
+		for (SessionRow session : sessions.values()) {
+			if (session.orderNumber == orderNumber)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean isOccupied(int tableNum) {
+		for (SessionRow session : sessions.values()) {
+			if (session.tableNum == tableNum && session.leftAt == null)
+				return true;
+		}
+		return false;
+	}
+
+	// ****************************** Rows ******************************
+
+	/** The changes of a unit of work, undone last first on rollback */
+	private static final class Journal {
+		final Deque<Runnable> undo = new ArrayDeque<>();
+		final Set<Row> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		void undo() {
+			while (!undo.isEmpty())
+				undo.pop().run();
+		}
+	}
+
+	/** A stored row whose fields can be saved and put back */
+	private interface Row {
+		/** @return an action putting the current fields back */
+		Runnable snapshot();
+	}
+
+	/** The report facts of one day, counted from the rows */
+	private static final class DayFacts {
+		int orders;
+		int reservations;
+		int memberOrders;
+		int waitlistJoins;
+		int seated;
+		int onTime;
+		int late;
+		final int[] lateness = new int[DailyReportFacts.LATENESS_BUCKETS.length];
+		final int[] overstay = new int[DailyReportFacts.OVERSTAY_BUCKETS.length];
+
+		/** Counts a session of a reservation of the day */
+		void seated(LocalDateTime slot, SessionRow session) {
+			seated++;
+			if (slot != null && session.seatedAt != null) {
+				if (!session.seatedAt.isAfter(slot))
+					onTime++;
+				if (isBetween(session.seatedAt, slot, slot.plusMinutes(15)))
+					late++;
+				lateness[DailyReportFacts.latenessBucket(Duration.between(slot, session.seatedAt).toMinutes())]++;
+			}
+			overstay[DailyReportFacts.overstayBucket(session.seatedAt == null || session.leftAt == null ? null
+					: Duration.between(session.seatedAt, session.leftAt).toMinutes())]++;
+		}
+
+		DailyReportFacts toFacts(LocalDate day) {
+			return new DailyReportFacts(day, orders, reservations, memberOrders, waitlistJoins, seated, onTime, late,
+					lateness, overstay);
+		}
+	}
+
+	/** A row of users, with its members and staff_accounts rows */
+	private static final class UserRow implements Row {
+		int id;
+		String phone;
+		String email;
+		UserType type;
+		int memberCode;
+		String firstName;
+		String lastName;
+		String address;
+		String username;
+		String password;
+
+		UserRow copy() {
+			UserRow copy = new UserRow();
+			copy.id = id;
+			copy.phone = phone;
+			copy.email = email;
+			copy.type = type;
+			copy.memberCode = memberCode;
+			copy.firstName = firstName;
+			copy.lastName = lastName;
+			copy.address = address;
+			copy.username = username;
+			copy.password = password;
+			return copy;
+		}
+
+		@Override
+		public Runnable snapshot() {
+			UserRow saved = copy();
+			return () -> {
+				phone = saved.phone;
+				email = saved.email;
+				type = saved.type;
+				memberCode = saved.memberCode;
+				firstName = saved.firstName;
+				lastName = saved.lastName;
+				address = saved.address;
+				username = saved.username;
+				password = saved.password;
+			};
+		}
+
+		User toUser() {
+			if (type == UserType.MEMBER) {
+				return new User(id, phone, email, String.valueOf(memberCode), firstName, lastName, address, type);
+			}
+			return new User(id, phone, email, type);
+		}
+	}
+
+	/** A row of orders */
+	private static final class OrderRow implements Row {
+		int number;
+		int userId;
+		LocalDate date;
+		LocalTime time;
+		int guests;
+		String code;
+		OrderType type;
+		OrderStatus status;
+		LocalDateTime placedAt;
+		LocalDateTime notifiedAt;
+		LocalDateTime cancelledAt;
+
+		/** The reserved slot, as TIMESTAMP(order_date, order_time) */
+		LocalDateTime slot() {
+			return date == null || time == null ? null : LocalDateTime.of(date, time);
+		}
+
+		@Override
+		public Runnable snapshot() {
+			int savedUserId = userId;
+			OrderStatus savedStatus = status;
+			LocalDateTime savedNotifiedAt = notifiedAt;
+			LocalDateTime savedCancelledAt = cancelledAt;
+			return () -> {
+				userId = savedUserId;
+				status = savedStatus;
+				notifiedAt = savedNotifiedAt;
+				cancelledAt = savedCancelledAt;
+			};
+		}
+
+		Order toOrder() {
+			return new Order(number, date, time, guests, code, userId, type, status, placedAt);
+		}
+	}
+
+	/** A row of waiting_list */
+	private static final class WaitRow implements Row {
+		String code;
+		int quotedWait;
+		int priority;
+		LocalDateTime requestedTime;
+		LocalDateTime joinedAt;
+		String status;
+		/** Insertion order, to keep the queue stable when timestamps are equal */
+		long sequence;
+
+		@Override
+		public Runnable snapshot() {
+			int savedQuotedWait = quotedWait;
+			int savedPriority = priority;
+			LocalDateTime savedRequestedTime = requestedTime;
+			LocalDateTime savedJoinedAt = joinedAt;
+			String savedStatus = status;
+			long savedSequence = sequence;
+			return () -> {
+				quotedWait = savedQuotedWait;
+				priority = savedPriority;
+				requestedTime = savedRequestedTime;
+				joinedAt = savedJoinedAt;
+				status = savedStatus;
+				sequence = savedSequence;
+			};
+		}
+	}
+
+	/** A row of table_sessions */
+	private static final class SessionRow implements Row {
+		int id;
+		int orderNumber;
+		int tableNum;
+		LocalDateTime seatedAt;
+		LocalDateTime expectedEndAt;
+		LocalDateTime leftAt;
+		EndTableSessionType endReason;
+
+		@Override
+		public Runnable snapshot() {
+			LocalDateTime savedExpectedEndAt = expectedEndAt;
+			LocalDateTime savedLeftAt = leftAt;
+			EndTableSessionType savedEndReason = endReason;
+			return () -> {
+				expectedEndAt = savedExpectedEndAt;
+				leftAt = savedLeftAt;
+				endReason = savedEndReason;
+			};
+		}
+	}
+
+	/** A row of bills */
+	private static final class BillRow implements Row {
+		int id;
+		int sessionId;
+		double sum;
+		String status = "UNPAID";
+		LocalDateTime paidAt;
+		String method;
+		String transactionId;
+
+		@Override
+		public Runnable snapshot() {
+			String savedStatus = status;
+			LocalDateTime savedPaidAt = paidAt;
+			String savedMethod = method;
+			String savedTransactionId = transactionId;
+			return () -> {
+				status = savedStatus;
+				paidAt = savedPaidAt;
+				method = savedMethod;
+				transactionId = savedTransactionId;
+			};
+		}
+	}
+}
+// End of InMemoryStorage.java
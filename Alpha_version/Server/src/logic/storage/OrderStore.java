@@ -0,0 +1,144 @@
+package logic.storage;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import dto.PageCursor;
+import entities.Order;
+import enums.OrderStatus;
+import enums.OrderType;
+
+/**
+ * Storage of reservations and walk-in orders.
+ */
+public interface OrderStore {
+
+	/**
+	 * Creates an order.
+	 *
+	 * @param orderData [userId, date, dinersAmount, time, confirmationCode]; date
+	 *                  and time are ignored for WAITLIST orders
+	 * @return true if the order was created
+	 */
+	boolean setNewOrder(List<Object> orderData, OrderType type, OrderStatus status);
+
+	/**
+	 * Creates a PENDING reservation if a table is free for its whole stay: takes
+	 * one table of the smallest capacity that fits the diners and is free in
+	 * every slot of the stay, atomically with the insert.
+	 *
+	 * @param orderData [userId, date, dinersAmount, time, confirmationCode]
+	 * @param stay      the start of every slot the reservation holds a table in
+	 * @return true if the reservation was created, false if no table is free
+	 *         for the stay or on error
+	 */
+	boolean setNewReservation(List<Object> orderData, List<LocalTime> stay);
+
+	/**
+	 * Gets the time and size of the orders occupying a date: the upcoming active
+	 * orders for today, the pending reservations for other dates.
+	 */
+	List<Order> getOrdersByDate(LocalDate date);
+
+	/**
+	 * Gets the slot, size and confirmation code of the reservations holding a
+	 * table in a range of dates: those pending, notified or seated.
+	 *
+	 * @return the reservations, or null on error
+	 */
+	List<Order> getActiveReservations(LocalDate from, LocalDate to);
+
+	/**
+	 * Gets the reservations of a date with their table and user type.
+	 */
+	List<Order> getFullOrdersByDate(LocalDate date);
+
+	/**
+	 * Gets all orders of a user, latest first, with their table and user type.
+	 */
+	List<Order> getOrdersByUserId(int userId);
+
+	/**
+	 * Gets a page of the orders of a user, latest first by (order_date,
+	 * order_number), with their table and user type. Orders without a date come
+	 * last.
+	 *
+	 * @param after the last order of the previous page, null for the first page
+	 * @param limit the largest number of orders returned
+	 * @return the orders, or null on failure
+	 */
+	List<Order> getOrdersByUserIdPage(int userId, PageCursor after, int limit);
+
+	boolean checkOrderExistsInDB(String confirmationCode);
+
+	/**
+	 * Gets an order by confirmation code, or null if not found.
+	 */
+	Order getOrderByConfirmationCodeInDB(String confirmationCode);
+
+	/**
+	 * Gets the seated orders of a date and its pending or notified reservations
+	 * between two times.
+	 */
+	List<Order> getActiveAndUpcomingOrders(LocalDate today, LocalTime now, LocalTime walkInEndTime);
+
+	List<Order> getMemberActiveReservationsForToday(int userId);
+
+	/**
+	 * Moves an order to a new status, stamping notified_at or cancelled_at and
+	 * updating its waiting list entry as needed.
+	 *
+	 * @return true if the order was updated
+	 */
+	boolean updateOrderStatusInDB(String confirmationCode, OrderStatus status);
+
+	/**
+	 * Gets the status of an order, or null if not found.
+	 */
+	OrderStatus getOrderStatusInDB(String confirmationCode);
+
+	List<Order> getMemberSeatedReservationsForToday(int userId);
+
+	/**
+	 * Gets the confirmation code of the order seated today for the user with this
+	 * email or phone.
+	 *
+	 * @return the confirmation code, or "NOT_FOUND"
+	 */
+	String recoverGuestSeatedCode(String email, String phone);
+
+	/**
+	 * Marks as reminded, in one operation, the pending reservations whose slot is
+	 * within the window and that were not reminded yet.
+	 *
+	 * @return the reservations marked, or null on error
+	 */
+	List<Order> claimReservationReminders(LocalDateTime startWindow, LocalDateTime endWindow, LocalDateTime sentAt);
+
+	List<Order> getSeatedOrdersBetweenTimes(LocalDateTime startWindow, LocalDateTime endWindow);
+
+	List<Order> getOrdersByDateAndStatus(LocalDate date, OrderStatus status, OrderType orderType);
+
+	/**
+	 * Marks as NO_SHOW, in one operation, the pending reservations of the day of
+	 * slotDeadline whose slot is before it, and the notified waitlist orders
+	 * notified before notifiedDeadline.
+	 *
+	 * @return the orders marked, as they were before, or null on error
+	 */
+	List<Order> markNoShows(LocalDateTime slotDeadline, LocalDateTime notifiedDeadline);
+
+	boolean updateOrderStatusByConfirmCode(String confirmationCode, OrderStatus newStatus);
+
+	boolean updateOrderStatusByUserId(int userid, OrderStatus newStatus);
+
+	boolean updateOrderStatusByOrderNumber(int orderNumber, OrderStatus completed);
+
+	/**
+	 * Gets the order of a user currently seated at a table, with its table.
+	 */
+	Order getSeatedOrderForUser(int userId);
+}
+// End of OrderStore.java
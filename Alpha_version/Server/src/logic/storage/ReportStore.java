@@ -0,0 +1,45 @@
+package logic.storage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Storage of the monthly reports and of the daily facts they are built from.
+ *
+ * The facts are a rollup kept up to date as orders, sessions and waitlist
+ * entries change, so that a report reads one row per day of its month instead
+ * of aggregating the orders.
+ */
+public interface ReportStore {
+
+	/**
+	 * Gets the report facts of the days of a range that have any.
+	 *
+	 * @param from the first day
+	 * @param to   the last day, included
+	 * @return the facts, by day
+	 */
+	List<DailyReportFacts> getDailyReportFacts(LocalDate from, LocalDate to);
+
+	/**
+	 * Counts the distinct users with an order for a day of a range.
+	 *
+	 * @param from the first day
+	 * @param to   the last day, included
+	 * @return the number of customers
+	 */
+	int getDistinctCustomers(LocalDate from, LocalDate to);
+
+	/**
+	 * Gets a persisted report, or null if not generated.
+	 */
+	byte[] getReportPayload(String type, int year, int month);
+
+	boolean upsertReportPayload(String type, int year, int month, byte[] payload);
+
+	/**
+	 * Lists the {year, month} pairs with data for a report type, latest first.
+	 */
+	List<int[]> listReportMonths(String type);
+}
+// End of ReportStore.java
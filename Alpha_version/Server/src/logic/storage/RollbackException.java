@@ -0,0 +1,15 @@
+package logic.storage;
+
+/**
+ * Thrown by a {@link UnitOfWork} to roll its transaction back. The message
+ * says which step failed and is logged by the storage.
+ */
+public class RollbackException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public RollbackException(String message) {
+		super(message);
+	}
+}
+// End of RollbackException.java
@@ -0,0 +1,73 @@
+package logic.storage;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import entities.Table;
+import enums.EndTableSessionType;
+
+/**
+ * Storage of the restaurant tables and of the sessions seated at them.
+ */
+public interface TableStore {
+
+	/**
+	 * Deletes the open session of an order.
+	 */
+	void deleteActiveSession(int orderNumber);
+
+	/**
+	 * Gets the capacity of a table, or -1 if not found.
+	 */
+	int getTableCapacity(int tableNum);
+
+	/**
+	 * Gets all tables, flagged occupied when they have an open session.
+	 */
+	List<Table> getAllTablesFromDB();
+
+	/**
+	 * Gets the table an order is seated at, or -1.
+	 */
+	int getTableNumberByConfirmationCode(String confirmationCode);
+
+	/**
+	 * Gets the table an order is seated at, or null.
+	 */
+	Integer getActiveTableNumByOrderNumber(int orderNumber);
+
+	/**
+	 * Gets the confirmation code of the order seated at a table, or null.
+	 */
+	String getActiveOrderConfirmationCodeByTableNum(int tableID);
+
+	/**
+	 * Gets the earliest expected end of the open sessions at tables large enough
+	 * for a group, or null.
+	 */
+	LocalTime getEarliestExpectedEndTime(int dinersAmount);
+
+	/**
+	 * Gets the smallest free table that fits a group, or -1.
+	 */
+	int findFreeTableForGroup(int groupSize);
+
+	/**
+	 * Seats an order at a table, opening its session and its bill.
+	 *
+	 * @return true if the session was created
+	 */
+	boolean createTableSession(int orderNumber, int tableNum, int diningMinutes);
+
+	/**
+	 * Closes the open session of an order.
+	 */
+	void closeTableSessionForOrder(int orderNumber, EndTableSessionType endType);
+
+	boolean addTable(Table table);
+
+	boolean removeTable(int tableId);
+
+	boolean updateTableCapacity(int tableId, int newCapacity);
+}
+// End of TableStore.java
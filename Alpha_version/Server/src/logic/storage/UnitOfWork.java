@@ -0,0 +1,24 @@
+package logic.storage;
+
+/**
+ * A sequence of storage operations run as one transaction by
+ * {@link BistroStorage#inTransaction(UnitOfWork)}.
+ *
+ * The operations see each other's changes, and other threads see all of them
+ * or none. Throw a {@link RollbackException} to undo the operations done so
+ * far, for example when a step returns a failure value.
+ *
+ * @param <T> the result of the work
+ */
+@FunctionalInterface
+public interface UnitOfWork<T> {
+
+	/**
+	 * Runs the operations.
+	 *
+	 * @param storage the storage to run them on, inside the transaction
+	 * @return the result, returned by inTransaction once committed
+	 */
+	T run(BistroStorage storage);
+}
+// End of UnitOfWork.java
@@ -0,0 +1,143 @@
+package logic.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import dto.UserData;
+import entities.User;
+import enums.UserType;
+
+/**
+ * Storage of users: guests, members and staff accounts.
+ */
+public interface UserStore {
+
+	/**
+	 * Finds the guest user with the given phone number and/or email, creating it
+	 * if missing. When both identifiers match two different guests, the guests
+	 * are merged into the one found by phone number.
+	 *
+	 * @return the guest user, or null on failure
+	 */
+	User findOrCreateGuestUser(String phoneNumber, String email);
+
+	/**
+	 * Finds a member user by their member code.
+	 *
+	 * @return the member user, or null if not found
+	 */
+	User findMemberUserByCode(int memberCode);
+
+	/**
+	 * Updates the personal details and contact information of a member.
+	 *
+	 * @return true if the member was updated
+	 */
+	boolean setUpdatedMemberData(UserData updatedUser);
+
+	/**
+	 * Finds an employee or manager by username and verifies the password.
+	 *
+	 * @return the staff user, or null if not found or the password is wrong
+	 */
+	User findEmployeeUser(String username, String password);
+
+	/**
+	 * Checks if a staff username is taken, ignoring case.
+	 */
+	boolean employeeUsernameExists(String username);
+
+	/**
+	 * Gets the id of the user with this exact phone number, or null.
+	 */
+	Integer findUserIdByPhone(String phoneNumber);
+
+	/**
+	 * Gets the id of the user with this exact email, or null.
+	 */
+	Integer findUserIdByEmail(String email);
+
+	/**
+	 * Checks if a user already has a staff account.
+	 */
+	boolean staffAccountExistsForUserId(int userId);
+
+	/**
+	 * Creates an EMPLOYEE or MANAGER account, promoting the user owning the
+	 * given phone number or email if there is one.
+	 *
+	 * @return the staff user, or null if creation failed
+	 */
+	User createEmployeeUser(String username, String password, String email, String phoneNumber, UserType userType,
+			String firstName, String lastName, String address);
+
+	/**
+	 * Resets the password of the staff user with the given email or phone.
+	 *
+	 * @return "username:temporaryPassword", "NOT_FOUND" or "ERROR_DB"
+	 */
+	String recoverStaffLogin(String email, String phoneNumber);
+
+	/**
+	 * Gets all guests and members.
+	 *
+	 * @return the customers, or null on failure
+	 */
+	List<UserData> getAllCustomers();
+
+	/**
+	 * Gets a page of the guests and members by user id.
+	 *
+	 * @param afterUserId the user id of the last customer of the previous page, 0
+	 *                    for the first page
+	 * @param limit       the largest number of customers returned
+	 * @return the customers with their user id, or null on failure
+	 */
+	List<UserData> getCustomersPage(int afterUserId, int limit);
+
+	/**
+	 * Counts the guests and members.
+	 *
+	 * @return the counts by user type name, or null on failure
+	 */
+	Map<String, Integer> countCustomersByType();
+
+	/**
+	 * Registers a new member, upgrading the matching guest if there is one.
+	 *
+	 * @param newMemberData [fName, lName, email, phoneNumber, address]
+	 * @return the new member code, or -1 (error), -2 (already member), -3
+	 *         (already staff), -4 (phone and email belong to different users)
+	 */
+	int registerNewMember(List<String> newMemberData);
+
+	/**
+	 * Finds the member code of the member with the given email or phone.
+	 *
+	 * @return the member code, or -1 if not found
+	 */
+	int findMemberCodeByEmailOrPhone(String email, String phoneNumber);
+
+	/**
+	 * Gets a user by id, with contact information and type only.
+	 *
+	 * @return the user, or null if not found
+	 */
+	User getUserById(int userId);
+
+	/**
+	 * Gets users by id in one lookup, with contact information and type only.
+	 *
+	 * @return the users found, by id
+	 */
+	Map<Integer, User> getUsersByIds(Collection<Integer> userIds);
+
+	/**
+	 * Gets the user id of a member code.
+	 *
+	 * @return the user id, or -1 if not found
+	 */
+	int getUserIdByMemberCode(int memberCode);
+}
+// End of UserStore.java
@@ -0,0 +1,54 @@
+package logic.storage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import entities.Order;
+
+/**
+ * Storage of the waiting list queue.
+ */
+public interface WaitingListStore {
+
+	/**
+	 * Checks if a user has a pending or notified WAITLIST order.
+	 */
+	boolean isUserInWaitingList(int userID);
+
+	/**
+	 * Cancels a pending or notified WAITLIST order.
+	 *
+	 * @return true if the order was cancelled
+	 */
+	boolean removeFromWaitingList(String confirmationCode);
+
+	/**
+	 * Puts an order in the waiting queue, or resets its entry to WAITING.
+	 */
+	void enqueueWaitingList(String confirmationCode, int calculatedWaitTime);
+
+	/**
+	 * Gets the first waiting order that fits a table, or null.
+	 */
+	Order getNextFromWaitingQueueThatFits(int tableCapacity);
+
+	boolean updateWaitingListStatus(String confirmationCode, String wlStatus);
+
+	/**
+	 * Marks a pending WAITLIST order and its queue entry as NOTIFIED.
+	 *
+	 * @return true if the order was pending
+	 */
+	boolean markWaitlistAsNotified(int orderNumber, LocalDateTime notifiedAt);
+
+	/**
+	 * Gets the waiting and notified entries of the queue, in queue order.
+	 */
+	List<Order> getWaitingQueueFromView();
+
+	/**
+	 * Gets the pending or notified WAITLIST order of a user, or null.
+	 */
+	Order getWaitingListOrderByUserId(int userID);
+}
+// End of WaitingListStore.java
@@ -36,7 +36,7 @@ CREATE TABLE `orders` (
   `cancelled_at` datetime DEFAULT NULL,
   PRIMARY KEY (`order_number`),
   UNIQUE KEY `uq_orders_confirmation` (`confirmation_code`),
-  KEY `idx_orders_user` (`user_id`),
+  KEY `idx_orders_user` (`user_id`,`order_date`,`order_number`),
   KEY `idx_orders_slot` (`order_date`,`order_time`),
   KEY `idx_orders_status` (`status`),
   CONSTRAINT `fk_orders_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`),
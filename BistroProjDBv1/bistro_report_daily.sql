@@ -0,0 +1,379 @@
+-- Daily report rollup for database: bistro
+--
+-- report_daily holds one row per day with the counts the monthly reports are
+-- built from; report_day_customers holds the users with an order for each day
+-- and their number of orders, as distinct customers do not add up across days.
+-- The triggers below add what every change to orders, table_sessions,
+-- waiting_list and users.type takes from and gives to the day(s) it touches,
+-- computed from the OLD and NEW rows alone, so a write never reads the rest
+-- of its day and holds the day's rollup row only for one upsert. A report
+-- reads one rollup row per day of its month.
+--
+-- Orders count toward the day of their slot (order_date), waitlist entries
+-- toward the day they joined. Arrivals and stays are those of the day's
+-- reservations that have a table session.
+--
+-- Load after the table dumps; the last statement fills the rollup from the
+-- existing rows. CALL rebuild_report_daily() recomputes it from scratch, to
+-- repair it after writes made with the triggers missing.
+-- ------------------------------------------------------
+
+/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;
+/*!40101 SET @OLD_CHARACTER_SET_RESULTS=@@CHARACTER_SET_RESULTS */;
+/*!40101 SET @OLD_COLLATION_CONNECTION=@@COLLATION_CONNECTION */;
+/*!50503 SET NAMES utf8 */;
+/*!40103 SET @OLD_TIME_ZONE=@@TIME_ZONE */;
+/*!40103 SET TIME_ZONE='+00:00' */;
+/*!40014 SET @OLD_UNIQUE_CHECKS=@@UNIQUE_CHECKS, UNIQUE_CHECKS=0 */;
+/*!40014 SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0 */;
+/*!40101 SET @OLD_SQL_MODE=@@SQL_MODE, SQL_MODE='NO_AUTO_VALUE_ON_ZERO' */;
+/*!40111 SET @OLD_SQL_NOTES=@@SQL_NOTES, SQL_NOTES=0 */;
+
+--
+-- Table structure for table `report_daily`
+--
+
+DROP TABLE IF EXISTS `report_daily`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `report_daily` (
+  `report_day` date NOT NULL,
+  `orders_total` int NOT NULL DEFAULT '0',
+  `reservations` int NOT NULL DEFAULT '0',
+  `member_orders` int NOT NULL DEFAULT '0',
+  `waitlist_joins` int NOT NULL DEFAULT '0',
+  `seated` int NOT NULL DEFAULT '0',
+  `on_time` int NOT NULL DEFAULT '0',
+  `late` int NOT NULL DEFAULT '0',
+  `late_early` int NOT NULL DEFAULT '0',
+  `late_0_5` int NOT NULL DEFAULT '0',
+  `late_6_15` int NOT NULL DEFAULT '0',
+  `late_16_30` int NOT NULL DEFAULT '0',
+  `late_31_plus` int NOT NULL DEFAULT '0',
+  `overstay_0` int NOT NULL DEFAULT '0',
+  `overstay_1_10` int NOT NULL DEFAULT '0',
+  `overstay_11_30` int NOT NULL DEFAULT '0',
+  `overstay_31_60` int NOT NULL DEFAULT '0',
+  `overstay_61_plus` int NOT NULL DEFAULT '0',
+  `overstay_unknown` int NOT NULL DEFAULT '0',
+  `refreshed_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`report_day`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `report_day_customers`
+--
+
+DROP TABLE IF EXISTS `report_day_customers`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `report_day_customers` (
+  `report_day` date NOT NULL,
+  `user_id` int NOT NULL,
+  `orders` int NOT NULL DEFAULT '0',
+  PRIMARY KEY (`report_day`,`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Index for the waitlist joins of a day
+--
+
+ALTER TABLE `waiting_list` ADD KEY `idx_waiting_joined` (`joined_at`);
+
+--
+-- Routines of earlier versions of this file, no longer used: the triggers
+-- now apply deltas instead of recomputing the days of a user
+--
+
+DROP PROCEDURE IF EXISTS `refresh_report_days_of_user`;
+
+--
+-- Routines for the rollup
+--
+
+DELIMITER ;;
+DROP PROCEDURE IF EXISTS `refresh_report_day`;;
+CREATE PROCEDURE `refresh_report_day`(IN p_day DATE)
+BEGIN
+  -- Recomputes one day from scratch, for rebuild_report_daily; every read is a
+  -- range on an index of its table
+  IF p_day IS NOT NULL THEN
+    DELETE FROM `report_daily` WHERE `report_day` = p_day;
+    INSERT INTO `report_daily` (`report_day`, `orders_total`, `reservations`, `member_orders`, `waitlist_joins`,
+        `seated`, `on_time`, `late`, `late_early`, `late_0_5`, `late_6_15`, `late_16_30`, `late_31_plus`,
+        `overstay_0`, `overstay_1_10`, `overstay_11_30`, `overstay_31_60`, `overstay_61_plus`, `overstay_unknown`)
+    SELECT p_day, o.orders_total, o.reservations, o.member_orders,
+        (SELECT COUNT(*) FROM `waiting_list` wl
+          WHERE wl.joined_at >= p_day AND wl.joined_at < p_day + INTERVAL 1 DAY),
+        s.seated, s.on_time, s.late, s.late_early, s.late_0_5, s.late_6_15, s.late_16_30, s.late_31_plus,
+        s.overstay_0, s.overstay_1_10, s.overstay_11_30, s.overstay_31_60, s.overstay_61_plus, s.overstay_unknown
+    FROM (
+      SELECT COUNT(*) AS orders_total,
+             COALESCE(SUM(o.order_type = 'RESERVATION'), 0) AS reservations,
+             COALESCE(SUM(u.type = 'MEMBER'), 0) AS member_orders
+      FROM `orders` o JOIN `users` u ON u.user_id = o.user_id
+      WHERE o.order_date = p_day
+    ) o CROSS JOIN (
+      SELECT COUNT(*) AS seated,
+             COALESCE(SUM(x.seated_at <= x.slot), 0) AS on_time,
+             COALESCE(SUM(x.seated_at >= x.slot AND x.seated_at <= x.slot + INTERVAL 15 MINUTE), 0) AS late,
+             COALESCE(SUM(x.lateness < 0), 0) AS late_early,
+             COALESCE(SUM(x.lateness BETWEEN 0 AND 5), 0) AS late_0_5,
+             COALESCE(SUM(x.lateness BETWEEN 6 AND 15), 0) AS late_6_15,
+             COALESCE(SUM(x.lateness BETWEEN 16 AND 30), 0) AS late_16_30,
+             COALESCE(SUM(x.lateness >= 31), 0) AS late_31_plus,
+             COALESCE(SUM(x.stay <= 120), 0) AS overstay_0,
+             COALESCE(SUM(x.stay BETWEEN 121 AND 130), 0) AS overstay_1_10,
+             COALESCE(SUM(x.stay BETWEEN 131 AND 150), 0) AS overstay_11_30,
+             COALESCE(SUM(x.stay BETWEEN 151 AND 180), 0) AS overstay_31_60,
+             COALESCE(SUM(x.stay > 180), 0) AS overstay_61_plus,
+             COALESCE(SUM(x.stay IS NULL), 0) AS overstay_unknown
+      FROM (
+        SELECT ts.seated_at, TIMESTAMP(o.order_date, o.order_time) AS slot,
+               TIMESTAMPDIFF(MINUTE, TIMESTAMP(o.order_date, o.order_time), ts.seated_at) AS lateness,
+               TIMESTAMPDIFF(MINUTE, ts.seated_at, ts.left_at) AS stay
+        FROM `orders` o JOIN `table_sessions` ts ON ts.order_number = o.order_number
+        WHERE o.order_type = 'RESERVATION' AND o.order_date = p_day
+      ) x
+    ) s;
+
+    DELETE FROM `report_day_customers` WHERE `report_day` = p_day;
+    INSERT INTO `report_day_customers` (`report_day`, `user_id`, `orders`)
+    SELECT p_day, o.user_id, COUNT(*) FROM `orders` o WHERE o.order_date = p_day GROUP BY o.user_id;
+  END IF;
+END ;;
+
+DROP PROCEDURE IF EXISTS `add_session_facts`;;
+CREATE PROCEDURE `add_session_facts`(IN p_day DATE, IN p_slot DATETIME, IN p_seated_at DATETIME,
+    IN p_left_at DATETIME, IN p_sign INT)
+BEGIN
+  -- Adds (p_sign = 1) or takes back (p_sign = -1) the arrival and stay of one
+  -- table session of a reservation for the slot p_slot of day p_day
+  DECLARE v_lateness INT DEFAULT TIMESTAMPDIFF(MINUTE, p_slot, p_seated_at);
+  DECLARE v_stay INT DEFAULT TIMESTAMPDIFF(MINUTE, p_seated_at, p_left_at);
+  DECLARE d_on_time INT DEFAULT p_sign * (p_seated_at <= p_slot);
+  DECLARE d_late INT DEFAULT p_sign * (p_seated_at >= p_slot AND p_seated_at <= p_slot + INTERVAL 15 MINUTE);
+  DECLARE d_early INT DEFAULT p_sign * (v_lateness < 0);
+  DECLARE d_0_5 INT DEFAULT p_sign * (v_lateness BETWEEN 0 AND 5);
+  DECLARE d_6_15 INT DEFAULT p_sign * (v_lateness BETWEEN 6 AND 15);
+  DECLARE d_16_30 INT DEFAULT p_sign * (v_lateness BETWEEN 16 AND 30);
+  DECLARE d_31_plus INT DEFAULT p_sign * (v_lateness >= 31);
+  DECLARE d_stay_0 INT DEFAULT p_sign * (v_stay IS NOT NULL AND v_stay <= 120);
+  DECLARE d_stay_1_10 INT DEFAULT p_sign * (v_stay IS NOT NULL AND v_stay BETWEEN 121 AND 130);
+  DECLARE d_stay_11_30 INT DEFAULT p_sign * (v_stay IS NOT NULL AND v_stay BETWEEN 131 AND 150);
+  DECLARE d_stay_31_60 INT DEFAULT p_sign * (v_stay IS NOT NULL AND v_stay BETWEEN 151 AND 180);
+  DECLARE d_stay_61_plus INT DEFAULT p_sign * (v_stay IS NOT NULL AND v_stay > 180);
+  DECLARE d_stay_unknown INT DEFAULT p_sign * (v_stay IS NULL);
+  INSERT INTO `report_daily` (`report_day`, `seated`, `on_time`, `late`, `late_early`, `late_0_5`, `late_6_15`,
+      `late_16_30`, `late_31_plus`, `overstay_0`, `overstay_1_10`, `overstay_11_30`, `overstay_31_60`,
+      `overstay_61_plus`, `overstay_unknown`)
+  VALUES (p_day, p_sign, d_on_time, d_late, d_early, d_0_5, d_6_15, d_16_30, d_31_plus,
+      d_stay_0, d_stay_1_10, d_stay_11_30, d_stay_31_60, d_stay_61_plus, d_stay_unknown)
+  ON DUPLICATE KEY UPDATE
+    `seated` = `seated` + p_sign, `on_time` = `on_time` + d_on_time, `late` = `late` + d_late,
+    `late_early` = `late_early` + d_early, `late_0_5` = `late_0_5` + d_0_5, `late_6_15` = `late_6_15` + d_6_15,
+    `late_16_30` = `late_16_30` + d_16_30, `late_31_plus` = `late_31_plus` + d_31_plus,
+    `overstay_0` = `overstay_0` + d_stay_0, `overstay_1_10` = `overstay_1_10` + d_stay_1_10,
+    `overstay_11_30` = `overstay_11_30` + d_stay_11_30, `overstay_31_60` = `overstay_31_60` + d_stay_31_60,
+    `overstay_61_plus` = `overstay_61_plus` + d_stay_61_plus,
+    `overstay_unknown` = `overstay_unknown` + d_stay_unknown;
+END ;;
+
+DROP PROCEDURE IF EXISTS `add_session_of_order`;;
+CREATE PROCEDURE `add_session_of_order`(IN p_order INT, IN p_seated_at DATETIME, IN p_left_at DATETIME,
+    IN p_sign INT)
+BEGIN
+  -- Adds or takes back a table session, counted on the day of its reservation
+  DECLARE v_day DATE;
+  DECLARE v_time TIME;
+  DECLARE CONTINUE HANDLER FOR NOT FOUND SET v_day = NULL;
+  SELECT order_date, order_time INTO v_day, v_time FROM `orders`
+    WHERE order_number = p_order AND order_type = 'RESERVATION';
+  IF v_day IS NOT NULL THEN
+    CALL add_session_facts(v_day, TIMESTAMP(v_day, v_time), p_seated_at, p_left_at, p_sign);
+  END IF;
+END ;;
+
+DROP PROCEDURE IF EXISTS `add_order_facts`;;
+CREATE PROCEDURE `add_order_facts`(IN p_order INT, IN p_day DATE, IN p_time TIME, IN p_type VARCHAR(20),
+    IN p_user INT, IN p_sign INT)
+BEGIN
+  -- Adds (p_sign = 1) or takes back (p_sign = -1) an order as of the given
+  -- slot, type and user: its counts, its customer, and its table session
+  DECLARE v_member INT;
+  DECLARE v_seated_at DATETIME;
+  DECLARE v_left_at DATETIME;
+  DECLARE CONTINUE HANDLER FOR NOT FOUND SET v_seated_at = NULL;
+  IF p_day IS NOT NULL THEN
+    SET v_member = ((SELECT `type` FROM `users` WHERE user_id = p_user) <=> 'MEMBER');
+    INSERT INTO `report_daily` (`report_day`, `orders_total`, `reservations`, `member_orders`)
+    VALUES (p_day, p_sign, p_sign * (p_type = 'RESERVATION'), p_sign * v_member)
+    ON DUPLICATE KEY UPDATE
+      `orders_total` = `orders_total` + p_sign,
+      `reservations` = `reservations` + p_sign * (p_type = 'RESERVATION'),
+      `member_orders` = `member_orders` + p_sign * v_member;
+
+    INSERT INTO `report_day_customers` (`report_day`, `user_id`, `orders`)
+    VALUES (p_day, p_user, p_sign)
+    ON DUPLICATE KEY UPDATE `orders` = `orders` + p_sign;
+    IF p_sign < 0 THEN
+      DELETE FROM `report_day_customers` WHERE report_day = p_day AND user_id = p_user AND `orders` <= 0;
+    END IF;
+
+    IF p_type = 'RESERVATION' THEN
+      SELECT seated_at, left_at INTO v_seated_at, v_left_at FROM `table_sessions` WHERE order_number = p_order;
+      IF v_seated_at IS NOT NULL THEN
+        CALL add_session_facts(p_day, TIMESTAMP(p_day, p_time), v_seated_at, v_left_at, p_sign);
+      END IF;
+    END IF;
+  END IF;
+END ;;
+
+DROP PROCEDURE IF EXISTS `add_waitlist_join`;;
+CREATE PROCEDURE `add_waitlist_join`(IN p_day DATE, IN p_sign INT)
+BEGIN
+  IF p_day IS NOT NULL THEN
+    INSERT INTO `report_daily` (`report_day`, `waitlist_joins`) VALUES (p_day, p_sign)
+    ON DUPLICATE KEY UPDATE `waitlist_joins` = `waitlist_joins` + p_sign;
+  END IF;
+END ;;
+
+DROP PROCEDURE IF EXISTS `add_member_orders_of_user`;;
+CREATE PROCEDURE `add_member_orders_of_user`(IN p_user INT, IN p_sign INT)
+BEGIN
+  -- Moves the orders of a user into (p_sign = 1) or out of (p_sign = -1) the
+  -- member share of each of their days, in one pass over idx_orders_user
+  UPDATE `report_daily` r
+    JOIN (SELECT order_date, COUNT(*) AS n FROM `orders`
+          WHERE user_id = p_user AND order_date IS NOT NULL GROUP BY order_date) d
+      ON d.order_date = r.report_day
+  SET r.member_orders = r.member_orders + p_sign * d.n;
+END ;;
+
+DROP PROCEDURE IF EXISTS `rebuild_report_daily`;;
+CREATE PROCEDURE `rebuild_report_daily`()
+BEGIN
+  DECLARE v_day DATE;
+  DECLARE v_done INT DEFAULT 0;
+  DECLARE days CURSOR FOR
+    SELECT order_date FROM `orders` WHERE order_date IS NOT NULL
+    UNION
+    SELECT DATE(joined_at) FROM `waiting_list`;
+  DECLARE CONTINUE HANDLER FOR NOT FOUND SET v_done = 1;
+  DELETE FROM `report_daily`;
+  DELETE FROM `report_day_customers`;
+  OPEN days;
+  read_days: LOOP
+    FETCH days INTO v_day;
+    IF v_done THEN
+      LEAVE read_days;
+    END IF;
+    CALL refresh_report_day(v_day);
+  END LOOP;
+  CLOSE days;
+END ;;
+
+--
+-- Triggers keeping the rollup up to date
+--
+
+DROP TRIGGER IF EXISTS `trg_orders_report_ins`;;
+CREATE TRIGGER `trg_orders_report_ins` AFTER INSERT ON `orders` FOR EACH ROW
+BEGIN
+  CALL add_order_facts(NEW.order_number, NEW.order_date, NEW.order_time, NEW.order_type, NEW.user_id, 1);
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_orders_report_upd`;;
+CREATE TRIGGER `trg_orders_report_upd` AFTER UPDATE ON `orders` FOR EACH ROW
+BEGIN
+  -- Status changes leave the facts unchanged, only the slot, type and user count
+  IF NOT (NEW.order_date <=> OLD.order_date AND NEW.order_time <=> OLD.order_time
+      AND NEW.order_type <=> OLD.order_type AND NEW.user_id <=> OLD.user_id) THEN
+    CALL add_order_facts(OLD.order_number, OLD.order_date, OLD.order_time, OLD.order_type, OLD.user_id, -1);
+    CALL add_order_facts(NEW.order_number, NEW.order_date, NEW.order_time, NEW.order_type, NEW.user_id, 1);
+  END IF;
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_orders_report_del`;;
+CREATE TRIGGER `trg_orders_report_del` BEFORE DELETE ON `orders` FOR EACH ROW
+BEGIN
+  -- Before the delete: its table session and waitlist entry go by cascade,
+  -- which fires no trigger, so they are taken back here while still readable
+  CALL add_order_facts(OLD.order_number, OLD.order_date, OLD.order_time, OLD.order_type, OLD.user_id, -1);
+  CALL add_waitlist_join((SELECT DATE(joined_at) FROM `waiting_list`
+                          WHERE confirmation_code = OLD.confirmation_code), -1);
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_sessions_report_ins`;;
+CREATE TRIGGER `trg_sessions_report_ins` AFTER INSERT ON `table_sessions` FOR EACH ROW
+BEGIN
+  CALL add_session_of_order(NEW.order_number, NEW.seated_at, NEW.left_at, 1);
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_sessions_report_upd`;;
+CREATE TRIGGER `trg_sessions_report_upd` AFTER UPDATE ON `table_sessions` FOR EACH ROW
+BEGIN
+  IF NOT (NEW.seated_at <=> OLD.seated_at AND NEW.left_at <=> OLD.left_at
+      AND NEW.order_number <=> OLD.order_number) THEN
+    CALL add_session_of_order(OLD.order_number, OLD.seated_at, OLD.left_at, -1);
+    CALL add_session_of_order(NEW.order_number, NEW.seated_at, NEW.left_at, 1);
+  END IF;
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_sessions_report_del`;;
+CREATE TRIGGER `trg_sessions_report_del` AFTER DELETE ON `table_sessions` FOR EACH ROW
+BEGIN
+  CALL add_session_of_order(OLD.order_number, OLD.seated_at, OLD.left_at, -1);
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_waitlist_report_ins`;;
+CREATE TRIGGER `trg_waitlist_report_ins` AFTER INSERT ON `waiting_list` FOR EACH ROW
+BEGIN
+  CALL add_waitlist_join(DATE(NEW.joined_at), 1);
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_waitlist_report_upd`;;
+CREATE TRIGGER `trg_waitlist_report_upd` AFTER UPDATE ON `waiting_list` FOR EACH ROW
+BEGIN
+  IF DATE(NEW.joined_at) <> DATE(OLD.joined_at) THEN
+    CALL add_waitlist_join(DATE(OLD.joined_at), -1);
+    CALL add_waitlist_join(DATE(NEW.joined_at), 1);
+  END IF;
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_waitlist_report_del`;;
+CREATE TRIGGER `trg_waitlist_report_del` AFTER DELETE ON `waiting_list` FOR EACH ROW
+BEGIN
+  CALL add_waitlist_join(DATE(OLD.joined_at), -1);
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_users_report_upd`;;
+CREATE TRIGGER `trg_users_report_upd` AFTER UPDATE ON `users` FOR EACH ROW
+BEGIN
+  IF NOT (NEW.type <=> OLD.type) THEN
+    IF NEW.type <=> 'MEMBER' THEN
+      CALL add_member_orders_of_user(NEW.user_id, 1);
+    ELSEIF OLD.type <=> 'MEMBER' THEN
+      CALL add_member_orders_of_user(NEW.user_id, -1);
+    END IF;
+  END IF;
+END ;;
+DELIMITER ;
+
+--
+-- Fill the rollup from the existing rows
+--
+
+CALL rebuild_report_daily();
+
+/*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
+
+/*!40101 SET SQL_MODE=@OLD_SQL_MODE */;
+/*!40014 SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS */;
+/*!40014 SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS */;
+/*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;
+/*!40101 SET CHARACTER_SET_RESULTS=@OLD_CHARACTER_SET_RESULTS */;
+/*!40101 SET COLLATION_CONNECTION=@OLD_COLLATION_CONNECTION */;
+/*!40111 SET SQL_NOTES=@OLD_SQL_NOTES */;
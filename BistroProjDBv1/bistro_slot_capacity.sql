@@ -0,0 +1,172 @@
+-- Slot capacity ledger for database: bistro
+--
+-- slot_capacity holds, for every 30-minute slot of a date and every table
+-- capacity, the number of tables of that capacity still free in the slot.
+-- slot_claims records the slots and the capacity each reservation took. A
+-- booking takes one table of a capacity in every slot of its stay with
+-- conditional updates (remaining > 0) in the transaction inserting the order,
+-- so two servers sharing the schema can never both take the last table.
+--
+-- The server creates the rows of a slot on its first booking, as the tables of
+-- each capacity minus the claims already made. The triggers below give the
+-- tables back when a reservation stops holding one (cancelled, no-show,
+-- completed or deleted), and drop the ledger when the tables change so that
+-- it is created again from the new tables and the claims. Claims made at a
+-- capacity no table has any more are first moved to the smallest capacity
+-- still seating the party, so that they keep counting against the tables; a
+-- change leaving a reservation with no table that seats it is rejected.
+--
+-- Load after the table dumps; the last statement claims tables for the
+-- upcoming reservations made before the ledger existed.
+-- ------------------------------------------------------
+
+/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;
+/*!40101 SET @OLD_CHARACTER_SET_RESULTS=@@CHARACTER_SET_RESULTS */;
+/*!40101 SET @OLD_COLLATION_CONNECTION=@@COLLATION_CONNECTION */;
+/*!50503 SET NAMES utf8 */;
+/*!40103 SET @OLD_TIME_ZONE=@@TIME_ZONE */;
+/*!40103 SET TIME_ZONE='+00:00' */;
+/*!40014 SET @OLD_UNIQUE_CHECKS=@@UNIQUE_CHECKS, UNIQUE_CHECKS=0 */;
+/*!40014 SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0 */;
+/*!40101 SET @OLD_SQL_MODE=@@SQL_MODE, SQL_MODE='NO_AUTO_VALUE_ON_ZERO' */;
+/*!40111 SET @OLD_SQL_NOTES=@@SQL_NOTES, SQL_NOTES=0 */;
+
+--
+-- Table structure for table `slot_capacity`
+--
+
+DROP TABLE IF EXISTS `slot_capacity`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `slot_capacity` (
+  `slot_date` date NOT NULL,
+  `slot_time` time NOT NULL,
+  `capacity` int NOT NULL,
+  `remaining` int NOT NULL,
+  PRIMARY KEY (`slot_date`,`slot_time`,`capacity`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `slot_claims`
+--
+
+DROP TABLE IF EXISTS `slot_claims`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `slot_claims` (
+  `order_number` int NOT NULL,
+  `slot_date` date NOT NULL,
+  `slot_time` time NOT NULL,
+  `capacity` int NOT NULL,
+  PRIMARY KEY (`order_number`,`slot_time`),
+  KEY `idx_claims_slot` (`slot_date`,`slot_time`,`capacity`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Routines and triggers for the ledger
+--
+
+DELIMITER ;;
+DROP PROCEDURE IF EXISTS `release_slot_claims`;;
+CREATE PROCEDURE `release_slot_claims`(IN p_order INT)
+BEGIN
+  -- Gives back the tables a reservation took, in every slot of its stay
+  UPDATE `slot_capacity` c
+    JOIN `slot_claims` k
+      ON k.slot_date = c.slot_date AND k.slot_time = c.slot_time AND k.capacity = c.capacity
+  SET c.remaining = c.remaining + 1
+  WHERE k.order_number = p_order;
+  DELETE FROM `slot_claims` WHERE order_number = p_order;
+END ;;
+
+DROP PROCEDURE IF EXISTS `remap_slot_claims`;;
+CREATE PROCEDURE `remap_slot_claims`()
+BEGIN
+  -- Moves the claims of a capacity no table has any more to the smallest
+  -- capacity seating the party, then drops the ledger so that it is created
+  -- again from the tables and the claims
+  IF EXISTS (SELECT 1 FROM `slot_claims` k
+               JOIN `orders` o ON o.order_number = k.order_number
+             WHERE NOT EXISTS (SELECT 1 FROM `tables` t WHERE t.capacity = k.capacity)
+               AND NOT EXISTS (SELECT 1 FROM `tables` t WHERE t.capacity >= o.number_of_guests)) THEN
+    SIGNAL SQLSTATE '45000'
+      SET MESSAGE_TEXT = 'A reservation holding a table would have no table seating it';
+  END IF;
+  UPDATE `slot_claims` k
+    JOIN `orders` o ON o.order_number = k.order_number
+  SET k.capacity = (SELECT MIN(t.capacity) FROM `tables` t WHERE t.capacity >= o.number_of_guests)
+  WHERE NOT EXISTS (SELECT 1 FROM `tables` t WHERE t.capacity = k.capacity);
+  DELETE FROM `slot_capacity`;
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_orders_slot_upd`;;
+CREATE TRIGGER `trg_orders_slot_upd` AFTER UPDATE ON `orders` FOR EACH ROW
+BEGIN
+  IF OLD.status IN ('PENDING', 'NOTIFIED', 'SEATED')
+      AND NEW.status NOT IN ('PENDING', 'NOTIFIED', 'SEATED') THEN
+    CALL release_slot_claims(OLD.order_number);
+  END IF;
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_orders_slot_del`;;
+CREATE TRIGGER `trg_orders_slot_del` AFTER DELETE ON `orders` FOR EACH ROW
+BEGIN
+  CALL release_slot_claims(OLD.order_number);
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_tables_slot_ins`;;
+CREATE TRIGGER `trg_tables_slot_ins` AFTER INSERT ON `tables` FOR EACH ROW
+BEGIN
+  DELETE FROM `slot_capacity`;
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_tables_slot_upd`;;
+CREATE TRIGGER `trg_tables_slot_upd` AFTER UPDATE ON `tables` FOR EACH ROW
+BEGIN
+  IF NOT (NEW.capacity <=> OLD.capacity) THEN
+    CALL remap_slot_claims();
+  END IF;
+END ;;
+
+DROP TRIGGER IF EXISTS `trg_tables_slot_del`;;
+CREATE TRIGGER `trg_tables_slot_del` AFTER DELETE ON `tables` FOR EACH ROW
+BEGIN
+  CALL remap_slot_claims();
+END ;;
+DELIMITER ;
+
+--
+-- Claim the smallest fitting capacity, in every slot of the stay, for the
+-- upcoming reservations holding a table. The slot step and the stay length
+-- are those of OrdersService (slotStepMinutes, reservationDurationMinutes).
+--
+
+SET @slot_step_minutes = 30;
+SET @stay_minutes = 120;
+
+INSERT INTO `slot_claims` (`order_number`, `slot_date`, `slot_time`, `capacity`)
+WITH RECURSIVE `stay_slots` (n) AS (
+  SELECT 0
+  UNION ALL
+  SELECT n + 1 FROM `stay_slots` WHERE (n + 1) * @slot_step_minutes < @stay_minutes
+)
+SELECT o.order_number, o.order_date, ADDTIME(o.order_time, SEC_TO_TIME(s.n * @slot_step_minutes * 60)),
+       (SELECT MIN(t.capacity) FROM `tables` t WHERE t.capacity >= o.number_of_guests)
+FROM `orders` o
+CROSS JOIN `stay_slots` s
+WHERE o.order_type = 'RESERVATION' AND o.status IN ('PENDING', 'NOTIFIED', 'SEATED')
+  AND o.order_date >= CURDATE()
+  AND ADDTIME(o.order_time, SEC_TO_TIME(s.n * @slot_step_minutes * 60)) < '24:00:00'
+  AND EXISTS (SELECT 1 FROM `tables` t WHERE t.capacity >= o.number_of_guests);
+
+/*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
+
+/*!40101 SET SQL_MODE=@OLD_SQL_MODE */;
+/*!40014 SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS */;
+/*!40014 SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS */;
+/*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;
+/*!40101 SET CHARACTER_SET_RESULTS=@OLD_CHARACTER_SET_RESULTS */;
+/*!40101 SET COLLATION_CONNECTION=@OLD_COLLATION_CONNECTION */;
+/*!40111 SET SQL_NOTES=@OLD_SQL_NOTES */;